@@ -0,0 +1,74 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coste del asesor de compras por tick con catalogos grandes: pedir la
+ * recomendada (lo que hace cada foto), recolocar una mejora comprada (lo que
+ * hace cada compra del piloto) y rehacerlo todo (importar partida).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsesorBenchmark {
+
+	@Param({ "18", "500", "5000" })
+	public int tam;
+
+	private List<Mejora> mejoras;
+	private Datos datos;
+	private AsesorCompras asesor;
+
+	@Setup
+	public void preparar() {
+		mejoras = new ArrayList<>(CatalogoPrueba.activas());
+		mejoras.addAll(CatalogoPrueba.pasivas(tam));
+		// saldo para tenerlas todas desbloqueadas
+		datos = new Datos(1e300);
+		datos.reloj(0);
+		asesor = new AsesorCompras(mejoras, datos);
+		asesor.avanzar();
+	}
+
+	@Benchmark
+	public int recomendada() {
+		return asesor.mejor(5);
+	}
+
+	// sube y baja un nivel la recomendada (dos recolocaciones)
+	@Benchmark
+	public int comprarYRecolocar() {
+		int i = asesor.mejor(5);
+		Mejora m = mejoras.get(i);
+		int nivel = m.getNivel();
+		m.restaurar(nivel + 1);
+		asesor.comprada(i);
+		m.restaurar(nivel);
+		asesor.comprada(i);
+		return i;
+	}
+
+	@Benchmark
+	public int reconstruir() {
+		asesor.reconstruir();
+		return asesor.mejor(5);
+	}
+
+}
@@ -0,0 +1,44 @@
+package app;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lo que cuesta leer y compilar un catalogo de mejoras al arrancar, con el
+ * tamaño del juego y con miles de entradas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogoBenchmark {
+
+	@Param({ "18", "5000" })
+	public int numMejoras;
+
+	private String texto;
+
+	@Setup
+	public void preparar() {
+		texto = CatalogoPrueba.generado(numMejoras);
+	}
+
+	@Benchmark
+	public Catalogo leer() {
+		return Catalogo.desdeTexto(texto);
+	}
+
+}
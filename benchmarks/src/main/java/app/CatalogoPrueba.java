@@ -0,0 +1,78 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalogos de mejoras para los benchmarks: el real del juego y uno inflado con
+ * mejoras pasivas generadas para ver como escala la interfaz.
+ */
+public final class CatalogoPrueba {
+// esta en el paquete app para poder tocar los restaurar de Datos y Mejora
+
+	// numero de mejoras del juego real (4 activas + 14 pasivas)
+	public static final int TAM_REAL = 18;
+
+	private CatalogoPrueba() {
+	}
+
+	// mejoras activas del juego
+	public static List<Mejora> activas() {
+		List<Mejora> activas = new ArrayList<>();
+		for (Mejora m : real()) {
+			if (!m.getCatalogo().esPasiva(m.getIndice())) {
+				activas.add(m);
+			}
+		}
+		return activas;
+	}
+
+	// pasivas del juego mas las generadas hasta llegar a total (activas incluidas)
+	public static List<Mejora> pasivas(int total) {
+		List<Mejora> pasivas = new ArrayList<>();
+		for (Mejora m : real()) {
+			if (m.getCatalogo().esPasiva(m.getIndice())) {
+				pasivas.add(m);
+			}
+		}
+		if (total > TAM_REAL) {
+			pasivas.addAll(Catalogo.desdeTexto(generado(total - TAM_REAL)).crearMejoras());
+		}
+		return pasivas;
+	}
+
+	// catalogo en el mismo formato que el fichero del juego; cada mejora un 10%
+	// mas cara y potente que la anterior (con 5.000 el coste se queda en ~1e215,
+	// dentro de un double)
+	public static String generado(int cuantas) {
+		StringBuilder texto = new StringBuilder();
+		double coste = 181_125_000;
+		double nps = 875_000;
+		for (int i = 0; i < cuantas; i++) {
+			coste *= 1.1;
+			nps *= 1.1;
+			texto.append("Generada ").append(TAM_REAL + i).append(';').append(coste).append(';')
+					.append(1.15 + (i % 8) * 0.01).append(';').append(coste * 0.9).append(";NPS;").append(nps)
+					.append(";;/img/factory.png;0\n");
+		}
+		return texto.toString();
+	}
+
+	// saldo y record fijos, sin tocar mejoras
+	public static void ponerSaldo(Datos datos, double num) {
+		NumeroGrande saldo = NumeroGrande.de(num);
+		NumeroGrande maximo = datos.getMaximo();
+		datos.restaurarSaldo(saldo, saldo.compareTo(maximo) > 0 ? saldo : maximo);
+	}
+
+	// vuelve una mejora a nivel 0 (coste base)
+	public static void reiniciar(Mejora mejora) {
+		mejora.restaurar(0);
+	}
+
+	// mejoras nuevas (a nivel 0) del catalogo del juego
+	private static List<Mejora> real() {
+		return Catalogo.cargar(Catalogo.RECURSO).crearMejoras();
+	}
+
+}
@@ -0,0 +1,117 @@
+package app;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Una rafaga de clicks (lo que llega en un tick con un macro) enviada y
+ * aplicada: como antes, una lambda por click en la cola de ordenes y un
+ * click() por cada una, y ahora, marcas en ColaClicks y una sola suma. Los
+ * grupos miden lo mismo con el productor y el consumidor en hilos distintos.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClicksBenchmark {
+
+	@Param({ "1", "16", "256" })
+	public int rafaga;
+
+	private Datos datos;
+	private final ConcurrentLinkedQueue<Consumer<Datos>> ordenes = new ConcurrentLinkedQueue<>();
+	private final ColaClicks cola = new ColaClicks(1024);
+	private final long[] marcas = new long[1024];
+
+	// lo que hacia la orden con la marca del click (grabarla)
+	private long ultimaMarca;
+
+	@Setup
+	public void preparar() {
+		datos = new Datos();
+		datos.subirNPS(1_000);
+	}
+
+	@Benchmark
+	@Group("ordenes")
+	public void colaDeOrdenes() {
+		for (int i = 0; i < rafaga; i++) {
+			long instante = System.nanoTime();
+			ordenes.add(d -> {
+				d.click();
+				ultimaMarca = instante;
+			});
+		}
+		Consumer<Datos> orden;
+		while ((orden = ordenes.poll()) != null) {
+			orden.accept(datos);
+		}
+	}
+
+	@Benchmark
+	@Group("cola")
+	public void colaDeClicks() {
+		for (int i = 0; i < rafaga; i++) {
+			cola.ofrecer(System.nanoTime());
+		}
+		int n = cola.vaciar(marcas);
+		datos.clicks(n + cola.vaciarSinMarca());
+		ultimaMarca = marcas[Math.max(0, n - 1)];
+	}
+
+	// interfaz y simulacion en hilos distintos: coste por click de cada lado
+	@Benchmark
+	@Group("hilosOrdenes")
+	@GroupThreads(1)
+	public void productorOrdenes() {
+		long instante = System.nanoTime();
+		ordenes.add(d -> {
+			d.click();
+			ultimaMarca = instante;
+		});
+	}
+
+	@Benchmark
+	@Group("hilosOrdenes")
+	@GroupThreads(1)
+	public void consumidorOrdenes() {
+		Consumer<Datos> orden = ordenes.poll();
+		if (orden != null) {
+			orden.accept(datos);
+		}
+	}
+
+	@Benchmark
+	@Group("hilosCola")
+	@GroupThreads(1)
+	public void productorCola() {
+		cola.ofrecer(System.nanoTime());
+	}
+
+	@Benchmark
+	@Group("hilosCola")
+	@GroupThreads(1)
+	public void consumidorCola() {
+		int n = cola.vaciar(marcas);
+		datos.clicks(n + cola.vaciarSinMarca());
+		ultimaMarca = marcas[Math.max(0, n - 1)];
+	}
+
+}
@@ -0,0 +1,101 @@
+package app;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coste de las operaciones del motor: un tick de reloj con el autoclicker a
+ * varios niveles, un paso entero de Simulacion (tick, asesor y foto), una
+ * vuelta larga (ponerse al dia), un click y las compras.
+ * Los que no devuelven nada modifican datos, que es estado del benchmark (JMH
+ * no los puede eliminar).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EconomiaBenchmark {
+
+	// 0 = sin autoclicker, 30 = periodo minimo (50ms)
+	@Param({ "0", "1", "10", "30" })
+	public int nivelAutoClicker;
+
+	private Datos datos;
+	private Mejora palaPizzera;
+	private Mejora experiencia;
+	private Simulacion simulacion;
+
+	@Setup
+	public void preparar() {
+		datos = new Datos();
+		datos.subirNPS(1_000);
+		datos.subirAutoClicker(nivelAutoClicker);
+
+		List<Mejora> activas = CatalogoPrueba.activas();
+		List<Mejora> pasivas = CatalogoPrueba.pasivas(CatalogoPrueba.TAM_REAL);
+		experiencia = activas.get(1);
+		palaPizzera = pasivas.get(0);
+
+		// con sus propios datos y mejoras: las compras de arriba no le afectan
+		Datos datosSimulacion = new Datos();
+		datosSimulacion.subirNPS(1_000);
+		datosSimulacion.subirAutoClicker(nivelAutoClicker);
+		List<Mejora> mejoras = CatalogoPrueba.activas();
+		mejoras.addAll(CatalogoPrueba.pasivas(CatalogoPrueba.TAM_REAL));
+		simulacion = new Simulacion(datosSimulacion, mejoras);
+	}
+
+	// un paso fijo de la simulacion
+	@Benchmark
+	public void reloj() {
+		datos.reloj(Simulacion.PASO);
+	}
+
+	// lo que hace el hilo de simulacion en cada paso sin compras ni desbloqueos
+	@Benchmark
+	public void pasoSimulacion() {
+		simulacion.avanzarPaso();
+	}
+
+	// una hora de golpe: tiene que costar lo mismo que un paso
+	@Benchmark
+	public void relojUnaHora() {
+		datos.reloj(3_600);
+	}
+
+	@Benchmark
+	public void click() {
+		datos.click();
+	}
+
+	// compra de un nivel desde nivel 0 (el reinicio entra en la medida)
+	@Benchmark
+	public int comprarUno() {
+		CatalogoPrueba.reiniciar(palaPizzera);
+		CatalogoPrueba.ponerSaldo(datos, 1e12);
+		return palaPizzera.comprar(datos) ? 1 : 0;
+	}
+
+	// compra MAX: cuantos niveles caben con el saldo (serie geometrica)
+	@Benchmark
+	public int comprarMaximo() {
+		CatalogoPrueba.reiniciar(experiencia);
+		CatalogoPrueba.ponerSaldo(datos, 1e12);
+		return experiencia.comprar(datos, Mejora.COMPRA_MAXIMA);
+	}
+
+}
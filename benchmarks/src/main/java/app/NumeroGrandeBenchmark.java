@@ -0,0 +1,63 @@
+package app;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lo que cuesta el tick con NumeroGrande frente a los double de antes: sumar
+ * nps * dt al saldo y compararlo con un coste.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumeroGrandeBenchmark {
+
+	private double numDouble = 1e9;
+	private double npsDouble = 12_345.6;
+	private double costeDouble = 5e12;
+
+	private final Acumulador num = new Acumulador(1e9);
+	private final Acumulador nps = new Acumulador(12_345.6);
+	private final NumeroGrande coste = NumeroGrande.de(5e12);
+
+	// el mismo saldo pasado de rango: la suma tiene que costar igual
+	private final Acumulador numEnorme = new Acumulador(NumeroGrande.de(1, 5_000));
+	private final Acumulador npsEnorme = new Acumulador(NumeroGrande.de(1.2, 4_998));
+
+	@Benchmark
+	public boolean tickDouble() {
+		numDouble += npsDouble * Simulacion.PASO;
+		return numDouble >= costeDouble;
+	}
+
+	@Benchmark
+	public boolean tickAcumulador() {
+		num.sumarProducto(nps, Simulacion.PASO);
+		return num.compareTo(coste) >= 0;
+	}
+
+	@Benchmark
+	public boolean tickAcumuladorEnorme() {
+		numEnorme.sumarProducto(npsEnorme, Simulacion.PASO);
+		return numEnorme.compareTo(coste) >= 0;
+	}
+
+	// foto inmutable (lo que hace cada publicacion de EstadoJuego)
+	@Benchmark
+	public NumeroGrande foto() {
+		return num.aNumeroGrande();
+	}
+
+}
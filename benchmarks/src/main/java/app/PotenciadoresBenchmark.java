@@ -0,0 +1,88 @@
+package app;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reloj con potenciadores en marcha: un paso con muchos activos (no tiene que
+ * costar mas que sin ninguno, los multiplicadores no se recalculan en cada
+ * tick) y una hora de golpe en la que acaban todos (un tramo por frontera).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PotenciadoresBenchmark {
+
+	@Param({ "0", "10", "1000" })
+	public int potenciadores;
+
+	private Datos largos;
+
+	// estado aparte: un Setup por invocacion en el estado principal tambien
+	// correria antes de cada reloj()
+	@State(Scope.Thread)
+	public static class Hora {
+		@Param({ "0", "10", "1000" })
+		public int potenciadores;
+
+		Datos datos;
+
+		// cada hora necesita sus potenciadores sin vencer
+		@Setup(Level.Invocation)
+		public void preparar() {
+			datos = nuevos();
+			for (int i = 0; i < potenciadores; i++) {
+				datos.activarPotenciador(tipo(i), 1.001, i % 60, 1 + i % 3_000);
+			}
+		}
+	}
+
+	@Setup
+	public void preparar() {
+		// duran mas que cualquier medida (un dia de juego)
+		largos = nuevos();
+		for (int i = 0; i < potenciadores; i++) {
+			largos.activarPotenciador(tipo(i), 1.001, 86_400);
+		}
+	}
+
+	private static Datos nuevos() {
+		Datos datos = new Datos();
+		datos.subirNPS(1_000);
+		datos.subirAutoClicker(10);
+		return datos;
+	}
+
+	private static Potenciador.Tipo tipo(int i) {
+		return Potenciador.Tipo.values()[i % Potenciador.Tipo.values().length];
+	}
+
+	// un paso fijo de la simulacion
+	@Benchmark
+	public void reloj() {
+		largos.reloj(Simulacion.PASO);
+	}
+
+	// una hora de golpe con todos los inicios y finales por medio
+	@Benchmark
+	public Datos relojUnaHora(Hora hora) {
+		hora.datos.reloj(3_600);
+		return hora.datos;
+	}
+
+}
@@ -0,0 +1,78 @@
+package app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reproduccion de una sesion grabada: minutos de partida con clicks a 5 por
+ * segundo y el piloto automatico comprando, jugados de nuevo sobre Datos y
+ * Mejora. Es la carga del motor tal y como la genera un jugador.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReproduccionBenchmark {
+
+	// un click cada 13 pasos de 15ms, unos 5 por segundo
+	private static final int PASOS_POR_CLICK = 13;
+
+	@Param({ "10", "60" })
+	public int minutos;
+
+	private Path fichero;
+	private Reproduccion reproduccion;
+
+	@Setup(Level.Trial)
+	public void grabar() throws IOException {
+		fichero = Files.createTempFile("protopizza", ".grabacion");
+		Catalogo catalogo = Catalogo.cargar(Catalogo.RECURSO);
+		Datos datos = new Datos(0);
+		Simulacion simulacion = new Simulacion(datos, catalogo.crearMejoras());
+		simulacion.setGrabacion(Grabacion.crear(fichero, datos, simulacion.getMejoras()));
+		simulacion.setPilotoAutomatico(true);
+
+		long pasos = minutos * 60_000L / 15;
+		for (long i = 0; i < pasos; i++) {
+			if (i % PASOS_POR_CLICK == 0) {
+				simulacion.click();
+			}
+			simulacion.avanzarPaso();
+		}
+		simulacion.terminarGrabacion();
+
+		reproduccion = Reproduccion.abrir(fichero, catalogo);
+		if (!reproduccion.reproducir()) {
+			throw new IllegalStateException("La reproduccion no coincide: " + reproduccion.getDiferencias());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void borrar() throws IOException {
+		Files.deleteIfExists(fichero);
+	}
+
+	@Benchmark
+	public boolean reproducir() {
+		return reproduccion.reproducir();
+	}
+
+}
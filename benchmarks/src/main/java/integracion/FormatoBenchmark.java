@@ -0,0 +1,141 @@
+package integracion;
+
+import java.text.NumberFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formateo de numeros del HUD (lo que hay detras de Interfaz.formatoAbreviado)
+ * frente al formatoAbreviado de antes (copiado tal cual, sufijos y escala con
+ * String.format) y NumberFormat, con valores que cambian en cada llamada para
+ * que no sirva la cache del ultimo texto.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatoBenchmark {
+
+	private static final int VALORES = 1024;
+
+	private final double[] valores = new double[VALORES];
+	private int siguiente = 0;
+
+	private final FormatoNumeros formato = new FormatoNumeros();
+	private final NumberFormat numberFormat = NumberFormat.getInstance(Interfaz.localeES);
+	private static final NumberFormat FORMATO_ENTERO_ES = NumberFormat.getInstance(Interfaz.localeES);
+
+	static {
+		FORMATO_ENTERO_ES.setGroupingUsed(true);
+		FORMATO_ENTERO_ES.setMaximumFractionDigits(0);
+	}
+
+	@Setup
+	public void preparar() {
+		// de 0 a ~1e30, repartidos en todos los sufijos
+		Random r = new Random(42);
+		for (int i = 0; i < VALORES; i++) {
+			valores[i] = Math.pow(10, r.nextDouble() * 30) * r.nextDouble();
+		}
+		numberFormat.setMaximumFractionDigits(2);
+	}
+
+	private double valor() {
+		siguiente = (siguiente + 1) & (VALORES - 1);
+		return valores[siguiente];
+	}
+
+	@Benchmark
+	public String formatoNumeros() {
+		return formato.formatear(valor(), true, false);
+	}
+
+	@Benchmark
+	public String formatoNumerosPrincipal() {
+		return formato.formatear(valor(), false, true);
+	}
+
+	// como estaba antes de FormatoNumeros, con los mismos argumentos
+	@Benchmark
+	public String anterior() {
+		return formatoAbreviado(valor(), true, false);
+	}
+
+	@Benchmark
+	public String anteriorPrincipal() {
+		return formatoAbreviado(valor(), false, true);
+	}
+
+	@Benchmark
+	public String numberFormat() {
+		return numberFormat.format(valor());
+	}
+
+	//
+	//
+	// Interfaz.formatoAbreviado y abreviarNumeros antes de FormatoNumeros (sin
+	// tocar, para medir el mismo trabajo que hacia la interfaz)
+	private static String formatoAbreviado(double n, boolean conDecimales, boolean numPrincipal) {
+		final String[] sufijos = { "", "K", "M", "B", "T", "Qa", "Qi", "Sx", "Sp", "Oc", "No" };
+		double abs = Math.abs(n);
+
+		if (numPrincipal) {
+			if (abs < 1_000) {
+				return FORMATO_ENTERO_ES.format(abs);
+			}
+			if (abs <= 99_999_999) {
+				return FORMATO_ENTERO_ES.format(abs);
+			}
+			// mas de 100M abreviado con decimales
+			@SuppressWarnings("unused")
+			String s = abreviarNumeros(abs, true, sufijos);
+		}
+
+		if (abs < 1_000) {
+			return conDecimales ? String.format(Interfaz.localeES, "%.2f", abs)
+					: String.format(Interfaz.localeES, "%.0f", abs);
+		}
+
+		return abreviarNumeros(abs, conDecimales, sufijos);
+	}
+
+	private static String abreviarNumeros(double n, boolean conDecimales, String[] sufijos) {
+		double valor = n;
+		int indice = 0;
+
+		while (valor >= 1_000.0 && indice < sufijos.length - 1) {
+			valor /= 1_000.0;
+			indice++;
+		}
+
+		if (!conDecimales) {
+			return String.format(Interfaz.localeES, "%.0f%s", valor, sufijos[indice]);
+		}
+
+		if (indice > 0) {
+			return String.format(Interfaz.localeES, "%.2f%s", valor, sufijos[indice]);
+		}
+
+		return String.format(Interfaz.localeES, "%.2f", valor);
+	}
+
+	// mismo valor siempre: lo normal en un frame sin cambios
+	@Benchmark
+	public String formatoNumerosSinCambios() {
+		return formato.formatear(valores[0], true, false);
+	}
+
+}
@@ -0,0 +1,85 @@
+package integracion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.CatalogoPrueba;
+import app.Datos;
+import app.Mejora;
+import app.Simulacion;
+
+/**
+ * Un frame de la interfaz sin ventana: la simulacion avanza un paso a mano y se
+ * llama a refrescarInterfaz, con el catalogo real y con otros grandes. Tambien
+ * lo que cuesta montar la interfaz entera.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class InterfazBenchmark {
+// sin pantalla no se pinta nada: se mide lo que hace el hilo de la interfaz
+// (foto, textos, filas), no el repintado de swing
+
+	@Param({ "18", "500", "5000" })
+	public int numMejoras;
+
+	private Datos datos;
+	private Simulacion simulacion;
+	private Interfaz interfaz;
+	private List<Mejora> activas;
+	private List<Mejora> pasivas;
+
+	@Setup
+	public void preparar() {
+		activas = CatalogoPrueba.activas();
+		pasivas = CatalogoPrueba.pasivas(numMejoras);
+
+		List<Mejora> mejoras = new ArrayList<>(activas);
+		mejoras.addAll(pasivas);
+
+		datos = new Datos();
+		datos.subirNPS(50_000);
+		datos.subirAutoClicker(10);
+		simulacion = new Simulacion(datos, mejoras);
+		interfaz = new Interfaz(simulacion, pasivas, activas);
+	}
+
+	@TearDown
+	public void cerrar() {
+		interfaz.detenerTimers();
+	}
+
+	// tick de simulacion + frame, como en el juego cada 15ms
+	@Benchmark
+	public void frame() {
+		simulacion.avanzarPaso();
+		interfaz.refrescarInterfaz();
+	}
+
+	// arranque: paneles, indice de umbrales y las filas visibles (la lista no
+	// crea un boton por mejora)
+	@Benchmark
+	public Interfaz construir() {
+		Interfaz nueva = new Interfaz(simulacion, pasivas, activas);
+		nueva.detenerTimers();
+		return nueva;
+	}
+
+}
@@ -0,0 +1,59 @@
+package metricas;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lo que cuesta medir: registrar en un histograma (un hilo y cuatro a la vez,
+ * como simulacion + interfaz + sonda), una medida completa con dos nanoTime y
+ * sacar un percentil (lo que hace el overlay cada medio segundo).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricasBenchmark {
+
+	private final Histograma histograma = Metricas.histograma("benchmark", Metricas.NANOS);
+
+	@Benchmark
+	public void registrar() {
+		histograma.registrar(ThreadLocalRandom.current().nextLong(100_000));
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void registrarCuatroHilos() {
+		histograma.registrar(ThreadLocalRandom.current().nextLong(100_000));
+	}
+
+	@Benchmark
+	public void medirConNanoTime() {
+		long inicio = System.nanoTime();
+		histograma.registrar(System.nanoTime() - inicio);
+	}
+
+	@Benchmark
+	public long percentil() {
+		return histograma.percentil(99);
+	}
+
+	@Benchmark
+	public long bytesHilo() {
+		return Metricas.bytesHilo();
+	}
+
+}
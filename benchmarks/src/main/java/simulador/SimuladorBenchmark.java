@@ -0,0 +1,59 @@
+package simulador;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.Catalogo;
+
+/**
+ * Lote de partidas del simulador de balance con 1, 2, 4 y 8 hilos, para ver
+ * que escala con los nucleos (el tiempo por lote deberia bajar casi en
+ * proporcion mientras haya nucleos libres).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimuladorBenchmark {
+
+	private static final int PARTIDAS = 256;
+
+	@Param({ "1", "2", "4", "8" })
+	public int hilos;
+
+	private Simulador simulador;
+	private ForkJoinPool pool;
+
+	@Setup
+	public void preparar() {
+		simulador = new Simulador(Catalogo.cargar(Catalogo.RECURSO), Estrategia.MEJOR_RETORNO,
+				PerfilClicks.normal(5, 2), Simulador.PASO, 12 * 3600);
+		pool = new ForkJoinPool(hilos);
+	}
+
+	@TearDown
+	public void cerrar() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public Informe lote() {
+		return simulador.ejecutar(PARTIDAS, 1, pool);
+	}
+
+}
@@ -0,0 +1,102 @@
+package visuales;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Repintado de un BotonRedondeado del tamaño de una fila de mejora, cambiando
+ * de color en cada llamada como durante un flash, frente al pintado de antes
+ * (roundRect antialias + medir el texto en cada repintado). Con escala 2 se
+ * simula una pantalla HiDPI.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+public class BotonBenchmark {
+
+	private static final int ANCHO = 420;
+	private static final int ALTO = 56;
+	private static final int RADIO = 40;
+
+	// los de las filas de Interfaz: flash, verde, gris y rojo
+	private static final Color[] COLORES = { new Color(170, 255, 170), new Color(200, 255, 200),
+			new Color(210, 210, 210), new Color(250, 180, 180) };
+
+	@Param({ "1", "2" })
+	public int escala;
+
+	private BotonRedondeado boton;
+	private BufferedImage lienzo;
+	private Graphics2D g;
+	private int siguiente = 0;
+
+	@Setup
+	public void preparar() {
+		boton = new BotonRedondeado("x100", RADIO);
+		boton.setFont(new Font("Consolas", Font.BOLD, 15));
+		boton.setSize(ANCHO, ALTO);
+		lienzo = new BufferedImage(ANCHO * escala, ALTO * escala, BufferedImage.TYPE_INT_ARGB_PRE);
+		g = lienzo.createGraphics();
+		g.scale(escala, escala);
+	}
+
+	@TearDown
+	public void cerrar() {
+		g.dispose();
+	}
+
+	private Color color() {
+		siguiente = (siguiente + 1) & 3;
+		return COLORES[siguiente];
+	}
+
+	@Benchmark
+	public BufferedImage conCache() {
+		boton.setBackground(color());
+		boton.paintComponent(g);
+		return lienzo;
+	}
+
+	// como pintaba BotonRedondeado antes de CacheFondos
+	@Benchmark
+	public BufferedImage sinCache() {
+		Graphics2D grafismo = (Graphics2D) g.create();
+		grafismo.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		grafismo.setColor(color());
+		grafismo.fillRoundRect(0, 0, ANCHO, ALTO, RADIO, RADIO);
+		grafismo.setColor(new Color(0, 0, 0, 50));
+		grafismo.drawRoundRect(0, 0, ANCHO - 1, ALTO - 1, RADIO, RADIO);
+
+		String texto = boton.getText();
+		grafismo.setFont(boton.getFont());
+		FontMetrics fm = grafismo.getFontMetrics();
+		int x = (ANCHO - fm.stringWidth(texto)) / 2;
+		int y = (ALTO - fm.getHeight()) / 2 + fm.getAscent() + 3;
+		grafismo.setColor(boton.getForeground());
+		grafismo.drawString(texto, x, y);
+		grafismo.dispose();
+		return lienzo;
+	}
+
+}
@@ -0,0 +1,112 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * El asesor contra calcular la amortizacion de todas las mejoras: la que
+ * recomienda es siempre una de las de menor amortizacion, tambien despues de
+ * comprar, de que cambien los clicks/s y de cargar una partida anterior.
+ */
+class AsesorComprasTest {
+// amortizacion = coste / (ganancia propia * factor del efecto), con los clicks/s
+// manuales mas los del autoclicker:
+//   NPS:         magnitud * (1 + clicks / 50)
+//   CLICK:       magnitud * clicks (sin clicks no da nada)
+//   AUTOCLICKER: clicks/s de mas del autoclicker * valor del click
+
+	private static final Catalogo CATALOGO = Catalogo.cargar(Catalogo.RECURSO);
+
+	@Test
+	void igualQueFuerzaBruta() {
+		Random azar = new Random(16);
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		Datos datos = new Datos(10);
+		datos.subirNPS(5);
+		AsesorCompras asesor = new AsesorCompras(mejoras, datos);
+		ByteBuffer guardado = null;
+
+		for (int paso = 0; paso < 3000; paso++) {
+			datos.reloj(azar.nextDouble() * 30);
+			asesor.avanzar();
+
+			// comprar lo recomendado casi siempre y a veces cualquier otra
+			double clicks = azar.nextInt(4) == 0 ? 0 : azar.nextDouble() * 15;
+			int i = asesor.mejor(clicks);
+			comprobar(mejoras, datos, asesor, i, clicks);
+			if (i < 0 || azar.nextInt(5) == 0) {
+				i = azar.nextInt(mejoras.size());
+			}
+			if (mejoras.get(i).desbloquado(datos.getMaximo())
+					&& mejoras.get(i).comprar(datos, azar.nextBoolean() ? 1 : Mejora.COMPRA_MAXIMA) > 0) {
+				asesor.comprada(i);
+				comprobar(mejoras, datos, asesor, asesor.mejor(clicks), clicks);
+			}
+
+			if (paso == 1000) {
+				guardado = Guardado.codificar(datos, mejoras, 0, 0);
+			}
+		}
+
+		// partida anterior cargada encima: niveles cambiados sin comprada, se rehace
+		// todo como en Simulacion al importar
+		assertNotNull(Guardado.decodificar(guardado, datos, mejoras));
+		asesor.reconstruir();
+		comprobar(mejoras, datos, asesor, asesor.mejor(3), 3);
+	}
+
+	private static void comprobar(List<Mejora> mejoras, Datos datos, AsesorCompras asesor, int elegida,
+			double clicksManuales) {
+		double clicks = clicksManuales;
+		if (datos.getNivelAutoClicker() > 0) {
+			clicks += 1 / datos.getPeriodoAutoClicker();
+		}
+		double menor = Double.POSITIVE_INFINITY;
+		for (Mejora m : mejoras) {
+			menor = Math.min(menor, log10Amortizacion(m, datos, clicks));
+		}
+		if (menor == Double.POSITIVE_INFINITY) {
+			assertEquals(-1, elegida);
+			return;
+		}
+		assertTrue(elegida >= 0, "ninguna recomendada");
+		assertEquals(menor, log10Amortizacion(mejoras.get(elegida), datos, clicks), 1e-9,
+				mejoras.get(elegida).getNombre());
+		assertEquals(menor, Math.log10(asesor.getAmortizacion()), 1e-9);
+	}
+
+	// log10 de los segundos de amortizacion; infinito si no se puede comprar o no
+	// da nada
+	private static double log10Amortizacion(Mejora m, Datos datos, double clicks) {
+		if (!m.desbloquado(datos.getMaximo()) || m.getNivelesRestantes() <= 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double ganancia;
+		switch (m.getEfecto()) {
+		case Catalogo.EFECTO_NPS:
+			ganancia = m.getMagnitud() * (1 + clicks / 50);
+			break;
+		case Catalogo.EFECTO_CLICK:
+			ganancia = m.getMagnitud() * clicks;
+			break;
+		default: {
+			int nivel = datos.getNivelAutoClicker();
+			double antes = nivel > 0 ? 1 / datos.periodoConNivel(nivel) : 0;
+			double despues = 1 / datos.periodoConNivel(nivel + (int) m.getMagnitud());
+			ganancia = (despues - antes) * datos.valorClick().toDouble();
+		}
+		}
+		if (!(ganancia > 0)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return m.getCoste().log10() - Math.log10(ganancia);
+	}
+
+}
@@ -0,0 +1,100 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cola de clicks: salen en el orden en que entraron, los que no caben se cuentan
+ * sin marca y con la interfaz y la simulacion a la vez no se pierde ninguno.
+ */
+class ColaClicksTest {
+
+	@Test
+	void capacidadPotenciaDe2() {
+		assertEquals(8, new ColaClicks(5).getCapacidad());
+		assertEquals(8, new ColaClicks(8).getCapacidad());
+		assertEquals(16, new ColaClicks(9).getCapacidad());
+		assertEquals(1024, new ColaClicks(1000).getCapacidad());
+	}
+
+	@Test
+	void enOrdenDandoVueltas() {
+		ColaClicks cola = new ColaClicks(8);
+		long[] destino = new long[3];
+		long siguiente = 0;
+		long esperado = 0;
+		// varias vueltas al array, vaciando a trozos mas pequeños que lo ofrecido
+		for (int ronda = 0; ronda < 100; ronda++) {
+			for (int i = 0; i < 5; i++) {
+				cola.ofrecer(siguiente++);
+			}
+			int n;
+			while ((n = cola.vaciar(destino)) > 0) {
+				for (int i = 0; i < n; i++) {
+					assertEquals(esperado++, destino[i]);
+				}
+			}
+		}
+		assertEquals(siguiente, esperado);
+		assertEquals(0, cola.vaciarSinMarca());
+	}
+
+	@Test
+	void llenaCuentaSinMarca() {
+		ColaClicks cola = new ColaClicks(8);
+		for (int i = 0; i < 13; i++) {
+			cola.ofrecer(i);
+		}
+		long[] destino = new long[16];
+		assertEquals(8, cola.vaciar(destino));
+		for (int i = 0; i < 8; i++) {
+			assertEquals(i, destino[i]);
+		}
+		assertEquals(5, cola.vaciarSinMarca());
+		assertEquals(0, cola.vaciarSinMarca());
+
+		// vaciada vuelve a caber
+		cola.ofrecer(100);
+		assertEquals(1, cola.vaciar(destino));
+		assertEquals(100, destino[0]);
+	}
+
+	// un hilo ofrece como la interfaz y otro vacia como la simulacion; cola
+	// pequeña para que se llene muchas veces
+	@Test
+	void dosHilosNoPierdenClicks() throws InterruptedException {
+		final int clicks = 2_000_000;
+		ColaClicks cola = new ColaClicks(64);
+		Thread interfaz = new Thread(() -> {
+			for (int i = 1; i <= clicks; i++) {
+				cola.ofrecer(i);
+			}
+		});
+		interfaz.start();
+
+		long[] destino = new long[32];
+		long conMarca = 0;
+		long sinMarca = 0;
+		long anterior = 0;
+		boolean terminado = false;
+		while (!terminado) {
+			// la ultima vuelta se hace con el productor ya parado
+			terminado = !interfaz.isAlive();
+			int n;
+			while ((n = cola.vaciar(destino)) > 0) {
+				for (int i = 0; i < n; i++) {
+					assertTrue(destino[i] > anterior, "click repetido o desordenado: " + destino[i]);
+					anterior = destino[i];
+				}
+				conMarca += n;
+			}
+			sinMarca += cola.vaciarSinMarca();
+		}
+		interfaz.join();
+		assertEquals(clicks, conMarca + sinMarca);
+		assertTrue(conMarca > 0);
+	}
+
+}
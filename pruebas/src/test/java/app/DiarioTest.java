@@ -0,0 +1,128 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Diario: recuperar sobre una partida vacia deja los niveles y el saldo que
+ * habia, se salta lo anterior al guardado y se para en el primer registro roto.
+ */
+class DiarioTest {
+
+	private static final Catalogo CATALOGO = Catalogo.cargar(Catalogo.RECURSO);
+
+	@TempDir
+	Path carpeta;
+
+	// juega un poco anotando cada evento como hace Simulacion; 5 registros
+	private static void jugar(Diario diario, Datos datos, List<Mejora> mejoras) {
+		mejoras.get(0).comprar(datos, 3);
+		diario.compra(0, mejoras.get(0).getNivel(), datos);
+		datos.clicks(40);
+		diario.clicks(40, datos);
+		datos.subirAutoClicker(2);
+		diario.autoClicker(datos.getNivelAutoClicker(), datos);
+		mejoras.get(1).comprar(datos, 2);
+		diario.compra(1, mejoras.get(1).getNivel(), datos);
+		datos.reloj(10);
+		diario.progreso(datos);
+		diario.volcar();
+	}
+
+	@Test
+	void recuperaNivelesYSaldo() {
+		Diario diario = new Diario(carpeta.resolve("partida.diario"));
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		Datos datos = new Datos(1e6);
+		jugar(diario, datos, mejoras);
+		diario.cerrar();
+
+		Diario otro = new Diario(carpeta.resolve("partida.diario"));
+		List<Mejora> recuperadas = CATALOGO.crearMejoras();
+		Datos recuperada = new Datos(0);
+		assertTrue(otro.recuperar(recuperada, recuperadas, 0) > 0);
+		assertEquals(5, otro.getSecuencia());
+		assertEquals(3, recuperadas.get(0).getNivel());
+		assertEquals(2, recuperadas.get(1).getNivel());
+		assertEquals(datos.getNivelAutoClicker(), recuperada.getNivelAutoClicker());
+		assertEquals(datos.getNum(), recuperada.getNum());
+		assertEquals(datos.getMaximo(), recuperada.getMaximo());
+		assertEquals(datos.getNps(), recuperada.getNps());
+	}
+
+	// lo que ya esta en el guardado no se vuelve a aplicar
+	@Test
+	void saltaLoAnteriorAlGuardado() {
+		Diario diario = new Diario(carpeta.resolve("partida.diario"));
+		jugar(diario, new Datos(1e6), CATALOGO.crearMejoras());
+		diario.cerrar();
+
+		// el guardado ya tenia las dos primeras: la compra de la mejora 0 no se repite
+		List<Mejora> recuperadas = CATALOGO.crearMejoras();
+		Diario otro = new Diario(carpeta.resolve("partida.diario"));
+		otro.recuperar(new Datos(0), recuperadas, 2);
+		assertEquals(0, recuperadas.get(0).getNivel());
+		assertEquals(2, recuperadas.get(1).getNivel());
+		assertEquals(5, otro.getSecuencia());
+
+		// y sin nada nuevo la secuencia sigue donde dijo el guardado
+		Diario alDia = new Diario(carpeta.resolve("partida.diario"));
+		assertEquals(-1, alDia.recuperar(new Datos(0), CATALOGO.crearMejoras(), 5));
+		assertEquals(5, alDia.getSecuencia());
+	}
+
+	// un cierre brusco a mitad de registro: se aplica lo anterior y nada mas
+	@Test
+	void paraEnElPrimerRegistroRoto() throws IOException {
+		Path ruta = carpeta.resolve("partida.diario");
+		Diario diario = new Diario(ruta);
+		jugar(diario, new Datos(1e6), CATALOGO.crearMejoras());
+		diario.cerrar();
+
+		// el cuarto registro (compra de la mejora 1) con un bit cambiado
+		byte[] bytes = Files.readAllBytes(ruta);
+		bytes[3 * Diario.REGISTRO + 30] ^= 1;
+		Files.write(ruta, bytes);
+
+		List<Mejora> recuperadas = CATALOGO.crearMejoras();
+		Diario otro = new Diario(ruta);
+		otro.recuperar(new Datos(0), recuperadas, 0);
+		assertEquals(3, otro.getSecuencia());
+		assertEquals(3, recuperadas.get(0).getNivel());
+		assertEquals(0, recuperadas.get(1).getNivel());
+
+		// un registro a medias al final se ignora igual
+		Files.write(ruta, Arrays.copyOf(Files.readAllBytes(ruta), 2 * Diario.REGISTRO + 40));
+		Diario cortado = new Diario(ruta);
+		cortado.recuperar(new Datos(0), CATALOGO.crearMejoras(), 0);
+		assertEquals(2, cortado.getSecuencia());
+	}
+
+	@Test
+	void compactarVaciaElDiario() throws IOException {
+		Path ruta = carpeta.resolve("partida.diario");
+		Diario diario = new Diario(ruta);
+		Datos datos = new Datos(1e6);
+		jugar(diario, datos, CATALOGO.crearMejoras());
+		diario.compactar();
+		assertEquals(0, Files.size(ruta));
+
+		// se sigue numerando desde donde iba
+		diario.progreso(datos);
+		diario.cerrar();
+		assertEquals(Diario.REGISTRO, Files.size(ruta));
+		Diario otro = new Diario(ruta);
+		otro.recuperar(new Datos(0), CATALOGO.crearMejoras(), 5);
+		assertEquals(6, otro.getSecuencia());
+	}
+
+}
@@ -0,0 +1,209 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Guardar y cargar: la partida vuelve igual por buffer, por fichero y
+ * exportada, y sigue igual que si no se hubiera guardado (tambien los restos en
+ * ModoExacto); los guardados rotos, de otra version o los textos que no son una
+ * partida se rechazan sin tocar nada.
+ */
+class GuardadoTest {
+// tamaño de un potenciador en el guardado (ver Guardado)
+
+	private static final int POTENCIADOR = 28;
+
+	private static final Catalogo CATALOGO = Catalogo.cargar(Catalogo.RECURSO);
+
+	@TempDir
+	Path carpeta;
+
+	// partida con mejoras, un potenciador en marcha y otro pendiente
+	static Datos partida(List<Mejora> mejoras) {
+		Datos datos = new Datos(1e6);
+		datos.subirNPS(0.0137);
+		datos.subirAutoClicker(5);
+		for (int i = 0; i < 4; i++) {
+			mejoras.get(i).comprar(datos, 3);
+		}
+		for (int i = 0; i < 2000; i++) {
+			datos.reloj(Simulacion.PASO);
+		}
+		datos.activarPotenciador(Potenciador.Tipo.PIZZAS_POR_SEGUNDO, 2, 60);
+		datos.activarPotenciador(Potenciador.Tipo.CLICK, 3, 30, 120);
+		datos.reloj(1);
+		return datos;
+	}
+
+	static ByteBuffer codificar(Datos datos, List<Mejora> mejoras) {
+		return Guardado.codificar(datos, mejoras, 0, 0);
+	}
+
+	@Test
+	void idaYVuelta() {
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		Datos original = partida(mejoras);
+
+		List<Mejora> cargadas = CATALOGO.crearMejoras();
+		Datos cargada = new Datos(0);
+		assertNotNull(Guardado.decodificar(codificar(original, mejoras), cargada, cargadas));
+		assertEquals(codificar(original, mejoras), codificar(cargada, cargadas));
+		assertEquals(Arrays.asList(original.getPotenciadores()).toString(),
+				Arrays.asList(cargada.getPotenciadores()).toString());
+		for (int i = 0; i < mejoras.size(); i++) {
+			assertEquals(mejoras.get(i).getNivel(), cargadas.get(i).getNivel(), mejoras.get(i).getNombre());
+		}
+	}
+
+	// continuar tras cargar da lo mismo bit a bit que no haber guardado nunca
+	// (los potenciadores acaban en el mismo tick y los restos vuelven)
+	@Test
+	void sigueIgualQueSinGuardar() {
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		Datos original = partida(mejoras);
+
+		List<Mejora> cargadas = CATALOGO.crearMejoras();
+		Datos cargada = new Datos(0);
+		assertNotNull(Guardado.decodificar(codificar(original, mejoras), cargada, cargadas));
+		assertEquals(original.getRestoNum(), cargada.getRestoNum());
+		assertEquals(original.getRestoNps(), cargada.getRestoNps());
+		assertEquals(original.getRestoMaximo(), cargada.getRestoMaximo());
+		for (int i = 0; i < 20_000; i++) {
+			original.reloj(Simulacion.PASO);
+			cargada.reloj(Simulacion.PASO);
+		}
+		assertEquals(codificar(original, mejoras), codificar(cargada, cargadas));
+	}
+
+	// sin ModoExacto no hay restos y la comprobacion anterior no prueba nada de ellos
+	@Test
+	void guardaLosRestosDelModoExacto() {
+		Assumptions.assumeTrue(ModoExacto.ACTIVO);
+		Datos datos = new Datos(1e12);
+		datos.subirNPS(0.0137);
+		for (int i = 0; i < 5000; i++) {
+			datos.reloj(Simulacion.PASO);
+		}
+		assertTrue(datos.getRestoNum() != 0);
+
+		Datos cargada = new Datos(0);
+		assertNotNull(Guardado.decodificar(codificar(datos, List.of()), cargada, List.of()));
+		assertEquals(datos.getRestoNum(), cargada.getRestoNum());
+		assertEquals(datos.getNum(), cargada.getNum());
+	}
+
+	@Test
+	void idaYVueltaPorFichero() {
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		Datos original = partida(mejoras);
+		Path ruta = carpeta.resolve("partida.dat");
+		assertTrue(Guardado.guardar(ruta, original, mejoras, 42));
+
+		List<Mejora> cargadas = CATALOGO.crearMejoras();
+		Datos cargada = new Datos(0);
+		Guardado.Cabecera cabecera = Guardado.cargar(ruta, cargada, cargadas);
+		assertNotNull(cabecera);
+		assertEquals(42, cabecera.getSecuenciaDiario());
+		assertEquals(codificar(original, mejoras), codificar(cargada, cargadas));
+	}
+
+	@Test
+	void idaYVueltaExportada() {
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		Datos original = partida(mejoras);
+
+		List<Mejora> cargadas = CATALOGO.crearMejoras();
+		Datos cargada = new Datos(0);
+		assertNotNull(Guardado.importar(Guardado.exportar(original, mejoras), cargada, cargadas));
+		assertEquals(codificar(original, mejoras), codificar(cargada, cargadas));
+	}
+
+	@Test
+	void rechazaLosRotos() {
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		byte[] bueno = bytes(codificar(partida(mejoras), mejoras));
+		int reloj = Guardado.CABECERA + mejoras.size() * Guardado.ENTRADA;
+
+		// un bit cambiado
+		byte[] roto = bueno.clone();
+		roto[Guardado.CABECERA - 20] ^= 1;
+		assertRechazado(roto);
+
+		// cualquier otra version, anterior o futura
+		for (int version : new int[] { 0, Guardado.VERSION + 1 }) {
+			roto = bueno.clone();
+			ByteBuffer.wrap(roto).putShort(4, (short) version);
+			assertRechazado(roto);
+		}
+
+		// cortado a mitad
+		assertRechazado(Arrays.copyOf(bueno, bueno.length - 8));
+		assertRechazado(Arrays.copyOf(bueno, 10));
+
+		// numero de mejoras o de potenciadores enorme (no puede desbordar el final)
+		for (int n : new int[] { -1, Integer.MAX_VALUE, Integer.MAX_VALUE / Guardado.ENTRADA }) {
+			roto = bueno.clone();
+			ByteBuffer.wrap(roto).putInt(Guardado.CABECERA - 4, n);
+			assertRechazado(roto);
+		}
+		for (int k : new int[] { -1, Integer.MAX_VALUE, Integer.MAX_VALUE / POTENCIADOR }) {
+			roto = bueno.clone();
+			ByteBuffer.wrap(roto).putInt(reloj + 8, k);
+			assertRechazado(roto);
+		}
+	}
+
+	@Test
+	void importarRechazaTextosQueNoSonPartidas() {
+		Datos datos = new Datos(0);
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		assertNull(Guardado.importar("esto no es base64!", datos, mejoras));
+
+		// 50 MB de ceros comprimidos caben en unas decenas de KB: se corta antes de
+		// descomprimirlos enteros
+		Deflater compresor = new Deflater(Deflater.BEST_COMPRESSION);
+		compresor.setInput(new byte[50 << 20]);
+		compresor.finish();
+		ByteArrayOutputStream comprimido = new ByteArrayOutputStream();
+		byte[] trozo = new byte[4096];
+		while (!compresor.finished()) {
+			comprimido.write(trozo, 0, compresor.deflate(trozo));
+		}
+		compresor.end();
+		String bomba = Base64.getUrlEncoder().withoutPadding().encodeToString(comprimido.toByteArray());
+		assertNull(Guardado.importar(bomba, datos, mejoras));
+
+		assertEquals(NumeroGrande.CERO, datos.getNum());
+		assertEquals(0, mejoras.get(0).getNivel());
+	}
+
+	static byte[] bytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+	private static void assertRechazado(byte[] guardado) {
+		Datos datos = new Datos(0);
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		assertNull(Guardado.decodificar(ByteBuffer.wrap(guardado), datos, mejoras));
+		assertEquals(NumeroGrande.CERO, datos.getNum());
+		assertEquals(0, mejoras.get(0).getNivel());
+	}
+
+}
@@ -0,0 +1,111 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * El indice contra recorrer todas las mejoras en cada avance: mismos eventos
+ * con bandas que se renuevan, se quitan por un lado y un record que a veces
+ * baja (importar partida).
+ */
+class IndiceUmbralesTest {
+// cada evento es indice * 4 + tipo; el orden dentro de un avance no esta
+// garantizado, asi que se comparan ordenados
+
+	private static final int MEJORAS = 60;
+
+	@Test
+	void igualQueFuerzaBruta() {
+		Random azar = new Random(8);
+		for (int ronda = 0; ronda < 50; ronda++) {
+			double[] requisitos = new double[MEJORAS];
+			for (int i = 0; i < MEJORAS; i++) {
+				// algunos repetidos, como en el catalogo
+				requisitos[i] = azar.nextInt(4) == 0 ? 1000 : aleatorio(azar);
+			}
+			IndiceUmbrales indice = new IndiceUmbrales(requisitos);
+
+			// bandas de la fuerza bruta (NaN = ese lado no se vigila)
+			double[] bajo = new double[MEJORAS];
+			double[] alto = new double[MEJORAS];
+			Arrays.fill(bajo, Double.NaN);
+			Arrays.fill(alto, Double.NaN);
+			double num = aleatorio(azar);
+			double maximo = num;
+			double ultimoMaximo = Double.NaN;
+			for (int i = 0; i < MEJORAS; i++) {
+				banda(indice, bajo, alto, i, num, azar);
+			}
+
+			for (int paso = 0; paso < 500; paso++) {
+				num = azar.nextInt(3) == 0 ? aleatorio(azar) : num * (0.5 + azar.nextDouble());
+				maximo = azar.nextInt(50) == 0 ? num : Math.max(maximo, num);
+
+				List<Integer> esperados = new ArrayList<>();
+				for (int i = 0; i < MEJORAS; i++) {
+					int tipo = 0;
+					if (!Double.isNaN(alto[i]) && num >= alto[i]) {
+						tipo = IndiceUmbrales.ASEQUIBLE;
+					} else if (!Double.isNaN(bajo[i]) && num < bajo[i]) {
+						tipo = IndiceUmbrales.INASEQUIBLE;
+					}
+					if (tipo != 0) {
+						esperados.add(i * 4 + tipo);
+						bajo[i] = Double.NaN;
+						alto[i] = Double.NaN;
+					}
+					// el record solo avisa al subir; si baja se recuenta sin avisar
+					boolean antes = !Double.isNaN(ultimoMaximo) && ultimoMaximo >= requisitos[i];
+					if (maximo >= requisitos[i] && !antes && !(maximo < ultimoMaximo)) {
+						esperados.add(i * 4 + IndiceUmbrales.DESBLOQUEADA);
+					}
+				}
+				ultimoMaximo = maximo;
+
+				int eventos = indice.avanzar(NumeroGrande.de(num), NumeroGrande.de(maximo));
+				List<Integer> dados = new ArrayList<>();
+				for (int k = 0; k < eventos; k++) {
+					dados.add(indice.getEventoIndice(k) * 4 + indice.getEventoTipo(k));
+				}
+				esperados.sort(null);
+				dados.sort(null);
+				assertEquals(esperados, dados, "paso " + paso);
+				for (int i = 0; i < MEJORAS; i++) {
+					assertEquals(maximo >= requisitos[i], indice.desbloqueada(i));
+				}
+
+				// las que han cruzado reciben banda nueva, y alguna mas cambia
+				for (int k = 0; k < eventos; k++) {
+					if (indice.getEventoTipo(k) != IndiceUmbrales.DESBLOQUEADA) {
+						banda(indice, bajo, alto, indice.getEventoIndice(k), num, azar);
+					}
+				}
+				for (int k = azar.nextInt(4); k > 0; k--) {
+					banda(indice, bajo, alto, azar.nextInt(MEJORAS), num, azar);
+				}
+			}
+		}
+	}
+
+	// banda alrededor del saldo; a veces sin uno de los lados (limite de niveles,
+	// COMPRA_MAXIMA sin saldo para ninguno...)
+	private static void banda(IndiceUmbrales indice, double[] bajo, double[] alto, int i, double num,
+			Random azar) {
+		int lados = azar.nextInt(6);
+		bajo[i] = lados == 0 ? Double.NaN : num * azar.nextDouble();
+		alto[i] = lados == 1 ? Double.NaN : num * (1 + azar.nextDouble());
+		indice.setBanda(i, Double.isNaN(bajo[i]) ? null : NumeroGrande.de(bajo[i]),
+				Double.isNaN(alto[i]) ? null : NumeroGrande.de(alto[i]));
+	}
+
+	private static double aleatorio(Random azar) {
+		return Math.pow(10, azar.nextDouble() * 12);
+	}
+
+}
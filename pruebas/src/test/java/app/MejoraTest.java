@@ -0,0 +1,99 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compras de varios niveles: la serie geometrica da lo mismo que sumar nivel a
+ * nivel y COMPRA_MAXIMA compra justo los que alcanza el saldo.
+ */
+class MejoraTest {
+// los costes se comparan en log10: pasados los 1e300 solo queda la escala
+
+	private static final Catalogo CATALOGO = Catalogo.desdeTexto(String.join("\n",
+			"normal;10;1.15;0;NPS;1;;normal.png;0",
+			"plana;5;1;0;CLICK;1;;plana.png;0",
+			"lenta;100;1.0007;0;NPS;1;;lenta.png;0",
+			"limitada;100;1.5;0;AUTOCLICKER;1;7;limitada.png;0"));
+
+	// lo que cuestan niveles seguidos desde el nivel actual, uno a uno
+	private static NumeroGrande sumaNiveles(Mejora mejora, int niveles) {
+		NumeroGrande total = NumeroGrande.CERO;
+		for (int i = 0; i < niveles; i++) {
+			total = total.sumar(NumeroGrande.potencia(CATALOGO.costesBase[mejora.getIndice()],
+					CATALOGO.incrementos[mejora.getIndice()], mejora.getNivel() + i));
+		}
+		return total;
+	}
+
+	private static void assertParecido(NumeroGrande esperado, NumeroGrande real) {
+		assertEquals(esperado.log10(), real.log10(), 1e-9, esperado + " contra " + real);
+	}
+
+	@Test
+	void serieIgualQueSumarNivelANivel() {
+		for (Mejora mejora : CATALOGO.crearMejoras()) {
+			assertEquals(NumeroGrande.CERO, mejora.costeNiveles(mejora.getCoste(), 0));
+			assertEquals(mejora.getCoste(), mejora.costeNiveles(mejora.getCoste(), 1));
+			// hasta 10000 niveles, donde 1.15^n ya no cabe en un double
+			for (int niveles : new int[] { 2, 3, 10, 100, 1000, 5000, 10_000 }) {
+				assertParecido(sumaNiveles(mejora, niveles), mejora.costeNiveles(mejora.getCoste(), niveles));
+			}
+		}
+	}
+
+	@Test
+	void asequiblesEsElMayorQueSePuedePagar() {
+		Random azar = new Random(5);
+		for (Mejora mejora : CATALOGO.crearMejoras()) {
+			for (int i = 0; i < 500; i++) {
+				NumeroGrande saldo = NumeroGrande.desdeLog10(azar.nextDouble() * 400);
+				int niveles = mejora.nivelesAsequibles(mejora.getCoste(), saldo);
+				if (niveles == Integer.MAX_VALUE) {
+					continue;
+				}
+				assertTrue(mejora.costeNiveles(mejora.getCoste(), niveles).compareTo(saldo) <= 0);
+				assertTrue(mejora.costeNiveles(mejora.getCoste(), niveles + 1).compareTo(saldo) > 0);
+			}
+		}
+	}
+
+	@Test
+	void compraMaximaGastaLoQueCuestan() {
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		Mejora normal = mejoras.get(0);
+		Datos datos = new Datos(1e6);
+		int niveles = normal.nivelesAsequibles(normal.getCoste(), datos.getNum());
+		NumeroGrande coste = normal.costeNiveles(normal.getCoste(), niveles);
+
+		assertEquals(niveles, normal.comprar(datos, Mejora.COMPRA_MAXIMA));
+		assertEquals(niveles, normal.getNivel());
+		assertParecido(NumeroGrande.de(1e6).restar(coste), datos.getNum());
+		// y el siguiente ya no llega
+		assertTrue(datos.getNum().compareTo(normal.getCoste()) < 0);
+		assertEquals(0, normal.comprar(datos, Mejora.COMPRA_MAXIMA));
+
+		// x10 sin saldo para los diez no compra ninguno
+		Datos justo = new Datos(normal.costeNiveles(normal.getCoste(), 9).toDouble());
+		assertEquals(0, normal.comprar(justo, 10));
+		assertEquals(niveles, normal.getNivel());
+	}
+
+	@Test
+	void compraMaximaNoPasaDelLimite() {
+		Mejora limitada = CATALOGO.crearMejoras().get(3);
+		Datos datos = new Datos(1e12);
+		assertEquals(7, limitada.comprar(datos, Mejora.COMPRA_MAXIMA));
+		assertEquals(0, limitada.getNivelesRestantes());
+		assertEquals(7, datos.getNivelAutoClicker());
+		assertParecido(NumeroGrande.de(1e12).restar(sumaNiveles(CATALOGO.crearMejoras().get(3), 7)),
+				datos.getNum());
+		assertEquals(0, limitada.comprar(datos, Mejora.COMPRA_MAXIMA));
+	}
+
+}
@@ -0,0 +1,141 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Potenciadores: un salto grande de reloj da lo mismo que ir parando en cada
+ * inicio y final, la compra cobra lo que dice Potenciador.coste y una partida
+ * grabada con potenciadores se reproduce igual.
+ */
+class PotenciadoresTest {
+
+	@TempDir
+	Path carpeta;
+
+	private static Datos conPotenciadores() {
+		Datos datos = new Datos(0);
+		datos.subirNPS(123.456);
+		datos.subirAutoClicker(5);
+		datos.subirPotenciaClick(7);
+		datos.activarPotenciador(Potenciador.Tipo.PIZZAS_POR_SEGUNDO, 2, 60);
+		datos.activarPotenciador(Potenciador.Tipo.CLICK, 3, 30, 600);
+		datos.activarPotenciador(Potenciador.Tipo.FRENESI, 4, 100, 1000);
+		return datos;
+	}
+
+	@Test
+	void saltoIgualQuePasoAPaso() {
+		Datos salto = conPotenciadores();
+		salto.reloj(3600);
+
+		// parando justo en cada frontera (inicio o final de un potenciador)
+		Datos pasos = conPotenciadores();
+		double antes = 0;
+		for (double frontera : new double[] { 60, 630, 1100, 3600 }) {
+			pasos.reloj(frontera - antes);
+			antes = frontera;
+		}
+
+		assertEquals(pasos.getNum(), salto.getNum());
+		assertEquals(pasos.getClicksAutomaticos(), salto.getClicksAutomaticos());
+		assertEquals(pasos.getTiempo(), salto.getTiempo());
+		assertEquals(0, salto.getPotenciadores().length);
+		assertEquals(salto.getNps(), salto.getNpsEfectivo());
+	}
+
+	@Test
+	void multiplicanMientrasDuran() {
+		Datos datos = new Datos(0);
+		datos.subirNPS(10);
+		datos.subirPotenciaClick(1);
+		datos.activarPotenciador(Potenciador.Tipo.PIZZAS_POR_SEGUNDO, 2, 10);
+		datos.activarPotenciador(Potenciador.Tipo.CLICK, 3, 5, 10);
+		assertEquals(NumeroGrande.de(20), datos.getNpsEfectivo());
+		assertEquals(1, datos.getMultiplicadorClick());
+
+		datos.reloj(5);
+		assertEquals(3, datos.getMultiplicadorClick());
+		datos.reloj(5);
+		assertEquals(NumeroGrande.de(10), datos.getNpsEfectivo());
+		datos.reloj(5);
+		assertEquals(1, datos.getMultiplicadorClick());
+		assertEquals(0, datos.getPotenciadores().length);
+	}
+
+	@Test
+	void compraCobraElCoste() {
+		Datos datos = new Datos(1000);
+		datos.subirNPS(2);
+		NumeroGrande coste = Potenciador.coste(datos.getNpsEfectivo(), 2, 30);
+		assertEquals(NumeroGrande.de(120), coste);
+
+		assertNotNull(datos.comprarPotenciador(Potenciador.Tipo.PIZZAS_POR_SEGUNDO, 2, 30, coste));
+		assertEquals(NumeroGrande.de(880), datos.getNum());
+		assertEquals(NumeroGrande.de(4), datos.getNpsEfectivo());
+
+		// sin saldo no se programa ni se cobra
+		NumeroGrande caro = NumeroGrande.de(1e6);
+		assertNull(datos.comprarPotenciador(Potenciador.Tipo.CLICK, 2, 30, caro));
+		assertEquals(NumeroGrande.de(880), datos.getNum());
+		assertEquals(1, datos.getPotenciadores().length);
+
+		// al empezar (sin pizzas/s) cuesta como si hubiera una
+		assertEquals(NumeroGrande.de(60), Potenciador.coste(NumeroGrande.CERO, 2, 30));
+	}
+
+	@Test
+	void grabacionConPotenciadoresSeReproduceIgual() {
+		Catalogo catalogo = Catalogo.cargar(Catalogo.RECURSO);
+		List<Mejora> mejoras = catalogo.crearMejoras();
+		Datos datos = new Datos(1e6);
+		Simulacion simulacion = new Simulacion(datos, mejoras);
+		Path ruta = carpeta.resolve("partida.grab");
+		Grabacion grabacion = Grabacion.crear(ruta, datos, mejoras);
+		assertNotNull(grabacion);
+		simulacion.setGrabacion(grabacion);
+
+		CompletableFuture<Potenciador> comprado = null;
+		CompletableFuture<Potenciador> caro = null;
+		for (int i = 0; i < 20_000; i++) {
+			if (i == 100) {
+				simulacion.activarPotenciador(Potenciador.Tipo.PIZZAS_POR_SEGUNDO, 3, 20);
+			}
+			if (i == 200) {
+				simulacion.activarPotenciador(Potenciador.Tipo.FRENESI, 2, 5, 60);
+			}
+			if (i == 400) {
+				comprado = simulacion.comprarPotenciador(Potenciador.Tipo.CLICK, 3, 30);
+				caro = simulacion.comprarPotenciador(Potenciador.Tipo.CLICK, 3, 1e9);
+			}
+			if (i % 50 == 0) {
+				simulacion.comprar(i % 5, 1);
+			}
+			if (i % 7 == 0) {
+				simulacion.click();
+			}
+			simulacion.avanzarPaso();
+		}
+		simulacion.terminarGrabacion();
+		assertNotNull(comprado.join());
+		assertNull(caro.join());
+
+		Reproduccion reproduccion = Reproduccion.abrir(ruta, catalogo);
+		assertNotNull(reproduccion);
+		assertTrue(reproduccion.reproducir());
+		assertTrue(reproduccion.isCompleta());
+		assertEquals(List.of(), reproduccion.getDiferencias());
+		assertEquals(Guardado.codificar(datos, mejoras, 0, 0),
+				Guardado.codificar(reproduccion.getDatos(), reproduccion.getMejoras(), 0, 0));
+	}
+
+}
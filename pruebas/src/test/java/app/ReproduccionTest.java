@@ -0,0 +1,110 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Una sesion grabada (clicks, compras de todas las cantidades, ponerse al dia y
+ * una partida importada a mitad) se reproduce sin ventana y acaba en el mismo
+ * estado, las veces que haga falta; las grabaciones de otra version o cortadas
+ * no se dan por buenas.
+ */
+class ReproduccionTest {
+
+	private static final Catalogo CATALOGO = Catalogo.cargar(Catalogo.RECURSO);
+
+	private static final int[] CANTIDADES = { 1, 10, 100, Mejora.COMPRA_MAXIMA };
+
+	@TempDir
+	Path carpeta;
+
+	// graba una sesion y devuelve el estado en que acabo
+	private ByteBuffer grabar(Path ruta) {
+		List<Mejora> mejoras = CATALOGO.crearMejoras();
+		Datos datos = new Datos(1e4);
+		Simulacion simulacion = new Simulacion(datos, mejoras);
+		Grabacion grabacion = Grabacion.crear(ruta, datos, mejoras);
+		assertNotNull(grabacion);
+		simulacion.setGrabacion(grabacion);
+
+		String exportada = null;
+		for (int i = 0; i < 20_000; i++) {
+			if (i % 40 == 0) {
+				simulacion.comprar(i / 40 % mejoras.size(), CANTIDADES[i / 40 % CANTIDADES.length]);
+			}
+			if (i % 3 == 0) {
+				simulacion.click();
+			}
+			if (i == 5000) {
+				exportada = Guardado.exportar(datos, mejoras);
+			}
+			if (i == 8000) {
+				simulacion.ponerseAlDia(3600);
+			}
+			if (i == 12_000) {
+				simulacion.importar(exportada);
+			}
+			simulacion.avanzarPaso();
+		}
+		simulacion.terminarGrabacion();
+		return Guardado.codificar(datos, mejoras, 0, 0);
+	}
+
+	@Test
+	void seReproduceIgual() {
+		Path ruta = carpeta.resolve("partida.grab");
+		ByteBuffer esperado = grabar(ruta);
+
+		Reproduccion reproduccion = Reproduccion.abrir(ruta, CATALOGO);
+		assertNotNull(reproduccion);
+		for (int vez = 0; vez < 2; vez++) {
+			assertTrue(reproduccion.reproducir(), String.valueOf(reproduccion.getDiferencias()));
+			assertTrue(reproduccion.isCompleta());
+			assertEquals(List.of(), reproduccion.getDiferencias());
+			assertEquals(esperado, Guardado.codificar(reproduccion.getDatos(), reproduccion.getMejoras(), 0, 0));
+		}
+	}
+
+	@Test
+	void rechazaOtraVersion() throws IOException {
+		Path ruta = carpeta.resolve("partida.grab");
+		grabar(ruta);
+		byte[] bytes = Files.readAllBytes(ruta);
+		for (int version : new int[] { 0, Grabacion.VERSION + 1 }) {
+			ByteBuffer.wrap(bytes).putShort(4, (short) version);
+			Path otra = carpeta.resolve("version" + version + ".grab");
+			Files.write(otra, bytes);
+			assertNull(Reproduccion.abrir(otra, CATALOGO));
+		}
+	}
+
+	// cierre brusco: lo grabado se reproduce pero sin estado final no es completa
+	@Test
+	void cortadaNoEsCompleta() throws IOException {
+		Path ruta = carpeta.resolve("partida.grab");
+		grabar(ruta);
+		byte[] bytes = Files.readAllBytes(ruta);
+		Path cortada = carpeta.resolve("cortada.grab");
+		Files.write(cortada, Arrays.copyOf(bytes, bytes.length / 2));
+
+		Reproduccion reproduccion = Reproduccion.abrir(cortada, CATALOGO);
+		assertNotNull(reproduccion);
+		assertFalse(reproduccion.reproducir());
+		assertFalse(reproduccion.isCompleta());
+		assertTrue(reproduccion.getRegistros() > 0);
+	}
+
+}
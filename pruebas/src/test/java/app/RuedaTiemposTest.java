@@ -0,0 +1,95 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * La rueda contra una cola de prioridad: mismos avisos, cada uno con la rueda
+ * justo en su tick.
+ */
+class RuedaTiemposTest {
+// cada aviso es { vence, id }; el orden entre los que vencen en el mismo tick
+// no esta garantizado, asi que se comparan ordenados por id
+
+	private static final Comparator<long[]> POR_VENCIMIENTO = Comparator.<long[]>comparingLong(a -> a[0])
+			.thenComparingLong(a -> a[1]);
+
+	@Test
+	void igualQueFuerzaBruta() {
+		Random azar = new Random(1);
+		for (int ronda = 0; ronda < 200; ronda++) {
+			RuedaTiempos<long[]> rueda = new RuedaTiempos<>(4, azar.nextInt(1 << 20));
+			PriorityQueue<long[]> cola = new PriorityQueue<>(POR_VENCIMIENTO);
+			List<long[]> vencidos = new ArrayList<>();
+			long id = 0;
+			for (int i = 0; i < 300; i++) {
+				// distancias de 1 tick hasta el alcance, repartidas por todos los niveles
+				long distancia = 1 + (long) (azar.nextDouble() * Math.pow(2, azar.nextInt(23)));
+				if (distancia >= rueda.getAlcance()) {
+					continue;
+				}
+				long[] aviso = { rueda.getAhora() + distancia, id++ };
+				rueda.programar(aviso, aviso[0]);
+				cola.add(aviso);
+
+				if (azar.nextInt(3) == 0) {
+					long hasta = rueda.getAhora() + azar.nextInt(1 << azar.nextInt(22));
+					rueda.avanzar(hasta, aviso1 -> {
+						assertEquals(aviso1[0], rueda.getAhora());
+						vencidos.add(aviso1);
+					});
+					comprobar(cola, vencidos, hasta);
+					assertEquals(cola.size(), rueda.getTam());
+				}
+			}
+			rueda.avanzar(Long.MAX_VALUE / 4, vencidos::add);
+			comprobar(cola, vencidos, Long.MAX_VALUE);
+			assertTrue(rueda.isVacia());
+		}
+	}
+
+	@Test
+	void siguienteNuncaSeSaltaUnAviso() {
+		Random azar = new Random(2);
+		RuedaTiempos<long[]> rueda = new RuedaTiempos<>(4, 0);
+		PriorityQueue<long[]> cola = new PriorityQueue<>(POR_VENCIMIENTO);
+		List<long[]> vencidos = new ArrayList<>();
+		assertEquals(RuedaTiempos.NINGUNO, rueda.siguiente());
+		for (int i = 0; i < 1000; i++) {
+			long[] aviso = { 1 + azar.nextInt(1 << 22), i };
+			rueda.programar(aviso, aviso[0]);
+			cola.add(aviso);
+		}
+		// saltando de siguiente en siguiente se para en todos los ticks con avisos
+		while (!rueda.isVacia()) {
+			long siguiente = rueda.siguiente();
+			assertTrue(siguiente <= cola.peek()[0]);
+			rueda.avanzar(siguiente, vencidos::add);
+			comprobar(cola, vencidos, siguiente);
+		}
+		assertTrue(cola.isEmpty());
+		assertEquals(RuedaTiempos.NINGUNO, rueda.siguiente());
+	}
+
+	// lo que ha dado la rueda es lo que la cola tiene hasta ese tick
+	private static void comprobar(PriorityQueue<long[]> cola, List<long[]> vencidos, long hasta) {
+		vencidos.sort(POR_VENCIMIENTO);
+		int i = 0;
+		while (!cola.isEmpty() && cola.peek()[0] <= hasta) {
+			assertTrue(i < vencidos.size(), "falta el aviso del tick " + cola.peek()[0]);
+			assertSame(cola.poll(), vencidos.get(i++));
+		}
+		assertEquals(i, vencidos.size(), "la rueda ha dado avisos de mas");
+		vencidos.clear();
+	}
+
+}
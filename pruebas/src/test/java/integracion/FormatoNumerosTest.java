@@ -0,0 +1,115 @@
+package integracion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.text.NumberFormat;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FormatoNumeros escribe lo mismo que el Interfaz.formatoAbreviado de antes
+ * (copiado tal cual, como en FormatoBenchmark) en todos los modos, tambien
+ * repitiendo valor para que pase por la cache.
+ */
+class FormatoNumerosTest {
+// a partir de 1e33 no hay sufijo: antes salia 1234,56No y ahora 1,23e36, a
+// proposito, asi que se compara solo por debajo
+
+	private static final double FIN_SUFIJOS = 1e33;
+
+	private static final NumberFormat FORMATO_ENTERO_ES = NumberFormat.getInstance(Interfaz.localeES);
+
+	static {
+		FORMATO_ENTERO_ES.setGroupingUsed(true);
+		FORMATO_ENTERO_ES.setMaximumFractionDigits(0);
+	}
+
+	@Test
+	void igualQueElFormatoAnterior() {
+		FormatoNumeros formato = new FormatoNumeros();
+		Random azar = new Random(7);
+		for (int i = 0; i < 50_000; i++) {
+			// de 0 a ~1e33, repartidos en todos los sufijos
+			double valor = Math.pow(10, azar.nextDouble() * 33) * azar.nextDouble();
+			comprobar(formato, valor);
+		}
+	}
+
+	// justo en las fronteras de redondeo y de sufijo, donde se cuelan los fallos
+	@Test
+	void igualEnLasFronteras() {
+		FormatoNumeros formato = new FormatoNumeros();
+		comprobar(formato, 0);
+		for (double escala = 1; escala < FIN_SUFIJOS; escala *= 10) {
+			for (double base : new double[] { 1, 9.99499, 9.995, 9.99501, 9.9999, 99_999_999, 99_999_999.5 }) {
+				double valor = base * escala;
+				if (valor >= FIN_SUFIJOS) {
+					continue;
+				}
+				comprobar(formato, valor);
+				comprobar(formato, Math.nextUp(valor));
+				comprobar(formato, Math.nextDown(valor));
+			}
+		}
+	}
+
+	private static void comprobar(FormatoNumeros formato, double valor) {
+		for (int modo = 0; modo < 4; modo++) {
+			boolean conDecimales = (modo & 1) != 0;
+			boolean numPrincipal = (modo & 2) != 0;
+			String esperado = formatoAbreviado(valor, conDecimales, numPrincipal);
+			assertEquals(esperado, formato.formatear(valor, conDecimales, numPrincipal), "valor " + valor);
+			assertEquals(esperado, formato.formatear(valor, conDecimales, numPrincipal), "valor " + valor);
+		}
+	}
+
+	//
+	//
+	// Interfaz.formatoAbreviado y abreviarNumeros antes de FormatoNumeros (sin
+	// tocar)
+	private static String formatoAbreviado(double n, boolean conDecimales, boolean numPrincipal) {
+		final String[] sufijos = { "", "K", "M", "B", "T", "Qa", "Qi", "Sx", "Sp", "Oc", "No" };
+		double abs = Math.abs(n);
+
+		if (numPrincipal) {
+			if (abs < 1_000) {
+				return FORMATO_ENTERO_ES.format(abs);
+			}
+			if (abs <= 99_999_999) {
+				return FORMATO_ENTERO_ES.format(abs);
+			}
+			// mas de 100M abreviado con decimales
+			@SuppressWarnings("unused")
+			String s = abreviarNumeros(abs, true, sufijos);
+		}
+
+		if (abs < 1_000) {
+			return conDecimales ? String.format(Interfaz.localeES, "%.2f", abs)
+					: String.format(Interfaz.localeES, "%.0f", abs);
+		}
+
+		return abreviarNumeros(abs, conDecimales, sufijos);
+	}
+
+	private static String abreviarNumeros(double n, boolean conDecimales, String[] sufijos) {
+		double valor = n;
+		int indice = 0;
+
+		while (valor >= 1_000.0 && indice < sufijos.length - 1) {
+			valor /= 1_000.0;
+			indice++;
+		}
+
+		if (!conDecimales) {
+			return String.format(Interfaz.localeES, "%.0f%s", valor, sufijos[indice]);
+		}
+
+		if (indice > 0) {
+			return String.format(Interfaz.localeES, "%.2f%s", valor, sufijos[indice]);
+		}
+
+		return String.format(Interfaz.localeES, "%.2f", valor);
+	}
+
+}
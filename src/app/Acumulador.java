@@ -0,0 +1,263 @@
+package app;
+
+/**
+ * Version mutable de NumeroGrande para el saldo, el nps y el record: las sumas y
+ * comparaciones del tick se hacen sobre sus dos campos sin crear objetos. No es
+ * seguro entre hilos (lo usa solo el dueño de Datos).
+ */
+public final class Acumulador {
+// misma representacion que NumeroGrande: mantisa en [1, 10) (o 0) * 10^exponente
+// En ModoExacto el valor es (mantisa + resto) * 10^exponente, como un
+// double-double: resto es lo que se ha redondeado de la mantisa y los centimos
+// de cada tick se van sumando ahi hasta que llegan a moverla
+
+	// en modo exacto se siguen sumando diferencias de hasta ~32 cifras
+	private static final int CIFRAS_EXACTAS = 2 * NumeroGrande.CIFRAS;
+
+	private double mantisa;
+	private long exponente;
+	private double resto;
+
+	public Acumulador() {
+	}
+
+	public Acumulador(double valor) {
+		poner(valor);
+	}
+
+	public Acumulador(NumeroGrande valor) {
+		poner(valor);
+	}
+
+	public void poner(double valor) {
+		mantisa = 0;
+		exponente = 0;
+		resto = 0;
+		sumar(valor);
+	}
+
+	public void poner(NumeroGrande valor) {
+		poner(valor, 0);
+	}
+
+	// valor con lo que llevaba redondeado (partida guardada en ModoExacto); fuera
+	// de ese modo el resto no se usa y se descarta
+	public void poner(NumeroGrande valor, double resto) {
+		mantisa = valor.mantisa;
+		exponente = valor.exponente;
+		this.resto = ModoExacto.ACTIVO && mantisa != 0 ? resto : 0;
+	}
+
+	public void copiar(Acumulador otro) {
+		mantisa = otro.mantisa;
+		exponente = otro.exponente;
+		resto = otro.resto;
+	}
+
+	public void sumar(double valor) {
+		if (valor == 0 || Double.isNaN(valor) || Double.isInfinite(valor)) {
+			return;
+		}
+		int k = NumeroGrande.orden(Math.abs(valor));
+		sumarNormalizado(NumeroGrande.escalar(valor, -k), k);
+	}
+
+	public void sumar(NumeroGrande valor) {
+		sumarNormalizado(valor.mantisa, valor.exponente);
+	}
+
+	public void sumar(Acumulador valor) {
+		if (ModoExacto.ACTIVO) {
+			sumarCompensado(valor.mantisa, valor.resto, valor.exponente);
+			return;
+		}
+		sumarNormalizado(valor.mantisa, valor.exponente);
+	}
+
+	public void restar(NumeroGrande valor) {
+		sumarNormalizado(-valor.mantisa, valor.exponente);
+	}
+
+	// this += otro * factor (nps * dt, clicks * valor...) sin objetos intermedios
+	public void sumarProducto(Acumulador otro, double factor) {
+		double m = otro.mantisa * factor;
+		// cero, NaN o infinito (NaN no es menor que nada)
+		if (m == 0 || !(Math.abs(m) < Double.POSITIVE_INFINITY)) {
+			return;
+		}
+		if (ModoExacto.ACTIVO) {
+			int k = NumeroGrande.orden(Math.abs(m));
+			// fma da justo lo que el producto ha redondeado
+			double r = Math.fma(otro.mantisa, factor, -m) + otro.resto * factor;
+			sumarCompensado(NumeroGrande.escalar(m, -k), NumeroGrande.escalar(r, -k), otro.exponente + k);
+			return;
+		}
+		// el caso del tick (nps * dt sobre un saldo mayor): el producto se alinea
+		// sin normalizarlo antes, una multiplicacion por tabla en vez de orden() y
+		// una division, y normalizar() no hace nada mientras el exponente no cambie
+		long d = exponente - otro.exponente;
+		if (mantisa != 0 && d >= 0 && d <= NumeroGrande.CIFRAS) {
+			mantisa += m * NumeroGrande.potenciaNeg((int) d);
+			normalizar();
+			return;
+		}
+		int k = NumeroGrande.orden(Math.abs(m));
+		sumarNormalizado(NumeroGrande.escalar(m, -k), otro.exponente + k);
+	}
+
+	// suma un valor ya normalizado alineando al exponente mayor
+	private void sumarNormalizado(double m, long e) {
+		if (ModoExacto.ACTIVO) {
+			sumarCompensado(m, 0, e);
+			return;
+		}
+		if (m == 0) {
+			return;
+		}
+		if (mantisa == 0) {
+			mantisa = m;
+			exponente = e;
+			return;
+		}
+		long d = exponente - e;
+		if (d >= 0) {
+			if (d > NumeroGrande.CIFRAS) {
+				return;
+			}
+			mantisa += m * NumeroGrande.potenciaNeg((int) d);
+		} else {
+			if (-d > NumeroGrande.CIFRAS) {
+				mantisa = m;
+				exponente = e;
+				return;
+			}
+			mantisa = mantisa * NumeroGrande.potenciaNeg((int) -d) + m;
+			exponente = e;
+		}
+		normalizar();
+	}
+
+	private void normalizar() {
+		double a = Math.abs(mantisa);
+		if (a >= 1 && a < 10) {
+			return;
+		}
+		if (a == 0) {
+			exponente = 0;
+			return;
+		}
+		int k = NumeroGrande.orden(a);
+		mantisa = NumeroGrande.escalar(mantisa, -k);
+		exponente += k;
+	}
+
+	// modo exacto: suma (m + r) * 10^e con m normalizada. El menor se baja a la
+	// escala del mayor, la suma de mantisas se hace sin perder nada (TwoSum) y lo
+	// que no cabe en la mantisa queda en resto
+	private void sumarCompensado(double m, double r, long e) {
+		if (m == 0) {
+			return;
+		}
+		if (mantisa == 0) {
+			mantisa = m;
+			resto = r;
+			exponente = e;
+			return;
+		}
+		long d = exponente - e;
+		double a;
+		double ar;
+		double b;
+		double br;
+		if (d >= 0) {
+			if (d > CIFRAS_EXACTAS) {
+				return;
+			}
+			a = mantisa;
+			ar = resto;
+			b = NumeroGrande.escalar(m, (int) -d);
+			br = NumeroGrande.escalar(r, (int) -d);
+		} else {
+			if (-d > CIFRAS_EXACTAS) {
+				mantisa = m;
+				resto = r;
+				exponente = e;
+				return;
+			}
+			a = m;
+			ar = r;
+			b = NumeroGrande.escalar(mantisa, (int) d);
+			br = NumeroGrande.escalar(resto, (int) d);
+			exponente = e;
+		}
+		double s = a + b;
+		double v = s - a;
+		double error = (a - (s - v)) + (b - v) + ar + br;
+		mantisa = s + error;
+		resto = error - (mantisa - s);
+		normalizarCompensado();
+	}
+
+	private void normalizarCompensado() {
+		double a = Math.abs(mantisa);
+		if (a >= 1 && a < 10) {
+			return;
+		}
+		if (a == 0) {
+			exponente = 0;
+			resto = 0;
+			return;
+		}
+		int k = NumeroGrande.orden(a);
+		double m = NumeroGrande.escalar(mantisa, -k);
+		double r = NumeroGrande.escalar(resto, -k);
+		mantisa = m + r;
+		resto = r - (mantisa - m);
+		exponente += k;
+		// el redondeo de m + r puede dejarla justo en 10
+		if (Math.abs(mantisa) >= 10) {
+			normalizarCompensado();
+		}
+	}
+
+	public int compareTo(Acumulador otro) {
+		return NumeroGrande.comparar(mantisa, exponente, otro.mantisa, otro.exponente);
+	}
+
+	public int compareTo(NumeroGrande otro) {
+		return NumeroGrande.comparar(mantisa, exponente, otro.mantisa, otro.exponente);
+	}
+
+	// foto inmutable del valor actual, sin el resto (getResto)
+	public NumeroGrande aNumeroGrande() {
+		if (mantisa == 0) {
+			return NumeroGrande.CERO;
+		}
+		return new NumeroGrande(mantisa, exponente);
+	}
+
+	public double toDouble() {
+		return NumeroGrande.aDouble(mantisa, exponente);
+	}
+
+	public boolean esCero() {
+		return mantisa == 0;
+	}
+
+	//
+	//
+	// getters
+	public double getMantisa() {
+		return mantisa;
+	}
+
+	public long getExponente() {
+		return exponente;
+	}
+
+	// lo que la mantisa lleva redondeado (siempre 0 fuera de ModoExacto)
+	public double getResto() {
+		return resto;
+	}
+
+}
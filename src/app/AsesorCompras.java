@@ -0,0 +1,296 @@
+package app;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ordena las mejoras por tiempo de amortizacion: segundos que tarda en
+ * devolverse el coste del siguiente nivel con lo que ese nivel añade a la
+ * produccion (pizzas/s de las pasivas, potencia de click por los clicks por
+ * segundo, ritmo del autoclicker por el valor del click). Solo entran las
+ * desbloqueadas y con niveles libres.
+ */
+public class AsesorCompras {
+// un montículo indexado de minimos por efecto. Dentro de un mismo efecto el
+// factor global (clicks/s, valor del click...) es comun a todas, asi que el orden
+// solo depende de coste / ganancia propia de cada mejora y al comprar basta con
+// recolocar esa. La mejor global sale de comparar las tres cimas con su factor.
+// Las claves van en log10 para no desbordar con costes NumeroGrande
+
+	// numero de efectos (Catalogo.EFECTO_*)
+	private static final int EFECTOS = 3;
+
+	private final List<Mejora> mejoras;
+	private final Datos datos;
+	private final int n;
+
+	// log10(coste / ganancia propia) de cada mejora
+	private final double[] clave;
+
+	// un montículo por efecto y la posicion de cada mejora en el suyo (-1 = fuera)
+	private final int[][] monticulos = new int[EFECTOS][];
+	private final int[] tams = new int[EFECTOS];
+	private final int[] pos;
+
+	// requisitos ordenados y cuantos se han superado (como en IndiceUmbrales); el
+	// record se compara en Datos contra el siguiente sin sacar un NumeroGrande,
+	// asi que sin desbloqueos avanzar no reserva memoria
+	private final int[] ordenDesbloqueo;
+	private final NumeroGrande[] requisitos;
+	// posicion de cada mejora en ordenDesbloqueo
+	private final int[] rango;
+	private int desbloqueadas = 0;
+
+	// log10 del factor de cada efecto para los clicks/s de ultimosClicks. El de
+	// autoclicker (valor del click) solo cambia con pizzas/s o potencia de click,
+	// es decir con compras (comprada) o partidas restauradas (reconstruir); los
+	// otros dos con los clicks/s
+	private final double[] factores = new double[EFECTOS];
+	private double ultimosClicks = Double.NaN;
+	private boolean valorClickCambiado = true;
+
+	// segundos de amortizacion de la ultima recomendada
+	private double amortizacion = Double.NaN;
+
+	public AsesorCompras(List<Mejora> mejoras, Datos datos) {
+		this.mejoras = mejoras;
+		this.datos = datos;
+		this.n = mejoras.size();
+		this.clave = new double[n];
+		this.pos = new int[n];
+		Arrays.fill(pos, -1);
+
+		int[] porEfecto = new int[EFECTOS];
+		for (Mejora m : mejoras) {
+			porEfecto[m.getEfecto()]++;
+		}
+		for (int e = 0; e < EFECTOS; e++) {
+			monticulos[e] = new int[porEfecto[e]];
+		}
+
+		Integer[] orden = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			orden[i] = i;
+		}
+		Arrays.sort(orden, (a, b) -> Double.compare(mejoras.get(a).getRequisitoDesbloqueo(),
+				mejoras.get(b).getRequisitoDesbloqueo()));
+		this.ordenDesbloqueo = new int[n];
+		this.requisitos = new NumeroGrande[n];
+		this.rango = new int[n];
+		for (int i = 0; i < n; i++) {
+			ordenDesbloqueo[i] = orden[i];
+			requisitos[i] = NumeroGrande.de(mejoras.get(orden[i]).getRequisitoDesbloqueo());
+			rango[orden[i]] = i;
+		}
+	}
+
+	// mete las mejoras que ha desbloqueado el record de datos; si ha bajado de
+	// la ultima desbloqueada (partida importada) se rehace todo
+	public void avanzar() {
+		if (desbloqueadas > 0 && datos.compararMaximo(requisitos[desbloqueadas - 1]) < 0) {
+			reconstruir();
+			return;
+		}
+		while (desbloqueadas < n && datos.compararMaximo(requisitos[desbloqueadas]) >= 0) {
+			desbloqueadas++;
+			actualizar(ordenDesbloqueo[desbloqueadas - 1]);
+		}
+	}
+
+	// vacia los montículos y vuelve a meter las desbloqueadas (niveles cambiados
+	// sin pasar por actualizar: importar partida)
+	public void reconstruir() {
+		Arrays.fill(pos, -1);
+		Arrays.fill(tams, 0);
+		desbloqueadas = 0;
+		valorClickCambiado = true;
+		avanzar();
+	}
+
+	// se han comprado niveles de la mejora i: se recoloca solo ella. Las de
+	// autoclicker dependen del nivel total del autoclicker, asi que se recolocan
+	// todas las de ese efecto (normalmente una)
+	public void comprada(int i) {
+		valorClickCambiado = true;
+		if (mejoras.get(i).getEfecto() != Catalogo.EFECTO_AUTOCLICKER) {
+			actualizar(i);
+			return;
+		}
+		for (int j = 0; j < n; j++) {
+			if (mejoras.get(j).getEfecto() == Catalogo.EFECTO_AUTOCLICKER) {
+				actualizar(j);
+			}
+		}
+	}
+
+	// recalcula la clave de i y la recoloca; si ya no se puede comprar o no da
+	// nada sale
+	private void actualizar(int i) {
+		Mejora m = mejoras.get(i);
+		double ganancia = gananciaPropia(m);
+		boolean dentro = m.getNivelesRestantes() > 0 && ganancia > 0;
+		if (!dentro) {
+			quitar(m.getEfecto(), i);
+			return;
+		}
+		clave[i] = m.getCoste().log10() - ModoExacto.log10(ganancia);
+
+		int e = m.getEfecto();
+		if (pos[i] < 0) {
+			if (!desbloqueada(i)) {
+				return;
+			}
+			pos[i] = tams[e];
+			monticulos[e][tams[e]++] = i;
+		}
+		subir(e, pos[i]);
+		bajar(e, pos[i]);
+	}
+
+	private boolean desbloqueada(int i) {
+		return rango[i] < desbloqueadas;
+	}
+
+	// lo que da un nivel mas sin el factor comun de su efecto
+	private double gananciaPropia(Mejora m) {
+		switch (m.getEfecto()) {
+		case Catalogo.EFECTO_NPS:
+		case Catalogo.EFECTO_CLICK:
+			return m.getMagnitud();
+		case Catalogo.EFECTO_AUTOCLICKER: {
+			// clicks/s de mas del autoclicker al subir (el nivel 0 no clica)
+			int nivel = datos.getNivelAutoClicker();
+			double antes = nivel > 0 ? 1 / datos.periodoConNivel(nivel) : 0;
+			return 1 / datos.periodoConNivel(nivel + (int) m.getMagnitud()) - antes;
+		}
+		default:
+			return 0;
+		}
+	}
+
+	// mejora con menor amortizacion o -1 si no hay ninguna que de algo;
+	// clicksPorSegundo son los manuales del jugador
+	public int mejor(double clicksPorSegundo) {
+		double clicks = clicksPorSegundo;
+		if (datos.getNivelAutoClicker() > 0) {
+			clicks += 1 / datos.getPeriodoAutoClicker();
+		}
+
+		if (clicks != ultimosClicks) {
+			ultimosClicks = clicks;
+			factores[Catalogo.EFECTO_NPS] = logFactor(Catalogo.EFECTO_NPS, clicks);
+			factores[Catalogo.EFECTO_CLICK] = logFactor(Catalogo.EFECTO_CLICK, clicks);
+		}
+		if (valorClickCambiado) {
+			valorClickCambiado = false;
+			factores[Catalogo.EFECTO_AUTOCLICKER] = logFactor(Catalogo.EFECTO_AUTOCLICKER, clicks);
+		}
+
+		int elegida = -1;
+		double menor = Double.POSITIVE_INFINITY;
+		for (int e = 0; e < EFECTOS; e++) {
+			if (tams[e] == 0) {
+				continue;
+			}
+			double factor = factores[e];
+			if (Double.isNaN(factor)) {
+				continue;
+			}
+			int cima = monticulos[e][0];
+			double segundos = clave[cima] - factor;
+			if (segundos < menor) {
+				menor = segundos;
+				elegida = cima;
+			}
+		}
+		amortizacion = elegida < 0 ? Double.NaN : ModoExacto.pow(10, menor);
+		return elegida;
+	}
+
+	// log10 de lo que multiplica a la ganancia propia; NaN si ese efecto no da
+	// nada ahora (mejoras de click sin nadie que clique)
+	private double logFactor(int efecto, double clicks) {
+		switch (efecto) {
+		case Catalogo.EFECTO_NPS:
+			// cada pizza/s tambien suma 1/50 a cada click
+			return ModoExacto.log10(1 + clicks / 50);
+		case Catalogo.EFECTO_CLICK:
+			return clicks > 0 ? ModoExacto.log10(clicks) : Double.NaN;
+		case Catalogo.EFECTO_AUTOCLICKER:
+			return datos.valorClick().log10();
+		default:
+			return Double.NaN;
+		}
+	}
+
+	//
+	//
+	// montículos de minimos por clave
+	private void quitar(int e, int i) {
+		int p = pos[i];
+		if (p < 0) {
+			return;
+		}
+		pos[i] = -1;
+		int[] monticulo = monticulos[e];
+		tams[e]--;
+		if (p == tams[e]) {
+			return;
+		}
+		int ultimo = monticulo[tams[e]];
+		monticulo[p] = ultimo;
+		pos[ultimo] = p;
+		subir(e, p);
+		bajar(e, pos[ultimo]);
+	}
+
+	private void subir(int e, int p) {
+		int[] monticulo = monticulos[e];
+		int i = monticulo[p];
+		while (p > 0) {
+			int padre = (p - 1) >>> 1;
+			int q = monticulo[padre];
+			if (clave[q] <= clave[i]) {
+				break;
+			}
+			monticulo[p] = q;
+			pos[q] = p;
+			p = padre;
+		}
+		monticulo[p] = i;
+		pos[i] = p;
+	}
+
+	private void bajar(int e, int p) {
+		int[] monticulo = monticulos[e];
+		int tam = tams[e];
+		int i = monticulo[p];
+		while (true) {
+			int hijo = 2 * p + 1;
+			if (hijo >= tam) {
+				break;
+			}
+			if (hijo + 1 < tam && clave[monticulo[hijo + 1]] < clave[monticulo[hijo]]) {
+				hijo++;
+			}
+			int h = monticulo[hijo];
+			if (clave[i] <= clave[h]) {
+				break;
+			}
+			monticulo[p] = h;
+			pos[h] = p;
+			p = hijo;
+		}
+		monticulo[p] = i;
+		pos[i] = p;
+	}
+
+	//
+	//
+	// getters
+	// segundos que tarda en amortizarse la ultima que devolvio mejor()
+	public double getAmortizacion() {
+		return amortizacion;
+	}
+
+}
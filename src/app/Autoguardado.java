@@ -0,0 +1,135 @@
+package app;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import metricas.Histograma;
+import metricas.Metricas;
+
+/**
+ * Hilo de guardado en segundo plano: Simulacion le deja una FotoPartida y este
+ * la codifica y la escribe (temporal, force y rename) sin parar el bucle de
+ * ticks ni la interfaz. Si la partida no ha cambiado desde lo ultimo escrito
+ * no se escribe nada (en la practica, solo sin pizzas/s: el saldo cambia en
+ * cada tick).
+ */
+public class Autoguardado implements Runnable {
+// antes el guardado completo (codificar, escribir y force, que en un disco lento
+// son decenas de ms) se hacia dentro del tick cada 30s. Solo hay un hueco: si
+// llega una foto nueva antes de escribir la anterior la sustituye, la vieja ya
+// no sirve. La secuencia del diario de lo ultimo escrito se publica para que el
+// hilo de simulacion compacte el diario (el diario solo lo toca ese hilo)
+
+	// duracion de cada escritura (overlay de metricas y JMX)
+	private static final Histograma METRICA = Metricas.histograma(Metricas.GUARDADO, Metricas.NANOS);
+
+	private final Path ruta;
+
+	// foto pendiente de escribir (null si no hay)
+	private final AtomicReference<FotoPartida> pendiente = new AtomicReference<>();
+
+	// ultima foto ya en disco y la secuencia de diario que cubre (-1 ninguna)
+	private volatile FotoPartida escrita;
+	private volatile long guardadoHasta = -1;
+
+	private volatile boolean activo = false;
+	private Thread hilo;
+
+	// contadores para metricas, se leen desde otros hilos; cada uno tiene un
+	// solo escritor (guardados el hilo de escritura, saltados el de simulacion)
+	private volatile long guardados = 0;
+	private volatile long saltados = 0;
+
+	public Autoguardado(Path ruta) {
+		this.ruta = ruta;
+	}
+
+	// arranca el hilo (daemon; al cerrar se vacia con cerrar())
+	public void iniciar() {
+		if (activo) {
+			return;
+		}
+		activo = true;
+		hilo = new Thread(this, "ProtoPizza-autoguardado");
+		hilo.setDaemon(true);
+		hilo.start();
+	}
+
+	// escribe lo pendiente y para el hilo. Espera sin limite: con una escritura
+	// a medias, un guardado final desde otro hilo usaria el mismo temporal y
+	// cualquiera de los dos podria renombrar un fichero mezclado
+	public void cerrar() {
+		activo = false;
+		if (hilo == null) {
+			// sin hilo (no se llego a iniciar) se escribe aqui
+			FotoPartida foto = pendiente.getAndSet(null);
+			if (foto != null) {
+				escribir(foto);
+			}
+			return;
+		}
+		LockSupport.unpark(hilo);
+		try {
+			hilo.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		hilo = null;
+	}
+
+	// pide guardar la foto; false si es la misma partida que la ya escrita y no
+	// se fuerza. Desde el hilo de simulacion
+	public boolean ofrecer(FotoPartida foto, boolean forzar) {
+		if (!forzar && foto.mismaPartida(escrita)) {
+			saltados++;
+			return false;
+		}
+		pendiente.set(foto);
+		if (hilo != null) {
+			LockSupport.unpark(hilo);
+		}
+		return true;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			FotoPartida foto = pendiente.getAndSet(null);
+			if (foto != null) {
+				escribir(foto);
+			} else if (!activo) {
+				return;
+			} else {
+				LockSupport.park(this);
+			}
+		}
+	}
+
+	private void escribir(FotoPartida foto) {
+		long inicio = System.nanoTime();
+		if (Guardado.guardar(ruta, foto)) {
+			escrita = foto;
+			guardadoHasta = foto.getSecuenciaDiario();
+			guardados++;
+		}
+		METRICA.registrar(System.nanoTime() - inicio);
+	}
+
+	//
+	//
+	// getters
+	// secuencia del diario del ultimo guardado en disco (-1 ninguno)
+	public long getGuardadoHasta() {
+		return guardadoHasta;
+	}
+
+	public long getGuardados() {
+		return guardados;
+	}
+
+	public long getSaltados() {
+		return saltados;
+	}
+
+}
@@ -0,0 +1,195 @@
+package app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Definicion de las mejoras cargada de un fichero de texto (una mejora por
+ * linea) y compilada a arrays paralelos: nombre, coste, incremento, umbral,
+ * efecto, magnitud, nivel maximo, icono y meta. Es inmutable; el nivel de cada
+ * mejora lo lleva su Mejora.
+ */
+public final class Catalogo {
+// antes cada mejora era un new Mejora(...) en ProtoPizzaAPP con una lambda de
+// efecto, y el limite de los cocineros se miraba comparando el nombre en cada
+// compra. Ahora el efecto es un codigo (switch en Mejora) y el limite un int
+
+	// catalogo del juego dentro del classpath
+	public static final String RECURSO = "/catalogo/mejoras.csv";
+
+	// efectos de comprar un nivel
+	public static final byte EFECTO_AUTOCLICKER = 0;
+	public static final byte EFECTO_CLICK = 1;
+	public static final byte EFECTO_NPS = 2;
+
+	// nivel maximo de las mejoras sin limite
+	public static final int SIN_LIMITE = Integer.MAX_VALUE;
+
+	private static final String SEPARADOR = ";";
+	private static final int CAMPOS = 9;
+
+	private final int tam;
+	final String[] nombres;
+	final double[] costesBase;
+	final double[] incrementos;
+	final double[] requisitos;
+	final byte[] efectos;
+	final double[] magnitudes;
+	final int[] nivelesMaximos;
+	final String[] iconos;
+	final boolean[] metas;
+
+	private Catalogo(List<String[]> filas) {
+		this.tam = filas.size();
+		this.nombres = new String[tam];
+		this.costesBase = new double[tam];
+		this.incrementos = new double[tam];
+		this.requisitos = new double[tam];
+		this.efectos = new byte[tam];
+		this.magnitudes = new double[tam];
+		this.nivelesMaximos = new int[tam];
+		this.iconos = new String[tam];
+		this.metas = new boolean[tam];
+
+		for (int i = 0; i < tam; i++) {
+			String[] campos = filas.get(i);
+			nombres[i] = campos[0];
+			costesBase[i] = Double.parseDouble(campos[1]);
+			incrementos[i] = Double.parseDouble(campos[2]);
+			requisitos[i] = Double.parseDouble(campos[3]);
+			efectos[i] = efecto(campos[4]);
+			magnitudes[i] = Double.parseDouble(campos[5]);
+			nivelesMaximos[i] = campos[6].isEmpty() ? SIN_LIMITE : Integer.parseInt(campos[6]);
+			iconos[i] = campos[7];
+			metas[i] = campos[8].equals("1");
+		}
+	}
+
+	// catalogo de un recurso del classpath; null si no existe o no se puede leer
+	public static Catalogo cargar(String recurso) {
+		InputStream entrada = Catalogo.class.getResourceAsStream(recurso);
+		if (entrada == null) {
+			System.err.println("No se encuentra el catalogo " + recurso);
+			return null;
+		}
+		try (Reader lector = new InputStreamReader(entrada, StandardCharsets.UTF_8)) {
+			return leer(lector);
+		} catch (IOException e) {
+			System.err.println("No se ha podido leer el catalogo " + recurso + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	// catalogo escrito en un String (catalogos generados, pruebas)
+	public static Catalogo desdeTexto(String texto) {
+		try {
+			return leer(new StringReader(texto));
+		} catch (IOException e) {
+			// un StringReader no falla
+			System.err.println("No se ha podido leer el catalogo: " + e.getMessage());
+			return null;
+		}
+	}
+
+	// lineas vacias y las que empiezan por # se ignoran; una linea mal escrita
+	// se avisa y se salta sin tirar el resto
+	public static Catalogo leer(Reader lector) throws IOException {
+		BufferedReader lineas = new BufferedReader(lector);
+		List<String[]> filas = new ArrayList<>();
+		String linea;
+		int numero = 0;
+		while ((linea = lineas.readLine()) != null) {
+			numero++;
+			linea = linea.strip();
+			if (linea.isEmpty() || linea.startsWith("#")) {
+				continue;
+			}
+			String[] campos = linea.split(SEPARADOR, -1);
+			String error = validar(campos);
+			if (error != null) {
+				System.err.println("Catalogo, linea " + numero + ": " + error);
+				continue;
+			}
+			for (int i = 0; i < campos.length; i++) {
+				campos[i] = campos[i].strip();
+			}
+			filas.add(campos);
+		}
+		return new Catalogo(filas);
+	}
+
+	// null si la linea es valida, si no el motivo
+	private static String validar(String[] campos) {
+		if (campos.length != CAMPOS) {
+			return "se esperaban " + CAMPOS + " campos y hay " + campos.length;
+		}
+		if (campos[0].isBlank()) {
+			return "mejora sin nombre";
+		}
+		try {
+			double coste = Double.parseDouble(campos[1].strip());
+			double incremento = Double.parseDouble(campos[2].strip());
+			Double.parseDouble(campos[3].strip());
+			Double.parseDouble(campos[5].strip());
+			if (!(coste > 0) || Double.isInfinite(coste) || !(incremento >= 1)) {
+				return "coste o incremento fuera de rango";
+			}
+			String nivelMaximo = campos[6].strip();
+			if (!nivelMaximo.isEmpty() && Integer.parseInt(nivelMaximo) < 0) {
+				return "nivel maximo negativo";
+			}
+		} catch (NumberFormatException e) {
+			return "numero mal escrito (" + e.getMessage() + ")";
+		}
+		if (efecto(campos[4].strip()) < 0) {
+			return "efecto desconocido " + campos[4].strip();
+		}
+		return null;
+	}
+
+	private static byte efecto(String nombre) {
+		switch (nombre) {
+		case "AUTOCLICKER":
+			return EFECTO_AUTOCLICKER;
+		case "CLICK":
+			return EFECTO_CLICK;
+		case "NPS":
+			return EFECTO_NPS;
+		default:
+			return -1;
+		}
+	}
+
+	// una Mejora por entrada, en el orden del fichero
+	public List<Mejora> crearMejoras() {
+		List<Mejora> mejoras = new ArrayList<>(tam);
+		for (int i = 0; i < tam; i++) {
+			mejoras.add(new Mejora(this, i));
+		}
+		return mejoras;
+	}
+
+	//
+	//
+	// getters
+	public int getTam() {
+		return tam;
+	}
+
+	public String getNombre(int i) {
+		return nombres[i];
+	}
+
+	// las de produccion por segundo van en la lista de pasivas
+	public boolean esPasiva(int i) {
+		return efectos[i] == EFECTO_NPS;
+	}
+
+}
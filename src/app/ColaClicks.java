@@ -0,0 +1,73 @@
+package app;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola circular acotada de clicks (su System.nanoTime) entre un solo productor,
+ * el hilo de la interfaz, y un solo consumidor, el hilo de simulacion, que la
+ * vacia una vez por tick y aplica todos los clicks de golpe. No bloquea ni crea
+ * objetos por click.
+ */
+public final class ColaClicks {
+// antes cada click era una lambda en la cola de ordenes (un objeto y un nodo de
+// ConcurrentLinkedQueue) y un unpark del hilo; con un macro a cientos de clicks
+// por segundo eso era trabajo por evento en los dos hilos. Aqui cada lado solo
+// escribe su contador (lazySet) y el productor mira el del otro cuando cree que
+// esta llena. Si se llena de verdad el click no se pierde: se cuenta sin marca
+
+	private final long[] marcas;
+	private final int mascara;
+
+	// clicks escritos y leidos desde el principio; cada uno lo avanza un solo hilo
+	private final AtomicLong escritos = new AtomicLong();
+	private final AtomicLong leidos = new AtomicLong();
+
+	// clicks que no cabian (se aplican igual, sin su marca de tiempo)
+	private final AtomicLong sinMarca = new AtomicLong();
+
+	// ultimo leidos que ha visto el productor (solo lo usa el productor)
+	private long leidosVistos = 0;
+
+	// capacidad redondeada a potencia de 2
+	public ColaClicks(int capacidad) {
+		int tam = Integer.highestOneBit(Math.max(1, capacidad - 1)) << 1;
+		this.marcas = new long[tam];
+		this.mascara = tam - 1;
+	}
+
+	// productor (hilo de la interfaz)
+	public void ofrecer(long instante) {
+		long e = escritos.get();
+		if (e - leidosVistos >= marcas.length) {
+			leidosVistos = leidos.get();
+			if (e - leidosVistos >= marcas.length) {
+				sinMarca.incrementAndGet();
+				return;
+			}
+		}
+		marcas[(int) e & mascara] = instante;
+		escritos.lazySet(e + 1);
+	}
+
+	// consumidor (hilo de simulacion): copia las marcas pendientes en destino
+	// (como mucho destino.length) y devuelve cuantas
+	public int vaciar(long[] destino) {
+		long l = leidos.get();
+		int n = (int) Math.min(escritos.get() - l, destino.length);
+		for (int i = 0; i < n; i++) {
+			destino[i] = marcas[(int) (l + i) & mascara];
+		}
+		leidos.lazySet(l + n);
+		return n;
+	}
+
+	// consumidor: clicks que llegaron con la cola llena desde la ultima vez
+	public long vaciarSinMarca() {
+		return sinMarca.get() == 0 ? 0 : sinMarca.getAndSet(0);
+	}
+
+	public int getCapacidad() {
+		return marcas.length;
+	}
+
+}
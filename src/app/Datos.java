@@ -1,5 +1,8 @@
 package app;
 
+import java.util.Arrays;
+import java.util.function.Consumer;
+
 public class Datos {
 // clase donde se guardas los datos base y funcionalidades esenciales del juego principal
 // Almacenaje del los estados numericos y los valores nps npc y tal. 
@@ -8,14 +11,15 @@ public class Datos {
 	// uso para saber si se ha usado el autocliker
 	private boolean inicializarAutoclicker = false;
 
+	// pizzas, pizzas/s y record en NumeroGrande (mutables, sin objetos por tick)
 	// n de pizzas inicial
-	private double num = 9999999999.;
+	private final Acumulador num;
 
 	// n de pizzas/s iniciales
-	private double nps = 0;
+	private final Acumulador nps = new Acumulador(0);
 
 	// guarda el maximo historico
-	private double recordMaximo = 0;
+	private final Acumulador recordMaximo = new Acumulador(0);
 
 	// el valor de cada click
 	private double clickIncremento = 1;
@@ -38,61 +42,319 @@ public class Datos {
 	// nivel inicial de autoclick osea, desactivado
 	private int nivelAutoClicker = 0;
 
+	// clicks totales que ha hecho el autoclicker (para resumenes de ausencia)
+	private long clicksAutomaticos = 0;
+
+	// potenciadores (consumibles con tiempo): reloj de juego en segundos, la rueda
+	// con sus inicios y finales (tick = 1ms de juego) y todos los programados o en
+	// marcha. El array se sustituye entero al cambiar (copy on write, lo
+	// comparten las fotos)
+	private static final double MS = 1000.0;
+	private static final int NIVELES_RUEDA = 7;
+	private static final Potenciador[] SIN_POTENCIADORES = new Potenciador[0];
+	// como mucho tantos a la vez (acota el tamaño de un guardado)
+	public static final int MAX_POTENCIADORES = 1024;
+	private double tiempo = 0;
+	private final RuedaTiempos<Potenciador> rueda = new RuedaTiempos<>(NIVELES_RUEDA, 0);
+	private final Consumer<Potenciador> alVencer = this::vencerPotenciador;
+	private Potenciador[] potenciadores = SIN_POTENCIADORES;
+	// alguno ha empezado o acabado en el ultimo avance de la rueda (los que
+	// vencen en el mismo tick se aplican de una vez)
+	private boolean potenciadoresCambiados = false;
+
+	// multiplicadores de los potenciadores en marcha y lo que sale de aplicarlos;
+	// solo se recalculan al empezar o acabar uno (o al comprar), no en cada reloj.
+	// Sin potenciadores todos valen 1 y las cuentas dan lo mismo bit a bit que sin
+	// multiplicar
+	private double multiplicadorNps = 1;
+	private double multiplicadorClick = 1;
+	private double multiplicadorFrenesi = 1;
+	// clickIncremento * multiplicadorClick
+	private double clickEfectivo = clickIncremento;
+	// lo que multiplica a nps/50 en cada click
+	private double multiplicadorNpsClick = 1;
+	// periodoAutoClicker / multiplicadorFrenesi
+	private double periodoEfectivo = periodoAutoClicker;
+
+	// partida nueva del juego
+	public Datos() {
+		this(9999999999.);
+	}
+
+	// partida nueva con otro saldo inicial (el simulador de balance empieza de 0)
+	public Datos(double numInicial) {
+		this.num = new Acumulador(numInicial);
+	}
+
 	//
 	//
 	// activacion de autoclicker
 	// si ya esta activo sube el nivel y mejora atributos a corde
 	public void subirAutoClicker() {
-		nivelAutoClicker++;
-		// nivel maximo 30
+		subirAutoClicker(1);
+	}
+
+	// varios niveles de golpe (compras x10, x100...)
+	public void subirAutoClicker(int niveles) {
+		nivelAutoClicker += niveles;
+		// el nivel maximo (30) lo pone el catalogo
+		periodoAutoClicker = periodoConNivel(nivelAutoClicker);
+		recalcularEfectivos();
+	}
+
+	// periodo del autoclicker a un nivel dado (para estimar lo que da subirlo)
+	public double periodoConNivel(int nivel) {
 		// si el nivel es 0, multiplica por cero y hace un decremento de 0
 		// si el nivel es 1 multiplica por 0.033 y restara a 1(periodo inicial) = 0,967
-		periodoAutoClicker = periodoInicial - (nivelAutoClicker - 1) * decrementoNivel;
+		double periodo = periodoInicial - (nivel - 1) * decrementoNivel;
 
 		// esto es si se pasa por debajo de 50ms
-		if (periodoAutoClicker < periodoMinimo) {
-			periodoAutoClicker = periodoMinimo;
-		}
+		return Math.max(periodo, periodoMinimo);
 	}
 
 	// cada click aumenta el num en la cantidad de incremento
 	// tambien escala cuantos mas pasivos tengas nps/50 para que no escale demasiado
 	public void click() {
 		// numeros actuales = numeros actuales + potencia + nums pasivos / 50
-		num += clickIncremento + nps / 50;
+		num.sumar(clickEfectivo);
+		num.sumarProducto(nps, multiplicadorNpsClick / 50.0);
 		// y guarda numero maximo alcanzado
-		if (num > recordMaximo) {
-			recordMaximo = num;
+		if (num.compareTo(recordMaximo) > 0) {
+			recordMaximo.copiar(num);
 		}
 	}
 
-	// numeros actuales + numeros + numeros/s * 0.015 frecuencia refresco interfaz
+	// varios clicks de golpe (los que han llegado en un tick); uno da lo mismo
+	// que click()
+	public void clicks(long cuantos) {
+		if (cuantos <= 0) {
+			return;
+		}
+		num.sumar(cuantos * clickEfectivo);
+		num.sumarProducto(nps, cuantos * multiplicadorNpsClick / 50.0);
+		if (num.compareTo(recordMaximo) > 0) {
+			recordMaximo.copiar(num);
+		}
+	}
+
+	// lo que suma cada click (manual o del autoclicker) sin potenciadores
+	public NumeroGrande valorClick() {
+		return nps.aNumeroGrande().dividir(50).sumar(clickIncremento);
+	}
+
+	// numeros actuales + numeros/s * tiempo que ha pasado desde el ultimo tick
+	// es O(1) para cualquier diferenciaTiempo: dentro de un tick nps y el valor
+	// del click no cambian, asi que los clicks del autoclicker se cuentan de golpe
+	// en vez de hacer un click() por periodo (una hora a 50ms eran 72.000 vueltas)
+	// con potenciadores el tiempo se parte en sus inicios y finales: entre dos
+	// fronteras los multiplicadores no cambian y vale la misma formula cerrada
 	public void reloj(double diferenciaTiempo) {
 
-		num += nps * diferenciaTiempo;
+		if (rueda.isVacia()) {
+			tramo(diferenciaTiempo);
+			tiempo += diferenciaTiempo;
+		} else {
+			relojConPotenciadores(diferenciaTiempo);
+		}
+
 		// almacenar maximo para umbrales de desbloqueos
-		if (num > recordMaximo) {
-			recordMaximo = num;
+		// todo lo que se suma en un tick es positivo, asi que el maximo es el final
+		if (num.compareTo(recordMaximo) > 0) {
+			recordMaximo.copiar(num);
 		}
+	}
+
+	// tiempo sin fronteras de potenciadores, con los multiplicadores fijos
+	private void tramo(double diferenciaTiempo) {
+
+		num.sumarProducto(nps, diferenciaTiempo * multiplicadorNps);
 
 		// si el nivel del autoclicker es 0, no se ejecuta su funcion
-		if (nivelAutoClicker == 0) {
+		if (nivelAutoClicker > 0) {
+			// funcion autoclicker
+			// contador = contador + el tiempo que ha pasado desde la ultima vez
+			contadorAutoClicker += diferenciaTiempo;
+
+			if (contadorAutoClicker >= periodoEfectivo) {
+				// cuantos periodos completos caben en el contador
+				long clicks = (long) (contadorAutoClicker / periodoEfectivo);
+				contadorAutoClicker -= clicks * periodoEfectivo;
+				// por redondeo puede quedar un pelin fuera de [0, periodo)
+				if (contadorAutoClicker < 0) {
+					contadorAutoClicker = 0;
+				}
+
+				// el autoclicker clickara por el usuario todas esas veces
+				num.sumar(clicks * clickEfectivo);
+				num.sumarProducto(nps, clicks * multiplicadorNpsClick / 50.0);
+				clicksAutomaticos += clicks;
+				// se cambia el booleano para que active el efecto visual del clickado
+				inicializarAutoclicker = true;
+			}
+		}
+	}
+
+	// un tramo hasta cada frontera (la rueda dice cual es la siguiente sin mirar
+	// los potenciadores uno a uno) y el resto hasta el final del reloj
+	private void relojConPotenciadores(double diferenciaTiempo) {
+		double fin = tiempo + diferenciaTiempo;
+		long tickFin = tick(fin);
+		long frontera;
+		while (!rueda.isVacia() && (frontera = rueda.siguiente()) <= tickFin) {
+			double instante = frontera / MS;
+			if (instante > tiempo) {
+				tramo(instante - tiempo);
+				tiempo = instante;
+			}
+			rueda.avanzar(frontera, alVencer);
+			aplicarCambios();
+		}
+		if (fin > tiempo) {
+			tramo(fin - tiempo);
+			tiempo = fin;
+		}
+		rueda.avanzar(tickFin, alVencer);
+		aplicarCambios();
+	}
+
+	private static long tick(double segundos) {
+		return (long) Math.floor(segundos * MS);
+	}
+
+	//
+	//
+	// potenciadores
+	// empieza ya y dura segundos; null si no vale (factor o duracion no positivos)
+	public Potenciador activarPotenciador(Potenciador.Tipo tipo, double factor, double segundos) {
+		return activarPotenciador(tipo, factor, 0, segundos);
+	}
+
+	// empieza dentro de dentroDe segundos de juego
+	public Potenciador activarPotenciador(Potenciador.Tipo tipo, double factor, double dentroDe, double segundos) {
+		if (!(factor > 0) || !(segundos > 0) || !(dentroDe >= 0)) {
+			System.err.println("Potenciador no valido: " + tipo + " x" + factor + " durante " + segundos + "s");
+			return null;
+		}
+		long inicio = tick(tiempo) + Math.round(dentroDe * MS);
+		long fin = inicio + Math.max(1, Math.round(segundos * MS));
+		Potenciador potenciador = new Potenciador(tipo, factor, inicio, fin);
+		return programarPotenciador(potenciador) ? potenciador : null;
+	}
+
+	// comprado con pizzas (Potenciador.coste): empieza ya y se cobra solo si se
+	// programa; null si no llega el saldo o no es valido
+	public Potenciador comprarPotenciador(Potenciador.Tipo tipo, double factor, double segundos, NumeroGrande coste) {
+		if (num.compareTo(coste) < 0) {
+			return null;
+		}
+		Potenciador potenciador = activarPotenciador(tipo, factor, segundos);
+		if (potenciador != null) {
+			gastar(coste);
+		}
+		return potenciador;
+	}
+
+	// con sus instantes ya puestos (partida cargada, reproduccion); false si ya
+	// ha acabado o acaba mas alla de lo que cabe en la rueda
+	public boolean programarPotenciador(Potenciador potenciador) {
+		long ahora = tick(tiempo);
+		// sin fronteras pendientes hasta ahora: solo pone la rueda en hora
+		rueda.avanzar(ahora, alVencer);
+		aplicarCambios();
+		if (potenciador.getFin() <= ahora) {
+			return false;
+		}
+		if (potenciador.getFin() - ahora >= rueda.getAlcance()) {
+			System.err.println("Potenciador demasiado largo: " + potenciador);
+			return false;
+		}
+		if (potenciadores.length >= MAX_POTENCIADORES) {
+			System.err.println("Demasiados potenciadores a la vez: " + potenciador);
+			return false;
+		}
+		Potenciador[] nuevos = Arrays.copyOf(potenciadores, potenciadores.length + 1);
+		nuevos[potenciadores.length] = potenciador;
+		potenciadores = nuevos;
+		if (potenciador.getInicio() <= ahora) {
+			rueda.programar(potenciador, potenciador.getFin());
+			recalcularEfectivos();
+		} else {
+			rueda.programar(potenciador, potenciador.getInicio());
+		}
+		return true;
+	}
+
+	// la rueda avisa dos veces: al empezar (se programa el final) y al acabar
+	private void vencerPotenciador(Potenciador potenciador) {
+		if (rueda.getAhora() < potenciador.getFin()) {
+			rueda.programar(potenciador, potenciador.getFin());
+		}
+		potenciadoresCambiados = true;
+	}
+
+	// quita los que han acabado y recalcula, una vez por frontera
+	private void aplicarCambios() {
+		if (!potenciadoresCambiados) {
 			return;
 		}
+		potenciadoresCambiados = false;
+		long ahora = rueda.getAhora();
+		int quedan = 0;
+		for (Potenciador p : potenciadores) {
+			if (p.getFin() > ahora) {
+				quedan++;
+			}
+		}
+		if (quedan < potenciadores.length) {
+			Potenciador[] nuevos = quedan == 0 ? SIN_POTENCIADORES : new Potenciador[quedan];
+			int j = 0;
+			for (Potenciador p : potenciadores) {
+				if (p.getFin() > ahora) {
+					nuevos[j++] = p;
+				}
+			}
+			potenciadores = nuevos;
+		}
+		recalcularEfectivos();
+	}
 
-		// funcion autoclicker
-		// contador = contador + el tiempo que ha pasado desde la ultima vez
-		contadorAutoClicker += diferenciaTiempo;
-		// mientras que el contador sea mayor o igual al periodo/velocidad del
-		// autoclicker
-		while (contadorAutoClicker >= periodoAutoClicker) {
-			// el autoclicker clickara por el usuario
-			this.click();
-			// se cambia el booleano para que active el efecto visual del clickado
-			inicializarAutoclicker = true;
-			// y se reinicia el contador
-			contadorAutoClicker -= periodoAutoClicker;
+	// multiplicadores de los que estan en marcha y valores que dependen de ellos
+	private void recalcularEfectivos() {
+		long ahora = rueda.getAhora();
+		double npsPor = 1;
+		double clickPor = 1;
+		double frenesiPor = 1;
+		for (Potenciador p : potenciadores) {
+			if (!p.activoEn(ahora)) {
+				continue;
+			}
+			switch (p.getTipo()) {
+			case PIZZAS_POR_SEGUNDO:
+				npsPor *= p.getFactor();
+				break;
+			case CLICK:
+				clickPor *= p.getFactor();
+				break;
+			case FRENESI:
+				frenesiPor *= p.getFactor();
+				break;
+			}
 		}
+		multiplicadorNps = npsPor;
+		multiplicadorClick = clickPor;
+		multiplicadorFrenesi = frenesiPor;
+		clickEfectivo = clickIncremento * clickPor;
+		multiplicadorNpsClick = npsPor * clickPor;
+		periodoEfectivo = periodoAutoClicker / frenesiPor;
+	}
+
+	// avanza de golpe un tiempo largo (app suspendida, partida cerrada...) y
+	// devuelve lo que se ha ganado mientras tanto
+	public ResumenAusencia ponerseAlDia(double segundos) {
+		NumeroGrande numAntes = num.aNumeroGrande();
+		long clicksAntes = clicksAutomaticos;
+		reloj(segundos);
+		return new ResumenAusencia(segundos, num.aNumeroGrande().restar(numAntes), clicksAutomaticos - clicksAntes);
 	}
 
 	public boolean autoClickerPulsado() {
@@ -108,55 +370,152 @@ public class Datos {
 
 	// verifica el saldo acctual con el coste de la mejora que solicita comprar
 	public boolean verificarCompra(Mejora mejora) {
-		// Bloqueo de "Contratar Cocineros" a partir de nivel 30
-		if (mejora.getNombre().equalsIgnoreCase("Contratar Cocineros") && mejora.getNivel() >= 30) {
+		if (mejora.getNivelesRestantes() <= 0) {
 			return false;
 		}
 
 		// si no llega devuelve false
-		return num >= mejora.getCoste();
+		return num.compareTo(mejora.getCoste()) >= 0;
 	}
 
 	public void subirPotenciaClick(double incremento) {
 		// sube la potencia del click manual
 		clickIncremento += incremento;
+		recalcularEfectivos();
 	}
 
 	public void subirNPS(double incremento) {
 		// sube la cantidad obtenida por segundo
-		nps += incremento;
+		nps.sumar(incremento);
 	}
 
-	public void gastar(double cantidad) {
+	public void gastar(NumeroGrande cantidad) {
 		// resta al saldo la cantidad del coste de la mejora
-		num -= cantidad;
+		num.restar(cantidad);
+	}
+
+	// vuelca un estado guardado (Guardado), solo desde el hilo que posee datos
+	void restaurar(NumeroGrande num, NumeroGrande nps, NumeroGrande recordMaximo, double clickIncremento,
+			double periodoAutoClicker, double contadorAutoClicker, int nivelAutoClicker, long clicksAutomaticos) {
+		this.num.poner(num);
+		this.nps.poner(nps);
+		this.recordMaximo.poner(recordMaximo);
+		this.clickIncremento = clickIncremento;
+		this.periodoAutoClicker = periodoAutoClicker;
+		this.contadorAutoClicker = contadorAutoClicker;
+		this.nivelAutoClicker = nivelAutoClicker;
+		this.clicksAutomaticos = clicksAutomaticos;
+		recalcularEfectivos();
+	}
+
+	// reloj de juego y potenciadores guardados (los que ya han acabado se
+	// descartan); sustituye a los que hubiera
+	void restaurarPotenciadores(double tiempo, Potenciador[] guardados) {
+		this.tiempo = tiempo;
+		rueda.reiniciar(tick(tiempo));
+		potenciadores = SIN_POTENCIADORES;
+		for (Potenciador p : guardados) {
+			programarPotenciador(p);
+		}
+		recalcularEfectivos();
+	}
+
+	// lo redondeado de saldo, pizzas/s y record en ModoExacto (Guardado); sin
+	// esto una partida cargada no seguiria igual bit a bit que sin guardar
+	void restaurarRestos(double num, double nps, double recordMaximo) {
+		this.num.poner(this.num.aNumeroGrande(), num);
+		this.nps.poner(this.nps.aNumeroGrande(), nps);
+		this.recordMaximo.poner(this.recordMaximo.aNumeroGrande(), recordMaximo);
+	}
+
+	// saldo que dejo un evento del diario al reaplicarlo; el registro no lleva el
+	// resto, en ModoExacto la cola recuperada tras un cierre brusco ya no es exacta
+	void restaurarSaldo(NumeroGrande num, NumeroGrande recordMaximo) {
+		this.num.poner(num);
+		this.recordMaximo.poner(recordMaximo);
 	}
 
 	//
 	//
 	// getters setters
-	public double getMaximo() {
-		return recordMaximo;
+	// los getters de numeros grandes devuelven una foto (el acumulador sigue
+	// cambiando)
+	public NumeroGrande getMaximo() {
+		return recordMaximo.aNumeroGrande();
+	}
+
+	// record contra un umbral sin sacar la foto (AsesorCompras, en cada paso)
+	int compararMaximo(NumeroGrande umbral) {
+		return recordMaximo.compareTo(umbral);
 	}
 
 	public double getClickIncremento() {
 		return clickIncremento;
 	}
 
-	public double getNum() {
-		return num;
+	public NumeroGrande getNum() {
+		return num.aNumeroGrande();
 	}
 
-	public double getNps() {
-		return nps;
+	public NumeroGrande getNps() {
+		return nps.aNumeroGrande();
 	}
 
 	public double getPeriodoAutoClicker() {
 		return periodoAutoClicker;
 	}
 
+	public double getContadorAutoClicker() {
+		return contadorAutoClicker;
+	}
+
 	public int getNivelAutoClicker() {
 		return nivelAutoClicker;
 	}
 
+	public long getClicksAutomaticos() {
+		return clicksAutomaticos;
+	}
+
+	// restos de ModoExacto (0 fuera de el)
+	double getRestoNum() {
+		return num.getResto();
+	}
+
+	double getRestoNps() {
+		return nps.getResto();
+	}
+
+	double getRestoMaximo() {
+		return recordMaximo.getResto();
+	}
+
+	// segundos de juego desde que empezo la partida
+	public double getTiempo() {
+		return tiempo;
+	}
+
+	// programados y en marcha; no modificar (lo comparten las fotos)
+	Potenciador[] getPotenciadores() {
+		return potenciadores;
+	}
+
+	// pizzas/s con los potenciadores en marcha
+	public NumeroGrande getNpsEfectivo() {
+		NumeroGrande base = nps.aNumeroGrande();
+		return multiplicadorNps == 1 ? base : base.multiplicar(multiplicadorNps);
+	}
+
+	public double getClickEfectivo() {
+		return clickEfectivo;
+	}
+
+	public double getMultiplicadorClick() {
+		return multiplicadorClick;
+	}
+
+	public double getPeriodoEfectivo() {
+		return periodoEfectivo;
+	}
+
 }
@@ -0,0 +1,222 @@
+package app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de solo escritura al final con los eventos que cambian la partida
+ * (compras, tandas de clicks, niveles de autoclicker y progreso). Cada registro
+ * guarda el saldo resultante, asi que al recuperar basta con aplicar la cola
+ * posterior al ultimo guardado. Solo lo usa el hilo de simulacion.
+ */
+public class Diario {
+// registro fijo de 72 bytes (big endian):
+//   long secuencia | long marca de tiempo (ms) | int tipo | int indice de mejora
+//   long valor (nivel o numero de clicks)
+//   num y record como NumeroGrande: double mantisa | long exponente
+//   int CRC32 de lo anterior | int reservado
+// los registros se acumulan en memoria y se escriben en tandas (volcar)
+
+	// tipos de registro
+	public static final int COMPRA = 1;
+	public static final int CLICKS = 2;
+	public static final int AUTOCLICKER = 3;
+	public static final int PROGRESO = 4;
+
+	static final int REGISTRO = 72;
+	private static final int CON_CRC = 64;
+
+	// registros que caben en memoria antes de forzar un volcado
+	private static final int CAPACIDAD = 256;
+
+	// ruta por defecto: ~/.protopizza/partida.diario
+	public static final Path RUTA_POR_DEFECTO = Paths.get(System.getProperty("user.home"), ".protopizza",
+			"partida.diario");
+
+	private final Path ruta;
+	private FileChannel canal;
+
+	// registros pendientes de escribir
+	private final ByteBuffer pendientes = ByteBuffer.allocate(CAPACIDAD * REGISTRO);
+	private final CRC32 crc = new CRC32();
+
+	// secuencia del ultimo registro anotado
+	private long secuencia = 0;
+
+	public Diario(Path ruta) {
+		this.ruta = ruta;
+	}
+
+	// reaplica sobre datos (ya cargados del guardado) los registros posteriores a
+	// la secuencia del guardado; se para en el primer registro roto (escritura a
+	// medias por un cierre brusco). Devuelve la marca de tiempo del ultimo
+	// registro aplicado o -1 si no habia ninguno
+	public long recuperar(Datos datos, List<Mejora> mejoras, long desdeSecuencia) {
+		secuencia = desdeSecuencia;
+		if (!Files.isRegularFile(ruta)) {
+			return -1;
+		}
+
+		long ultimaMarca = -1;
+		try (FileChannel lectura = FileChannel.open(ruta, StandardOpenOption.READ)) {
+			if (lectura.size() < REGISTRO) {
+				return -1;
+			}
+			MappedByteBuffer mapa = lectura.map(FileChannel.MapMode.READ_ONLY, 0, lectura.size());
+			long tam = mapa.limit() - mapa.limit() % REGISTRO;
+
+			for (int pos = 0; pos < tam; pos += REGISTRO) {
+				if (!crcCorrecto(mapa, pos)) {
+					System.err.println("Diario cortado en el registro " + (pos / REGISTRO) + ", se ignora el resto");
+					break;
+				}
+
+				long seq = mapa.getLong(pos);
+				if (seq <= desdeSecuencia) {
+					continue;
+				}
+				aplicar(mapa, pos, datos, mejoras);
+				secuencia = seq;
+				ultimaMarca = mapa.getLong(pos + 8);
+			}
+		} catch (IOException e) {
+			System.err.println("No se pudo leer el diario: " + e.getMessage());
+		}
+		return ultimaMarca;
+	}
+
+	private boolean crcCorrecto(ByteBuffer mapa, int pos) {
+		crc.reset();
+		ByteBuffer registro = mapa.duplicate();
+		registro.position(pos).limit(pos + CON_CRC);
+		crc.update(registro);
+		return (int) crc.getValue() == mapa.getInt(pos + CON_CRC);
+	}
+
+	// aplica un registro; todos son idempotentes porque llevan el estado final
+	private void aplicar(ByteBuffer mapa, int pos, Datos datos, List<Mejora> mejoras) {
+		int tipo = mapa.getInt(pos + 16);
+		int indice = mapa.getInt(pos + 20);
+		long valor = mapa.getLong(pos + 24);
+
+		if (tipo == COMPRA && indice >= 0 && indice < mejoras.size()) {
+			Mejora m = mejoras.get(indice);
+			if (m.getNivel() < valor) {
+				m.subirNiveles(datos, (int) (valor - m.getNivel()));
+			}
+		} else if (tipo == AUTOCLICKER) {
+			if (datos.getNivelAutoClicker() < valor) {
+				datos.subirAutoClicker((int) (valor - datos.getNivelAutoClicker()));
+			}
+		}
+
+		// el saldo siempre es el que quedo despues del evento
+		datos.restaurarSaldo(Guardado.leerGrande(mapa, pos + 32), Guardado.leerGrande(mapa, pos + 48));
+	}
+
+	//
+	//
+	// anotaciones (hilo de simulacion)
+	public void compra(int indice, int nivel, Datos datos) {
+		anotar(COMPRA, indice, nivel, datos);
+	}
+
+	public void clicks(long cuantos, Datos datos) {
+		anotar(CLICKS, -1, cuantos, datos);
+	}
+
+	public void autoClicker(int nivel, Datos datos) {
+		anotar(AUTOCLICKER, -1, nivel, datos);
+	}
+
+	public void progreso(Datos datos) {
+		anotar(PROGRESO, -1, 0, datos);
+	}
+
+	private void anotar(int tipo, int indice, long valor, Datos datos) {
+		if (!pendientes.hasRemaining()) {
+			volcar();
+		}
+		int inicio = pendientes.position();
+		pendientes.putLong(++secuencia);
+		pendientes.putLong(System.currentTimeMillis());
+		pendientes.putInt(tipo);
+		pendientes.putInt(indice);
+		pendientes.putLong(valor);
+		Guardado.ponerGrande(pendientes, datos.getNum());
+		Guardado.ponerGrande(pendientes, datos.getMaximo());
+
+		crc.reset();
+		crc.update(pendientes.array(), inicio, CON_CRC);
+		pendientes.putInt((int) crc.getValue());
+		pendientes.putInt(0);
+	}
+
+	// escribe al final del fichero todo lo pendiente de una vez
+	public void volcar() {
+		if (pendientes.position() == 0) {
+			return;
+		}
+		pendientes.flip();
+		try {
+			abrir();
+			while (pendientes.hasRemaining()) {
+				canal.write(pendientes);
+			}
+			canal.force(false);
+		} catch (IOException e) {
+			System.err.println("No se pudo escribir el diario: " + e.getMessage());
+		}
+		pendientes.clear();
+	}
+
+	// tras un guardado que incluye hasta la secuencia actual el diario ya no hace
+	// falta: se vacia y se sigue numerando desde donde iba
+	public void compactar() {
+		pendientes.clear();
+		try {
+			abrir();
+			canal.truncate(0);
+			canal.force(false);
+		} catch (IOException e) {
+			System.err.println("No se pudo compactar el diario: " + e.getMessage());
+		}
+	}
+
+	public void cerrar() {
+		volcar();
+		if (canal == null) {
+			return;
+		}
+		try {
+			canal.close();
+		} catch (IOException e) {
+			System.err.println("No se pudo cerrar el diario: " + e.getMessage());
+		}
+		canal = null;
+	}
+
+	private void abrir() throws IOException {
+		if (canal != null) {
+			return;
+		}
+		if (ruta.getParent() != null) {
+			Files.createDirectories(ruta.getParent());
+		}
+		canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+	}
+
+	public long getSecuencia() {
+		return secuencia;
+	}
+
+}
@@ -0,0 +1,218 @@
+package app;
+
+/**
+ * Foto inmutable del juego que publica el hilo de simulacion despues de cada
+ * tick. La interfaz solo la lee, nunca toca Datos directamente.
+ */
+public final class EstadoJuego {
+// los arrays de mejoras se comparten entre fotos mientras no haya compras
+// (copy on write en Simulacion), por eso nunca se modifican desde aqui. Las
+// pizzas/s, el click y el periodo del autoclicker ya llevan aplicados los
+// potenciadores en marcha
+
+	// numero de tick en el que se hizo la foto
+	private final long secuencia;
+
+	// valores principales de datos
+	private final NumeroGrande num;
+	private final NumeroGrande nps;
+	private final NumeroGrande maximo;
+	private final double clickIncremento;
+
+	// clickIncremento + nps / 50 (con el multiplicador de click)
+	private final NumeroGrande valorClick;
+
+	// clicks/s manuales medidos por la simulacion y pizzas/s totales contando
+	// los clicks (manuales y del autoclicker)
+	private final double clicksPorSegundo;
+	private final NumeroGrande ingreso;
+
+	// autoclicker
+	private final int nivelAutoClicker;
+	private final double periodoAutoClicker;
+
+	// cuantas veces ha clickado el autoclicker desde el arranque (para el halo)
+	private final long pulsosAutoClicker;
+
+	// estado de cada mejora, mismo orden que la lista de la simulacion
+	private final int[] niveles;
+	private final NumeroGrande[] costes;
+	private final int[] restantes;
+
+	// reloj de juego (s) y potenciadores programados o en marcha (no modificar)
+	private final double tiempo;
+	private final Potenciador[] potenciadores;
+
+	// ultimo "mientras no estabas" (null si no ha habido ninguno)
+	private final ResumenAusencia ausencia;
+
+	// mejora con menor amortizacion (-1 ninguna), sus segundos y si el piloto
+	// automatico esta comprando
+	private final int recomendada;
+	private final double amortizacion;
+	private final boolean pilotoAutomatico;
+
+	EstadoJuego(long secuencia, Datos datos, long pulsosAutoClicker, int[] niveles, NumeroGrande[] costes,
+			int[] restantes, ResumenAusencia ausencia, int recomendada, double amortizacion, boolean pilotoAutomatico,
+			double clicksPorSegundo) {
+		this.secuencia = secuencia;
+		this.num = datos.getNum();
+		this.nps = datos.getNpsEfectivo();
+		this.maximo = datos.getMaximo();
+		this.clickIncremento = datos.getClickEfectivo();
+		this.nivelAutoClicker = datos.getNivelAutoClicker();
+		this.periodoAutoClicker = datos.getPeriodoEfectivo();
+		this.tiempo = datos.getTiempo();
+		this.potenciadores = datos.getPotenciadores();
+		this.pulsosAutoClicker = pulsosAutoClicker;
+		this.niveles = niveles;
+		this.costes = costes;
+		this.restantes = restantes;
+		this.ausencia = ausencia;
+		this.recomendada = recomendada;
+		this.amortizacion = amortizacion;
+		this.pilotoAutomatico = pilotoAutomatico;
+		this.clicksPorSegundo = clicksPorSegundo;
+
+		// se calculan aqui, en el hilo de simulacion, para que la foto que lee la
+		// interfaz ya este completa (nada se rellena al leerla)
+		NumeroGrande porNps = nps.dividir(50);
+		double multiplicadorClick = datos.getMultiplicadorClick();
+		if (multiplicadorClick != 1) {
+			porNps = porNps.multiplicar(multiplicadorClick);
+		}
+		this.valorClick = porNps.sumar(clickIncremento);
+		double clicks = clicksPorSegundo;
+		if (nivelAutoClicker > 0) {
+			clicks += 1 / periodoAutoClicker;
+		}
+		this.ingreso = nps.sumar(valorClick.multiplicar(clicks));
+	}
+
+	// misma comprobacion que Datos.verificarCompra pero sobre la foto
+	public boolean puedeComprar(int indice) {
+		return restantes[indice] > 0 && num.compareTo(costes[indice]) >= 0;
+	}
+
+	// niveles que compraria ahora un modo (x1, x10, x100 o COMPRA_MAXIMA)
+	public int nivelesAComprar(int indice, Mejora mejora, int cantidad) {
+		return mejora.nivelesAComprar(costes[indice], restantes[indice], num, cantidad);
+	}
+
+	// coste total de esos niveles (serie geometrica, sin bucles)
+	public NumeroGrande costeNiveles(int indice, Mejora mejora, int niveles) {
+		return mejora.costeNiveles(costes[indice], niveles);
+	}
+
+	// misma comprobacion que Mejora.comprar(datos, cantidad) pero sobre la foto
+	public boolean puedeComprar(int indice, Mejora mejora, int cantidad) {
+		int niveles = nivelesAComprar(indice, mejora, cantidad);
+		return niveles > 0 && num.compareTo(mejora.costeNiveles(costes[indice], niveles)) >= 0;
+	}
+
+	// true si las dos fotos comparten niveles y costes (no hubo compras entre
+	// ellas); comparar referencias basta por el copy on write
+	public boolean mismasMejoras(EstadoJuego otra) {
+		return otra != null && niveles == otra.niveles && costes == otra.costes && restantes == otra.restantes;
+	}
+
+	//
+	//
+	// getters
+	public long getSecuencia() {
+		return secuencia;
+	}
+
+	public NumeroGrande getNum() {
+		return num;
+	}
+
+	public NumeroGrande getNps() {
+		return nps;
+	}
+
+	public NumeroGrande getMaximo() {
+		return maximo;
+	}
+
+	public double getClickIncremento() {
+		return clickIncremento;
+	}
+
+	// lo que suma un click con esta foto (Datos.valorClick con los potenciadores)
+	public NumeroGrande getValorClick() {
+		return valorClick;
+	}
+
+	public double getClicksPorSegundo() {
+		return clicksPorSegundo;
+	}
+
+	// pizzas/s contando pasivas, clicks del jugador y autoclicker: a este ritmo
+	// sube el saldo mientras no se compre nada
+	public NumeroGrande getIngreso() {
+		return ingreso;
+	}
+
+	public int getNivelAutoClicker() {
+		return nivelAutoClicker;
+	}
+
+	public double getPeriodoAutoClicker() {
+		return periodoAutoClicker;
+	}
+
+	public long getPulsosAutoClicker() {
+		return pulsosAutoClicker;
+	}
+
+	public double getTiempo() {
+		return tiempo;
+	}
+
+	public int getNumPotenciadores() {
+		return potenciadores.length;
+	}
+
+	public Potenciador getPotenciador(int indice) {
+		return potenciadores[indice];
+	}
+
+	// true si comparten los potenciadores (no ha empezado ni acabado ninguno)
+	public boolean mismosPotenciadores(EstadoJuego otra) {
+		return otra != null && potenciadores == otra.potenciadores;
+	}
+
+	public ResumenAusencia getAusencia() {
+		return ausencia;
+	}
+
+	public int getRecomendada() {
+		return recomendada;
+	}
+
+	public double getAmortizacion() {
+		return amortizacion;
+	}
+
+	public boolean isPilotoAutomatico() {
+		return pilotoAutomatico;
+	}
+
+	public int getNumMejoras() {
+		return niveles.length;
+	}
+
+	public int getNivel(int indice) {
+		return niveles[indice];
+	}
+
+	public NumeroGrande getCoste(int indice) {
+		return costes[indice];
+	}
+
+	public int getRestantes(int indice) {
+		return restantes[indice];
+	}
+
+}
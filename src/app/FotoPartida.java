@@ -0,0 +1,105 @@
+package app;
+
+import java.util.List;
+
+/**
+ * Foto inmutable de lo que va en un Guardado: los valores de Datos y el nivel
+ * y coste de cada mejora. La hace el hilo de simulacion en microsegundos y la
+ * codifica y escribe otro hilo (Autoguardado) sin tocar Datos.
+ */
+public final class FotoPartida {
+// niveles y costes son los arrays copy on write de Simulacion (los mismos que
+// los de EstadoJuego): nunca se modifican, una compra crea arrays nuevos. Por
+// eso hacer la foto no copia nada por mejora, y comparar dos fotos de mejoras
+// es comparar referencias. Con los potenciadores pasa lo mismo (Datos cambia el
+// array entero cuando empieza o acaba uno)
+
+	final NumeroGrande num;
+	final NumeroGrande nps;
+	final NumeroGrande maximo;
+	final double clickIncremento;
+	final double periodoAutoClicker;
+	final double contadorAutoClicker;
+	final int nivelAutoClicker;
+	final long clicksAutomaticos;
+	// lo que num, nps y maximo llevan redondeado en ModoExacto (0 fuera de el)
+	final double restoNum;
+	final double restoNps;
+	final double restoMaximo;
+
+	// hash del nombre de cada mejora (para reconocerla al cargar)
+	final int[] nombres;
+	final int[] niveles;
+	final NumeroGrande[] costes;
+
+	// reloj de juego (s) y potenciadores pendientes o en marcha
+	final double tiempo;
+	final Potenciador[] potenciadores;
+
+	// ultimo registro del diario que ya esta dentro de la foto
+	final long secuenciaDiario;
+
+	FotoPartida(Datos datos, int[] nombres, int[] niveles, NumeroGrande[] costes, long secuenciaDiario) {
+		this.num = datos.getNum();
+		this.nps = datos.getNps();
+		this.maximo = datos.getMaximo();
+		this.clickIncremento = datos.getClickIncremento();
+		this.periodoAutoClicker = datos.getPeriodoAutoClicker();
+		this.contadorAutoClicker = datos.getContadorAutoClicker();
+		this.nivelAutoClicker = datos.getNivelAutoClicker();
+		this.clicksAutomaticos = datos.getClicksAutomaticos();
+		this.restoNum = datos.getRestoNum();
+		this.restoNps = datos.getRestoNps();
+		this.restoMaximo = datos.getRestoMaximo();
+		this.nombres = nombres;
+		this.niveles = niveles;
+		this.costes = costes;
+		this.tiempo = datos.getTiempo();
+		this.potenciadores = datos.getPotenciadores();
+		this.secuenciaDiario = secuenciaDiario;
+	}
+
+	// foto con arrays propios (sin Simulacion: cargar, exportar, grabaciones)
+	static FotoPartida de(Datos datos, List<Mejora> mejoras, long secuenciaDiario) {
+		int n = mejoras.size();
+		int[] niveles = new int[n];
+		NumeroGrande[] costes = new NumeroGrande[n];
+		for (int i = 0; i < n; i++) {
+			Mejora m = mejoras.get(i);
+			niveles[i] = m.getNivel();
+			costes[i] = m.getCoste();
+		}
+		return new FotoPartida(datos, nombres(mejoras), niveles, costes, secuenciaDiario);
+	}
+
+	static int[] nombres(List<Mejora> mejoras) {
+		int[] nombres = new int[mejoras.size()];
+		for (int i = 0; i < nombres.length; i++) {
+			nombres[i] = mejoras.get(i).getNombre().hashCode();
+		}
+		return nombres;
+	}
+
+	// misma partida (sin mirar la secuencia del diario): si no ha cambiado nada no
+	// hace falta volver a escribirla. El saldo sube en cada tick en cuanto hay
+	// pizzas/s, asi que casi nunca coincide: solo ahorra escrituras con la
+	// partida parada (recien empezada, sin nada comprado). El reloj de juego corre
+	// siempre; solo cuenta si hay potenciadores que dependan de el
+	boolean mismaPartida(FotoPartida otra) {
+		return otra != null && num.equals(otra.num) && nps.equals(otra.nps) && maximo.equals(otra.maximo)
+				&& clickIncremento == otra.clickIncremento && periodoAutoClicker == otra.periodoAutoClicker
+				&& contadorAutoClicker == otra.contadorAutoClicker && nivelAutoClicker == otra.nivelAutoClicker
+				&& clicksAutomaticos == otra.clicksAutomaticos && restoNum == otra.restoNum
+				&& restoNps == otra.restoNps && restoMaximo == otra.restoMaximo && niveles == otra.niveles
+				&& potenciadores == otra.potenciadores && (potenciadores.length == 0 || tiempo == otra.tiempo);
+	}
+
+	public int getNumMejoras() {
+		return niveles.length;
+	}
+
+	public long getSecuenciaDiario() {
+		return secuenciaDiario;
+	}
+
+}
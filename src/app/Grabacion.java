@@ -0,0 +1,259 @@
+package app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Grabacion de todo lo que cambia la partida (clicks, pasos del reloj, compras
+ * potenciadores y partidas importadas) con marca de tiempo en nanosegundos, en un fichero
+ * mapeado en memoria. Con el estado inicial y el final guardados, Reproduccion
+ * vuelve a jugar la sesion sin ventana y comprueba que acaba igual. Solo la usa
+ * el hilo de simulacion.
+ */
+public class Grabacion {
+// cabecera (big endian):
+//   int MAGIC | short VERSION | short opciones | long marca de tiempo (ms)
+//   int n | n x int indice en el catalogo de cada posicion de la lista
+//   int tam | estado inicial (Guardado.codificar)
+// registros: byte tipo | varint zigzag de nanos desde el registro anterior | datos
+//   CLICK, PASO (reloj de Simulacion.PASO): sin datos
+//   CLICKS: varint n | n - 1 varint nanos desde el click anterior (una tanda
+//   aplicada de golpe; el tiempo del registro es el del primero)
+//   RELOJ: double segundos (ponerse al dia)
+//   COMPRA: varint indice | varint zigzag cantidad | varint niveles comprados
+//   ESTADO, FIN: int tam | estado (partida importada, estado al cerrar)
+//   POTENCIADOR: varint tipo | double factor | varint inicio | varint duracion (ms
+//   de juego, tal como quedo programado) | coste: double mantisa | varint zigzag
+//   exponente (0 si no se compro)
+// una grabacion de otra version no se reproduce
+// un byte 0 es el final: el fichero se mapea por regiones y lo que sobra de la
+// ultima son ceros. Un tick de 15ms ocupa 5 bytes, unos 1,2MB por hora
+
+	public static final int MAGIC = 0x50504752;
+	public static final short VERSION = 1;
+
+	// opciones de la cabecera: grabada en ModoExacto (solo se reproduce igual en
+	// el mismo modo)
+	static final short EXACTO = 1;
+
+	static final byte CLICK = 1;
+	static final byte PASO = 2;
+	static final byte RELOJ = 3;
+	static final byte COMPRA = 4;
+	static final byte ESTADO = 5;
+	static final byte FIN = 6;
+	static final byte CLICKS = 7;
+	static final byte POTENCIADOR = 8;
+
+	// lo que se mapea de cada vez; un registro sin estado ocupa como mucho esto
+	private static final int REGION = 1 << 20;
+	private static final int MAX_REGISTRO = 32;
+
+	private final FileChannel canal;
+	private MappedByteBuffer region;
+	// posicion en el fichero donde empieza la region actual
+	private long inicioRegion;
+
+	// nanoTime del ultimo registro (el primero cuenta desde que se creo)
+	private long anterior;
+
+	private Grabacion(FileChannel canal) {
+		this.canal = canal;
+	}
+
+	// empieza a grabar desde el estado actual; null si no se puede crear el
+	// fichero. Las compras se graban con la posicion en mejoras
+	public static Grabacion crear(Path ruta, Datos datos, List<Mejora> mejoras) {
+		try {
+			if (ruta.getParent() != null) {
+				Files.createDirectories(ruta.getParent());
+			}
+			FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			Grabacion grabacion = new Grabacion(canal);
+			grabacion.cabecera(datos, mejoras);
+			return grabacion;
+		} catch (IOException e) {
+			System.err.println("No se pudo crear la grabacion " + ruta + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private void cabecera(Datos datos, List<Mejora> mejoras) throws IOException {
+		ByteBuffer estado = Guardado.codificar(datos, mejoras, 0, 0);
+		int n = mejoras.size();
+		asegurar(20 + 4 * n + 4 + estado.remaining());
+
+		region.putInt(MAGIC);
+		region.putShort(VERSION);
+		region.putShort(ModoExacto.ACTIVO ? EXACTO : 0);
+		region.putLong(System.currentTimeMillis());
+		region.putInt(n);
+		for (Mejora m : mejoras) {
+			region.putInt(m.getIndice());
+		}
+		region.putInt(estado.remaining());
+		region.put(estado);
+		anterior = System.nanoTime();
+	}
+
+	//
+	//
+	// registros; instante es el System.nanoTime() en que ocurrio
+	public void click(long instante) {
+		registro(CLICK, instante);
+	}
+
+	// tanda de clicks aplicada en un tick: marcas[0, conMarca) y el resto hasta
+	// total sin marca (cola llena), que se graban en el instante del ultimo
+	public void clicks(long[] marcas, int conMarca, long total) {
+		if (conMarca == 1 && total == 1) {
+			click(marcas[0]);
+			return;
+		}
+		int tam = (int) Math.min(Integer.MAX_VALUE, MAX_REGISTRO + 10L * conMarca + total);
+		if (!registro(CLICKS, conMarca > 0 ? marcas[0] : anterior, tam)) {
+			return;
+		}
+		ponerVarint(total);
+		for (int i = 1; i < conMarca; i++) {
+			// de una cola en orden, nunca negativo
+			ponerVarint(marcas[i] - marcas[i - 1]);
+		}
+		for (long i = Math.max(conMarca, 1); i < total; i++) {
+			region.put((byte) 0);
+		}
+		if (conMarca > 0) {
+			anterior = marcas[conMarca - 1];
+		}
+	}
+
+	public void paso(long instante) {
+		registro(PASO, instante);
+	}
+
+	public void reloj(long instante, double segundos) {
+		if (registro(RELOJ, instante)) {
+			region.putDouble(segundos);
+		}
+	}
+
+	// niveles es lo que devolvio Mejora.comprar (0 si no llego el saldo)
+	public void compra(long instante, int indice, int cantidad, int niveles) {
+		if (registro(COMPRA, instante)) {
+			ponerVarint(indice);
+			ponerVarint(zigzag(cantidad));
+			ponerVarint(niveles);
+		}
+	}
+
+	// potenciador ya programado en datos y lo que se pago por el
+	public void potenciador(long instante, Potenciador potenciador, NumeroGrande coste) {
+		if (registro(POTENCIADOR, instante)) {
+			ponerVarint(potenciador.getTipo().ordinal());
+			region.putDouble(potenciador.getFactor());
+			ponerVarint(potenciador.getInicio());
+			ponerVarint(potenciador.getFin() - potenciador.getInicio());
+			region.putDouble(coste.getMantisa());
+			ponerVarint(zigzag(coste.getExponente()));
+		}
+	}
+
+	// la partida se ha sustituido entera (importar)
+	public void estado(long instante, Datos datos, List<Mejora> mejoras) {
+		registroEstado(ESTADO, instante, datos, mejoras);
+	}
+
+	// estado final y cierre; la grabacion ya no se puede usar
+	public void cerrar(Datos datos, List<Mejora> mejoras) {
+		registroEstado(FIN, System.nanoTime(), datos, mejoras);
+		try {
+			region.force();
+			// sobra el resto de la ultima region (en Windows no se puede recortar con
+			// el mapa abierto; los ceros se leen como final igualmente)
+			canal.truncate(inicioRegion + region.position());
+		} catch (IOException e) {
+			// se queda con ceros al final
+		}
+		try {
+			canal.close();
+		} catch (IOException e) {
+			System.err.println("No se pudo cerrar la grabacion: " + e.getMessage());
+		}
+	}
+
+	private void registroEstado(byte tipo, long instante, Datos datos, List<Mejora> mejoras) {
+		ByteBuffer estado = Guardado.codificar(datos, mejoras, 0, 0);
+		if (registro(tipo, instante, MAX_REGISTRO + estado.remaining())) {
+			region.putInt(estado.remaining());
+			region.put(estado);
+		}
+	}
+
+	private boolean registro(byte tipo, long instante) {
+		return registro(tipo, instante, MAX_REGISTRO);
+	}
+
+	// tipo y tiempo; false si no se ha podido ampliar el fichero (disco lleno...)
+	private boolean registro(byte tipo, long instante, int tam) {
+		try {
+			asegurar(tam);
+		} catch (IOException e) {
+			System.err.println("No se pudo ampliar la grabacion: " + e.getMessage());
+			return false;
+		}
+		region.put(tipo);
+		ponerVarint(zigzag(instante - anterior));
+		anterior = instante;
+		return true;
+	}
+
+	// mapea una region nueva justo donde va la escritura si no caben tam bytes
+	private void asegurar(int tam) throws IOException {
+		if (region != null && region.remaining() >= tam) {
+			return;
+		}
+		if (region != null) {
+			inicioRegion += region.position();
+		}
+		region = canal.map(FileChannel.MapMode.READ_WRITE, inicioRegion, Math.max(REGION, tam));
+	}
+
+	//
+	//
+	// enteros de tamaño variable (7 bits por byte) y zigzag para los negativos
+	private void ponerVarint(long valor) {
+		while ((valor & ~0x7FL) != 0) {
+			region.put((byte) ((valor & 0x7F) | 0x80));
+			valor >>>= 7;
+		}
+		region.put((byte) valor);
+	}
+
+	static long zigzag(long valor) {
+		return (valor << 1) ^ (valor >> 63);
+	}
+
+	static long deshacerZigzag(long valor) {
+		return (valor >>> 1) ^ -(valor & 1);
+	}
+
+	static long leerVarint(ByteBuffer buffer) {
+		long valor = 0;
+		int desplazamiento = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			valor |= (long) (b & 0x7F) << desplazamiento;
+			desplazamiento += 7;
+		} while (b < 0);
+		return valor;
+	}
+
+}
@@ -0,0 +1,345 @@
+package app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Partida guardada en binario con formato fijo y versionado. Se lee mapeando el
+ * fichero en memoria y se escribe con un FileChannel, sin reflexion ni texto,
+ * en un temporal que luego sustituye al guardado de golpe.
+ */
+public class Guardado {
+// formato (big endian):
+// cabecera fija de 112 bytes
+//   int magic "PPZA" | short version | short reservado | long marca de tiempo (ms)
+//   num, nps y record como NumeroGrande: double mantisa | long exponente
+//   double clickIncremento | double periodoAutoClicker | double contadorAutoClicker
+//   int nivelAutoClicker | long clicksAutomaticos
+//   long ultima secuencia del diario incluida | int numero de mejoras
+// una entrada de 16 bytes por mejora, en el mismo orden que la lista
+//   int hash del nombre | int nivel | double coste (informativo, saturado)
+// reloj de juego y potenciadores pendientes o en marcha
+//   double tiempo (s) | int numero de potenciadores
+//   28 bytes por potenciador: int tipo | double factor | long inicio | long fin (ms)
+// lo que num, nps y record llevan redondeado en ModoExacto (0 fuera de el)
+//   double resto num | double resto nps | double resto record
+// y al final un int con el CRC32 de todo lo anterior
+// una version que no sea la actual se rechaza entera (no hay conversiones)
+// se escribe en partida.dat.tmp, force y rename atomico: un cierre a mitad de
+// escritura deja el guardado anterior entero (antes se truncaba el bueno)
+
+	public static final int MAGIC = 0x50505A41;
+	public static final short VERSION = 1;
+
+	static final int CABECERA = 112;
+	static final int ENTRADA = 16;
+	private static final int RELOJ = 12;
+	private static final int POTENCIADOR = 28;
+	private static final int RESTOS = 24;
+	private static final int CRC = 4;
+
+	// ruta por defecto: ~/.protopizza/partida.dat
+	public static final Path RUTA_POR_DEFECTO = Paths.get(System.getProperty("user.home"), ".protopizza",
+			"partida.dat");
+
+	// lo que se sabe de una partida despues de cargarla
+	public static final class Cabecera {
+		private final long marcaTiempo;
+		private final long secuenciaDiario;
+
+		Cabecera(long marcaTiempo, long secuenciaDiario) {
+			this.marcaTiempo = marcaTiempo;
+			this.secuenciaDiario = secuenciaDiario;
+		}
+
+		// momento del guardado (ms desde epoch)
+		public long getMarcaTiempo() {
+			return marcaTiempo;
+		}
+
+		// ultimo registro del diario que ya esta dentro de este guardado
+		public long getSecuenciaDiario() {
+			return secuenciaDiario;
+		}
+	}
+
+	private Guardado() {
+	}
+
+	// escribe la partida entera; solo se debe llamar desde el hilo que posee datos
+	// (o con la simulacion parada)
+	public static boolean guardar(Path ruta, Datos datos, List<Mejora> mejoras) {
+		return guardar(ruta, datos, mejoras, 0);
+	}
+
+	// igual pero apuntando hasta que registro del diario cubre (compactacion)
+	public static boolean guardar(Path ruta, Datos datos, List<Mejora> mejoras, long secuenciaDiario) {
+		return guardar(ruta, FotoPartida.de(datos, mejoras, secuenciaDiario));
+	}
+
+	// desde una foto; lo usa el hilo de Autoguardado
+	static boolean guardar(Path ruta, FotoPartida foto) {
+		ByteBuffer buffer = codificar(foto, System.currentTimeMillis());
+		Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+		try {
+			if (ruta.getParent() != null) {
+				Files.createDirectories(ruta.getParent());
+			}
+			try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining()) {
+					canal.write(buffer);
+				}
+				canal.force(true);
+			}
+			try {
+				Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING);
+			}
+			forzarCarpeta(ruta.toAbsolutePath().getParent());
+			return true;
+		} catch (IOException e) {
+			System.err.println("No se pudo guardar la partida: " + e.getMessage());
+			return false;
+		}
+	}
+
+	// el rename no es definitivo hasta que se escribe la carpeta; en Windows no se
+	// puede abrir una carpeta como canal y se queda como esta
+	private static void forzarCarpeta(Path carpeta) {
+		if (carpeta == null) {
+			return;
+		}
+		try (FileChannel canal = FileChannel.open(carpeta, StandardOpenOption.READ)) {
+			canal.force(true);
+		} catch (IOException e) {
+			// sin sincronizar la carpeta
+		}
+	}
+
+	// carga la partida mapeando el fichero; devuelve su cabecera o null si no hay
+	// partida valida (en ese caso no toca nada)
+	public static Cabecera cargar(Path ruta, Datos datos, List<Mejora> mejoras) {
+		if (!Files.isRegularFile(ruta)) {
+			return null;
+		}
+		try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+			MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+			return decodificar(mapa, datos, mejoras);
+		} catch (IOException e) {
+			System.err.println("No se pudo leer la partida: " + e.getMessage());
+			return null;
+		}
+	}
+
+	// partida en texto para compartirla: binario comprimido en base64 (url safe)
+	public static String exportar(Datos datos, List<Mejora> mejoras) {
+		ByteBuffer buffer = codificar(datos, mejoras, System.currentTimeMillis(), 0);
+
+		Deflater compresor = new Deflater(Deflater.BEST_COMPRESSION);
+		compresor.setInput(buffer);
+		compresor.finish();
+		ByteArrayOutputStream salida = new ByteArrayOutputStream(buffer.capacity());
+		byte[] trozo = new byte[512];
+		while (!compresor.finished()) {
+			int n = compresor.deflate(trozo);
+			salida.write(trozo, 0, n);
+		}
+		compresor.end();
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(salida.toByteArray());
+	}
+
+	// lo contrario de exportar; devuelve la cabecera o null si el texto no es una
+	// partida valida. El texto viene de fuera (portapapeles, --importar): se deja
+	// de descomprimir en cuanto pasa del mayor guardado posible con este catalogo
+	public static Cabecera importar(String texto, Datos datos, List<Mejora> mejoras) {
+		int maximo = tamMaximo(mejoras.size());
+		Inflater descompresor = new Inflater();
+		try {
+			byte[] comprimido = Base64.getUrlDecoder().decode(texto.trim());
+			descompresor.setInput(comprimido);
+			ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.min(comprimido.length * 4, maximo));
+			byte[] trozo = new byte[512];
+			while (!descompresor.finished()) {
+				int n = descompresor.inflate(trozo);
+				if (n == 0 && (descompresor.needsInput() || descompresor.needsDictionary())) {
+					break;
+				}
+				if (salida.size() + n > maximo) {
+					System.err.println("Texto de partida no valido: mayor que cualquier partida");
+					return null;
+				}
+				salida.write(trozo, 0, n);
+			}
+			return decodificar(ByteBuffer.wrap(salida.toByteArray()), datos, mejoras);
+		} catch (IllegalArgumentException | DataFormatException e) {
+			System.err.println("Texto de partida no valido: " + e.getMessage());
+			return null;
+		} finally {
+			descompresor.end();
+		}
+	}
+
+	// bytes del mayor guardado con mejoras entradas (todos los potenciadores que
+	// admite Datos)
+	static int tamMaximo(int mejoras) {
+		return CABECERA + mejoras * ENTRADA + RELOJ + Datos.MAX_POTENCIADORES * POTENCIADOR + RESTOS + CRC;
+	}
+
+	// vuelca el estado en un buffer listo para escribir (posicion 0)
+	static ByteBuffer codificar(Datos datos, List<Mejora> mejoras, long marcaTiempo, long secuenciaDiario) {
+		return codificar(FotoPartida.de(datos, mejoras, secuenciaDiario), marcaTiempo);
+	}
+
+	static ByteBuffer codificar(FotoPartida foto, long marcaTiempo) {
+		int n = foto.getNumMejoras();
+		int k = foto.potenciadores.length;
+		ByteBuffer buffer = ByteBuffer.allocate(CABECERA + n * ENTRADA + RELOJ + k * POTENCIADOR + RESTOS + CRC);
+
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putShort((short) 0);
+		buffer.putLong(marcaTiempo);
+		ponerGrande(buffer, foto.num);
+		ponerGrande(buffer, foto.nps);
+		ponerGrande(buffer, foto.maximo);
+		buffer.putDouble(foto.clickIncremento);
+		buffer.putDouble(foto.periodoAutoClicker);
+		buffer.putDouble(foto.contadorAutoClicker);
+		buffer.putInt(foto.nivelAutoClicker);
+		buffer.putLong(foto.clicksAutomaticos);
+		buffer.putLong(foto.secuenciaDiario);
+		buffer.putInt(n);
+
+		for (int i = 0; i < n; i++) {
+			buffer.putInt(foto.nombres[i]);
+			buffer.putInt(foto.niveles[i]);
+			buffer.putDouble(foto.costes[i].toDouble());
+		}
+
+		buffer.putDouble(foto.tiempo);
+		buffer.putInt(k);
+		for (Potenciador p : foto.potenciadores) {
+			buffer.putInt(p.getTipo().ordinal());
+			buffer.putDouble(p.getFactor());
+			buffer.putLong(p.getInicio());
+			buffer.putLong(p.getFin());
+		}
+		buffer.putDouble(foto.restoNum);
+		buffer.putDouble(foto.restoNps);
+		buffer.putDouble(foto.restoMaximo);
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+
+		buffer.flip();
+		return buffer;
+	}
+
+	// valida y aplica un buffer con formato de guardado; todo se lee por posicion
+	// absoluta, asi que una mejora concreta se localiza sin recorrer las demas
+	static Cabecera decodificar(ByteBuffer buffer, Datos datos, List<Mejora> mejoras) {
+		int tam = buffer.limit();
+		if (tam < CABECERA + CRC || buffer.getInt(0) != MAGIC) {
+			System.err.println("La partida guardada no tiene un formato conocido");
+			return null;
+		}
+		short version = buffer.getShort(4);
+		if (version != VERSION) {
+			System.err.println("Version de partida no soportada: " + version);
+			return null;
+		}
+
+		// n y k se leen antes de comprobar el CRC: si estan rotos no pueden
+		// desbordar fin
+		int n = buffer.getInt(CABECERA - 4);
+		if (n < 0 || n > (tam - CABECERA) / ENTRADA) {
+			System.err.println("La partida guardada esta incompleta");
+			return null;
+		}
+		int reloj = CABECERA + n * ENTRADA;
+		int k = tam >= reloj + RELOJ ? buffer.getInt(reloj + 8) : -1;
+		if (k > (tam - reloj - RELOJ) / POTENCIADOR) {
+			k = -1;
+		}
+		int restos = reloj + RELOJ + Math.max(k, 0) * POTENCIADOR;
+		int fin = restos + RESTOS;
+		if (k < 0 || tam < fin + CRC) {
+			System.err.println("La partida guardada esta incompleta");
+			return null;
+		}
+
+		CRC32 crc = new CRC32();
+		ByteBuffer contenido = buffer.duplicate();
+		contenido.position(0).limit(fin);
+		crc.update(contenido);
+		if ((int) crc.getValue() != buffer.getInt(fin)) {
+			System.err.println("La partida guardada esta corrupta (CRC)");
+			return null;
+		}
+
+		datos.restaurar(leerGrande(buffer, 16), leerGrande(buffer, 32), leerGrande(buffer, 48), buffer.getDouble(64),
+				buffer.getDouble(72), buffer.getDouble(80), buffer.getInt(88), buffer.getLong(92));
+		long secuenciaDiario = buffer.getLong(100);
+
+		// si el catalogo ha cambiado, solo se restauran las mejoras que siguen en
+		// la misma posicion con el mismo nombre
+		int comunes = Math.min(n, mejoras.size());
+		for (int i = 0; i < comunes; i++) {
+			int pos = CABECERA + i * ENTRADA;
+			Mejora m = mejoras.get(i);
+			if (buffer.getInt(pos) == m.getNombre().hashCode()) {
+				// el coste guardado se ignora, se recalcula desde el coste base
+				m.restaurar(buffer.getInt(pos + 4));
+			}
+		}
+
+		// los potenciadores van despues de las mejoras; tipos que ya no existen se
+		// saltan
+		Potenciador.Tipo[] tipos = Potenciador.Tipo.values();
+		Potenciador[] guardados = new Potenciador[k];
+		int validos = 0;
+		for (int i = 0; i < k; i++) {
+			int pos = reloj + RELOJ + i * POTENCIADOR;
+			int tipo = buffer.getInt(pos);
+			if (tipo >= 0 && tipo < tipos.length) {
+				guardados[validos++] = new Potenciador(tipos[tipo], buffer.getDouble(pos + 4), buffer.getLong(pos + 12),
+						buffer.getLong(pos + 20));
+			}
+		}
+		datos.restaurarPotenciadores(buffer.getDouble(reloj), Arrays.copyOf(guardados, validos));
+		datos.restaurarRestos(buffer.getDouble(restos), buffer.getDouble(restos + 8), buffer.getDouble(restos + 16));
+
+		return new Cabecera(buffer.getLong(8), secuenciaDiario);
+	}
+
+	// NumeroGrande en 16 bytes: double mantisa | long exponente
+	static void ponerGrande(ByteBuffer buffer, NumeroGrande n) {
+		buffer.putDouble(n.getMantisa());
+		buffer.putLong(n.getExponente());
+	}
+
+	static NumeroGrande leerGrande(ByteBuffer buffer, int pos) {
+		return NumeroGrande.de(buffer.getDouble(pos), buffer.getLong(pos + 8));
+	}
+
+}
@@ -0,0 +1,300 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * Indice de umbrales de las mejoras para no recorrer el catalogo entero cada
+ * frame. Cada mejora tiene una "banda" [bajo, alto) de saldo dentro de la cual
+ * su fila no cambia (asequible o no, o cuantos niveles compra el modo MAX); al
+ * avanzar solo salen las mejoras cuyo umbral se ha cruzado desde la ultima vez.
+ * Los desbloqueos van aparte con los requisitos ordenados y un puntero.
+ */
+public class IndiceUmbrales {
+// dos montículos indexados: uno de minimos por "alto" (el saldo ha subido hasta
+// el umbral) y otro de maximos por "bajo" (el saldo ha bajado del umbral).
+// Una mejora que cruza se saca de los dos hasta que le pongan banda nueva
+
+	// tipos de evento
+	public static final int ASEQUIBLE = 1;
+	public static final int INASEQUIBLE = 2;
+	public static final int DESBLOQUEADA = 3;
+
+	private final int n;
+
+	// bandas actuales como NumeroGrande desmontado (mantisa y exponente), para
+	// comparar sin objetos
+	private final double[] bajoM;
+	private final long[] bajoE;
+	private final double[] altoM;
+	private final long[] altoE;
+
+	// montículo de minimos por alto y de maximos por bajo, con la posicion de
+	// cada mejora dentro de cada uno (-1 = fuera)
+	private final int[] monticuloAlto;
+	private final int[] posAlto;
+	private int tamAlto = 0;
+	private final int[] monticuloBajo;
+	private final int[] posBajo;
+	private int tamBajo = 0;
+
+	// requisitos de desbloqueo ordenados y cuantos se han superado ya
+	private final int[] ordenDesbloqueo;
+	private final double[] requisitos;
+	private int desbloqueadas = 0;
+	private NumeroGrande ultimoMaximo = null;
+
+	// eventos del ultimo avance
+	private final int[] eventosIndice;
+	private final int[] eventosTipo;
+	private int numEventos = 0;
+
+	public IndiceUmbrales(double[] requisitosDesbloqueo) {
+		this.n = requisitosDesbloqueo.length;
+		this.requisitos = requisitosDesbloqueo.clone();
+		this.bajoM = new double[n];
+		this.bajoE = new long[n];
+		this.altoM = new double[n];
+		this.altoE = new long[n];
+		this.monticuloAlto = new int[n];
+		this.posAlto = new int[n];
+		this.monticuloBajo = new int[n];
+		this.posBajo = new int[n];
+		Arrays.fill(posAlto, -1);
+		Arrays.fill(posBajo, -1);
+
+		// indices ordenados por requisito (una sola vez, no cambian)
+		Integer[] orden = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			orden[i] = i;
+		}
+		Arrays.sort(orden, (a, b) -> Double.compare(requisitos[a], requisitos[b]));
+		this.ordenDesbloqueo = new int[n];
+		for (int i = 0; i < n; i++) {
+			ordenDesbloqueo[i] = orden[i];
+		}
+
+		// como mucho un evento de saldo y uno de desbloqueo por mejora
+		this.eventosIndice = new int[2 * n];
+		this.eventosTipo = new int[2 * n];
+	}
+
+	// banda de saldo en la que la fila i no cambia; con null ese lado no se
+	// vigila
+	public void setBanda(int i, NumeroGrande nuevoBajo, NumeroGrande nuevoAlto) {
+		if (nuevoBajo != null) {
+			bajoM[i] = nuevoBajo.getMantisa();
+			bajoE[i] = nuevoBajo.getExponente();
+		}
+		if (nuevoAlto != null) {
+			altoM[i] = nuevoAlto.getMantisa();
+			altoE[i] = nuevoAlto.getExponente();
+		}
+
+		if (nuevoAlto == null) {
+			quitarAlto(i);
+		} else if (posAlto[i] < 0) {
+			posAlto[i] = tamAlto;
+			monticuloAlto[tamAlto++] = i;
+			subirAlto(posAlto[i]);
+		} else {
+			subirAlto(posAlto[i]);
+			bajarAlto(posAlto[i]);
+		}
+
+		if (nuevoBajo == null) {
+			quitarBajo(i);
+		} else if (posBajo[i] < 0) {
+			posBajo[i] = tamBajo;
+			monticuloBajo[tamBajo++] = i;
+			subirBajo(posBajo[i]);
+		} else {
+			subirBajo(posBajo[i]);
+			bajarBajo(posBajo[i]);
+		}
+	}
+
+	// saca las mejoras que han cruzado un umbral con el saldo y record actuales;
+	// las de saldo quedan sin banda hasta que se les ponga una nueva
+	public int avanzar(NumeroGrande num, NumeroGrande maximo) {
+		numEventos = 0;
+		double numM = num.getMantisa();
+		long numE = num.getExponente();
+
+		while (tamAlto > 0 && compararAlto(monticuloAlto[0], numM, numE) <= 0) {
+			int i = monticuloAlto[0];
+			quitarAlto(i);
+			quitarBajo(i);
+			anotar(i, ASEQUIBLE);
+		}
+		while (tamBajo > 0 && compararBajo(monticuloBajo[0], numM, numE) > 0) {
+			int i = monticuloBajo[0];
+			quitarAlto(i);
+			quitarBajo(i);
+			anotar(i, INASEQUIBLE);
+		}
+
+		// el record solo sube salvo al importar partida, entonces se recuenta
+		if (ultimoMaximo != null && maximo.compareTo(ultimoMaximo) < 0) {
+			desbloqueadas = 0;
+			while (desbloqueadas < n && maximo.compareTo(requisitos[ordenDesbloqueo[desbloqueadas]]) >= 0) {
+				desbloqueadas++;
+			}
+		} else {
+			while (desbloqueadas < n && maximo.compareTo(requisitos[ordenDesbloqueo[desbloqueadas]]) >= 0) {
+				anotar(ordenDesbloqueo[desbloqueadas], DESBLOQUEADA);
+				desbloqueadas++;
+			}
+		}
+		ultimoMaximo = maximo;
+
+		return numEventos;
+	}
+
+	private int compararAlto(int i, double m, long e) {
+		return NumeroGrande.comparar(altoM[i], altoE[i], m, e);
+	}
+
+	private int compararBajo(int i, double m, long e) {
+		return NumeroGrande.comparar(bajoM[i], bajoE[i], m, e);
+	}
+
+	private void anotar(int i, int tipo) {
+		eventosIndice[numEventos] = i;
+		eventosTipo[numEventos] = tipo;
+		numEventos++;
+	}
+
+	//
+	//
+	// montículo de minimos por alto
+	private void quitarAlto(int i) {
+		int pos = posAlto[i];
+		if (pos < 0) {
+			return;
+		}
+		posAlto[i] = -1;
+		tamAlto--;
+		if (pos == tamAlto) {
+			return;
+		}
+		int ultimo = monticuloAlto[tamAlto];
+		monticuloAlto[pos] = ultimo;
+		posAlto[ultimo] = pos;
+		subirAlto(pos);
+		bajarAlto(posAlto[ultimo]);
+	}
+
+	private void subirAlto(int pos) {
+		int i = monticuloAlto[pos];
+		while (pos > 0) {
+			int padre = (pos - 1) >>> 1;
+			int p = monticuloAlto[padre];
+			if (compararAlto(p, altoM[i], altoE[i]) <= 0) {
+				break;
+			}
+			monticuloAlto[pos] = p;
+			posAlto[p] = pos;
+			pos = padre;
+		}
+		monticuloAlto[pos] = i;
+		posAlto[i] = pos;
+	}
+
+	private void bajarAlto(int pos) {
+		int i = monticuloAlto[pos];
+		while (true) {
+			int hijo = 2 * pos + 1;
+			if (hijo >= tamAlto) {
+				break;
+			}
+			if (hijo + 1 < tamAlto
+					&& compararAlto(monticuloAlto[hijo + 1], altoM[monticuloAlto[hijo]], altoE[monticuloAlto[hijo]]) < 0) {
+				hijo++;
+			}
+			int h = monticuloAlto[hijo];
+			if (compararAlto(i, altoM[h], altoE[h]) <= 0) {
+				break;
+			}
+			monticuloAlto[pos] = h;
+			posAlto[h] = pos;
+			pos = hijo;
+		}
+		monticuloAlto[pos] = i;
+		posAlto[i] = pos;
+	}
+
+	//
+	//
+	// montículo de maximos por bajo
+	private void quitarBajo(int i) {
+		int pos = posBajo[i];
+		if (pos < 0) {
+			return;
+		}
+		posBajo[i] = -1;
+		tamBajo--;
+		if (pos == tamBajo) {
+			return;
+		}
+		int ultimo = monticuloBajo[tamBajo];
+		monticuloBajo[pos] = ultimo;
+		posBajo[ultimo] = pos;
+		subirBajo(pos);
+		bajarBajo(posBajo[ultimo]);
+	}
+
+	private void subirBajo(int pos) {
+		int i = monticuloBajo[pos];
+		while (pos > 0) {
+			int padre = (pos - 1) >>> 1;
+			int p = monticuloBajo[padre];
+			if (compararBajo(p, bajoM[i], bajoE[i]) >= 0) {
+				break;
+			}
+			monticuloBajo[pos] = p;
+			posBajo[p] = pos;
+			pos = padre;
+		}
+		monticuloBajo[pos] = i;
+		posBajo[i] = pos;
+	}
+
+	private void bajarBajo(int pos) {
+		int i = monticuloBajo[pos];
+		while (true) {
+			int hijo = 2 * pos + 1;
+			if (hijo >= tamBajo) {
+				break;
+			}
+			if (hijo + 1 < tamBajo
+					&& compararBajo(monticuloBajo[hijo + 1], bajoM[monticuloBajo[hijo]], bajoE[monticuloBajo[hijo]]) > 0) {
+				hijo++;
+			}
+			int h = monticuloBajo[hijo];
+			if (compararBajo(i, bajoM[h], bajoE[h]) >= 0) {
+				break;
+			}
+			monticuloBajo[pos] = h;
+			posBajo[h] = pos;
+			pos = hijo;
+		}
+		monticuloBajo[pos] = i;
+		posBajo[i] = pos;
+	}
+
+	//
+	//
+	// getters
+	public int getEventoIndice(int k) {
+		return eventosIndice[k];
+	}
+
+	public int getEventoTipo(int k) {
+		return eventosTipo[k];
+	}
+
+	public boolean desbloqueada(int i) {
+		return ultimoMaximo != null && ultimoMaximo.compareTo(requisitos[i]) >= 0;
+	}
+
+}
@@ -1,99 +1,215 @@
 package app;
 
-// para que lo que envie una accion inmediata que se ejecuta sobre datos
-// Se usa para aplicar efectos de mejoras mediante lambdas.
-// para aplicar "efectos" o codigo de las mejoras, funciones que se pasan como parametro
-interface EjecutorAccionDatos {
-	void ejecutar(Datos datos);
-}
-
-// mejoras pasivas y activas con atributos y acciones que afectan a datos
+// mejoras pasivas y activas: la definicion (costes, efecto, limite...) esta en
+// el Catalogo y aqui solo el nivel comprado y el coste del siguiente
 public class Mejora {
 // clase para la personalizacion y comportamiento de las mejoras pasivas y activas
 
-	protected String nombre;
+	// cantidad especial para comprar todos los niveles que alcance el saldo
+	public static final int COMPRA_MAXIMA = -1;
+
+	// entrada del catalogo que define esta mejora
+	private final Catalogo catalogo;
+	private final int indice;
 
 	// Nivel de la mejora (cuantas veces se ha comprado)
 	protected int nivel;
 
-	// coste para comprar el siguiente nivel
-	protected double coste;
-
-	// escala de incremento del coste al subir de nivel
-	protected double incrCoste;
-
-	// umbral para desbloquear la mejora
-	protected double requisitoDesbloqueo;
-
-	// ruta del icono de cada mejora
-	private String iconPath;
+	// coste para comprar el siguiente nivel (crece sin techo, por eso NumeroGrande)
+	// se calcula desde el coste base (costeBase * incr^nivel) en vez de
+	// multiplicar compra a compra y arrastrar error de redondeo
+	protected NumeroGrande coste;
 
-	// accion asociada a las mejoras
-	private EjecutorAccionDatos accion;
+	// escala de incremento del coste al subir de nivel (copia del catalogo, se
+	// usa en todas las series)
+	protected final double incrCoste;
 
-	// constructores
-	public Mejora() {
-	}
-
-	public Mejora(String nombre, double coste, double incrCoste, double requisitoDesbloqueo, EjecutorAccionDatos accion,
-			String iconPath) {
-		this.nombre = nombre;
+	public Mejora(Catalogo catalogo, int indice) {
+		this.catalogo = catalogo;
+		this.indice = indice;
 		this.nivel = 0;
-		this.coste = coste;
-		this.incrCoste = incrCoste;
-		this.requisitoDesbloqueo = requisitoDesbloqueo;
-		this.iconPath = iconPath;
-		this.accion = accion;
+		this.incrCoste = catalogo.incrementos[indice];
+		this.coste = NumeroGrande.de(catalogo.costesBase[indice]);
 	}
 
 	// funcion que devuelve un boolean si se ha podido o no comprar
 	public boolean comprar(Datos datos) {
+		return comprar(datos, 1) > 0;
+	}
 
+	// compra x niveles (o COMPRA_MAXIMA) de una vez; devuelve cuantos se han
+	// comprado, 0 si no llega el saldo para todos
+	public int comprar(Datos datos, int cantidad) {
+		int restantes = getNivelesRestantes();
 		// si no se puede comprar sale del metodo
-		if (!datos.verificarCompra(this)) {
-			return false;
+		if (restantes <= 0) {
+			return 0;
+		}
+
+		NumeroGrande saldo = datos.getNum();
+		int niveles = nivelesAComprar(coste, restantes, saldo, cantidad);
+		NumeroGrande total = costeNiveles(coste, niveles);
+		if (saldo.compareTo(total) < 0) {
+			return 0;
 		}
 
 		// si se puede comprar continua y gasta el recurso
-		datos.gastar(coste);
+		datos.gastar(total);
+		subirNiveles(datos, niveles);
+		return niveles;
+	}
+
+	// sube niveles y aplica su efecto sin cobrar (compra o reaplicar el diario)
+	void subirNiveles(Datos datos, int niveles) {
+		if (niveles <= 0) {
+			return;
+		}
 		// y sube el nivel de la mejora
-		nivel++;
+		nivel += niveles;
+
+		// el efecto se aplica una sola vez con todos los niveles
+		double magnitud = catalogo.magnitudes[indice];
+		switch (catalogo.efectos[indice]) {
+		case Catalogo.EFECTO_AUTOCLICKER:
+			datos.subirAutoClicker(niveles * (int) magnitud);
+			break;
+		case Catalogo.EFECTO_CLICK:
+			datos.subirPotenciaClick(niveles * magnitud);
+			break;
+		case Catalogo.EFECTO_NPS:
+			datos.subirNPS(niveles * magnitud);
+			break;
+		default:
+			System.err.println("Efecto desconocido en " + getNombre());
+		}
 
-		// para evitar errores si una mejora no tiene una accion asociada en sus
-		// parametros
-		if (accion != null) {
-			// ejecuta la funcion y envia los datos por parametro
-			accion.ejecutar(datos);
+		// el coste del siguiente nivel sale de la base, no de ir multiplicando
+		recalcularCoste();
+	}
+
+	private void recalcularCoste() {
+		coste = NumeroGrande.potencia(catalogo.costesBase[indice], incrCoste, nivel);
+	}
+
+	// coste total de comprar n niveles seguidos empezando en costeActual
+	// serie geometrica: c + c*r + ... + c*r^(n-1) = c * (r^n - 1) / (r - 1)
+	// si r^n no cabe en un double el -1 ya no cuenta y se pasa a logaritmos
+	public NumeroGrande costeNiveles(NumeroGrande costeActual, int niveles) {
+		if (niveles <= 1) {
+			return niveles == 1 ? costeActual : NumeroGrande.CERO;
+		}
+		if (incrCoste == 1) {
+			return costeActual.multiplicar(niveles);
+		}
+		double exponente = niveles * ModoExacto.log(incrCoste);
+		if (exponente < 700) {
+			return costeActual.multiplicar(ModoExacto.expm1(exponente) / (incrCoste - 1));
 		}
+		return costeActual.multiplicarPotencia10((exponente - ModoExacto.log(incrCoste - 1)) / ModoExacto.log(10));
+	}
 
-		// aplica el escalado para aumentar el coste de la siguiente compra
-		coste *= incrCoste;
-		return true;
+	// cuantos niveles se pueden pagar con el saldo: despejando n de la serie
+	// n = floor(log(1 + saldo * (r - 1) / c) / log(r))
+	public int nivelesAsequibles(NumeroGrande costeActual, NumeroGrande saldo) {
+		if (saldo.compareTo(costeActual) < 0) {
+			return 0;
+		}
+		NumeroGrande proporcion = saldo.dividir(costeActual);
+		double n;
+		if (incrCoste == 1) {
+			n = Math.floor(proporcion.toDouble());
+		} else if (proporcion.getExponente() < 300) {
+			n = Math.floor(ModoExacto.log1p(proporcion.toDouble() * (incrCoste - 1)) / ModoExacto.log(incrCoste));
+		} else {
+			// saldo muchisimo mayor que el coste: el 1 + ya no cuenta
+			n = Math.floor((proporcion.log10() * ModoExacto.log(10) + ModoExacto.log(incrCoste - 1))
+					/ ModoExacto.log(incrCoste));
+		}
+		int niveles = n >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+
+		// el redondeo del log puede dejarlo uno arriba o abajo
+		if (niveles > 1 && costeNiveles(costeActual, niveles).compareTo(saldo) > 0) {
+			niveles--;
+		} else if (niveles < Integer.MAX_VALUE && costeNiveles(costeActual, niveles + 1).compareTo(saldo) <= 0) {
+			niveles++;
+		}
+		return niveles;
+	}
+
+	// niveles que intenta comprar un modo (x1, x10, x100 o COMPRA_MAXIMA) sin
+	// pasarse del limite; con COMPRA_MAXIMA y sin saldo devuelve 1 para poder
+	// enseñar el precio del siguiente nivel
+	public int nivelesAComprar(NumeroGrande costeActual, int restantes, NumeroGrande saldo, int cantidad) {
+		int niveles = cantidad == COMPRA_MAXIMA ? Math.max(1, nivelesAsequibles(costeActual, saldo)) : cantidad;
+		return Math.min(niveles, restantes);
 	}
 
 	// guarda el estado actual de la mejora, si el recurso es insuficiente, la
 	// mejora no sera clickable
-	public boolean desbloquado(double num) {
-		return num >= requisitoDesbloqueo;
+	public boolean desbloquado(NumeroGrande num) {
+		return num.compareTo(catalogo.requisitos[indice]) >= 0;
+	}
+
+	// cuantos niveles se pueden comprar todavia (0 = mejora al limite,
+	// Catalogo.SIN_LIMITE si no tiene)
+	public int getNivelesRestantes() {
+		int maximo = catalogo.nivelesMaximos[indice];
+		if (maximo == Catalogo.SIN_LIMITE) {
+			return Catalogo.SIN_LIMITE;
+		}
+		return Math.max(0, maximo - nivel);
+	}
+
+	// vuelca el nivel de una partida guardada (Guardado); el coste se recalcula
+	// desde la base
+	void restaurar(int nivel) {
+		this.nivel = nivel;
+		recalcularCoste();
 	}
 
 	//
 	//
 	// getters setters
 	public String getNombre() {
-		return nombre;
+		return catalogo.nombres[indice];
 	}
 
 	public int getNivel() {
 		return nivel;
 	}
 
-	public double getCoste() {
+	public NumeroGrande getCoste() {
 		return coste;
 	}
 
+	public double getRequisitoDesbloqueo() {
+		return catalogo.requisitos[indice];
+	}
+
+	// Catalogo.EFECTO_* y lo que da cada nivel
+	public byte getEfecto() {
+		return catalogo.efectos[indice];
+	}
+
+	public double getMagnitud() {
+		return catalogo.magnitudes[indice];
+	}
+
 	public String getIconPath() {
-		return iconPath;
+		return catalogo.iconos[indice];
+	}
+
+	// comprarla termina la partida
+	public boolean esMeta() {
+		return catalogo.metas[indice];
+	}
+
+	public Catalogo getCatalogo() {
+		return catalogo;
+	}
+
+	public int getIndice() {
+		return indice;
 	}
 
 }
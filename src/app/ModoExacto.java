@@ -0,0 +1,50 @@
+package app;
+
+/**
+ * Modo exacto de la economia, activado con -Dprotopizza.exacto=true: las sumas
+ * de Acumulador llevan compensado lo que la mantisa no puede guardar, asi que
+ * los incrementos pequeños sobre saldos grandes ya no se pierden, y las
+ * funciones de costes y del asesor usan StrictMath, que da el mismo resultado
+ * bit a bit en cualquier maquina y JVM. Con las mismas entradas y los mismos
+ * pasos de reloj dos partidas acaban identicas.
+ */
+public final class ModoExacto {
+// Math.pow, log, log10... pueden ir un ulp arriba o abajo segun la CPU y lo que
+// haya intrinsificado el JIT; con eso cambia el coste de un nivel y una compra
+// justa sale en una maquina y en otra no. Suma, resta, producto, division y
+// fma si son exactos en Java. El modo se fija al cargar la clase (static final):
+// sin la propiedad el JIT quita las ramas y cuesta lo mismo que antes.
+// Guardado lleva tambien los restos, asi que una partida guardada y cargada
+// sigue igual que si no se hubiera cerrado. El diario no los lleva: lo
+// recuperado de un cierre brusco despues del ultimo guardado no es exacto
+
+	public static final boolean ACTIVO = Boolean.getBoolean("protopizza.exacto");
+
+	private ModoExacto() {
+	}
+
+	public static double pow(double base, double exponente) {
+		return ACTIVO ? StrictMath.pow(base, exponente) : Math.pow(base, exponente);
+	}
+
+	public static double log(double valor) {
+		return ACTIVO ? StrictMath.log(valor) : Math.log(valor);
+	}
+
+	public static double log10(double valor) {
+		return ACTIVO ? StrictMath.log10(valor) : Math.log10(valor);
+	}
+
+	public static double log1p(double valor) {
+		return ACTIVO ? StrictMath.log1p(valor) : Math.log1p(valor);
+	}
+
+	public static double expm1(double valor) {
+		return ACTIVO ? StrictMath.expm1(valor) : Math.expm1(valor);
+	}
+
+	public static double cos(double valor) {
+		return ACTIVO ? StrictMath.cos(valor) : Math.cos(valor);
+	}
+
+}
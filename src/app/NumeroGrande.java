@@ -0,0 +1,266 @@
+package app;
+
+/**
+ * Numero de cualquier tamaño guardado como mantisa * 10^exponente, con la
+ * mantisa en [1, 10) (o 0) y el exponente en un long. Es inmutable; para sumar
+ * en el tick sin crear objetos esta Acumulador.
+ */
+public final class NumeroGrande implements Comparable<NumeroGrande> {
+// un double pasa a Infinity por encima de 1,8e308 y los costes crecen
+// geometricamente. Aqui la precision es la de un double (la mantisa) pero el
+// rango no se acaba
+
+	public static final NumeroGrande CERO = new NumeroGrande(0, 0);
+	public static final NumeroGrande UNO = new NumeroGrande(1, 0);
+
+	// con mas de estos ordenes de magnitud de diferencia el menor ya no cambia
+	// una suma (un double tiene ~16 cifras)
+	static final int CIFRAS = 17;
+
+	// 10^0 .. 10^308, y 10^0 .. 10^-CIFRAS para alinear sumas (multiplicar es
+	// mas rapido que dividir en el tick)
+	private static final double[] POTENCIAS = new double[309];
+	private static final double[] POTENCIAS_NEG = new double[CIFRAS + 1];
+
+	static {
+		for (int i = 0; i < POTENCIAS.length; i++) {
+			POTENCIAS[i] = Double.parseDouble("1e" + i);
+		}
+		for (int i = 0; i < POTENCIAS_NEG.length; i++) {
+			POTENCIAS_NEG[i] = Double.parseDouble("1e-" + i);
+		}
+	}
+
+	final double mantisa;
+	final long exponente;
+
+	// ya normalizado
+	NumeroGrande(double mantisa, long exponente) {
+		this.mantisa = mantisa;
+		this.exponente = exponente;
+	}
+
+	public static NumeroGrande de(double valor) {
+		return de(valor, 0);
+	}
+
+	// mantisa * 10^exponente con cualquier mantisa (se normaliza)
+	public static NumeroGrande de(double mantisa, long exponente) {
+		if (mantisa == 0 || Double.isNaN(mantisa) || Double.isInfinite(mantisa)) {
+			if (mantisa != 0) {
+				System.err.println("NumeroGrande: valor no finito " + mantisa + ", se usa 0");
+			}
+			return CERO;
+		}
+		int k = orden(Math.abs(mantisa));
+		return new NumeroGrande(escalar(mantisa, -k), exponente + k);
+	}
+
+	// 10^log10 (para valores que solo se conocen en escala logaritmica)
+	public static NumeroGrande desdeLog10(double log10) {
+		double entero = Math.floor(log10);
+		return de(ModoExacto.pow(10, log10 - entero), (long) entero);
+	}
+
+	// factor * base^n sin pasar por Infinity; si cabe en un double se hace con
+	// pow para no perder precision
+	public static NumeroGrande potencia(double factor, double base, double n) {
+		double directo = factor * ModoExacto.pow(base, n);
+		if (directo != 0 && !Double.isInfinite(directo) && Math.abs(directo) < 1e300) {
+			return de(directo);
+		}
+		return de(factor).multiplicarPotencia10(n * ModoExacto.log10(base));
+	}
+
+	//
+	//
+	// operaciones (crean un numero nuevo; en el tick se usa Acumulador)
+	public NumeroGrande sumar(NumeroGrande otro) {
+		Acumulador a = new Acumulador(this);
+		a.sumar(otro);
+		return a.aNumeroGrande();
+	}
+
+	public NumeroGrande sumar(double valor) {
+		Acumulador a = new Acumulador(this);
+		a.sumar(valor);
+		return a.aNumeroGrande();
+	}
+
+	public NumeroGrande restar(NumeroGrande otro) {
+		Acumulador a = new Acumulador(this);
+		a.restar(otro);
+		return a.aNumeroGrande();
+	}
+
+	public NumeroGrande multiplicar(double factor) {
+		return de(mantisa * factor, exponente);
+	}
+
+	// this * 10^log10Factor, con el factor partido en entero y decimales
+	public NumeroGrande multiplicarPotencia10(double log10Factor) {
+		double entero = Math.floor(log10Factor);
+		return de(mantisa * ModoExacto.pow(10, log10Factor - entero), exponente + (long) entero);
+	}
+
+	public NumeroGrande dividir(double divisor) {
+		return de(mantisa / divisor, exponente);
+	}
+
+	public NumeroGrande dividir(NumeroGrande divisor) {
+		if (divisor.mantisa == 0) {
+			System.err.println("NumeroGrande: division por cero");
+			return CERO;
+		}
+		return de(mantisa / divisor.mantisa, exponente - divisor.exponente);
+	}
+
+	// log10 del valor (-Infinity para 0)
+	public double log10() {
+		if (mantisa <= 0) {
+			return mantisa == 0 ? Double.NEGATIVE_INFINITY : Double.NaN;
+		}
+		return ModoExacto.log10(mantisa) + exponente;
+	}
+
+	// el double mas cercano; se satura a +-Infinity o 0 fuera de rango
+	public double toDouble() {
+		return aDouble(mantisa, exponente);
+	}
+
+	public boolean esCero() {
+		return mantisa == 0;
+	}
+
+	@Override
+	public int compareTo(NumeroGrande otro) {
+		return comparar(mantisa, exponente, otro.mantisa, otro.exponente);
+	}
+
+	public int compareTo(double valor) {
+		if (valor == 0 || Double.isNaN(valor) || Double.isInfinite(valor)) {
+			if (Double.isInfinite(valor)) {
+				return valor > 0 ? -1 : 1;
+			}
+			return Double.compare(Math.signum(mantisa), 0);
+		}
+		int k = orden(Math.abs(valor));
+		return comparar(mantisa, exponente, escalar(valor, -k), k);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof NumeroGrande)) {
+			return false;
+		}
+		NumeroGrande otro = (NumeroGrande) o;
+		return mantisa == otro.mantisa && exponente == otro.exponente;
+	}
+
+	@Override
+	public int hashCode() {
+		return Double.hashCode(mantisa) * 31 + Long.hashCode(exponente);
+	}
+
+	@Override
+	public String toString() {
+		return mantisa + "e" + exponente;
+	}
+
+	//
+	//
+	// utilidades compartidas con Acumulador
+	static int comparar(double m1, long e1, double m2, long e2) {
+		// saldo contra coste: los dos positivos, sin calcular signos
+		if (m1 > 0 && m2 > 0) {
+			return e1 != e2 ? Long.compare(e1, e2) : Double.compare(m1, m2);
+		}
+		int signo1 = m1 > 0 ? 1 : (m1 < 0 ? -1 : 0);
+		int signo2 = m2 > 0 ? 1 : (m2 < 0 ? -1 : 0);
+		if (signo1 != signo2) {
+			return Integer.compare(signo1, signo2);
+		}
+		if (signo1 == 0) {
+			return 0;
+		}
+		if (e1 != e2) {
+			// con signo negativo mas exponente es mas pequeño
+			return signo1 * Long.compare(e1, e2);
+		}
+		return Double.compare(m1, m2);
+	}
+
+	// floor(log10(a)) para a > 0 finito; sin log10 en el caso normal (cerca de 1)
+	static int orden(double a) {
+		if (a >= 1) {
+			if (a < 10) {
+				return 0;
+			}
+			if (a < 100) {
+				return 1;
+			}
+			if (a < 1000) {
+				return 2;
+			}
+		} else if (a >= 0.1) {
+			return -1;
+		} else if (a >= 0.01) {
+			return -2;
+		}
+		int k = (int) Math.floor(Math.log10(a));
+		// log10 puede fallar por uno cerca de las potencias exactas
+		double m = escalar(a, -k);
+		if (m >= 10) {
+			k++;
+		} else if (m < 1) {
+			k--;
+		}
+		return k;
+	}
+
+	// valor * 10^k para k de cualquier signo (en dos pasos si se sale de la tabla)
+	static double escalar(double valor, int k) {
+		if (k >= 0) {
+			if (k < POTENCIAS.length) {
+				return valor * POTENCIAS[k];
+			}
+			return valor * POTENCIAS[308] * POTENCIAS[Math.min(k - 308, 308)];
+		}
+		// dividiendo (y no multiplicando por 10^-k, que no es exacto) 1e10 / 1e10
+		// da 1 justo y la mantisa no se sale de [1, 10)
+		if (-k < POTENCIAS.length) {
+			return valor / POTENCIAS[-k];
+		}
+		return valor / POTENCIAS[308] / POTENCIAS[Math.min(-k - 308, 308)];
+	}
+
+	// 10^-d para 0 <= d <= CIFRAS (alinear exponentes al sumar)
+	static double potenciaNeg(int d) {
+		return POTENCIAS_NEG[d];
+	}
+
+	static double aDouble(double mantisa, long exponente) {
+		if (mantisa == 0) {
+			return 0;
+		}
+		if (exponente > 308) {
+			return mantisa > 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+		}
+		if (exponente < -340) {
+			return 0;
+		}
+		return escalar(mantisa, (int) exponente);
+	}
+
+	//
+	//
+	// getters
+	public double getMantisa() {
+		return mantisa;
+	}
+
+	public long getExponente() {
+		return exponente;
+	}
+
+}
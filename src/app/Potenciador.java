@@ -0,0 +1,69 @@
+package app;
+
+/**
+ * Consumible con tiempo limitado: multiplica las pizzas/s, el valor del click o
+ * la velocidad del autoclicker (frenesi) desde un instante y durante un tiempo
+ * del reloj de juego de Datos. Inmutable; varios a la vez se multiplican.
+ */
+public final class Potenciador {
+// los instantes van en milisegundos de juego (Datos.getTiempo() * 1000), que es
+// el tick de la rueda de tiempos de Datos
+
+	public enum Tipo {
+		// pizzas/s (y la parte de pizzas/s de cada click)
+		PIZZAS_POR_SEGUNDO,
+		// todo lo que suma un click, manual o del autoclicker
+		CLICK,
+		// el autoclicker clica factor veces mas rapido (si esta comprado)
+		FRENESI
+	}
+
+	// lo que cuesta comprarlo: las pizzas que se producen en factor * segundos
+	// (contando como minimo 1 pizza/s para que al empezar no sea gratis)
+	public static NumeroGrande coste(NumeroGrande nps, double factor, double segundos) {
+		NumeroGrande base = nps.compareTo(1) < 0 ? NumeroGrande.UNO : nps;
+		return base.multiplicar(factor * segundos);
+	}
+
+	private final Tipo tipo;
+	private final double factor;
+	private final long inicio;
+	private final long fin;
+
+	public Potenciador(Tipo tipo, double factor, long inicio, long fin) {
+		this.tipo = tipo;
+		this.factor = factor;
+		this.inicio = inicio;
+		this.fin = fin;
+	}
+
+	// true si esta en marcha en ese ms de juego
+	public boolean activoEn(long ms) {
+		return inicio <= ms && ms < fin;
+	}
+
+	@Override
+	public String toString() {
+		return tipo + " x" + factor + " [" + inicio + ", " + fin + ") ms";
+	}
+
+	//
+	//
+	// getters
+	public Tipo getTipo() {
+		return tipo;
+	}
+
+	public double getFactor() {
+		return factor;
+	}
+
+	public long getInicio() {
+		return inicio;
+	}
+
+	public long getFin() {
+		return fin;
+	}
+
+}
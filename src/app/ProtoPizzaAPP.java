@@ -1,12 +1,18 @@
 package app;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.SwingUtilities;
-import javax.swing.Timer;
 
 import integracion.Interfaz;
+import integracion.SondaEdt;
+import metricas.Metricas;
+import visuales.CacheFondos;
+import visuales.CacheIconos;
+import visuales.PlanificadorFrames;
 
 public class ProtoPizzaAPP {
 // clase para la ejecucion de la app final, controla el timer interno el "motor" y parametros de las mejoras
@@ -22,67 +28,55 @@ public class ProtoPizzaAPP {
 	// * probar a poner imagenes de emjojis en vez de strings y colocar el nombre de
 	// la mejora junto al icono a la derecha y dentrar todo
 	// elemento gatcha
-	// objetos consumibles tiempo limitado
 	// * marikita marikita marikita marikon
 
 	private Datos datos = new Datos();
-	public static List<Mejora> mejorasActivas = new ArrayList<>();
-	public static List<Mejora> mejorasPasivas = new ArrayList<>();
+	// de esta partida (antes static: el simulador de balance necesita muchas
+	// partidas a la vez sin compartir mejoras)
+	private final List<Mejora> mejorasActivas = new ArrayList<>();
+	private final List<Mejora> mejorasPasivas = new ArrayList<>();
 
 	// Constructor de ProtoPizzaAPP
 	public ProtoPizzaAPP() {
 
-		// mejoras activas clickando
-		// nombre / coste / incrementoCoste / umbralDesbloqueo / accion / ruta icono
-		mejorasActivas.add(new Mejora("Contratar Cocineros", 216, 1.225, 200, accion -> datos.subirAutoClicker(),
-				"/img/cook.png"));
-		mejorasActivas.add(new Mejora("Experiencia del Chef", 13.5, 1.15, 0, accion -> datos.subirPotenciaClick(0.5),
-				"/img/brain.png"));
-		mejorasActivas.add(new Mejora("Premium Pizza-Cutter", 78, 1.1575, 70, accion -> datos.subirPotenciaClick(1.125),
-				"/img/knife.png"));
-		mejorasActivas.add(new Mejora("Manos de Maestro", 1_035, 1.1725, 900, accion -> datos.subirPotenciaClick(5.625),
-				"/img/hand.png"));
-
-		// mejoras pasivas autoclicker
-		// nombre / coste / incrementoCoste / umbralDesbloqueo / accion / ruta icono
-		mejorasPasivas
-				.add(new Mejora("Pala Pizzera", 103.5, 1.1575, 90, accion -> datos.subirNPS(0.625), "/img/wood.png"));
-		mejorasPasivas
-				.add(new Mejora("Air Fryer", 431.25, 1.1575, 380, accion -> datos.subirNPS(2.25), "/img/fire.png"));
-		mejorasPasivas.add(
-				new Mejora("Horno de piedra", 1_466.25, 1.165, 1_300, accion -> datos.subirNPS(7.5), "/img/fire.png"));
-		mejorasPasivas.add(
-				new Mejora("Horno doble", 4_743.75, 1.1725, 4_200, accion -> datos.subirNPS(22.5), "/img/fire.png"));
-		mejorasPasivas.add(new Mejora("Horno industrial", 14_231.25, 1.18, 12_500, accion -> datos.subirNPS(68.75),
-				"/img/fire.png"));
-		mejorasPasivas.add(new Mejora("Cinta automática", 41_400, 1.18, 36_000, accion -> datos.subirNPS(187.5),
-				"/img/railway.png"));
-		mejorasPasivas.add(new Mejora("Amasadora automática", 116_437.5, 1.1875, 100_000, accion -> datos.subirNPS(525),
-				"/img/crane.png"));
-		mejorasPasivas.add(new Mejora("Fábrica de masa", 327_750, 1.1875, 285_000, accion -> datos.subirNPS(1_500),
-				"/img/factory.png"));
-		mejorasPasivas.add(new Mejora("Línea de producción", 905_625, 1.195, 800_000, accion -> datos.subirNPS(4_250),
-				"/img/factory.png"));
-		mejorasPasivas.add(new Mejora("Central Pizzera", 2_501_250, 1.195, 2_200_000, accion -> datos.subirNPS(11_875),
-				"/img/office.png"));
-		mejorasPasivas.add(new Mejora("Megafactoría", 7_072_500, 1.2025, 6_200_000, accion -> datos.subirNPS(33_750),
-				"/img/factory.png"));
-		mejorasPasivas.add(new Mejora("PizzaCorp", 19_837_500, 1.2025, 17_000_000, accion -> datos.subirNPS(93_750),
-				"/img/briefcase.png"));
-		mejorasPasivas.add(new Mejora("Multinacional", 60_375_000, 1.2175, 52_000_000,
-				accion -> datos.subirNPS(275_000), "/img/earth_africa.png"));
-		mejorasPasivas.add(new Mejora("Impresora 3D de pizzas", 181_125_000, 1.225, 160_000_000,
-				accion -> datos.subirNPS(875_000), "/img/printer.png"));
+		// mejoras del catalogo (src/catalogo/mejoras.csv): las de click y
+		// cocineros son activas, las de pizzas/s pasivas
+		// sin catalogo no hay partida: se para aqui en vez de abrir un juego sin
+		// mejoras (el motivo ya lo ha escrito Catalogo en System.err)
+		Catalogo catalogo = Catalogo.cargar(Catalogo.RECURSO);
+		if (catalogo == null || catalogo.getTam() == 0) {
+			throw new IllegalStateException("No se ha podido cargar el catalogo de mejoras " + Catalogo.RECURSO);
+		}
+		for (Mejora m : catalogo.crearMejoras()) {
+			if (catalogo.esPasiva(m.getIndice())) {
+				mejorasPasivas.add(m);
+			} else {
+				mejorasActivas.add(m);
+			}
+		}
 
 	}
 
 	// main
 	// invokeLater para crear y mostrar la interfaz
 	// dentro mas adelante en su propio hilo de Swing (??????)
+	// con "--importar <texto>" se arranca desde una partida exportada y con
+	// "--grabar <fichero>" se graba la sesion para Reproduccion
 	public static void main(String[] args) {
+		String importar = null;
+		String grabar = null;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("--importar")) {
+				importar = args[i + 1];
+			} else if (args[i].equals("--grabar")) {
+				grabar = args[i + 1];
+			}
+		}
+		final String partidaImportada = importar;
+		final Path rutaGrabacion = grabar == null ? null : Paths.get(grabar);
 		try {
 			SwingUtilities.invokeLater(() -> {
-				new ProtoPizzaAPP().raiz();
+				new ProtoPizzaAPP().raiz(partidaImportada, rutaGrabacion);
 			});
 		} catch (Exception e) {
 			System.err.println("Ha fallado la raiz" + e.getMessage());
@@ -91,24 +85,82 @@ public class ProtoPizzaAPP {
 	}
 
 	// Construir y muestrar interfaz arranca mejoras yarranca el timer (motor)
-	private void raiz() {
-		// arranca la interfaz enviandole datos y la lista de las mejoras
-		Interfaz interfaz = new Interfaz(datos, mejorasPasivas, mejorasActivas);
+	private void raiz(String partidaImportada, Path rutaGrabacion) {
+		// todas las mejoras en el mismo orden que las filas de la interfaz
+		List<Mejora> mejoras = new ArrayList<>(mejorasActivas);
+		mejoras.addAll(mejorasPasivas);
+
+		// partida guardada (o importada), antes de arrancar el hilo del motor
+		Diario diario = new Diario(Diario.RUTA_POR_DEFECTO);
+		long marcaGuardado = -1;
+		if (partidaImportada != null) {
+			Guardado.importar(partidaImportada, datos, mejoras);
+		} else {
+			Guardado.Cabecera cabecera = Guardado.cargar(Guardado.RUTA_POR_DEFECTO, datos, mejoras);
+			long desde = 0;
+			if (cabecera != null) {
+				marcaGuardado = cabecera.getMarcaTiempo();
+				desde = cabecera.getSecuenciaDiario();
+			}
+			// lo que paso despues del ultimo guardado (cierre brusco)
+			marcaGuardado = Math.max(marcaGuardado, diario.recuperar(datos, mejoras, desde));
+		}
+
+		// el motor corre en su propio hilo y es el unico que toca datos
+		Simulacion simulacion = new Simulacion(datos, mejoras);
+		simulacion.setPersistencia(Guardado.RUTA_POR_DEFECTO, diario);
+		// guardado limpio con el diario ya reaplicado y vacio
+		simulacion.guardar();
+		if (rutaGrabacion != null) {
+			// desde el estado ya recuperado; el tiempo fuera entra como un reloj mas
+			simulacion.setGrabacion(Grabacion.crear(rutaGrabacion, datos, mejoras));
+		}
+		if (marcaGuardado > 0) {
+			// lo producido con el juego cerrado
+			double segundosFuera = (System.currentTimeMillis() - marcaGuardado) / 1000.0;
+			if (segundosFuera > 0) {
+				simulacion.ponerseAlDia(segundosFuera);
+			}
+		}
+		simulacion.iniciar();
+
+		// al cerrar (EXIT_ON_CLOSE llama a System.exit) se para el motor, se espera
+		// a que acabe el autoguardado en curso (sin limite, comparten el temporal)
+		// y se guarda una ultima vez aunque no haya cambios. Si el motor no para a
+		// tiempo no se guarda: seguiria cambiando datos y diario mientras tanto, y
+		// al abrir se recupera el ultimo guardado y lo volcado en el diario
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			if (simulacion.detener()) {
+				simulacion.guardar();
+				diario.cerrar();
+			}
+		}, "ProtoPizza-guardado"));
+
+		// metricas de rendimiento: overlay con F3 y MBean protopizza:type=Metricas
+		// para JConsole
+		Metricas.medidor(Metricas.ICONOS_ACIERTOS, CacheIconos::getAciertos);
+		Metricas.medidor(Metricas.ICONOS_FALLOS, CacheIconos::getFallos);
+		Metricas.medidor(Metricas.FONDOS_ACIERTOS, CacheFondos::getAciertos);
+		Metricas.medidor(Metricas.FONDOS_FALLOS, CacheFondos::getFallos);
+		Metricas.registrarJmx();
+		SondaEdt.iniciar();
+
+		// arranca la interfaz enviandole la simulacion y la lista de las mejoras
+		Interfaz interfaz = new Interfaz(simulacion, mejorasPasivas, mejorasActivas);
 		// inicializa timer y le envia la interfaz para poder actualizarla cada tick
 		timer(interfaz);
 	}
 
-	// loop que se actualiza cada 0.015 segundos (15ms)
+	// loop de pintado cada 15ms, solo lee la ultima foto de la simulacion
 	private void timer(Interfaz interfaz) {
-		// crea timer de 15ms que loopea y ejecuta el reloj en datos y el refresco de
-		// interfaz en interfaz
-		new Timer(15, ejecuta -> {
-			// reloj en datos que se encarga de calcular los cambios de los recursos cada
-			// tick de timer
-			datos.reloj(0.015);
-			// refresca interfaz
-			interfaz.refrescarInterfaz();
-		}).start();
+		// si un repintado se retrasa la simulacion no pierde ticks, solo se pinta
+		// la foto mas reciente en el siguiente. Va en el planificador de la
+		// interfaz: sin animaciones baja a 100ms y minimizada no se pinta (la
+		// simulacion sigue en su hilo igual)
+		PlanificadorFrames planificador = interfaz.getPlanificador();
+		planificador.programar("refresco", PlanificadorFrames.PERIODO_MS, PlanificadorFrames.Prioridad.ALTA, true,
+				interfaz::refrescarInterfaz);
+		planificador.iniciar();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,339 @@
+package app;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vuelve a jugar una Grabacion sin ventana ni hilo, lo mas rapido que da la
+ * CPU, sobre Datos y Mejora nuevos, y comprueba que cada compra da los mismos
+ * niveles y que el estado final es el grabado. Sirve de carga realista para
+ * benchmarks, para reproducir partidas con fallos y para comprobar que una
+ * optimizacion no ha cambiado la economia.
+ */
+public class Reproduccion {
+// la grabacion entera se mapea una vez y cada reproducir() la recorre desde el
+// estado inicial, asi que se puede repetir (benchmarks) sin volver a leer
+
+	// diferencias del estado final que se enseñan como mucho
+	private static final int MAX_DIFERENCIAS = 10;
+
+	private final Catalogo catalogo;
+	private final ByteBuffer grabacion;
+	private final int[] indicesCatalogo;
+	private final ByteBuffer estadoInicial;
+	private final int inicioRegistros;
+
+	// resultado de la ultima pasada
+	private long registros;
+	private long clicks;
+	private long pasos;
+	private long compras;
+	private long potenciadores;
+	private long nanosPartida;
+	private long nanosReproduccion;
+	private boolean completa;
+	private final List<String> diferencias = new ArrayList<>();
+	private Datos datos;
+	private List<Mejora> mejoras;
+
+	private Reproduccion(Catalogo catalogo, ByteBuffer grabacion, int[] indicesCatalogo, ByteBuffer estadoInicial,
+			int inicioRegistros) {
+		this.catalogo = catalogo;
+		this.grabacion = grabacion;
+		this.indicesCatalogo = indicesCatalogo;
+		this.estadoInicial = estadoInicial;
+		this.inicioRegistros = inicioRegistros;
+	}
+
+	// grabacion hecha con este catalogo; null si no se puede leer o no cuadra
+	public static Reproduccion abrir(Path ruta, Catalogo catalogo) {
+		ByteBuffer grabacion;
+		try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+			grabacion = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+		} catch (IOException e) {
+			System.err.println("No se pudo leer la grabacion " + ruta + ": " + e.getMessage());
+			return null;
+		}
+
+		try {
+			if (grabacion.getInt() != Grabacion.MAGIC) {
+				System.err.println("El fichero no es una grabacion de ProtoPizza");
+				return null;
+			}
+			short version = grabacion.getShort();
+			if (version != Grabacion.VERSION) {
+				System.err.println("Version de grabacion no soportada: " + version);
+				return null;
+			}
+			boolean exacta = (grabacion.getShort() & Grabacion.EXACTO) != 0;
+			if (exacta != ModoExacto.ACTIVO) {
+				System.err.println("La grabacion se hizo " + (exacta ? "con" : "sin")
+						+ " -Dprotopizza.exacto=true; en otro modo no acabara igual");
+			}
+			grabacion.getLong();
+
+			int[] indices = new int[grabacion.getInt()];
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = grabacion.getInt();
+				if (indices[i] < 0 || indices[i] >= catalogo.getTam()) {
+					System.err.println("La grabacion es de otro catalogo (mejora " + indices[i] + ")");
+					return null;
+				}
+			}
+			ByteBuffer estado = trozo(grabacion, grabacion.getInt());
+			return new Reproduccion(catalogo, grabacion, indices, estado, grabacion.position());
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			System.err.println("La cabecera de la grabacion esta incompleta");
+			return null;
+		}
+	}
+
+	// los tam bytes siguientes como buffer propio (posicion 0)
+	private static ByteBuffer trozo(ByteBuffer buffer, int tam) {
+		ByteBuffer trozo = buffer.slice();
+		trozo.limit(tam);
+		buffer.position(buffer.position() + tam);
+		return trozo;
+	}
+
+	// juega la grabacion entera; true si acaba en el estado grabado
+	public boolean reproducir() {
+		long inicio = System.nanoTime();
+		registros = 0;
+		clicks = 0;
+		pasos = 0;
+		compras = 0;
+		potenciadores = 0;
+		nanosPartida = 0;
+		completa = false;
+		diferencias.clear();
+
+		// mismas mejoras en el mismo orden que la lista de la partida grabada
+		List<Mejora> todas = catalogo.crearMejoras();
+		mejoras = new ArrayList<>(indicesCatalogo.length);
+		for (int indice : indicesCatalogo) {
+			mejoras.add(todas.get(indice));
+		}
+		datos = new Datos(0);
+		Guardado.decodificar(estadoInicial.duplicate(), datos, mejoras);
+
+		ByteBuffer lectura = grabacion.duplicate();
+		lectura.position(inicioRegistros);
+		try {
+			while (lectura.hasRemaining() && !completa) {
+				byte tipo = lectura.get();
+				if (tipo == 0) {
+					break;
+				}
+				nanosPartida += Grabacion.deshacerZigzag(Grabacion.leerVarint(lectura));
+				aplicar(tipo, lectura);
+				registros++;
+			}
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			// ultimo registro a medias (cierre brusco)
+		}
+		if (!completa) {
+			diferencias.add("la grabacion no tiene estado final (se corto en el registro " + registros + ")");
+		}
+
+		nanosReproduccion = System.nanoTime() - inicio;
+		return diferencias.isEmpty();
+	}
+
+	private void aplicar(byte tipo, ByteBuffer lectura) {
+		switch (tipo) {
+		case Grabacion.CLICK:
+			datos.click();
+			clicks++;
+			break;
+		case Grabacion.CLICKS: {
+			long n = Grabacion.leerVarint(lectura);
+			for (long i = 1; i < n; i++) {
+				nanosPartida += Grabacion.leerVarint(lectura);
+			}
+			datos.clicks(n);
+			clicks += n;
+			break;
+		}
+		case Grabacion.PASO:
+			datos.reloj(Simulacion.PASO);
+			pasos++;
+			break;
+		case Grabacion.RELOJ:
+			datos.reloj(lectura.getDouble());
+			break;
+		case Grabacion.COMPRA: {
+			int indice = (int) Grabacion.leerVarint(lectura);
+			int cantidad = (int) Grabacion.deshacerZigzag(Grabacion.leerVarint(lectura));
+			int grabados = (int) Grabacion.leerVarint(lectura);
+			int niveles = mejoras.get(indice).comprar(datos, cantidad);
+			compras++;
+			if (niveles != grabados && diferencias.size() < MAX_DIFERENCIAS) {
+				diferencias.add(String.format("compra %d de %s en +%.3f s: %d niveles, grabados %d", compras,
+						mejoras.get(indice).getNombre(), nanosPartida / 1e9, niveles, grabados));
+			}
+			break;
+		}
+		case Grabacion.POTENCIADOR: {
+			Potenciador.Tipo tipoPotenciador = Potenciador.Tipo.values()[(int) Grabacion.leerVarint(lectura)];
+			double factor = lectura.getDouble();
+			long desde = Grabacion.leerVarint(lectura);
+			long hasta = desde + Grabacion.leerVarint(lectura);
+			double mantisa = lectura.getDouble();
+			NumeroGrande coste = NumeroGrande.de(mantisa, Grabacion.deshacerZigzag(Grabacion.leerVarint(lectura)));
+			datos.programarPotenciador(new Potenciador(tipoPotenciador, factor, desde, hasta));
+			datos.gastar(coste);
+			potenciadores++;
+			break;
+		}
+		case Grabacion.ESTADO:
+			Guardado.decodificar(trozo(lectura, lectura.getInt()), datos, mejoras);
+			break;
+		case Grabacion.FIN:
+			comparar(trozo(lectura, lectura.getInt()));
+			completa = true;
+			break;
+		default:
+			throw new IllegalArgumentException("registro desconocido " + tipo);
+		}
+	}
+
+	// compara byte a byte con el estado grabado y, si no coincide, dice en que
+	private void comparar(ByteBuffer esperado) {
+		ByteBuffer obtenido = Guardado.codificar(datos, mejoras, 0, 0);
+		if (obtenido.equals(esperado)) {
+			return;
+		}
+		Datos datosEsperados = new Datos(0);
+		List<Mejora> todas = catalogo.crearMejoras();
+		List<Mejora> mejorasEsperadas = new ArrayList<>(indicesCatalogo.length);
+		for (int indice : indicesCatalogo) {
+			mejorasEsperadas.add(todas.get(indice));
+		}
+		if (Guardado.decodificar(esperado.duplicate(), datosEsperados, mejorasEsperadas) == null) {
+			diferencias.add("el estado grabado no se puede leer");
+			return;
+		}
+
+		diferencia("saldo", datos.getNum(), datosEsperados.getNum());
+		diferencia("record", datos.getMaximo(), datosEsperados.getMaximo());
+		diferencia("pizzas/s", datos.getNps(), datosEsperados.getNps());
+		diferencia("valor del click", datos.getClickIncremento(), datosEsperados.getClickIncremento());
+		diferencia("contador del autoclicker", datos.getContadorAutoClicker(),
+				datosEsperados.getContadorAutoClicker());
+		diferencia("nivel del autoclicker", datos.getNivelAutoClicker(), datosEsperados.getNivelAutoClicker());
+		diferencia("clicks del autoclicker", datos.getClicksAutomaticos(), datosEsperados.getClicksAutomaticos());
+		diferencia("reloj de juego", datos.getTiempo(), datosEsperados.getTiempo());
+		diferencia("potenciadores", datos.getPotenciadores().length, datosEsperados.getPotenciadores().length);
+		for (int i = 0; i < mejoras.size(); i++) {
+			diferencia("nivel de " + mejoras.get(i).getNombre(), mejoras.get(i).getNivel(),
+					mejorasEsperadas.get(i).getNivel());
+		}
+		if (diferencias.isEmpty()) {
+			diferencias.add("el estado final no coincide byte a byte");
+		}
+	}
+
+	private void diferencia(String que, Object obtenido, Object esperado) {
+		if (!obtenido.equals(esperado) && diferencias.size() < MAX_DIFERENCIAS) {
+			diferencias.add(que + ": " + obtenido + ", grabado " + esperado);
+		}
+	}
+
+	public void imprimir(PrintStream salida) {
+		double segundos = nanosPartida / 1e9;
+		double ms = nanosReproduccion / 1e6;
+		salida.printf("%d registros (%d clicks, %d pasos, %d compras, %d potenciadores), %.1f s de partida en %.1f ms"
+				+ " (x%.0f)%n", registros, clicks, pasos, compras, potenciadores, segundos, ms,
+				segundos * 1000 / Math.max(ms, 1e-3));
+		if (diferencias.isEmpty()) {
+			salida.println("El estado final coincide con el grabado");
+			return;
+		}
+		salida.println("La reproduccion NO coincide:");
+		for (String d : diferencias) {
+			salida.println("  " + d);
+		}
+	}
+
+	// java -cp protopizza-core.jar app.Reproduccion partida.grabacion
+	// [--veces 1] [--catalogo recurso]
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Uso: Reproduccion partida.grabacion [--veces n] [--catalogo recurso]");
+			return;
+		}
+		Path ruta = Paths.get(args[0]);
+		int veces = 1;
+		String recurso = Catalogo.RECURSO;
+		try {
+			for (int i = 1; i + 1 < args.length; i += 2) {
+				String valor = args[i + 1];
+				switch (args[i]) {
+				case "--veces":
+					veces = Integer.parseInt(valor);
+					break;
+				case "--catalogo":
+					recurso = valor;
+					break;
+				default:
+					System.err.println("Opcion desconocida " + args[i]);
+					return;
+				}
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Numero mal escrito: " + e.getMessage());
+			return;
+		}
+
+		Catalogo catalogo = Catalogo.cargar(recurso);
+		if (catalogo == null) {
+			return;
+		}
+		Reproduccion reproduccion = abrir(ruta, catalogo);
+		if (reproduccion == null) {
+			return;
+		}
+		// las primeras vueltas calientan el JIT; se enseña la ultima
+		boolean coincide = true;
+		for (int i = 0; i < veces; i++) {
+			coincide &= reproduccion.reproducir();
+		}
+		reproduccion.imprimir(System.out);
+		if (!coincide) {
+			System.exit(1);
+		}
+	}
+
+	//
+	//
+	// getters (de la ultima pasada)
+	public long getRegistros() {
+		return registros;
+	}
+
+	public boolean isCompleta() {
+		return completa;
+	}
+
+	public List<String> getDiferencias() {
+		return diferencias;
+	}
+
+	public Datos getDatos() {
+		return datos;
+	}
+
+	public List<Mejora> getMejoras() {
+		return mejoras;
+	}
+
+}
@@ -0,0 +1,34 @@
+package app;
+
+/**
+ * Lo que se ha producido mientras el jugador no estaba (app suspendida o
+ * partida cerrada). Inmutable, viaja dentro del EstadoJuego.
+ */
+public final class ResumenAusencia {
+
+	private final double segundos;
+	private final NumeroGrande pizzas;
+	private final long clicksAutomaticos;
+
+	public ResumenAusencia(double segundos, NumeroGrande pizzas, long clicksAutomaticos) {
+		this.segundos = segundos;
+		this.pizzas = pizzas;
+		this.clicksAutomaticos = clicksAutomaticos;
+	}
+
+	//
+	//
+	// getters
+	public double getSegundos() {
+		return segundos;
+	}
+
+	public NumeroGrande getPizzas() {
+		return pizzas;
+	}
+
+	public long getClicksAutomaticos() {
+		return clicksAutomaticos;
+	}
+
+}
@@ -0,0 +1,179 @@
+package app;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Rueda de tiempos jerarquica: avisos programados para un tick (entero, la
+ * unidad la pone quien la usa) en niveles de 64 huecos, cada nivel 64 veces mas
+ * ancho que el anterior. Programar es O(1) y saber cuando vence el siguiente
+ * aviso es O(niveles) aunque falten horas o dias, sin recorrer los ticks vacios.
+ * Solo la usa un hilo.
+ */
+public class RuedaTiempos<T> {
+// el nivel 0 tiene un hueco por tick para [ahora, ahora + 64); el nivel n un
+// hueco por bloque de 64^n ticks para los 63 bloques siguientes al de ahora. Un
+// aviso va al nivel mas bajo en el que cabe y, cuando ahora llega al inicio de
+// su bloque, baja de nivel (cascada) hasta el 0, donde vence en su tick exacto.
+// Cada nivel lleva un long con un bit por hueco ocupado: el primero ocupado
+// desde ahora sale con numberOfTrailingZeros sobre el long rotado
+
+	private static final int BITS = 6;
+	private static final int HUECOS = 1 << BITS;
+	private static final int MASCARA = HUECOS - 1;
+
+	public static final long NINGUNO = Long.MAX_VALUE;
+
+	// aviso en una lista enlazada por hueco
+	private static final class Nodo<T> {
+		final long vence;
+		final T valor;
+		Nodo<T> siguiente;
+
+		Nodo(long vence, T valor) {
+			this.vence = vence;
+			this.valor = valor;
+		}
+	}
+
+	private final int niveles;
+	private final Nodo<T>[][] huecos;
+	private final long[] ocupados;
+	private long ahora;
+	private int tam = 0;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public RuedaTiempos(int niveles, long ahora) {
+		this.niveles = niveles;
+		this.huecos = new Nodo[niveles][HUECOS];
+		this.ocupados = new long[niveles];
+		this.ahora = ahora;
+	}
+
+	// aviso para el tick vence, que tiene que ser posterior a ahora y caber en la
+	// rueda (getAlcance)
+	public void programar(T valor, long vence) {
+		if (vence <= ahora || vence - ahora >= getAlcance()) {
+			throw new IllegalArgumentException("aviso fuera de la rueda: " + vence + " con ahora " + ahora);
+		}
+		colocar(new Nodo<>(vence, valor));
+		tam++;
+	}
+
+	private void colocar(Nodo<T> nodo) {
+		for (int nivel = 0; nivel < niveles; nivel++) {
+			int desplazamiento = nivel * BITS;
+			if ((nodo.vence >> desplazamiento) - (ahora >> desplazamiento) < HUECOS) {
+				int hueco = (int) ((nodo.vence >> desplazamiento) & MASCARA);
+				nodo.siguiente = huecos[nivel][hueco];
+				huecos[nivel][hueco] = nodo;
+				ocupados[nivel] |= 1L << hueco;
+				return;
+			}
+		}
+		// programar ya ha comprobado el alcance
+		throw new IllegalStateException("aviso sin nivel: " + nodo.vence);
+	}
+
+	// primer tick en el que hay algo que hacer (un aviso que vence o un bloque
+	// que baja de nivel), NINGUNO si esta vacia. Nunca es posterior al primer
+	// aviso
+	public long siguiente() {
+		long primero = NINGUNO;
+		for (int nivel = 0; nivel < niveles; nivel++) {
+			if (ocupados[nivel] == 0) {
+				continue;
+			}
+			int desplazamiento = nivel * BITS;
+			long bloque = ahora >> desplazamiento;
+			long rotado = Long.rotateRight(ocupados[nivel], (int) (bloque & MASCARA));
+			long inicio = (bloque + Long.numberOfTrailingZeros(rotado)) << desplazamiento;
+			primero = Math.min(primero, inicio);
+		}
+		return primero;
+	}
+
+	// avanza hasta el tick hasta (incluido) y pasa a vencido, en orden, cada
+	// aviso que vence por el camino; vencido puede programar avisos nuevos
+	public void avanzar(long hasta, Consumer<T> vencido) {
+		while (tam > 0) {
+			long t = siguiente();
+			if (t > hasta) {
+				break;
+			}
+			ahora = t;
+			bajarNiveles(t);
+			vencer(t, vencido);
+		}
+		if (hasta > ahora) {
+			ahora = hasta;
+		}
+	}
+
+	// los bloques que empiezan en t se reparten por los niveles de abajo
+	private void bajarNiveles(long t) {
+		for (int nivel = niveles - 1; nivel > 0; nivel--) {
+			int hueco = (int) ((t >> (nivel * BITS)) & MASCARA);
+			if ((ocupados[nivel] & (1L << hueco)) == 0) {
+				continue;
+			}
+			Nodo<T> nodo = huecos[nivel][hueco];
+			huecos[nivel][hueco] = null;
+			ocupados[nivel] &= ~(1L << hueco);
+			while (nodo != null) {
+				Nodo<T> siguiente = nodo.siguiente;
+				colocar(nodo);
+				nodo = siguiente;
+			}
+		}
+	}
+
+	private void vencer(long t, Consumer<T> vencido) {
+		int hueco = (int) (t & MASCARA);
+		Nodo<T> nodo = huecos[0][hueco];
+		if (nodo == null) {
+			return;
+		}
+		huecos[0][hueco] = null;
+		ocupados[0] &= ~(1L << hueco);
+		// se sueltan todos antes de avisar: vencido puede volver a programar
+		while (nodo != null) {
+			Nodo<T> siguiente = nodo.siguiente;
+			tam--;
+			vencido.accept(nodo.valor);
+			nodo = siguiente;
+		}
+	}
+
+	// vacia la rueda y la pone en otro tick (partida cargada)
+	public void reiniciar(long ahora) {
+		for (int nivel = 0; nivel < niveles; nivel++) {
+			Arrays.fill(huecos[nivel], null);
+			ocupados[nivel] = 0;
+		}
+		this.ahora = ahora;
+		tam = 0;
+	}
+
+	//
+	//
+	// getters
+	public long getAhora() {
+		return ahora;
+	}
+
+	public boolean isVacia() {
+		return tam == 0;
+	}
+
+	public int getTam() {
+		return tam;
+	}
+
+	// ticks hacia delante que se pueden programar: 63 bloques del nivel de
+	// arriba (con el 64 el ultimo podria caer en el hueco de ahora)
+	public long getAlcance() {
+		return (long) MASCARA << ((niveles - 1) * BITS);
+	}
+
+}
@@ -0,0 +1,599 @@
+package app;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import metricas.EventoAutoClicker;
+import metricas.EventoCompra;
+import metricas.EventoReloj;
+import metricas.Histograma;
+import metricas.Metricas;
+
+/**
+ * Motor del juego en su propio hilo. Es el unico que toca Datos y las mejoras;
+ * despues de cada tick publica un EstadoJuego inmutable que la interfaz lee sin
+ * bloqueos.
+ */
+public class Simulacion implements Runnable {
+// antes el timer de swing llamaba a datos.reloj(0.015) en el hilo de la interfaz,
+// asi que cualquier repintado lento se comia ticks. Ahora el paso es fijo pero se
+// mide el tiempo real con nanoTime y se recupera lo que se haya atrasado
+
+	// paso fijo de la simulacion (15ms)
+	public static final double PASO = 0.015;
+	private static final long PASO_NS = 15_000_000L;
+
+	// si se acumula mas de esto (hilo dormido, pc suspendido...) no se hacen los
+	// pasos uno a uno, se avanza todo de golpe con la formula cerrada de reloj
+	private static final long PONERSE_AL_DIA_NS = 250_000_000L;
+
+	// a partir de aqui se considera que el jugador "no estaba" y se le avisa
+	private static final long AVISO_AUSENCIA_NS = 10_000_000_000L;
+
+	// cada cuanto se escribe el diario (lo maximo que se pierde en un cierre
+	// brusco) y cada cuanto se pide un guardado completo (lo escribe el hilo de
+	// Autoguardado) que lo compacta
+	private static final long VOLCADO_DIARIO_NS = 200_000_000L;
+	private static final long GUARDADO_NS = 30_000_000_000L;
+
+	// ventana en la que se miden los clicks/s del jugador para el asesor
+	private static final long VENTANA_CLICKS_NS = 5_000_000_000L;
+
+	// clicks que caben entre dos ticks con su marca de tiempo (68.000 por segundo)
+	private static final int CAPACIDAD_CLICKS = 1024;
+
+	// tope de compras del piloto automatico en un tick
+	private static final int MAX_COMPRAS_PILOTO = 100;
+
+	// duracion de cada reloj, de cada vuelta del bucle (sin el sueño) y bytes
+	// reservados por vuelta
+	private static final Histograma METRICA_RELOJ = Metricas.histograma(Metricas.RELOJ, Metricas.NANOS);
+	private static final Histograma METRICA_TICK = Metricas.histograma(Metricas.TICK, Metricas.NANOS);
+	private static final Histograma METRICA_BYTES = Metricas.histograma(Metricas.BYTES_TICK, Metricas.BYTES);
+
+	private final Datos datos;
+	private final List<Mejora> mejoras;
+
+	// ordenes que llegan desde la interfaz (compras, piloto, importar...), se aplican al
+	// principio del siguiente tick dentro del hilo de simulacion
+	private final ConcurrentLinkedQueue<Consumer<Datos>> pendientes = new ConcurrentLinkedQueue<>();
+
+	// clicks de la pizza, aparte de las ordenes porque pueden ser cientos por
+	// segundo; se vacian al principio de cada tick
+	private final ColaClicks clicks = new ColaClicks(CAPACIDAD_CLICKS);
+	private final long[] marcasClicks = new long[CAPACIDAD_CLICKS];
+
+	// ultima foto publicada, volatile para que la interfaz la vea sin locks
+	private volatile EstadoJuego estado;
+
+	private volatile boolean activa = false;
+	private Thread hilo;
+
+	// contador de ticks y de clicks del autoclicker
+	private long secuencia = 0;
+	private long pulsosAutoClicker = 0;
+
+	// ultimo resumen de ausencia, se publica en la foto para que lo muestre la
+	// interfaz
+	private ResumenAusencia ausencia = null;
+
+	// estado de mejoras de la ultima foto, solo se copia de nuevo si hay compras
+	private int[] niveles;
+	private NumeroGrande[] costes;
+	private int[] restantes;
+	private boolean mejorasCambiadas = true;
+
+	// asesor de compras por amortizacion, su ultima recomendacion y el piloto
+	// automatico que compra en ese orden
+	private final AsesorCompras asesor;
+	private int recomendada = -1;
+	private double amortizacion = Double.NaN;
+	private boolean pilotoAutomatico = false;
+
+	// clicks manuales por segundo medidos en ventanas de VENTANA_CLICKS_NS
+	private long clicksVentana = 0;
+	private long inicioVentana = -1;
+	private double clicksPorSegundo = 0;
+
+	// persistencia (opcional): guardado completo + diario de eventos
+	private Path rutaGuardado;
+	private Diario diario;
+	private Autoguardado autoguardado;
+	// hash de los nombres de las mejoras para las fotos de guardado
+	private int[] nombresMejoras;
+	// secuencia hasta la que ya se compacto el diario y guardado pedido por una
+	// orden (importar) para despues de publicar
+	private long compactadoHasta = -1;
+	private boolean guardarYa = false;
+	private long clicksSinAnotar = 0;
+	private NumeroGrande numAnotado = null;
+	private long ultimoVolcado;
+	private long ultimoGuardado;
+
+	// grabacion de la sesion para reproducirla (opcional)
+	private Grabacion grabacion;
+
+	public Simulacion(Datos datos, List<Mejora> mejoras) {
+		this.datos = datos;
+		this.mejoras = mejoras;
+		this.asesor = new AsesorCompras(mejoras, datos);
+		publicar();
+	}
+
+	// activa el guardado periodico y el diario; llamar antes de iniciar
+	public void setPersistencia(Path rutaGuardado, Diario diario) {
+		this.rutaGuardado = rutaGuardado;
+		this.diario = diario;
+		this.autoguardado = new Autoguardado(rutaGuardado);
+		this.nombresMejoras = FotoPartida.nombres(mejoras);
+	}
+
+	// graba todo lo que cambia la partida desde el estado actual hasta
+	// detener(); llamar antes de iniciar
+	public void setGrabacion(Grabacion grabacion) {
+		this.grabacion = grabacion;
+	}
+
+	// arranca el hilo (daemon para que no impida cerrar la app)
+	public void iniciar() {
+		if (activa) {
+			return;
+		}
+		activa = true;
+		hilo = new Thread(this, "ProtoPizza-simulacion");
+		hilo.setDaemon(true);
+		hilo.start();
+		if (autoguardado != null) {
+			autoguardado.iniciar();
+		}
+	}
+
+	// para el hilo y espera a que termine el tick en curso y a que se escriba el
+	// ultimo guardado pedido. Devuelve false si el hilo sigue vivo pasado un
+	// segundo (un ponerse al dia muy largo): datos, diario y grabacion siguen en
+	// sus manos y no se pueden tocar desde aqui (ni guardar)
+	public boolean detener() {
+		activa = false;
+		if (hilo == null) {
+			return true;
+		}
+		LockSupport.unpark(hilo);
+		try {
+			hilo.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (autoguardado != null) {
+			autoguardado.cerrar();
+		}
+		if (hilo.isAlive()) {
+			System.err.println("La simulacion no ha parado a tiempo");
+			return false;
+		}
+		terminarGrabacion();
+		return true;
+	}
+
+	// escribe el estado final de la grabacion; con el hilo parado (o sin hilo)
+	public void terminarGrabacion() {
+		if (grabacion != null) {
+			grabacion.cerrar(datos, mejoras);
+			grabacion = null;
+		}
+	}
+
+	@Override
+	public void run() {
+		long anterior = System.nanoTime();
+		long acumulado = 0;
+		ultimoVolcado = anterior;
+		ultimoGuardado = anterior;
+
+		while (activa) {
+			long ahora = System.nanoTime();
+			long bytesAntes = Metricas.bytesHilo();
+			acumulado += ahora - anterior;
+			anterior = ahora;
+
+			aplicarPendientes();
+			medirClicks(ahora);
+
+			// vuelta de una pausa larga: un solo reloj con todo el tiempo
+			if (acumulado >= PONERSE_AL_DIA_NS) {
+				long atrasado = acumulado - acumulado % PASO_NS;
+				EventoReloj evento = new EventoReloj();
+				evento.begin();
+				long clicksAntes = datos.getClicksAutomaticos();
+				ResumenAusencia resumen = datos.ponerseAlDia(atrasado / 1_000_000_000.0);
+				emitirReloj(evento, atrasado / 1_000_000_000.0, clicksAntes);
+				if (grabacion != null) {
+					grabacion.reloj(ahora, atrasado / 1_000_000_000.0);
+				}
+				if (datos.autoClickerPulsado()) {
+					pulsosAutoClicker++;
+				}
+				if (atrasado >= AVISO_AUSENCIA_NS) {
+					ausencia = resumen;
+				}
+				acumulado -= atrasado;
+				secuencia++;
+			}
+
+			// tantos pasos fijos como tiempo real haya pasado
+			while (acumulado >= PASO_NS) {
+				long inicioReloj = System.nanoTime();
+				EventoReloj evento = new EventoReloj();
+				evento.begin();
+				long clicksAntes = datos.getClicksAutomaticos();
+				datos.reloj(PASO);
+				emitirReloj(evento, PASO, clicksAntes);
+				METRICA_RELOJ.registrar(System.nanoTime() - inicioReloj);
+				if (grabacion != null) {
+					grabacion.paso(inicioReloj);
+				}
+				if (datos.autoClickerPulsado()) {
+					pulsosAutoClicker++;
+				}
+				acumulado -= PASO_NS;
+				secuencia++;
+			}
+
+			pilotar();
+			publicar();
+			persistir(ahora);
+
+			METRICA_TICK.registrar(System.nanoTime() - ahora);
+			if (bytesAntes >= 0) {
+				METRICA_BYTES.registrar(Metricas.bytesHilo() - bytesAntes);
+			}
+
+			// duerme hasta el siguiente paso (o hasta que llegue un click)
+			LockSupport.parkNanos(PASO_NS - acumulado);
+		}
+	}
+
+	// eventos JFR de un reloj recien hecho; con la grabacion apagada
+	// shouldCommit es un if y el new lo quita el JIT
+	private void emitirReloj(EventoReloj evento, double diferenciaTiempo, long clicksAntes) {
+		evento.end();
+		if (evento.shouldCommit()) {
+			evento.diferenciaTiempo = diferenciaTiempo;
+			evento.secuencia = secuencia;
+			evento.commit();
+		}
+		long clicks = datos.getClicksAutomaticos() - clicksAntes;
+		if (clicks > 0) {
+			EventoAutoClicker tanda = new EventoAutoClicker();
+			if (tanda.shouldCommit()) {
+				tanda.clicks = clicks;
+				tanda.nivel = datos.getNivelAutoClicker();
+				tanda.periodo = datos.getPeriodoEfectivo();
+				tanda.commit();
+			}
+		}
+	}
+
+	// un paso fijo sin hilo, para montar la partida sin ventana (benchmarks); no
+	// usar con el hilo arrancado
+	public void avanzarPaso() {
+		aplicarPendientes();
+		datos.reloj(PASO);
+		if (grabacion != null) {
+			grabacion.paso(System.nanoTime());
+		}
+		if (datos.autoClickerPulsado()) {
+			pulsosAutoClicker++;
+		}
+		secuencia++;
+		pilotar();
+		publicar();
+	}
+
+	// click manual desde la interfaz (un solo hilo); se aplica con los demas del
+	// tick. No despierta al hilo: el click se ve en el siguiente frame igual
+	public void click() {
+		clicks.ofrecer(System.nanoTime());
+	}
+
+	// compra de la mejora en la posicion indicada (mismo orden que la lista)
+	public void comprar(int indice) {
+		comprar(indice, 1);
+	}
+
+	// compra x niveles (o Mejora.COMPRA_MAXIMA) de una vez
+	public void comprar(int indice, int cantidad) {
+		encolar(d -> comprarAhora(indice, cantidad, false));
+	}
+
+	// activa o quita el piloto automatico (compra la recomendada en cuanto llega
+	// el saldo)
+	public void setPilotoAutomatico(boolean activo) {
+		encolar(d -> pilotoAutomatico = activo);
+	}
+
+	// compra dentro del hilo de simulacion (ordenes de la interfaz y piloto)
+	private boolean comprarAhora(int indice, int cantidad, boolean automatica) {
+		int nivelAutoClicker = datos.getNivelAutoClicker();
+		Mejora m = mejoras.get(indice);
+		EventoCompra evento = new EventoCompra();
+		// el saldo solo se copia si se esta grabando
+		NumeroGrande saldoAntes = evento.isEnabled() ? datos.getNum() : null;
+		evento.begin();
+		int niveles = m.comprar(datos, cantidad);
+		// tambien las que no llegan: al reproducir tienen que fallar igual
+		if (grabacion != null) {
+			grabacion.compra(System.nanoTime(), indice, cantidad, niveles);
+		}
+		if (niveles <= 0) {
+			return false;
+		}
+		evento.end();
+		if (evento.shouldCommit()) {
+			evento.mejora = m.getNombre();
+			evento.nivel = m.getNivel();
+			evento.niveles = niveles;
+			evento.coste = saldoAntes.restar(datos.getNum()).toString();
+			evento.automatica = automatica;
+			evento.commit();
+		}
+		mejorasCambiadas = true;
+		asesor.comprada(indice);
+		if (diario != null) {
+			diario.compra(indice, m.getNivel(), datos);
+			if (datos.getNivelAutoClicker() != nivelAutoClicker) {
+				diario.autoClicker(datos.getNivelAutoClicker(), datos);
+			}
+		}
+		return true;
+	}
+
+	// piloto automatico: compra la de menor amortizacion mientras llegue el
+	// saldo; si no llega espera (no se gasta en otra peor)
+	private void pilotar() {
+		if (!pilotoAutomatico) {
+			return;
+		}
+		for (int k = 0; k < MAX_COMPRAS_PILOTO; k++) {
+			asesor.avanzar();
+			int i = asesor.mejor(clicksPorSegundo);
+			if (i < 0 || !datos.verificarCompra(mejoras.get(i)) || !comprarAhora(i, 1, true)) {
+				return;
+			}
+		}
+	}
+
+	// clicks/s del jugador en la ultima ventana completa
+	private void medirClicks(long ahora) {
+		if (inicioVentana < 0) {
+			inicioVentana = ahora;
+			return;
+		}
+		long transcurrido = ahora - inicioVentana;
+		if (transcurrido >= VENTANA_CLICKS_NS) {
+			clicksPorSegundo = clicksVentana * 1e9 / transcurrido;
+			clicksVentana = 0;
+			inicioVentana = ahora;
+		}
+	}
+
+	// tiempo que ha pasado con la partida cerrada, se cobra de golpe y se avisa
+	public void ponerseAlDia(double segundos) {
+		encolar(d -> {
+			ausencia = d.ponerseAlDia(segundos);
+			if (grabacion != null) {
+				grabacion.reloj(System.nanoTime(), segundos);
+			}
+		});
+	}
+
+	// potenciador que empieza ya y dura segundos de juego; el futuro da el
+	// programado o null si no es valido
+	public CompletableFuture<Potenciador> activarPotenciador(Potenciador.Tipo tipo, double factor, double segundos) {
+		return activarPotenciador(tipo, factor, 0, segundos);
+	}
+
+	// igual pero empieza dentro de dentroDe segundos de juego
+	public CompletableFuture<Potenciador> activarPotenciador(Potenciador.Tipo tipo, double factor, double dentroDe,
+			double segundos) {
+		CompletableFuture<Potenciador> programado = new CompletableFuture<>();
+		encolar(d -> programado.complete(potenciadorNuevo(d.activarPotenciador(tipo, factor, dentroDe, segundos),
+				NumeroGrande.CERO)));
+		return programado;
+	}
+
+	// potenciador pagado con pizzas (Potenciador.coste con las pizzas/s de ese
+	// momento); el futuro da null si no llega el saldo
+	public CompletableFuture<Potenciador> comprarPotenciador(Potenciador.Tipo tipo, double factor, double segundos) {
+		CompletableFuture<Potenciador> comprado = new CompletableFuture<>();
+		encolar(d -> {
+			NumeroGrande coste = Potenciador.coste(d.getNpsEfectivo(), factor, segundos);
+			comprado.complete(potenciadorNuevo(d.comprarPotenciador(tipo, factor, segundos, coste), coste));
+		});
+		return comprado;
+	}
+
+	private Potenciador potenciadorNuevo(Potenciador p, NumeroGrande coste) {
+		if (p != null) {
+			if (grabacion != null) {
+				grabacion.potenciador(System.nanoTime(), p, coste);
+			}
+			// el diario no los lleva: se guarda en cuanto se pueda
+			guardarYa = true;
+		}
+		return p;
+	}
+
+	// partida en texto (Guardado.exportar) hecha dentro del hilo de simulacion
+	public CompletableFuture<String> exportar() {
+		CompletableFuture<String> texto = new CompletableFuture<>();
+		encolar(d -> texto.complete(Guardado.exportar(d, mejoras)));
+		return texto;
+	}
+
+	// sustituye la partida actual por la del texto si es valida
+	public CompletableFuture<Boolean> importar(String texto) {
+		CompletableFuture<Boolean> correcto = new CompletableFuture<>();
+		encolar(d -> {
+			boolean ok = Guardado.importar(texto, d, mejoras) != null;
+			mejorasCambiadas |= ok;
+			if (ok) {
+				if (grabacion != null) {
+					grabacion.estado(System.nanoTime(), d, mejoras);
+				}
+				// niveles nuevos sin pasar por comprar
+				asesor.reconstruir();
+				// con los arrays de mejoras ya publicados
+				guardarYa = true;
+			}
+			correcto.complete(ok);
+		});
+		return correcto;
+	}
+
+	// guardado completo que compacta el diario, escrito aqui mismo; con el hilo
+	// sin arrancar o ya parado (al abrir y al cerrar la ventana). Con el hilo en
+	// marcha se guarda en segundo plano (autoguardar)
+	public void guardar() {
+		if (rutaGuardado == null) {
+			return;
+		}
+		long secuencia = 0;
+		if (diario != null) {
+			anotarClicks();
+			diario.volcar();
+			secuencia = diario.getSecuencia();
+		}
+		if (Guardado.guardar(rutaGuardado, datos, mejoras, secuencia) && diario != null) {
+			diario.compactar();
+		}
+	}
+
+	// foto de la partida para el hilo de Autoguardado, con el diario volcado
+	// hasta aqui; cuando este escrita se compacta el diario
+	private void autoguardar(boolean forzar) {
+		anotarClicks();
+		diario.volcar();
+		autoguardado.ofrecer(new FotoPartida(datos, nombresMejoras, niveles, costes, diario.getSecuencia()), forzar);
+	}
+
+	// vacia el diario si el ultimo guardado escrito lo cubre entero; si ya hay
+	// registros posteriores se queda como esta (al recuperar se saltan los
+	// anteriores al guardado) y se compacta con el siguiente
+	private void compactar() {
+		long hasta = autoguardado.getGuardadoHasta();
+		if (hasta > compactadoHasta) {
+			compactadoHasta = hasta;
+			if (diario.getSecuencia() == hasta) {
+				diario.compactar();
+			}
+		}
+	}
+
+	// tandas de diario cada VOLCADO_DIARIO_NS y guardado completo cada GUARDADO_NS
+	private void persistir(long ahora) {
+		if (diario == null) {
+			return;
+		}
+		compactar();
+		if (guardarYa || ahora - ultimoGuardado >= GUARDADO_NS) {
+			autoguardar(guardarYa);
+			guardarYa = false;
+			ultimoGuardado = ahora;
+			ultimoVolcado = ahora;
+			return;
+		}
+		if (ahora - ultimoVolcado >= VOLCADO_DIARIO_NS) {
+			anotarClicks();
+			// lo que ha producido el nps/autoclicker desde el ultimo registro
+			NumeroGrande num = datos.getNum();
+			if (!num.equals(numAnotado)) {
+				diario.progreso(datos);
+				numAnotado = num;
+			}
+			diario.volcar();
+			ultimoVolcado = ahora;
+		}
+	}
+
+	private void anotarClicks() {
+		if (clicksSinAnotar > 0) {
+			diario.clicks(clicksSinAnotar, datos);
+			clicksSinAnotar = 0;
+			numAnotado = datos.getNum();
+		}
+	}
+
+	private void encolar(Consumer<Datos> orden) {
+		pendientes.add(orden);
+		// despierta al hilo para que el click se vea sin esperar al siguiente paso
+		if (hilo != null) {
+			LockSupport.unpark(hilo);
+		}
+	}
+
+	private void aplicarPendientes() {
+		aplicarClicks();
+		Consumer<Datos> orden;
+		while ((orden = pendientes.poll()) != null) {
+			orden.accept(datos);
+		}
+	}
+
+	// todos los clicks que han llegado desde el tick anterior en una suma
+	private void aplicarClicks() {
+		int conMarca = clicks.vaciar(marcasClicks);
+		long total = conMarca + clicks.vaciarSinMarca();
+		if (total == 0) {
+			return;
+		}
+		datos.clicks(total);
+		clicksSinAnotar += total;
+		clicksVentana += total;
+		if (grabacion != null) {
+			grabacion.clicks(marcasClicks, conMarca, total);
+		}
+	}
+
+	// crea la foto nueva; los arrays de mejoras solo se copian si han cambiado
+	private void publicar() {
+		if (mejorasCambiadas) {
+			int n = mejoras.size();
+			int[] nuevosNiveles = new int[n];
+			NumeroGrande[] nuevosCostes = new NumeroGrande[n];
+			int[] nuevosRestantes = new int[n];
+			for (int i = 0; i < n; i++) {
+				Mejora m = mejoras.get(i);
+				nuevosNiveles[i] = m.getNivel();
+				nuevosCostes[i] = m.getCoste();
+				nuevosRestantes[i] = m.getNivelesRestantes();
+			}
+			niveles = nuevosNiveles;
+			costes = nuevosCostes;
+			restantes = nuevosRestantes;
+			mejorasCambiadas = false;
+		}
+		// el asesor se consulta cada foto: solo mira tres cimas y rehace los
+		// factores de cada efecto cuando cambian los clicks/s o hubo compras
+		asesor.avanzar();
+		recomendada = asesor.mejor(clicksPorSegundo);
+		amortizacion = asesor.getAmortizacion();
+		estado = new EstadoJuego(secuencia, datos, pulsosAutoClicker, niveles, costes, restantes, ausencia,
+				recomendada, amortizacion, pilotoAutomatico, clicksPorSegundo);
+	}
+
+	//
+	//
+	// getters
+	public EstadoJuego getEstado() {
+		return estado;
+	}
+
+	public List<Mejora> getMejoras() {
+		return mejoras;
+	}
+
+}
@@ -0,0 +1,346 @@
+package integracion;
+
+import app.NumeroGrande;
+
+/**
+ * Formateador de numeros para el HUD y los costes sin String.format: escribe
+ * en un char[] propio y recuerda el ultimo texto. Si el valor (o el texto que
+ * sale) no cambia devuelve el mismo String, asi que no genera basura por frame.
+ * Una instancia por etiqueta; solo se usa desde el hilo de la interfaz.
+ */
+public final class FormatoNumeros {
+// mismos formatos que los String.format(localeES, ...) de antes:
+// - entero con puntos de miles: 12.345.678
+// - < 1.000 con dos decimales: 999,50 (o sin decimales: 1000)
+// - abreviado: 1,23M 4,56Qa (o sin decimales 123K)
+// - cientifica/ingenieria (ctrl+N) y pasada la tabla de sufijos: 1,23e45 123,45e42
+
+	private static final String[] SUFIJOS = { "", "K", "M", "B", "T", "Qa", "Qi", "Sx", "Sp", "Oc", "No" };
+
+	// a partir de aqui el numero principal se abrevia
+	private static final double LIMITE_ENTERO = 99_999_999;
+
+	// mas alla de esto no cabe en un long, se cae a String.format (no deberia pasar)
+	private static final double LIMITE_LONG = 9e18;
+
+	// centesimas a menos de esto de un ...,5 se redondean con String.format
+	private static final double EMPATE = 1e-6;
+
+	// un NumeroGrande con exponente hasta aqui cabe en un double y va por el
+	// mismo camino
+	private static final long EXPONENTE_DOUBLE = 300;
+
+	// notaciones para lo que pasa de 1.000
+	public static final int NOTACION_SUFIJOS = 0;
+	public static final int NOTACION_CIENTIFICA = 1;
+	public static final int NOTACION_INGENIERIA = 2;
+	private static final int NUM_NOTACIONES = 3;
+
+	// compartida por todas las etiquetas; cada instancia recuerda con cual
+	// escribio su ultimo texto
+	private static int notacion = NOTACION_SUFIJOS;
+
+	private final char[] buffer = new char[48];
+	private int largo;
+
+	// ultima llamada: valor (mantisa y exponente, 0 para los double), modo,
+	// notacion y texto devuelto
+	private double ultimoValor = Double.NaN;
+	private long ultimoExponente = 0;
+	private int ultimoModo = -1;
+	private int ultimaNotacion = -1;
+	private String ultimoTexto = "";
+
+	// modos de formateo (para la cache)
+	private static final int MODO_ABREVIADO = 0;
+	private static final int MODO_ABREVIADO_DECIMALES = 1;
+	private static final int MODO_PRINCIPAL = 2;
+	private static final int MODO_DECIMALES = 3;
+
+	// mismo contrato que el antiguo Interfaz.formatoAbreviado
+	public String formatear(double n, boolean conDecimales, boolean numPrincipal) {
+		if (numPrincipal && Math.abs(n) <= LIMITE_ENTERO) {
+			return principal(n);
+		}
+		return abreviado(n, conDecimales);
+	}
+
+	public String formatear(NumeroGrande n, boolean conDecimales, boolean numPrincipal) {
+		if (n.getExponente() <= EXPONENTE_DOUBLE) {
+			return formatear(n.toDouble(), conDecimales, numPrincipal);
+		}
+		return abreviado(n, conDecimales);
+	}
+
+	// numero grande del HUD: entero con puntos hasta 99.999.999, luego abreviado
+	public String principal(double n) {
+		if (cacheValida(n, 0, MODO_PRINCIPAL)) {
+			return ultimoTexto;
+		}
+		double abs = Math.abs(n);
+		largo = 0;
+		if (abs <= LIMITE_ENTERO) {
+			escribirEnteroAgrupado((long) Math.rint(abs));
+		} else {
+			String fuera = escribirAbreviado(abs, true);
+			if (fuera != null) {
+				return guardar(n, 0, MODO_PRINCIPAL, fuera);
+			}
+		}
+		return cerrar(n, 0, MODO_PRINCIPAL);
+	}
+
+	public String principal(NumeroGrande n) {
+		if (n.getExponente() <= EXPONENTE_DOUBLE) {
+			return principal(n.toDouble());
+		}
+		return escribirGrande(n, true, MODO_PRINCIPAL);
+	}
+
+	// costes, nps, clicks...: 2 decimales por debajo de 1.000 y abreviado encima
+	public String abreviado(double n, boolean conDecimales) {
+		int modo = conDecimales ? MODO_ABREVIADO_DECIMALES : MODO_ABREVIADO;
+		if (cacheValida(n, 0, modo)) {
+			return ultimoTexto;
+		}
+		largo = 0;
+		String fuera = escribirAbreviado(Math.abs(n), conDecimales);
+		if (fuera != null) {
+			return guardar(n, 0, modo, fuera);
+		}
+		return cerrar(n, 0, modo);
+	}
+
+	public String abreviado(NumeroGrande n, boolean conDecimales) {
+		if (n.getExponente() <= EXPONENTE_DOUBLE) {
+			return abreviado(n.toDouble(), conDecimales);
+		}
+		return escribirGrande(n, conDecimales, conDecimales ? MODO_ABREVIADO_DECIMALES : MODO_ABREVIADO);
+	}
+
+	// siempre con dos decimales, sin abreviar (contador de CPS)
+	public String decimales(double n) {
+		if (cacheValida(n, 0, MODO_DECIMALES)) {
+			return ultimoTexto;
+		}
+		largo = 0;
+		double abs = Math.abs(n);
+		if (abs >= LIMITE_LONG / 100 || Double.isNaN(abs)) {
+			return guardar(n, 0, MODO_DECIMALES, String.format(Interfaz.localeES, "%.2f", abs));
+		}
+		escribirDosDecimales(abs);
+		return cerrar(n, 0, MODO_DECIMALES);
+	}
+
+	// pasa a la siguiente notacion y la devuelve; los textos se rehacen en la
+	// siguiente llamada de cada etiqueta
+	public static int siguienteNotacion() {
+		notacion = (notacion + 1) % NUM_NOTACIONES;
+		return notacion;
+	}
+
+	public static void setNotacion(int nueva) {
+		if (nueva < 0 || nueva >= NUM_NOTACIONES) {
+			System.err.println("FormatoNumeros: notacion desconocida " + nueva);
+			return;
+		}
+		notacion = nueva;
+	}
+
+	public static int getNotacion() {
+		return notacion;
+	}
+
+	// numeros que no caben en un double: siempre en notacion (cientifica salvo
+	// que se haya elegido ingenieria)
+	private String escribirGrande(NumeroGrande n, boolean conDecimales, int modo) {
+		double m = n.getMantisa();
+		long e = n.getExponente();
+		if (cacheValida(m, e, modo)) {
+			return ultimoTexto;
+		}
+		largo = 0;
+		escribirNotacion(Math.abs(m), e, conDecimales, notacion == NOTACION_INGENIERIA);
+		return cerrar(m, e, modo);
+	}
+
+	private boolean cacheValida(double n, long e, int modo) {
+		// == no vale para NaN, pero NaN nunca llega aqui con ultimoModo valido
+		return n == ultimoValor && e == ultimoExponente && modo == ultimoModo && notacion == ultimaNotacion;
+	}
+
+	// si los caracteres coinciden con el ultimo texto se reutiliza el String
+	private String cerrar(double n, long e, int modo) {
+		ultimoValor = n;
+		ultimoExponente = e;
+		ultimoModo = modo;
+		ultimaNotacion = notacion;
+		if (largo == ultimoTexto.length()) {
+			boolean igual = true;
+			for (int i = 0; i < largo; i++) {
+				if (buffer[i] != ultimoTexto.charAt(i)) {
+					igual = false;
+					break;
+				}
+			}
+			if (igual) {
+				return ultimoTexto;
+			}
+		}
+		ultimoTexto = new String(buffer, 0, largo);
+		return ultimoTexto;
+	}
+
+	private String guardar(double n, long e, int modo, String texto) {
+		ultimoValor = n;
+		ultimoExponente = e;
+		ultimoModo = modo;
+		ultimaNotacion = notacion;
+		ultimoTexto = texto;
+		return texto;
+	}
+
+	// escribe en el buffer; solo devuelve texto si el numero no es finito y hay
+	// que tirar de String.format
+	private String escribirAbreviado(double abs, boolean conDecimales) {
+		if (abs < 1_000) {
+			if (conDecimales) {
+				escribirDosDecimales(abs);
+			} else {
+				escribirEntero(Math.round(abs));
+			}
+			return null;
+		}
+		if (Double.isInfinite(abs) || Double.isNaN(abs)) {
+			// no deberia pasar, los valores grandes van en NumeroGrande
+			return String.format(Interfaz.localeES, "%.0f", abs);
+		}
+		if (notacion != NOTACION_SUFIJOS) {
+			escribirNotacion(abs, conDecimales, notacion == NOTACION_INGENIERIA);
+			return null;
+		}
+
+		double valor = abs;
+		int indice = 0;
+		while (valor >= 1_000.0 && indice < SUFIJOS.length - 1) {
+			valor /= 1_000.0;
+			indice++;
+		}
+
+		if (valor >= 1_000.0) {
+			// fuera de la tabla de sufijos
+			escribirNotacion(abs, conDecimales, false);
+			return null;
+		}
+
+		if (conDecimales) {
+			escribirDosDecimales(valor);
+		} else {
+			escribirEntero(Math.round(valor));
+		}
+		String sufijo = SUFIJOS[indice];
+		for (int i = 0; i < sufijo.length(); i++) {
+			buffer[largo++] = sufijo.charAt(i);
+		}
+		return null;
+	}
+
+	// abs >= 1.000 en double, se saca su mantisa y exponente
+	private void escribirNotacion(double abs, boolean conDecimales, boolean ingenieria) {
+		long e = (long) Math.floor(Math.log10(abs));
+		double m = abs / Math.pow(10, e);
+		// log10 puede fallar por uno cerca de las potencias exactas
+		if (m >= 10) {
+			m /= 10;
+			e++;
+		} else if (m < 1) {
+			m *= 10;
+			e--;
+		}
+		escribirNotacion(m, e, conDecimales, ingenieria);
+	}
+
+	// m * 10^e con m en [1, 10): 1,23e45, o en ingenieria con el exponente
+	// multiplo de 3: 123,45e42
+	private void escribirNotacion(double m, long e, boolean conDecimales, boolean ingenieria) {
+		double limite = 10;
+		int salto = 1;
+		if (ingenieria) {
+			int sobra = (int) Math.floorMod(e, 3L);
+			m *= sobra == 0 ? 1 : (sobra == 1 ? 10 : 100);
+			e -= sobra;
+			limite = 1000;
+			salto = 3;
+		}
+		// 9,999 redondea a 10,00: se pasa al siguiente exponente
+		double escala = conDecimales ? 100 : 1;
+		if (Math.round(m * escala) >= limite * escala) {
+			m /= limite;
+			e += salto;
+		}
+
+		if (conDecimales) {
+			escribirDosDecimales(m);
+		} else {
+			escribirEntero(Math.round(m));
+		}
+		buffer[largo++] = 'e';
+		if (e < 0) {
+			buffer[largo++] = '-';
+			e = -e;
+		}
+		escribirEntero(e);
+	}
+
+	// parte entera, coma y dos decimales redondeados (como %.2f). %.2f redondea
+	// los digitos decimales del double (9.995 da 10,00) y no su valor en binario
+	// (9,99499...), asi que en los empates se le deja a el
+	private void escribirDosDecimales(double valor) {
+		double escalado = valor * 100;
+		if (Math.abs(escalado - Math.floor(escalado) - 0.5) < EMPATE) {
+			String texto = String.format(Interfaz.localeES, "%.2f", valor);
+			texto.getChars(0, texto.length(), buffer, largo);
+			largo += texto.length();
+			return;
+		}
+		long centesimas = Math.round(escalado);
+		escribirEntero(centesimas / 100);
+		int resto = (int) (centesimas % 100);
+		buffer[largo++] = ',';
+		buffer[largo++] = (char) ('0' + resto / 10);
+		buffer[largo++] = (char) ('0' + resto % 10);
+	}
+
+	private void escribirEntero(long valor) {
+		int inicio = largo;
+		do {
+			buffer[largo++] = (char) ('0' + valor % 10);
+			valor /= 10;
+		} while (valor > 0);
+		invertir(inicio, largo - 1);
+	}
+
+	// como el NumberFormat de es-ES: punto cada tres cifras
+	private void escribirEnteroAgrupado(long valor) {
+		int inicio = largo;
+		int cifras = 0;
+		do {
+			if (cifras > 0 && cifras % 3 == 0) {
+				buffer[largo++] = '.';
+			}
+			buffer[largo++] = (char) ('0' + valor % 10);
+			valor /= 10;
+			cifras++;
+		} while (valor > 0);
+		invertir(inicio, largo - 1);
+	}
+
+	private void invertir(int desde, int hasta) {
+		while (desde < hasta) {
+			char c = buffer[desde];
+			buffer[desde++] = buffer[hasta];
+			buffer[hasta--] = c;
+		}
+	}
+
+}
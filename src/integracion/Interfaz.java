@@ -5,10 +5,13 @@ package integracion;
  * Archivo: Interfaz.java
  *
  * Nota:
+ * - Panel raíz (JPanel); la ventana solo se crea si hay pantalla.
+ * - Solo lee fotos (EstadoJuego) y manda órdenes a Simulacion, no toca Datos.
+ * - Lista de mejoras virtual (ListaVirtual), modo de compra x1/x10/x100/MAX,
+ *   piloto automático y atajos (Ctrl+E/I/N, F3 métricas).
  * - Versión simplificada para que NO reviente si faltan recursos (/img/...).
  * - Sin "var" (por compatibilidad con proyectos configurados en Java 8).
- * - Sin cache con HashMap.
- * - Sin Consumer (eso va en Mejora, no aquí).
+ * - Iconos por CacheIconos (cache acotada compartida con PizzaEfectos).
  */
 import java.awt.BorderLayout;
 import java.awt.Color;
@@ -16,51 +19,105 @@ import java.awt.Component;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.Image;
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.image.BufferedImage;
-import java.net.URL;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.io.IOException;
 
-import javax.imageio.ImageIO;
+import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JComponent;
 import javax.swing.JScrollPane;
+import javax.swing.KeyStroke;
 import javax.swing.SwingConstants;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 import javax.swing.border.BevelBorder;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.EtchedBorder;
 
-import app.Datos;
+import app.EstadoJuego;
+import app.IndiceUmbrales;
 import app.Mejora;
+import app.NumeroGrande;
+import app.Potenciador;
+import app.ResumenAusencia;
+import app.Simulacion;
+import metricas.EventoRefresco;
+import metricas.Histograma;
+import metricas.Metricas;
 import visuales.PizzaEfectos;
 import visuales.BotonRedondeado;
+import visuales.CacheIconos;
+import visuales.ListaVirtual;
+import visuales.OverlayMetricas;
+import visuales.PlanificadorFrames;
 
 // clase que refresca y genera elementos de interfaz visual
-public class Interfaz extends JFrame {
+// es el panel raiz; la ventana solo se crea si hay pantalla, asi se puede montar
+// y refrescar sin ventana (benchmarks)
+public class Interfaz extends JPanel {
 
-	// datos
-	private Datos datos;
+	// ventana que contiene la interfaz (null sin pantalla)
+	private JFrame ventana;
+
+	// todo lo periodico de la interfaz (refresco, efectos, CPS, tiempo...) va en
+	// un solo timer; ProtoPizzaAPP le añade el refresco y lo arranca
+	private final PlanificadorFrames planificador = new PlanificadorFrames();
+
+	// simulacion (hilo propio) y ultima foto que se esta pintando
+	private Simulacion simulacion;
+	private EstadoJuego estado;
+
+	// ultimo pulso del autoclicker que ya lanzo el halo
+	private long ultimoPulsoAutoClicker = 0;
+
+	// ultimo resumen de ausencia que ya se enseño al jugador
+	private ResumenAusencia ultimaAusencia = null;
 
 	// etiquetas de texto para numeros y numeros por segundo
 	private JLabel lblNum;
 	private JLabel lblNps;
 
 	// almacena estos valores, si no cambian no seran refrescados
-	private long ultimoNumeroMostrado = Long.MIN_VALUE;
+	private NumeroGrande ultimoNumeroMostrado = null;
 	private String ultimoTextoNps = "";
 
+	// valores con los que se construyo el texto de nps, si no cambian no se rehace
+	private NumeroGrande ultimoNps = null;
+	private NumeroGrande ultimoNpc = null;
+	private double ultimoPeriodoAuto = Double.NaN;
+	private int ultimoNivelAuto = -1;
+	private int ultimoSegundoMostrado = -1;
+	// foto con la que se pintaron los potenciadores y segundo de juego (lo que les
+	// queda se enseña en segundos enteros)
+	private EstadoJuego estadoPotenciadores = null;
+	private long ultimoSegundoJuego = -1;
+
+	// un formateador por etiqueta (sin String.format ni basura por frame)
+	private final FormatoNumeros formatoNum = new FormatoNumeros();
+	private final FormatoNumeros formatoNps = new FormatoNumeros();
+	private final FormatoNumeros formatoNpc = new FormatoNumeros();
+	private final FormatoNumeros formatoPeriodo = new FormatoNumeros();
+	private final FormatoNumeros formatoFlotante = new FormatoNumeros();
+	private final FormatoNumeros formatoCps = new FormatoNumeros();
+	private final FormatoNumeros formatoSuelto = new FormatoNumeros();
+	private final FormatoNumeros formatoAmortizacion = new FormatoNumeros();
+
 	// icono de candado para mejoras bloqueadas
 	private ImageIcon iconoBloqueo = cargarIconoRecurso("/img/link.png", 16, 16);
 
@@ -77,16 +134,74 @@ public class Interfaz extends JFrame {
 	// efectos visuales del boton
 	private PizzaEfectos pizzaFX;
 
+	// como mucho una animacion de pulsado y una particula por frame: los clicks
+	// solo se cuentan y el refresco saca una particula con lo que suman todos (el
+	// click despierta al planificador, asi que sale en el frame siguiente)
+	private static final long PULSADO_NS = 90_000_000L;
+	private PlanificadorFrames.Tarea tareaPulsado;
+	private long finPulsado = 0;
+	private int clicksSinParticula = 0;
+
 	JPanel panelSuperior;
+
+	// metricas de rendimiento encima del panel superior (F3)
+	private OverlayMetricas overlayMetricas;
+	private static final Histograma METRICA_REFRESCO = Metricas.histograma(Metricas.REFRESCO, Metricas.NANOS);
 	
-	// panel de mejoras
-	private JPanel panelInferior;
+	// panel de mejoras: solo tiene botones para las filas visibles
+	private ListaVirtual panelInferior;
 	private JScrollPane scrollMejoras;
 
-	// listas de filas mejoras y botones
+	// listas de filas mejoras (los botones los crea y reutiliza panelInferior)
 	private List<Mejora> mejorasActivas = new ArrayList<Mejora>();
 	private List<Mejora> mejorasPasivas = new ArrayList<Mejora>();
-	private List<BotonRedondeado> botonesMejoras = new ArrayList<BotonRedondeado>();
+	private int totalMejoras = 0;
+
+	// cuenta atras hasta el precio o el desbloqueo de cada fila
+	private Llegadas llegadas;
+
+	// alto de cada fila de mejora, hueco entre filas y filas de mas que se
+	// enlazan fuera de pantalla para que el scroll no vea huecos
+	private static final int ALTO_FILA = 56;
+	private static final int HUECO_FILAS = 10;
+	private static final int MARGEN_FILAS = 3;
+
+	// indice de umbrales: cada frame solo se repintan las filas que han cruzado un
+	// precio o un requisito, no el catalogo entero
+	private IndiceUmbrales indiceUmbrales;
+
+	// foto con la que se calcularon las bandas (null = recalcular todas)
+	private EstadoJuego estadoFilas = null;
+
+	// filas pendientes de repintar en este frame (sin repetidas)
+	private int[] filasPendientes = new int[0];
+	private boolean[] filaPendiente = new boolean[0];
+	private int numFilasPendientes = 0;
+
+	// filas con el flash de compra activo, se repintan hasta que se apague
+	private List<Integer> filasConFlash = new ArrayList<Integer>();
+
+	// modo de compra: cuantos niveles compra cada click (1, 10, 100 o maximo)
+	private static final int[] CANTIDADES_COMPRA = { 1, 10, 100, Mejora.COMPRA_MAXIMA };
+	private static final String[] TEXTOS_COMPRA = { "x1", "x10", "x100", "MAX" };
+	private int cantidadCompra = 1;
+	private List<BotonRedondeado> botonesModo = new ArrayList<BotonRedondeado>();
+
+	// piloto automatico: compra en orden de amortizacion (lo hace la simulacion)
+	private BotonRedondeado botonPiloto;
+	private boolean pilotoAutomatico = false;
+
+	// potenciadores que se compran con pizzas (Simulacion.comprarPotenciador);
+	// el precio sale de las pizzas/s del momento (Potenciador.coste)
+	private static final Potenciador.Tipo[] TIPOS_POTENCIADOR = { Potenciador.Tipo.PIZZAS_POR_SEGUNDO,
+			Potenciador.Tipo.CLICK, Potenciador.Tipo.FRENESI };
+	private static final double[] FACTORES_POTENCIADOR = { 2, 3, 2 };
+	private static final double[] SEGUNDOS_POTENCIADOR = { 30, 30, 20 };
+	private static final String[] TEXTOS_POTENCIADOR = { "x2 /s", "x3 click", "Frenesi" };
+	private List<BotonRedondeado> botonesPotenciador = new ArrayList<BotonRedondeado>();
+
+	// fila recomendada por el asesor que esta pintada como tal
+	private int ultimaRecomendada = -1;
 
 	// fuente
 	public static Font fuente = new Font("Gadugi", Font.BOLD, 17);
@@ -108,11 +223,22 @@ public class Interfaz extends JFrame {
 	private static final Color BTN_GRIS_NO = new Color(210, 210, 210);
 	private static final Color BTN_ROJO_LOCK = new Color(250, 180, 180);
 
+	// la que antes se amortiza
+	private static final Color BTN_RECOMENDADA = new Color(255, 230, 150);
+
+	// colores del contador de CPS
+	private static final Color CPS_ALTO = new Color(255, 28, 25);
+	private static final Color CPS_MEDIO = new Color(255, 200, 115);
+	private static final Color CPS_BAJO = new Color(255, 228, 225);
+
 	// formato de numeros en español sin decimales + separador de puntos
 	private final NumberFormat nf = NumberFormat.getInstance(Locale.forLanguageTag("es-ES"));
 
-	// tiempo de ejecucion
-	public Timer timerPartida = null;
+	// tiempo de ejecucion (se mide con nanoTime: el planificador no garantiza una
+	// ejecucion por segundo, minimizado va mas lento)
+	private PlanificadorFrames.Tarea tareaPartida;
+	private long nanosPartida = 0;
+	private long marcaPartida = 0;
 	private JPanel panelTiempo;
 	private JLabel lblTiempo;
 	private int segundos = 0;
@@ -129,8 +255,6 @@ public class Interfaz extends JFrame {
 	// guardamos el último click en nanoTime (NO mezclar con currentTimeMillis)
 	private long lastClickNano = 0L;
 
-	// timer que baja CPS aunque no haya clicks
-	private Timer timerCpsDecay;
 	private long lastDecayTickNano = 0L;
 
 	// Ajustes "game feel"
@@ -152,46 +276,27 @@ public class Interfaz extends JFrame {
 
 	// constructor de interfaz, construye la interfaz general, de mejoras, conecta
 	// el resto de metodos y refresca la interfaz cada tick de reloj
-	public Interfaz(Datos datos, List<Mejora> mejorasPasivas, List<Mejora> mejorasActivas) {
-		this.datos = datos;
+	public Interfaz(Simulacion simulacion, List<Mejora> mejorasPasivas, List<Mejora> mejorasActivas) {
+		this.simulacion = simulacion;
+		this.estado = simulacion.getEstado();
 		this.mejorasPasivas = mejorasPasivas;
 		this.mejorasActivas = mejorasActivas;
 		construirInterfaz();
 		generarFilasDeMejoras();
 		feedbackBotonPizza();
+		atajosPartida();
 
 		// ✅ esto hace que baje SOLO aunque el usuario no clique
 		startCpsDecayTimer();
+		Metricas.medidor(Metricas.RITMO_FRAMES, planificador::getRitmo);
 
 		refrescarInterfaz();
 	}
 
 	// carga de icono pizza con su tamaño personalizado devuelve icono
+	// sale de la cache compartida: solo la primera vez se decodifica y escala
 	private ImageIcon cargarIconoRecurso(String ruta, int ancho, int alto) {
-		try {
-			URL url = getClass().getResource(ruta);
-			if (url == null) {
-				// si falta recurso, NO revienta
-				System.err.println("Recurso no encontrado: " + ruta);
-				return null;
-			}
-			BufferedImage icono = ImageIO.read(url);
-			if (icono == null) {
-				System.err.println("No se pudo leer imagen: " + ruta);
-				return null;
-			}
-			Image escalada = icono.getScaledInstance(ancho, alto, Image.SCALE_SMOOTH);
-			return new ImageIcon(escalada);
-
-		} catch (IOException e) {
-			System.err.println("Error cargando archivo: " + ruta);
-			e.printStackTrace();
-			return null;
-		} catch (Exception e) {
-			System.err.println("Error cargando recurso: " + ruta);
-			e.printStackTrace();
-			return null;
-		}
+		return CacheIconos.obtener(ruta, ancho, alto);
 	}
 
 	// =========================
@@ -224,7 +329,8 @@ public class Interfaz extends JFrame {
 	// CPS: caída exponencial automática
 	// =========================
 	private void startCpsDecayTimer() {
-		timerCpsDecay = new Timer(50, e -> {
+		// pinta: minimizado no corre, y al volver el dt grande lo baja de golpe
+		planificador.programar("cps", 50, PlanificadorFrames.Prioridad.NORMAL, true, () -> {
 			long now = System.nanoTime();
 
 			if (lastDecayTickNano == 0L) {
@@ -253,8 +359,6 @@ public class Interfaz extends JFrame {
 
 			updateCpsLabel();
 		});
-
-		timerCpsDecay.start();
 	}
 
 	private void updateCpsLabel() {
@@ -263,42 +367,63 @@ public class Interfaz extends JFrame {
 		if (cps < 0.01) {
 			lblClicks.setText("");
 		} else if(cps > 10){
-			lblClicks.setText(String.format(localeES, "%.2f", cps));
-			lblClicks.setForeground(new Color(255, 28, 25));
+			lblClicks.setText(formatoCps.decimales(cps));
+			lblClicks.setForeground(CPS_ALTO);
 		}else if(cps > 6){
-			lblClicks.setText(String.format(localeES, "%.2f", cps));
-			lblClicks.setForeground(new Color(255, 200, 115));
+			lblClicks.setText(formatoCps.decimales(cps));
+			lblClicks.setForeground(CPS_MEDIO);
 		}else {
-			lblClicks.setText(String.format(localeES, "%.2f", cps));
-			lblClicks.setForeground(new Color(255, 228, 225));
+			lblClicks.setText(formatoCps.decimales(cps));
+			lblClicks.setForeground(CPS_BAJO);
 		}
 	}
 
-	public int timerPartida() {
-		timerPartida = new Timer(1000, e -> {
-			segundos++;
-			if (segundos > 59) {
-				segundos = 0;
-				minutos++;
-			}
-		});
-		return segundos;
+	// para el timer de la interfaz (cerrar sin ventana, benchmarks)
+	public void detenerTimers() {
+		planificador.detener();
+	}
+
+	public PlanificadorFrames getPlanificador() {
+		return planificador;
+	}
+
+	// arranca con el primer click y para al comprar la meta
+	private void timerPartida() {
+		tareaPartida = planificador.programar("partida", 1000, PlanificadorFrames.Prioridad.BAJA, false,
+				this::contarPartida);
+		tareaPartida.setActiva(false);
+	}
+
+	private void contarPartida() {
+		long ahora = System.nanoTime();
+		nanosPartida += ahora - marcaPartida;
+		marcaPartida = ahora;
+		long total = nanosPartida / 1_000_000_000L;
+		segundos = (int) (total % 60);
+		minutos = (int) (total / 60);
 	}
 
 	// generacion de todos los elementos de la interfaz
 	private void construirInterfaz() {
-		setTitle("ProtoPizza |  Clicker — Incremental");
-		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		setMinimumSize(new Dimension(700, 920));
-		getContentPane().setLayout(new BorderLayout(0, 0));
+		setLayout(new BorderLayout(0, 0));
 
 		// panel superior
-		panelSuperior = new JPanel();
+		panelSuperior = new JPanel() {
+			// el overlay va encima de todo lo del panel sin ocupar sitio en el layout
+			@Override
+			public void paint(Graphics g) {
+				super.paint(g);
+				if (overlayMetricas != null) {
+					overlayMetricas.pintar(g);
+				}
+			}
+		};
+		overlayMetricas = new OverlayMetricas(panelSuperior, planificador);
 		panelSuperior.setPreferredSize(new Dimension(850, 390));
 		panelSuperior.setBorder(new EtchedBorder(EtchedBorder.LOWERED, null, null));
 		panelSuperior.setBackground(new Color(150, 150, 170));
 		panelSuperior.setLayout(new BorderLayout(0, 0));
-		getContentPane().add(panelSuperior, BorderLayout.NORTH);
+		add(panelSuperior, BorderLayout.NORTH);
 
 		// panel con info de los numeros superiores
 		JPanel panelNums = new JPanel();
@@ -358,7 +483,7 @@ public class Interfaz extends JFrame {
 		etiquetaPizza.setPreferredSize(new Dimension(208, 208));
 
 		// efectos de feedback visuales de la pizza
-		pizzaFX = new PizzaEfectos(this.etiquetaPizza);
+		pizzaFX = new PizzaEfectos(this.etiquetaPizza, planificador);
 		pizzaFX.setOpaque(false);
 		// halo efecto autoclick
 		pizzaFX.setHaloColors(new Color(255, 215, 0), new Color(255, 245, 200));
@@ -403,9 +528,18 @@ public class Interfaz extends JFrame {
 		panelDerecha.add(lblClicks);
 
 		// panel inferior de la interfaz, mejoras
-		panelInferior = new JPanel();
+		panelInferior = new ListaVirtual(new ListaVirtual.Filas() {
+			@Override
+			public JComponent crearFila() {
+				return crearBotonMejora();
+			}
+
+			@Override
+			public void enlazar(JComponent fila, int indice) {
+				enlazarBotonMejora((BotonRedondeado) fila, indice);
+			}
+		}, ALTO_FILA, HUECO_FILAS, MARGEN_FILAS);
 		panelInferior.setOpaque(false);
-		panelInferior.setLayout(new BoxLayout(panelInferior, BoxLayout.Y_AXIS));
 		panelInferior.setBackground(new Color(245, 245, 245));
 		panelInferior.setBorder(BorderFactory.createCompoundBorder(
 				BorderFactory.createMatteBorder(0, 80, 0, 80, new Color(230, 225, 245)),
@@ -413,16 +547,47 @@ public class Interfaz extends JFrame {
 
 		scrollMejoras = new JScrollPane(panelInferior);
 		scrollMejoras.setBorder(null);
-		getContentPane().add(scrollMejoras, BorderLayout.CENTER);
-		setLocationRelativeTo(null);
-		setVisible(true);
+
+		// barras de modos de compra y de potenciadores encima de la lista de mejoras
+		JPanel panelCentro = new JPanel(new BorderLayout(0, 0));
+		panelCentro.setBackground(new Color(230, 225, 245));
+		JPanel barras = new JPanel();
+		barras.setOpaque(false);
+		barras.setLayout(new BoxLayout(barras, BoxLayout.Y_AXIS));
+		barras.add(crearBarraModos());
+		barras.add(crearBarraPotenciadores());
+		panelCentro.add(barras, BorderLayout.NORTH);
+		panelCentro.add(scrollMejoras, BorderLayout.CENTER);
+		add(panelCentro, BorderLayout.CENTER);
+
+		if (!GraphicsEnvironment.isHeadless()) {
+			ventana = new JFrame("ProtoPizza |  Clicker — Incremental");
+			ventana.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+			ventana.setMinimumSize(new Dimension(700, 920));
+			ventana.setContentPane(this);
+			ventana.setLocationRelativeTo(null);
+			ventana.setVisible(true);
+			// minimizada u oculta no se pinta
+			planificador.vigilar(ventana);
+		}
 	}
 
 	// feedback de hacer el boton de la pizza reaccione a click
 	private void feedbackBotonPizza() {
-		final int tiempoFeedback = 90;
 		timerPartida();
 
+		// la pizza vuelve a su tamaño en el frame en que acaba el pulsado (antes un
+		// Timer por click); mientras dura el planificador va al ritmo de frame
+		tareaPulsado = planificador.programar("pulsado", PlanificadorFrames.PERIODO_MS,
+				PlanificadorFrames.Prioridad.NORMAL, false, () -> {
+					if (System.nanoTime() - finPulsado >= 0) {
+						etiquetaPizza.setIcon(iconoPizzaNormal);
+						tareaPulsado.setActiva(false);
+					}
+				});
+		tareaPulsado.setActiva(false);
+		planificador.animacion(tareaPulsado::isActiva);
+
 		// si el ususario clicka la pizza
 		etiquetaPizza.addMouseListener(new MouseAdapter() {
 			@Override
@@ -431,44 +596,229 @@ public class Interfaz extends JFrame {
 				// ✅ registra CPS antes del click lógico
 
 				contadorClicks();
+				// en reposo el siguiente frame llegaria tarde
+				planificador.despertar();
 
-				if (timerPartida != null && !finPartida) {
-					timerPartida.start();
+				if (!finPartida && !tareaPartida.isActiva()) {
+					marcaPartida = System.nanoTime();
+					tareaPartida.setActiva(true);
 				}
 
-				// se hace grande
-				etiquetaPizza.setIcon(iconoPizzaGrande);
+				// envia el click al hilo de simulacion, que lo aplica en su tick
+				simulacion.click();
 
-				// por 90ms
-				new Timer(tiempoFeedback, ejecuta -> {
-					etiquetaPizza.setIcon(iconoPizzaNormal);
-					((Timer) ejecuta.getSource()).stop();
-				}).start();
+				// pulsado y particula en el siguiente refresco, junto con los demas
+				// clicks del frame; el contador tambien, cuando la simulacion ya ha
+				// aplicado el click (antes se refrescaba aqui sin verlo)
+				clicksSinParticula++;
+			}
+		});
+	}
 
-				// invoca pequeños iconos de pizzas
-				double nps = datos.getNps();
-				double npc = datos.getClickIncremento() + nps / 50.0;
-				pizzaFX.spawnClickFloat(npc, formatoAbreviado(npc, true, false));
+	// una sola particula (y un pulsado) con lo que suman los clicks desde el
+	// ultimo refresco; uno solo se pinta como siempre, sin el +
+	private void particulaClicksJuntos() {
+		if (clicksSinParticula == 0) {
+			return;
+		}
+		NumeroGrande total = estado.getValorClick();
+		String texto;
+		if (clicksSinParticula == 1) {
+			texto = formatoFlotante.abreviado(total, true);
+		} else {
+			total = total.multiplicar(clicksSinParticula);
+			texto = "+" + formatoFlotante.abreviado(total, true);
+		}
+		pizzaFX.spawnClickFloat(total, texto);
+		clicksSinParticula = 0;
 
-				// ejecuta la accion de clickar
-				datos.click();
+		// se hace grande por 90ms
+		pulsar();
+	}
+
+	private void pulsar() {
+		etiquetaPizza.setIcon(iconoPizzaGrande);
+		finPulsado = System.nanoTime() + PULSADO_NS;
+		tareaPulsado.setActiva(true);
+	}
+
+	// ctrl+E copia la partida como texto al portapapeles, ctrl+I la carga desde el
+	// portapapeles y ctrl+N cambia la notacion de los numeros grandes
+	private void atajosPartida() {
+		getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("control E"),
+				"exportar");
+		getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("control I"),
+				"importar");
+		getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("control N"),
+				"notacion");
+		getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("F3"), "metricas");
+
+		getActionMap().put("metricas", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				overlayMetricas.alternar();
+			}
+		});
 
-				// refresca interfaz
+		getActionMap().put("notacion", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				FormatoNumeros.siguienteNotacion();
+				// todos los textos con numeros se rehacen
+				ultimoNumeroMostrado = null;
+				ultimoNps = null;
+				estadoFilas = null;
 				refrescarInterfaz();
 			}
 		});
+
+		getActionMap().put("exportar", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				simulacion.exportar().thenAccept(texto -> SwingUtilities.invokeLater(() -> {
+					Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(texto), null);
+					JOptionPane.showMessageDialog(Interfaz.this, "Partida copiada al portapapeles.", "Exportar",
+							JOptionPane.INFORMATION_MESSAGE);
+				}));
+			}
+		});
+
+		getActionMap().put("importar", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				String texto;
+				try {
+					texto = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+				} catch (Exception ex) {
+					System.err.println("Portapapeles sin texto: " + ex.getMessage());
+					return;
+				}
+				simulacion.importar(texto).thenAccept(ok -> SwingUtilities.invokeLater(() -> {
+					if (!ok) {
+						JOptionPane.showMessageDialog(Interfaz.this, "El portapapeles no contiene una partida valida.",
+								"Importar", JOptionPane.WARNING_MESSAGE);
+					}
+				}));
+			}
+		});
+	}
+
+	// botones x1 / x10 / x100 / MAX para elegir cuantos niveles compra cada click
+	private JPanel crearBarraModos() {
+		JPanel barra = new JPanel();
+		barra.setOpaque(false);
+		barra.setBorder(new EmptyBorder(10, 100, 0, 100));
+		barra.setLayout(new BoxLayout(barra, BoxLayout.X_AXIS));
+		barra.add(Box.createHorizontalGlue());
+
+		for (int i = 0; i < CANTIDADES_COMPRA.length; i++) {
+			final int cantidad = CANTIDADES_COMPRA[i];
+			BotonRedondeado btn = new BotonRedondeado(TEXTOS_COMPRA[i], 20);
+			btn.setFont(fuente);
+			btn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+			btn.setPreferredSize(new Dimension(72, 30));
+			btn.setMaximumSize(new Dimension(72, 30));
+			btn.addActionListener(ejecuta -> cambiarModoCompra(cantidad));
+			botonesModo.add(btn);
+			barra.add(btn);
+			barra.add(Box.createHorizontalStrut(8));
+		}
+
+		barra.add(Box.createHorizontalStrut(16));
+		botonPiloto = new BotonRedondeado("AUTO", 20);
+		botonPiloto.setFont(fuente);
+		botonPiloto.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+		botonPiloto.setPreferredSize(new Dimension(80, 30));
+		botonPiloto.setMaximumSize(new Dimension(80, 30));
+		botonPiloto.setToolTipText("Piloto automatico: compra la mejora que antes se amortiza");
+		botonPiloto.addActionListener(ejecuta -> {
+			pilotoAutomatico = !pilotoAutomatico;
+			simulacion.setPilotoAutomatico(pilotoAutomatico);
+			pintarModos();
+		});
+		barra.add(botonPiloto);
+
+		barra.add(Box.createHorizontalGlue());
+		pintarModos();
+		return barra;
+	}
+
+	// un boton por potenciador; verde si llega el saldo (pintarPotenciadores)
+	private JPanel crearBarraPotenciadores() {
+		JPanel barra = new JPanel();
+		barra.setOpaque(false);
+		barra.setBorder(new EmptyBorder(8, 100, 0, 100));
+		barra.setLayout(new BoxLayout(barra, BoxLayout.X_AXIS));
+		barra.add(Box.createHorizontalGlue());
+
+		for (int i = 0; i < TIPOS_POTENCIADOR.length; i++) {
+			final int indice = i;
+			BotonRedondeado btn = new BotonRedondeado(TEXTOS_POTENCIADOR[i], 20);
+			btn.setFont(fuente);
+			btn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+			btn.setPreferredSize(new Dimension(110, 30));
+			btn.setMaximumSize(new Dimension(110, 30));
+			btn.setBackground(BTN_GRIS_NO);
+			btn.addActionListener(ejecuta -> simulacion.comprarPotenciador(TIPOS_POTENCIADOR[indice],
+					FACTORES_POTENCIADOR[indice], SEGUNDOS_POTENCIADOR[indice]));
+			botonesPotenciador.add(btn);
+			barra.add(btn);
+			barra.add(Box.createHorizontalStrut(8));
+		}
+
+		barra.add(Box.createHorizontalGlue());
+		return barra;
+	}
+
+	// precio con las pizzas/s de la foto; la simulacion lo vuelve a calcular al
+	// comprar, asi que un boton verde puede fallar si el saldo cambia entre medias
+	private void pintarPotenciadores(NumeroGrande nps) {
+		for (int i = 0; i < botonesPotenciador.size(); i++) {
+			BotonRedondeado btn = botonesPotenciador.get(i);
+			NumeroGrande coste = Potenciador.coste(nps, FACTORES_POTENCIADOR[i], SEGUNDOS_POTENCIADOR[i]);
+			boolean puede = estado.getNum().compareTo(coste) >= 0;
+			Color color = puede ? BTN_VERDE_OK : BTN_GRIS_NO;
+			if (!color.equals(btn.getBackground())) {
+				btn.setBackground(color);
+			}
+			btn.setToolTipText(TEXTOS_POTENCIADOR[i] + " durante " + (int) SEGUNDOS_POTENCIADOR[i] + "s por "
+					+ formatoSuelto.abreviado(coste, true));
+		}
+	}
+
+	private void cambiarModoCompra(int cantidad) {
+		cantidadCompra = cantidad;
+		pintarModos();
+		// los precios de todas las filas dependen del modo
+		estadoFilas = null;
+		refrescarInterfaz();
 	}
 
-	// bucle que crea botones de mejora dinamicamente segun cuantas mejoras haya
-	private BotonRedondeado crearBotonMejora(Mejora m) {
+	private void pintarModos() {
+		for (int i = 0; i < botonesModo.size(); i++) {
+			boolean elegido = CANTIDADES_COMPRA[i] == cantidadCompra;
+			botonesModo.get(i).setBackground(elegido ? BTN_VERDE_OK : BTN_GRIS_NO);
+		}
+		botonPiloto.setBackground(pilotoAutomatico ? BTN_VERDE_OK : BTN_GRIS_NO);
+	}
+
+	// la mejora de una fila (mismo orden que la simulacion: activas y pasivas)
+	private Mejora mejoraEn(int indice) {
+		if (indice < mejorasActivas.size()) {
+			return mejorasActivas.get(indice);
+		}
+		return mejorasPasivas.get(indice - mejorasActivas.size());
+	}
+
+	// boton de fila vacio; la lista lo reutiliza para la mejora que toque
+	// (enlazarBotonMejora) cuando entra en pantalla
+	private BotonRedondeado crearBotonMejora() {
 		BotonRedondeado btn = new BotonRedondeado("", 40);
 		btn.setLayout(new BorderLayout());
 		btn.setFocusPainted(false);
 		btn.setBackground(BTN_GRIS_NO);
 		btn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-		btn.setMaximumSize(new Dimension(Integer.MAX_VALUE, 56));
-		btn.setPreferredSize(new Dimension(10, 56));
-		btn.setAlignmentX(Component.CENTER_ALIGNMENT);
+		btn.setPreferredSize(new Dimension(10, ALTO_FILA));
 		btn.setBorder(BorderFactory.createEmptyBorder(8, 18, 8, 18));
 
 		JLabel lblIcon = new JLabel();
@@ -494,15 +844,23 @@ public class Interfaz extends JFrame {
 		btn.putClientProperty("icon", lblIcon);
 		btn.putClientProperty("left", lblLeft);
 		btn.putClientProperty("right", lblRight);
+		btn.putClientProperty("formato", new FormatoNumeros());
 
 		btn.addActionListener(ejecuta -> {
-			if (!datos.verificarCompra(m))
+			// la fila puede haber cambiado de mejora con el scroll
+			int indice = ((Integer) btn.getClientProperty("indice")).intValue();
+			int cantidad = cantidadCompra;
+			if (!estado.puedeComprar(indice, mejoraEn(indice), cantidad))
 				return;
 
-			m.comprar(datos);
+			// la compra se aplica en el hilo de simulacion en el siguiente tick
+			simulacion.comprar(indice, cantidad);
 
 			long hasta = System.currentTimeMillis() + 70;
 			btn.putClientProperty(PROP_FLASH_UNTIL, hasta);
+			if (!filasConFlash.contains(indice)) {
+				filasConFlash.add(indice);
+			}
 
 			refrescarInterfaz();
 		});
@@ -510,83 +868,69 @@ public class Interfaz extends JFrame {
 		return btn;
 	}
 
-	// por cada mejora que haya, añade los botones necesarios para que aparezcan
-	private void generarFilasDeMejoras() {
-		panelInferior.removeAll();
-		botonesMejoras.clear();
-
-		for (Mejora m : mejorasActivas) {
-			BotonRedondeado btn = crearBotonMejora(m);
-			botonesMejoras.add(btn);
-			panelInferior.add(btn);
-			panelInferior.add(Box.createVerticalStrut(10));
-		}
-		for (Mejora m : mejorasPasivas) {
-			BotonRedondeado btn = crearBotonMejora(m);
-			botonesMejoras.add(btn);
-			panelInferior.add(btn);
-			panelInferior.add(Box.createVerticalStrut(10));
+	// la fila pasa a mostrar otra mejora: se olvida lo que pintaba y se rellena
+	// con la foto actual
+	private void enlazarBotonMejora(BotonRedondeado btn, int indice) {
+		Object anterior = btn.getClientProperty("indice");
+		if (anterior != null && btn.getClientProperty(PROP_FLASH_UNTIL) != null) {
+			filasConFlash.remove(anterior);
 		}
-
-		panelInferior.revalidate();
-		panelInferior.repaint();
+		btn.putClientProperty("indice", Integer.valueOf(indice));
+		btn.putClientProperty("estado", null);
+		btn.putClientProperty(PROP_FLASH_UNTIL, null);
+		actualizarBotonMejora(btn, mejoraEn(indice), indice);
 	}
 
-	private String formatoAbreviado(double n, boolean conDecimales, boolean numPrincipal) {
-		final String[] sufijos = { "", "K", "M", "B", "T", "Qa", "Qi", "Sx", "Sp", "Oc", "No" };
-		double abs = Math.abs(n);
+	// prepara indices y lista para todas las mejoras; los botones solo se crean
+	// para las filas visibles
+	private void generarFilasDeMejoras() {
+		filasConFlash.clear();
 
-		if (numPrincipal) {
-			if (abs < 1_000) {
-				return FORMATO_ENTERO_ES.format(abs);
-			}
-			if (abs <= 99_999_999) {
-				return FORMATO_ENTERO_ES.format(abs);
-			}
-			// mas de 100M abreviado con decimales
-			@SuppressWarnings("unused")
-			String s = abreviarNumeros(abs, true, sufijos);
+		// mismo orden que la lista de la simulacion: activas y luego pasivas
+		int total = mejorasActivas.size() + mejorasPasivas.size();
+		double[] requisitos = new double[total];
+		for (int i = 0; i < total; i++) {
+			requisitos[i] = mejoraEn(i).getRequisitoDesbloqueo();
 		}
 
-		if (abs < 1_000) {
-			return conDecimales ? String.format(localeES, "%.2f", abs) : String.format(localeES, "%.0f", abs);
-		}
+		indiceUmbrales = new IndiceUmbrales(requisitos);
+		llegadas = new Llegadas(total);
+		filasPendientes = new int[total];
+		filaPendiente = new boolean[total];
+		numFilasPendientes = 0;
+		estadoFilas = null;
+		totalMejoras = total;
 
-		return abreviarNumeros(abs, conDecimales, sufijos);
+		panelInferior.setTotal(total);
 	}
 
-	private String abreviarNumeros(double n, boolean conDecimales, String[] sufijos) {
-		double valor = n;
-		int indice = 0;
-
-		while (valor >= 1_000.0 && indice < sufijos.length - 1) {
-			valor /= 1_000.0;
-			indice++;
-		}
-
-		if (!conDecimales) {
-			return String.format(localeES, "%.0f%s", valor, sufijos[indice]);
-		}
-
-		if (indice > 0) {
-			return String.format(localeES, "%.2f%s", valor, sufijos[indice]);
-		}
-
-		return String.format(localeES, "%.2f", valor);
+	// textos sueltos (avisos, dialogos); lo que se pinta cada frame usa su propio
+	// FormatoNumeros para reutilizar el texto anterior
+	private String formatoAbreviado(NumeroGrande n, boolean conDecimales, boolean numPrincipal) {
+		return formatoSuelto.formatear(n, conDecimales, numPrincipal);
 	}
 
-	private void actualizarBotonMejora(BotonRedondeado btn, Mejora m) {
+	private void actualizarBotonMejora(BotonRedondeado btn, Mejora m, int indice) {
 		JLabel icon = (JLabel) btn.getClientProperty("icon");
 		JLabel left = (JLabel) btn.getClientProperty("left");
 		JLabel right = (JLabel) btn.getClientProperty("right");
+		FormatoNumeros formato = (FormatoNumeros) btn.getClientProperty("formato");
+
+		// nivel y coste salen de la foto, no de la mejora (la modifica otro hilo)
+		boolean desbloqueado = m.desbloquado(estado.getMaximo());
+		int nivel = estado.getNivel(indice);
+		NumeroGrande coste = estado.getCoste(indice);
 
-		boolean desbloqueado = m.desbloquado(datos.getMaximo());
-		int nivel = m.getNivel();
-		boolean puedeComprar = desbloqueado && datos.verificarCompra(m);
+		// niveles que compraria el modo actual y su coste total
+		int niveles = estado.nivelesAComprar(indice, m, cantidadCompra);
+		NumeroGrande costeTotal = estado.costeNiveles(indice, m, niveles);
+		boolean puedeComprar = desbloqueado && estado.puedeComprar(indice, m, cantidadCompra);
+		boolean recomendada = estado.getRecomendada() == indice;
 
-		String estado = desbloqueado + "|" + puedeComprar + "|" + nivel + "|" + (long) m.getCoste();
+		String estadoFila = desbloqueado + "|" + puedeComprar + "|" + nivel + "|" + niveles + "|" + costeTotal + "|"
+				+ FormatoNumeros.getNotacion() + "|" + recomendada;
 		Object prev = btn.getClientProperty("estado");
-		boolean cambio = !estado.equals(prev);
+		boolean cambio = !estadoFila.equals(prev);
 
 		Object v = btn.getClientProperty(PROP_FLASH_UNTIL);
 		long ahora = System.currentTimeMillis();
@@ -597,12 +941,13 @@ public class Interfaz extends JFrame {
 		boolean forzar = false;
 		if (expirado) {
 			btn.putClientProperty(PROP_FLASH_UNTIL, null);
+			filasConFlash.remove(Integer.valueOf(indice));
 			forzar = true;
 		}
 		if (!cambio && !flasheando && !forzar)
 			return;
 
-		btn.putClientProperty("estado", estado);
+		btn.putClientProperty("estado", estadoFila);
 
 		if (!puedeComprar)
 			btn.setIcon(iconoBloqueo);
@@ -611,10 +956,12 @@ public class Interfaz extends JFrame {
 
 		if (!desbloqueado) {
 			icon.setIcon(cargarIconoRecurso("/img/link.png", 32, 32));
-			left.setText("            Requiere " + formatoAbreviado(m.getCoste(), true, false));
+			ponerTextoFila(btn, left, "            Requiere " + formato.abreviado(coste, true),
+					NumeroGrande.de(m.getRequisitoDesbloqueo()));
 			right.setText("");
 			left.setFont(fuente);
 			btn.setBackground(flasheando ? BTN_FLASH : BTN_ROJO_LOCK);
+			btn.setToolTipText(null);
 			btn.setEnabled(false);
 			btn.setCursor(Cursor.getDefaultCursor());
 			return;
@@ -623,77 +970,334 @@ public class Interfaz extends JFrame {
 		ImageIcon ico = cargarIconoRecurso(m.getIconPath(), 32, 32);
 		icon.setIcon(ico);
 
-		left.setText(m.getNombre() + "  [ " + nivel + " ]");
+		// sin saldo la fila cuenta atras hasta el precio del modo
+		ponerTextoFila(btn, left, m.getNombre() + "  [ " + nivel + " ]" + (niveles > 1 ? "  x" + niveles : ""),
+				!puedeComprar && estado.getRestantes(indice) > 0 ? costeTotal : null);
 		left.setFont(fuente);
-		right.setText(formatoAbreviado(m.getCoste(), true, false));
+		right.setText(formato.abreviado(costeTotal, true));
 		right.setFont(fuente);
 
 		if (flasheando)
 			btn.setBackground(BTN_FLASH);
+		else if (recomendada)
+			btn.setBackground(BTN_RECOMENDADA);
 		else if (puedeComprar)
 			btn.setBackground(BTN_VERDE_OK);
 		else
 			btn.setBackground(BTN_GRIS_NO);
 
+		// el texto de la recomendada lo pone actualizarAmortizacion cada frame
+		if (!recomendada)
+			btn.setToolTipText(null);
+
 		btn.setEnabled(puedeComprar);
 		btn.setCursor(puedeComprar ? Cursor.getPredefinedCursor(Cursor.HAND_CURSOR) : Cursor.getDefaultCursor());
 
-		if (m.getNombre().equalsIgnoreCase("Impresora 3D de pizzas") && m.getNivel() == 1) {
-			timerPartida.stop();
+		if (m.esMeta() && nivel >= 1 && !finPartida) {
+			if (tareaPartida.isActiva()) {
+				contarPartida();
+				tareaPartida.setActiva(false);
+			}
 			finPartida = true;
 		}
 	}
 
+	// texto de la fila sin la cuenta atras y saldo al que se cuenta (null = no
+	// cuenta); la cuenta la añade actualizarCuentasAtras en este mismo frame
+	private void ponerTextoFila(BotonRedondeado btn, JLabel left, String texto, NumeroGrande objetivo) {
+		left.setText(texto);
+		btn.putClientProperty("textoBase", texto);
+		btn.putClientProperty("objetivo", objetivo);
+		btn.putClientProperty("eta", null);
+	}
+
+	// aviso de "mientras no estabas" con lo producido durante la pausa
+	private void mostrarAusencia(ResumenAusencia ausencia) {
+		long total = (long) ausencia.getSegundos();
+		long horas = total / 3600;
+		long minutos = (total % 3600) / 60;
+		long segundos = total % 60;
+
+		String tiempo;
+		if (horas > 0) {
+			tiempo = horas + " h " + minutos + " min";
+		} else if (minutos > 0) {
+			tiempo = minutos + " min " + segundos + " s";
+		} else {
+			tiempo = segundos + " s";
+		}
+
+		String texto = "Mientras no estabas (" + tiempo + ") tu pizzeria ha cocinado "
+				+ formatoAbreviado(ausencia.getPizzas(), true, false) + " pizzas.";
+		if (ausencia.getClicksAutomaticos() > 0) {
+			texto += "\nTus cocineros han hecho " + FORMATO_ENTERO_ES.format(ausencia.getClicksAutomaticos())
+					+ " clicks.";
+		}
+
+		JOptionPane.showMessageDialog(this, texto, "Bienvenido de vuelta", JOptionPane.INFORMATION_MESSAGE,
+				iconoSlice);
+	}
+
 	// procedimiento que se encarga de refrescar la informacion de la interfaz
 	public void refrescarInterfaz() {
-		double nps = datos.getNps();
-		double npc = datos.getClickIncremento() + nps / 50.0;
+		long inicio = System.nanoTime();
+		EventoRefresco evento = new EventoRefresco();
+		evento.begin();
+		refrescar();
+		evento.end();
+		METRICA_REFRESCO.registrar(System.nanoTime() - inicio);
+		if (evento.shouldCommit()) {
+			evento.secuencia = estado.getSecuencia();
+			evento.filas = panelInferior.getHasta() - panelInferior.getDesde();
+			evento.commit();
+		}
+	}
+
+	// potenciadores en marcha con lo que les queda (m:ss); vacio si no hay
+	private String textoPotenciadores() {
+		int n = estado.getNumPotenciadores();
+		if (n == 0) {
+			return "";
+		}
+		long ahora = (long) Math.floor(estado.getTiempo() * 1000);
+		StringBuilder texto = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			Potenciador p = estado.getPotenciador(i);
+			if (!p.activoEn(ahora)) {
+				continue;
+			}
+			long quedan = (p.getFin() - ahora + 999) / 1000;
+			texto.append("  |  x").append(formatoPeriodo.decimales(p.getFactor())).append(' ');
+			switch (p.getTipo()) {
+			case PIZZAS_POR_SEGUNDO:
+				texto.append("/s");
+				break;
+			case CLICK:
+				texto.append("click");
+				break;
+			case FRENESI:
+				texto.append("frenesi");
+				break;
+			}
+			texto.append(' ').append(quedan / 60).append(quedan % 60 < 10 ? ":0" : ":").append(quedan % 60);
+		}
+		return texto.toString();
+	}
+
+	private void refrescar() {
+		// toda la pasada pinta la misma foto aunque la simulacion siga avanzando
+		estado = simulacion.getEstado();
+		particulaClicksJuntos();
+		NumeroGrande nps = estado.getNps();
+		NumeroGrande npc = estado.getValorClick();
+
+		// vuelta de una pausa larga, se avisa fuera del refresco
+		ResumenAusencia ausencia = estado.getAusencia();
+		if (ausencia != null && ausencia != ultimaAusencia) {
+			ultimaAusencia = ausencia;
+			SwingUtilities.invokeLater(() -> mostrarAusencia(ausencia));
+		}
 
 		// CPS label (también lo actualiza el timer, pero aquí no molesta)
 		updateCpsLabel();
 
-		if (segundos < 10) {
-			lblTiempo.setText("Tiempo de Partida: " + minutos + ":0" + segundos);
-		} else {
-			lblTiempo.setText("Tiempo de Partida: " + minutos + ":" + segundos);
+		int segundoActual = minutos * 60 + segundos;
+		if (segundoActual != ultimoSegundoMostrado) {
+			ultimoSegundoMostrado = segundoActual;
+			if (segundos < 10) {
+				lblTiempo.setText("Tiempo de Partida: " + minutos + ":0" + segundos);
+			} else {
+				lblTiempo.setText("Tiempo de Partida: " + minutos + ":" + segundos);
+			}
 		}
 
-		if (botonesMejoras.isEmpty())
+		if (totalMejoras == 0)
 			return;
 
-		if (datos.getNum() != ultimoNumeroMostrado) {
-			ultimoNumeroMostrado = (long) datos.getNum();
-			lblNum.setText(formatoAbreviado(datos.getNum(), true, true));
+		if (!estado.getNum().equals(ultimoNumeroMostrado)) {
+			ultimoNumeroMostrado = estado.getNum();
+			lblNum.setText(formatoNum.principal(ultimoNumeroMostrado));
+			pintarPotenciadores(nps);
 		}
 
-		String npsBase = "/s " + formatoAbreviado(nps, true, false);
+		// el texto de nps solo se rehace si cambia alguno de sus valores
+		double periodoAuto = estado.getPeriodoAutoClicker();
+		int nivelAuto = estado.getNivelAutoClicker();
+		long segundoJuego = estado.getNumPotenciadores() == 0 ? -1 : (long) estado.getTiempo();
+		boolean potenciadores = !estado.mismosPotenciadores(estadoPotenciadores) || segundoJuego != ultimoSegundoJuego;
+		if (!nps.equals(ultimoNps) || !npc.equals(ultimoNpc) || periodoAuto != ultimoPeriodoAuto
+				|| nivelAuto != ultimoNivelAuto || potenciadores) {
+			ultimoNps = nps;
+			ultimoNpc = npc;
+			ultimoPeriodoAuto = periodoAuto;
+			ultimoNivelAuto = nivelAuto;
+			estadoPotenciadores = estado;
+			ultimoSegundoJuego = segundoJuego;
+
+			String texto;
+			if (nivelAuto == 0) {
+				texto = "/s " + formatoNps.abreviado(nps, true);
+			} else {
+				texto = "/s " + formatoNps.abreviado(nps, true) + "  |  Cocineros +" + formatoNpc.abreviado(npc, true)
+						+ " cada " + formatoPeriodo.decimales(periodoAuto) + "s";
+			}
+			texto += textoPotenciadores();
 
-		double periodoAuto = datos.getPeriodoAutoClicker();
-		String texto;
+			if (!texto.equals(ultimoTextoNps)) {
+				ultimoTextoNps = texto;
+				lblNps.setText(texto);
+			}
+		}
 
-		if (datos.getNivelAutoClicker() == 0) {
-			texto = npsBase;
-		} else {
-			texto = npsBase + String.format(localeES, "  |  Cocineros +%s cada %.2fs",
-					formatoAbreviado(npc, true, false), periodoAuto);
+		// el autoclicker ha clickado desde la ultima foto pintada
+		if (estado.getPulsosAutoClicker() != ultimoPulsoAutoClicker) {
+			ultimoPulsoAutoClicker = estado.getPulsosAutoClicker();
+			pizzaFX.efectoHaloTick();
+		}
+
+		actualizarFilasCambiadas();
+	}
+
+	// repinta solo las filas que han cambiado desde la ultima foto: las que han
+	// subido de nivel, las que el indice dice que han cruzado un umbral y las que
+	// tienen el flash de compra
+	private void actualizarFilasCambiadas() {
+		int total = totalMejoras;
+
+		if (estadoFilas == null || estado.getMaximo().compareTo(estadoFilas.getMaximo()) < 0) {
+			// primera pasada, cambio de modo o partida importada con menos record
+			for (int i = 0; i < total; i++) {
+				recalcularBanda(i);
+				marcarFila(i);
+			}
+		} else if (!estado.mismasMejoras(estadoFilas)) {
+			// ha habido compras: los arrays de la foto son nuevos
+			for (int i = 0; i < total; i++) {
+				if (estado.getNivel(i) != estadoFilas.getNivel(i) || !estado.getCoste(i).equals(estadoFilas.getCoste(i))
+						|| estado.getRestantes(i) != estadoFilas.getRestantes(i)) {
+					recalcularBanda(i);
+					marcarFila(i);
+				}
+			}
+		}
+		estadoFilas = estado;
+
+		int eventos = indiceUmbrales.avanzar(estado.getNum(), estado.getMaximo());
+		for (int k = 0; k < eventos; k++) {
+			int i = indiceUmbrales.getEventoIndice(k);
+			if (indiceUmbrales.getEventoTipo(k) != IndiceUmbrales.DESBLOQUEADA) {
+				// la fila se ha quedado sin banda, se le pone la del saldo actual
+				recalcularBanda(i);
+			}
+			marcarFila(i);
 		}
 
-		if (!texto.equals(ultimoTextoNps)) {
-			ultimoTextoNps = texto;
-			lblNps.setText(texto);
+		for (int k = 0; k < filasConFlash.size(); k++) {
+			marcarFila(filasConFlash.get(k));
 		}
 
-		if (datos.autoClickerPulsado()) {
-			pizzaFX.efectoHaloTick();
+		// el asesor ha cambiado de recomendada: la anterior y la nueva
+		int recomendada = estado.getRecomendada();
+		if (recomendada != ultimaRecomendada) {
+			if (ultimaRecomendada >= 0 && ultimaRecomendada < total) {
+				marcarFila(ultimaRecomendada);
+			}
+			if (recomendada >= 0 && recomendada < total) {
+				marcarFila(recomendada);
+			}
+			ultimaRecomendada = recomendada;
+		}
+		actualizarAmortizacion();
+		actualizarCuentasAtras();
+
+		int pendientes = numFilasPendientes;
+		numFilasPendientes = 0;
+		for (int k = 0; k < pendientes; k++) {
+			int i = filasPendientes[k];
+			filaPendiente[i] = false;
+			// fuera de pantalla no hay boton; se rellena al entrar (enlazar)
+			BotonRedondeado btn = (BotonRedondeado) panelInferior.getFila(i);
+			if (btn == null) {
+				filasConFlash.remove(Integer.valueOf(i));
+				continue;
+			}
+			actualizarBotonMejora(btn, mejoraEn(i), i);
+		}
+	}
+
+	// los segundos de amortizacion cambian con los clicks/s y el valor del click
+	// aunque la fila no cambie; solo se toca el tooltip si cambia el texto
+	private void actualizarAmortizacion() {
+		int i = estado.getRecomendada();
+		if (i < 0 || i >= totalMejoras) {
+			return;
+		}
+		BotonRedondeado btn = (BotonRedondeado) panelInferior.getFila(i);
+		if (btn == null) {
+			return;
+		}
+		// decimales devuelve el mismo String mientras no cambie el valor
+		String segundos = formatoAmortizacion.decimales(estado.getAmortizacion());
+		if (btn.getClientProperty("amortizacion") != segundos || btn.getToolTipText() == null) {
+			btn.putClientProperty("amortizacion", segundos);
+			btn.setToolTipText("La que antes se amortiza: se paga sola en " + segundos + " s");
+		}
+	}
+
+	// cuenta atras de las filas visibles que esperan saldo: Llegadas interpola
+	// entre calibrados y la etiqueta solo se toca cuando cambia el segundo
+	private void actualizarCuentasAtras() {
+		long ahora = System.nanoTime();
+		llegadas.calibrar(estado, ahora);
+		for (int i = panelInferior.getDesde(); i < panelInferior.getHasta(); i++) {
+			BotonRedondeado btn = (BotonRedondeado) panelInferior.getFila(i);
+			NumeroGrande objetivo = (NumeroGrande) btn.getClientProperty("objetivo");
+			if (objetivo == null) {
+				continue;
+			}
+			double segundos = llegadas.segundos(i, objetivo, ahora);
+			// -1: no entra dinero, no se enseña cuenta
+			long entero = Double.isInfinite(segundos) ? -1 : (long) Math.ceil(segundos);
+			Object anterior = btn.getClientProperty("eta");
+			if (anterior instanceof Long && ((Long) anterior).longValue() == entero) {
+				continue;
+			}
+			btn.putClientProperty("eta", Long.valueOf(entero));
+
+			String base = (String) btn.getClientProperty("textoBase");
+			String cuenta = entero < 0 ? null : Llegadas.texto(entero);
+			JLabel left = (JLabel) btn.getClientProperty("left");
+			left.setText(cuenta == null ? base : base + "   (" + cuenta + ")");
+		}
+	}
+
+	private void marcarFila(int i) {
+		if (!filaPendiente[i]) {
+			filaPendiente[i] = true;
+			filasPendientes[numFilasPendientes++] = i;
 		}
+	}
 
-		int idx = 0;
-		for (Mejora m : mejorasActivas) {
-			actualizarBotonMejora(botonesMejoras.get(idx++), m);
+	// banda de saldo dentro de la cual la fila no cambia con el modo actual:
+	// x1/x10/x100 solo cambian al llegar o bajar del precio; MAX ademas cada vez
+	// que se puede pagar un nivel mas o uno menos
+	private void recalcularBanda(int i) {
+		// null: ese lado de la banda no se vigila
+		int restantes = estado.getRestantes(i);
+		if (restantes <= 0) {
+			indiceUmbrales.setBanda(i, null, null);
+			return;
 		}
 
-		for (Mejora m : mejorasPasivas) {
-			actualizarBotonMejora(botonesMejoras.get(idx++), m);
+		Mejora m = mejoraEn(i);
+		int niveles = estado.nivelesAComprar(i, m, cantidadCompra);
+		NumeroGrande total = estado.costeNiveles(i, m, niveles);
+		if (estado.getNum().compareTo(total) < 0) {
+			indiceUmbrales.setBanda(i, null, total);
+		} else if (cantidadCompra == Mejora.COMPRA_MAXIMA && niveles < restantes) {
+			indiceUmbrales.setBanda(i, total, estado.costeNiveles(i, m, niveles + 1));
+		} else {
+			indiceUmbrales.setBanda(i, total, null);
 		}
 	}
 }
@@ -0,0 +1,89 @@
+package integracion;
+
+import java.util.Arrays;
+
+import app.EstadoJuego;
+import app.NumeroGrande;
+
+/**
+ * Cuenta atras de cada fila de mejora hasta que el saldo llegue a su objetivo
+ * (precio del modo de compra o requisito de desbloqueo). Se calcula con el
+ * ingreso por segundo de la foto y se interpola con el reloj entre calibrados.
+ */
+class Llegadas {
+// el ingreso (pizzas/s con clicks y autoclicker) solo cambia con compras, con la
+// medida de clicks/s o al importar; mientras no cambie el saldo sube en linea
+// recta, asi que cada fila guarda "segundos que faltaban en el calibrado" y cada
+// frame solo resta el tiempo pasado. Las filas se calculan al pedirlas, asi que
+// solo cuestan las visibles
+
+	// saldo, ingreso e instante del ultimo calibrado
+	private NumeroGrande numBase;
+	private NumeroGrande ingreso;
+	private long nanosBase;
+	private EstadoJuego estadoBase;
+
+	// objetivo con el que se calculo cada fila y los segundos que faltaban
+	// entonces (NaN = sin calcular desde el ultimo calibrado)
+	private final NumeroGrande[] objetivos;
+	private final double[] segundosBase;
+
+	Llegadas(int total) {
+		this.objetivos = new NumeroGrande[total];
+		this.segundosBase = new double[total];
+	}
+
+	// se vuelve a partir de la foto si ha cambiado el ingreso, ha habido compras
+	// o el saldo se ha quedado por debajo del de partida (gasto, importar)
+	void calibrar(EstadoJuego estado, long ahora) {
+		NumeroGrande nuevoIngreso = estado.getIngreso();
+		if (estadoBase != null && nuevoIngreso.equals(ingreso) && estado.mismasMejoras(estadoBase)
+				&& estado.getNum().compareTo(numBase) >= 0) {
+			return;
+		}
+		numBase = estado.getNum();
+		ingreso = nuevoIngreso;
+		nanosBase = ahora;
+		estadoBase = estado;
+		Arrays.fill(objetivos, null);
+	}
+
+	// segundos que faltan para tener objetivo; 0 si ya se tiene e infinito si
+	// no entra nada
+	double segundos(int i, NumeroGrande objetivo, long ahora) {
+		if (objetivos[i] == null || !objetivo.equals(objetivos[i])) {
+			objetivos[i] = objetivo;
+			if (objetivo.compareTo(numBase) <= 0) {
+				segundosBase[i] = 0;
+			} else if (ingreso.esCero()) {
+				segundosBase[i] = Double.POSITIVE_INFINITY;
+			} else {
+				segundosBase[i] = objetivo.restar(numBase).dividir(ingreso).toDouble();
+			}
+		}
+		return Math.max(0, segundosBase[i] - (ahora - nanosBase) / 1e9);
+	}
+
+	// texto corto de la cuenta atras; null si no hay nada que enseñar
+	static String texto(long segundos) {
+		if (segundos <= 0) {
+			return null;
+		}
+		if (segundos < 60) {
+			return "en " + segundos + " s";
+		}
+		if (segundos < 3600) {
+			return "en " + segundos / 60 + ":" + dosCifras(segundos % 60);
+		}
+		if (segundos < 86_400) {
+			return "en " + segundos / 3600 + ":" + dosCifras(segundos / 60 % 60) + ":" + dosCifras(segundos % 60);
+		}
+		long dias = segundos / 86_400;
+		return dias > 999 ? "en > 999 d" : "en " + dias + " d";
+	}
+
+	private static String dosCifras(long n) {
+		return n < 10 ? "0" + n : String.valueOf(n);
+	}
+
+}
@@ -0,0 +1,43 @@
+package integracion;
+
+import java.awt.EventQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import metricas.Histograma;
+import metricas.Metricas;
+
+/**
+ * Mide la latencia de la cola de eventos de Swing: cada 100ms un hilo aparte
+ * encola una tarea y apunta cuanto tarda el hilo de la interfaz en ejecutarla.
+ * Si sube, algo esta bloqueando repintados y clicks.
+ */
+public final class SondaEdt {
+
+	private static final long PERIODO_MS = 100;
+
+	private static final Histograma METRICA = Metricas.histograma(Metricas.COLA_EDT, Metricas.NANOS);
+
+	private static ScheduledExecutorService sonda;
+
+	private SondaEdt() {
+	}
+
+	// arranca la sonda (una sola vez, hilo daemon)
+	public static synchronized void iniciar() {
+		if (sonda != null) {
+			return;
+		}
+		sonda = Executors.newSingleThreadScheduledExecutor(tarea -> {
+			Thread hilo = new Thread(tarea, "ProtoPizza-sondaEdt");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+		sonda.scheduleAtFixedRate(() -> {
+			long encolado = System.nanoTime();
+			EventQueue.invokeLater(() -> METRICA.registrar(System.nanoTime() - encolado));
+		}, PERIODO_MS, PERIODO_MS, TimeUnit.MILLISECONDS);
+	}
+
+}
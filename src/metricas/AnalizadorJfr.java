@@ -0,0 +1,281 @@
+package metricas;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.ValueDescriptor;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Lee una grabacion .jfr del juego y lista los tirones de la interfaz: frames
+ * (protopizza.Refresco) mas largos que el umbral y huecos entre frames mas
+ * largos que el umbral. De cada tiron saca los eventos que se solapan con el,
+ * de cualquier hilo (relojes, compras, iconos, GC, safepoints...).
+ */
+public final class AnalizadorJfr {
+// para grabar: java -XX:StartFlightRecording=filename=partida.jfr,settings=profile
+// -jar protopizza.jar, y luego
+// java -cp protopizza-core.jar metricas.AnalizadorJfr partida.jfr [--umbral 33] [--top 5]
+// Los eventos van ordenados por inicio; con la duracion maxima se sabe desde
+// donde buscar (busqueda binaria) los que pueden solaparse con una ventana
+
+	private static final String REFRESCO = "protopizza.Refresco";
+
+	// a 60 fps un frame son 16ms; por encima de dos frames se nota
+	private static final double UMBRAL_MS = 33;
+	private static final int TOP = 5;
+
+	// evento leido: inicio y fin en ns desde la epoca para ordenar sin Instant
+	private static final class Leido {
+		final long inicio;
+		final long fin;
+		final RecordedEvent evento;
+
+		Leido(RecordedEvent evento) {
+			this.inicio = nanos(evento.getStartTime());
+			this.fin = nanos(evento.getEndTime());
+			this.evento = evento;
+		}
+
+		long duracion() {
+			return fin - inicio;
+		}
+
+		String nombre() {
+			return evento.getEventType().getName();
+		}
+	}
+
+	// ventana en la que la interfaz no ha pintado a tiempo
+	private static final class Tiron {
+		final long inicio;
+		final long fin;
+		final boolean hueco;
+
+		Tiron(long inicio, long fin, boolean hueco) {
+			this.inicio = inicio;
+			this.fin = fin;
+			this.hueco = hueco;
+		}
+	}
+
+	private final List<Leido> eventos;
+	private final List<Leido> refrescos = new ArrayList<>();
+	private long duracionMaxima = 0;
+
+	// eventos en cualquier orden
+	AnalizadorJfr(List<Leido> eventos) {
+		this.eventos = eventos;
+		eventos.sort(Comparator.comparingLong(e -> e.inicio));
+		for (Leido e : eventos) {
+			duracionMaxima = Math.max(duracionMaxima, e.duracion());
+			if (e.nombre().equals(REFRESCO)) {
+				refrescos.add(e);
+			}
+		}
+	}
+
+	// grabacion entera en memoria; null si no se puede leer
+	public static AnalizadorJfr leer(Path fichero) {
+		List<Leido> eventos = new ArrayList<>();
+		try (RecordingFile grabacion = new RecordingFile(fichero)) {
+			while (grabacion.hasMoreEvents()) {
+				eventos.add(new Leido(grabacion.readEvent()));
+			}
+		} catch (IOException e) {
+			System.err.println("No se ha podido leer la grabacion " + fichero + ": " + e.getMessage());
+			return null;
+		}
+		return new AnalizadorJfr(eventos);
+	}
+
+	// frames lentos y huecos entre frames (de inicio a inicio) por encima del
+	// umbral, en orden
+	List<Tiron> tirones(long umbralNs) {
+		List<Tiron> tirones = new ArrayList<>();
+		Leido anterior = null;
+		for (Leido r : refrescos) {
+			// el hueco va desde que acabo el anterior; si el anterior ya era lento
+			// solo cuenta lo que se espero despues
+			if (anterior != null) {
+				long desde = anterior.duracion() > umbralNs ? anterior.fin : anterior.inicio;
+				if (r.inicio - desde > umbralNs) {
+					tirones.add(new Tiron(anterior.fin, r.inicio, true));
+				}
+			}
+			if (r.duracion() > umbralNs) {
+				tirones.add(new Tiron(r.inicio, r.fin, false));
+			}
+			anterior = r;
+		}
+		return tirones;
+	}
+
+	// eventos que se solapan con [inicio, fin] menos los propios frames
+	List<Leido> solapados(long inicio, long fin) {
+		List<Leido> solapados = new ArrayList<>();
+		// el primero que puede llegar a inicio empieza como pronto duracionMaxima antes
+		int i = primeroDesde(inicio - duracionMaxima);
+		for (; i < eventos.size(); i++) {
+			Leido e = eventos.get(i);
+			if (e.inicio > fin) {
+				break;
+			}
+			if (e.fin >= inicio && !e.nombre().equals(REFRESCO)) {
+				solapados.add(e);
+			}
+		}
+		return solapados;
+	}
+
+	// indice del primer evento con inicio >= t
+	private int primeroDesde(long t) {
+		int bajo = 0;
+		int alto = eventos.size();
+		while (bajo < alto) {
+			int medio = (bajo + alto) >>> 1;
+			if (eventos.get(medio).inicio < t) {
+				bajo = medio + 1;
+			} else {
+				alto = medio;
+			}
+		}
+		return bajo;
+	}
+
+	public void imprimir(double umbralMs, int top) {
+		if (refrescos.isEmpty()) {
+			System.out.println("La grabacion no tiene eventos " + REFRESCO + " (se grabo sin la interfaz?)");
+			return;
+		}
+		long umbralNs = (long) (umbralMs * 1_000_000);
+		long origen = eventos.get(0).inicio;
+
+		Histograma frames = new Histograma(REFRESCO, Metricas.NANOS);
+		for (Leido r : refrescos) {
+			frames.registrar(r.duracion());
+		}
+		List<Tiron> tirones = tirones(umbralNs);
+		System.out.printf("%d eventos, %d frames (p50 %s, p99 %s, max %s), %d tirones de mas de %.0f ms%n",
+				eventos.size(), refrescos.size(), ms(frames.percentil(50)), ms(frames.percentil(99)),
+				ms(frames.getMaximo()), tirones.size(), umbralMs);
+
+		for (Tiron t : tirones) {
+			System.out.printf("%n%s en +%s: %s%n", t.hueco ? "hueco sin frames" : "frame lento",
+					ms(t.inicio - origen), ms(t.fin - t.inicio));
+			List<Leido> solapados = solapados(t.inicio, t.fin);
+			if (solapados.isEmpty()) {
+				System.out.println("  sin eventos solapados");
+				continue;
+			}
+
+			// cuantos de cada tipo, de mas a menos
+			Map<String, Integer> porTipo = new LinkedHashMap<>();
+			for (Leido e : solapados) {
+				porTipo.merge(e.nombre(), 1, Integer::sum);
+			}
+			porTipo.entrySet().stream().sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+					.forEach(tipo -> System.out.printf("  %6d  %s%n", tipo.getValue(), tipo.getKey()));
+
+			// y los mas largos con sus campos
+			solapados.sort(Comparator.comparingLong(Leido::duracion).reversed());
+			for (int k = 0; k < Math.min(top, solapados.size()); k++) {
+				Leido e = solapados.get(k);
+				System.out.printf("  %10s  %s [%s] %s%n", ms(e.duracion()), e.nombre(), hilo(e.evento),
+						campos(e.evento));
+			}
+		}
+	}
+
+	//
+	//
+	// formato
+	private static long nanos(Instant instante) {
+		return instante.getEpochSecond() * 1_000_000_000L + instante.getNano();
+	}
+
+	private static String ms(long nanos) {
+		return String.format("%.2f ms", nanos / 1e6);
+	}
+
+	private static String hilo(RecordedEvent evento) {
+		RecordedThread hilo = evento.getThread();
+		return hilo == null ? "-" : hilo.getJavaName() != null ? hilo.getJavaName() : hilo.getOSName();
+	}
+
+	// campos propios del evento (sin inicio, duracion, hilo ni pila)
+	private static String campos(RecordedEvent evento) {
+		StringBuilder texto = new StringBuilder();
+		for (ValueDescriptor campo : evento.getFields()) {
+			String nombre = campo.getName();
+			if (nombre.equals("startTime") || nombre.equals("duration") || nombre.equals("eventThread")
+					|| nombre.equals("stackTrace")) {
+				continue;
+			}
+			Object valor = evento.getValue(nombre);
+			if (valor instanceof Duration) {
+				valor = ms(((Duration) valor).toNanos());
+			}
+			String escrito = String.valueOf(valor);
+			// los campos compuestos (clases, hilos...) ocupan varias lineas
+			if (escrito.indexOf('\n') >= 0) {
+				continue;
+			}
+			if (texto.length() > 0) {
+				texto.append(", ");
+			}
+			texto.append(nombre).append('=').append(escrito);
+		}
+		return texto.toString();
+	}
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Uso: AnalizadorJfr partida.jfr [--umbral ms] [--top n]");
+			return;
+		}
+		Path fichero = Paths.get(args[0]);
+		double umbral = UMBRAL_MS;
+		int top = TOP;
+		try {
+			for (int i = 1; i + 1 < args.length; i += 2) {
+				String valor = args[i + 1];
+				switch (args[i]) {
+				case "--umbral":
+					umbral = Double.parseDouble(valor);
+					break;
+				case "--top":
+					top = Integer.parseInt(valor);
+					break;
+				default:
+					System.err.println("Opcion desconocida " + args[i]);
+					return;
+				}
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Numero mal escrito: " + e.getMessage());
+			return;
+		}
+		if (!Files.isRegularFile(fichero)) {
+			System.err.println("No existe la grabacion " + fichero);
+			return;
+		}
+
+		AnalizadorJfr analizador = leer(fichero);
+		if (analizador != null) {
+			analizador.imprimir(umbral, top);
+		}
+	}
+
+}
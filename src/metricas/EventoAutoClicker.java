@@ -0,0 +1,32 @@
+package metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR de una tanda de clicks del autoclicker dentro de un reloj (en un
+ * ponerse al dia pueden ser miles).
+ */
+@Name("protopizza.AutoClicker")
+@Label("Tanda del autoclicker")
+@Category({ "ProtoPizza", "Simulacion" })
+@Description("Clicks que el autoclicker ha hecho en un reloj")
+@StackTrace(false)
+public class EventoAutoClicker extends Event {
+
+	@Label("Clicks")
+	public long clicks;
+
+	@Label("Nivel")
+	public int nivel;
+
+	@Label("Periodo")
+	@Timespan(Timespan.SECONDS)
+	public double periodo;
+
+}
@@ -0,0 +1,34 @@
+package metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento JFR de una compra de mejora (de la interfaz o del piloto automatico).
+ */
+@Name("protopizza.Compra")
+@Label("Compra de mejora")
+@Category({ "ProtoPizza", "Simulacion" })
+@Description("Mejora.comprar con el resultado")
+public class EventoCompra extends Event {
+
+	@Label("Mejora")
+	public String mejora;
+
+	@Label("Nivel tras la compra")
+	public int nivel;
+
+	@Label("Niveles comprados")
+	public int niveles;
+
+	// NumeroGrande en texto (puede pasar de un double)
+	@Label("Coste pagado")
+	public String coste;
+
+	@Label("Piloto automatico")
+	public boolean automatica;
+
+}
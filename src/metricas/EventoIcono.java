@@ -0,0 +1,31 @@
+package metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento JFR de una peticion de icono a CacheIconos (acierto o carga con
+ * ImageIO y escalado).
+ */
+@Name("protopizza.Icono")
+@Label("Carga de icono")
+@Category({ "ProtoPizza", "Interfaz" })
+@Description("CacheIconos.obtener")
+public class EventoIcono extends Event {
+
+	@Label("Ruta")
+	public String ruta;
+
+	@Label("Ancho")
+	public int ancho;
+
+	@Label("Alto")
+	public int alto;
+
+	@Label("Acierto de cache")
+	public boolean acierto;
+
+}
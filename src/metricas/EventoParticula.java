@@ -0,0 +1,30 @@
+package metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de una particula de click en PizzaEfectos.
+ */
+@Name("protopizza.Particula")
+@Label("Particula de click")
+@Category({ "ProtoPizza", "Interfaz" })
+@Description("PizzaEfectos.spawnClickFloat")
+@StackTrace(false)
+public class EventoParticula extends Event {
+
+	@Label("Texto")
+	public String texto;
+
+	// el click se ha sumado a la "+N" porque no cabian mas
+	@Label("Agregada")
+	public boolean agregada;
+
+	@Label("Particulas vivas")
+	public int vivas;
+
+}
@@ -0,0 +1,28 @@
+package metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de un Interfaz.refrescarInterfaz (un frame). El AnalizadorJfr
+ * busca los tirones entre estos eventos.
+ */
+@Name("protopizza.Refresco")
+@Label("Refresco de la interfaz")
+@Category({ "ProtoPizza", "Interfaz" })
+@Description("Un frame de Interfaz.refrescarInterfaz")
+@StackTrace(false)
+public class EventoRefresco extends Event {
+
+	@Label("Tick pintado")
+	public long secuencia;
+
+	// filas de mejoras con componente (las visibles y el margen)
+	@Label("Filas enlazadas")
+	public int filas;
+
+}
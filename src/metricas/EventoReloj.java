@@ -0,0 +1,29 @@
+package metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR de un Datos.reloj del hilo de simulacion (un paso fijo o un
+ * ponerse al dia).
+ */
+@Name("protopizza.Reloj")
+@Label("Reloj de simulacion")
+@Category({ "ProtoPizza", "Simulacion" })
+@Description("Un paso de Datos.reloj")
+@StackTrace(false)
+public class EventoReloj extends Event {
+
+	@Label("Tiempo simulado")
+	@Timespan(Timespan.SECONDS)
+	public double diferenciaTiempo;
+
+	@Label("Numero de tick")
+	public long secuencia;
+
+}
@@ -0,0 +1,131 @@
+package metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de valores enteros (nanosegundos, bytes...) por cubetas
+ * logaritmicas con 32 subdivisiones por potencia de 2, como los HDR: error
+ * relativo por debajo del 3% de 1 a 2^63 con 1.888 contadores. Registrar no
+ * bloquea (un incremento atomico) y se puede hacer desde varios hilos.
+ */
+public final class Histograma {
+// los percentiles se sacan de una copia de los contadores; restando dos copias
+// sale el histograma de ese intervalo (lo que enseña el overlay) sin tener que
+// reiniciar el acumulado (lo que ve JMX)
+
+	private static final int BITS_SUB = 5;
+	private static final int SUB = 1 << BITS_SUB;
+
+	// [0, SUB) una cubeta por valor y luego SUB por cada potencia de 2
+	static final int CUBETAS = (64 - BITS_SUB) * SUB;
+
+	private final String nombre;
+	private final String unidad;
+	private final AtomicLongArray cuentas = new AtomicLongArray(CUBETAS);
+	private final AtomicLong maximo = new AtomicLong();
+
+	Histograma(String nombre, String unidad) {
+		this.nombre = nombre;
+		this.unidad = unidad;
+	}
+
+	// los negativos (relojes que retroceden) cuentan como 0
+	public void registrar(long valor) {
+		if (valor < 0) {
+			valor = 0;
+		}
+		cuentas.incrementAndGet(cubeta(valor));
+		if (valor > maximo.get()) {
+			maximo.accumulateAndGet(valor, Math::max);
+		}
+	}
+
+	static int cubeta(long valor) {
+		if (valor < SUB) {
+			return (int) valor;
+		}
+		int exponente = 63 - Long.numberOfLeadingZeros(valor);
+		int sub = (int) (valor >>> (exponente - BITS_SUB)) - SUB;
+		return (exponente - BITS_SUB + 1) * SUB + sub;
+	}
+
+	// valor del centro de la cubeta
+	static long valorCubeta(int cubeta) {
+		if (cubeta < SUB) {
+			return cubeta;
+		}
+		int potencia = cubeta / SUB - 1;
+		long bajo = (long) (SUB + cubeta % SUB) << potencia;
+		return bajo + ((1L << potencia) >>> 1);
+	}
+
+	// copia de los contadores (no es atomica en conjunto, pero cada contador si)
+	public long[] copiar() {
+		long[] copia = new long[CUBETAS];
+		for (int i = 0; i < CUBETAS; i++) {
+			copia[i] = cuentas.get(i);
+		}
+		return copia;
+	}
+
+	// vuelve a empezar (operacion de JMX)
+	public void reiniciar() {
+		for (int i = 0; i < CUBETAS; i++) {
+			cuentas.set(i, 0);
+		}
+		maximo.set(0);
+	}
+
+	// percentil p (0-100) de una copia o de la resta de dos (anterior puede ser
+	// null); -1 si no hay valores
+	public static long percentil(long[] cuentas, long[] anterior, double p) {
+		long total = total(cuentas, anterior);
+		if (total == 0) {
+			return -1;
+		}
+		long objetivo = Math.max(1, (long) Math.ceil(p / 100 * total));
+		long acumulado = 0;
+		for (int i = 0; i < CUBETAS; i++) {
+			acumulado += cuentas[i] - (anterior == null ? 0 : anterior[i]);
+			if (acumulado >= objetivo) {
+				return valorCubeta(i);
+			}
+		}
+		return valorCubeta(CUBETAS - 1);
+	}
+
+	public static long total(long[] cuentas, long[] anterior) {
+		long total = 0;
+		for (int i = 0; i < CUBETAS; i++) {
+			total += cuentas[i] - (anterior == null ? 0 : anterior[i]);
+		}
+		return total;
+	}
+
+	// acumulado desde el arranque (o el ultimo reiniciar); el centro de la
+	// ultima cubeta puede pasarse del maximo real
+	public long percentil(double p) {
+		return Math.min(percentil(copiar(), null, p), maximo.get());
+	}
+
+	//
+	//
+	// getters
+	public String getNombre() {
+		return nombre;
+	}
+
+	public String getUnidad() {
+		return unidad;
+	}
+
+	public long getTotal() {
+		return total(copiar(), null);
+	}
+
+	public long getMaximo() {
+		return maximo.get();
+	}
+
+}
@@ -0,0 +1,112 @@
+package metricas;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro global de metricas del juego: histogramas de latencias (y de bytes)
+ * y medidores que se leen al consultarlos (particulas vivas, aciertos de
+ * cache...). Lo leen el overlay de la interfaz y el MBean de JMX.
+ */
+public final class Metricas {
+// medir cuesta dos nanoTime y un incremento atomico, por eso esta siempre
+// activo; formatear y sacar percentiles solo lo hacen el overlay (cada medio
+// segundo y si esta abierto) y JConsole cuando pregunta
+
+	// nombres de las metricas del juego
+	public static final String RELOJ = "simulacion.reloj";
+	public static final String TICK = "simulacion.tick";
+	public static final String BYTES_TICK = "simulacion.bytesPorTick";
+	public static final String GUARDADO = "guardado.escritura";
+	public static final String REFRESCO = "interfaz.refresco";
+	public static final String EFECTOS = "efectos.paso";
+	public static final String COLA_EDT = "interfaz.colaEdt";
+	public static final String RITMO_FRAMES = "interfaz.ritmoMs";
+	public static final String PARTICULAS = "efectos.particulas";
+	public static final String ICONOS_ACIERTOS = "iconos.aciertos";
+	public static final String ICONOS_FALLOS = "iconos.fallos";
+	public static final String FONDOS_ACIERTOS = "fondos.aciertos";
+	public static final String FONDOS_FALLOS = "fondos.fallos";
+
+	public static final String NANOS = "ns";
+	public static final String BYTES = "B";
+
+	private static final String NOMBRE_JMX = "protopizza:type=Metricas";
+
+	// ordenados por nombre para el overlay y JMX
+	private static final Map<String, Histograma> histogramas = new ConcurrentSkipListMap<>();
+	private static final Map<String, LongSupplier> medidores = new ConcurrentSkipListMap<>();
+
+	private static final com.sun.management.ThreadMXBean HILOS = hilos();
+
+	private static boolean jmxRegistrado = false;
+
+	private Metricas() {
+	}
+
+	// histograma con ese nombre (se crea la primera vez)
+	public static Histograma histograma(String nombre, String unidad) {
+		return histogramas.computeIfAbsent(nombre, n -> new Histograma(n, unidad));
+	}
+
+	// medidor que se lee al consultarlo; uno nuevo con el mismo nombre sustituye
+	// al anterior (ventana nueva, benchmark...)
+	public static void medidor(String nombre, LongSupplier valor) {
+		medidores.put(nombre, valor);
+	}
+
+	// bytes reservados por el hilo actual desde que arranco, -1 si esta JVM no
+	// lo mide
+	public static long bytesHilo() {
+		return HILOS == null ? -1 : HILOS.getCurrentThreadAllocatedBytes();
+	}
+
+	private static com.sun.management.ThreadMXBean hilos() {
+		ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+		if (!(hilos instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) hilos;
+		if (!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) {
+			return null;
+		}
+		return sun;
+	}
+
+	// publica el MBean en el servidor de la plataforma (JConsole, VisualVM);
+	// false si no se ha podido
+	public static synchronized boolean registrarJmx() {
+		if (jmxRegistrado) {
+			return true;
+		}
+		try {
+			MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+			servidor.registerMBean(new MetricasJmx(), new ObjectName(NOMBRE_JMX));
+			jmxRegistrado = true;
+			return true;
+		} catch (JMException e) {
+			System.err.println("No se han podido publicar las metricas por JMX: " + e.getMessage());
+			return false;
+		}
+	}
+
+	//
+	//
+	// getters
+	public static Map<String, Histograma> getHistogramas() {
+		return Collections.unmodifiableMap(histogramas);
+	}
+
+	public static Map<String, LongSupplier> getMedidores() {
+		return Collections.unmodifiableMap(medidores);
+	}
+
+}
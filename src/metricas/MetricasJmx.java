@@ -0,0 +1,111 @@
+package metricas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+/**
+ * MBean dinamico con un atributo por percentil de cada histograma
+ * ("simulacion.reloj.p99") y uno por medidor, de solo lectura, y la operacion
+ * reiniciar para empezar una medida nueva.
+ */
+class MetricasJmx implements DynamicMBean {
+// dinamico para que las metricas nuevas salgan solas sin tocar una interfaz
+// MXBean por cada una
+
+	private static final String[] SUFIJOS = { "p50", "p90", "p99", "p999", "max", "total" };
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	@Override
+	public Object getAttribute(String atributo) throws AttributeNotFoundException {
+		LongSupplier medidor = Metricas.getMedidores().get(atributo);
+		if (medidor != null) {
+			return Long.valueOf(medidor.getAsLong());
+		}
+		int punto = atributo.lastIndexOf('.');
+		Histograma h = punto < 0 ? null : Metricas.getHistogramas().get(atributo.substring(0, punto));
+		if (h == null) {
+			throw new AttributeNotFoundException(atributo);
+		}
+		String sufijo = atributo.substring(punto + 1);
+		switch (sufijo) {
+		case "max":
+			return Long.valueOf(h.getMaximo());
+		case "total":
+			return Long.valueOf(h.getTotal());
+		default:
+			for (int i = 0; i < PERCENTILES.length; i++) {
+				if (SUFIJOS[i].equals(sufijo)) {
+					return Long.valueOf(h.percentil(PERCENTILES[i]));
+				}
+			}
+			throw new AttributeNotFoundException(atributo);
+		}
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] atributos) {
+		AttributeList lista = new AttributeList();
+		for (String atributo : atributos) {
+			try {
+				lista.add(new Attribute(atributo, getAttribute(atributo)));
+			} catch (AttributeNotFoundException e) {
+				// los que no existen se omiten, como pide DynamicMBean
+			}
+		}
+		return lista;
+	}
+
+	@Override
+	public void setAttribute(Attribute atributo) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("Las metricas son de solo lectura: " + atributo.getName());
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList atributos) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String operacion, Object[] parametros, String[] firma) throws ReflectionException {
+		if (!"reiniciar".equals(operacion)) {
+			throw new ReflectionException(new NoSuchMethodException(operacion));
+		}
+		for (Histograma h : Metricas.getHistogramas().values()) {
+			h.reiniciar();
+		}
+		return null;
+	}
+
+	// se rehace en cada llamada para incluir las metricas registradas despues
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> atributos = new ArrayList<>();
+		for (Map.Entry<String, Histograma> e : Metricas.getHistogramas().entrySet()) {
+			for (String sufijo : SUFIJOS) {
+				String unidad = sufijo.equals("total") ? "muestras" : e.getValue().getUnidad();
+				atributos.add(new MBeanAttributeInfo(e.getKey() + "." + sufijo, "java.lang.Long",
+						sufijo + " (" + unidad + ")", true, false, false));
+			}
+		}
+		for (String nombre : Metricas.getMedidores().keySet()) {
+			atributos.add(new MBeanAttributeInfo(nombre, "java.lang.Long", nombre, true, false, false));
+		}
+		MBeanOperationInfo reiniciar = new MBeanOperationInfo("reiniciar", "Vacia todos los histogramas",
+				new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+		return new MBeanInfo(MetricasJmx.class.getName(), "Metricas de ProtoPizza",
+				atributos.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] { reiniciar }, null);
+	}
+
+}
@@ -0,0 +1,105 @@
+package simulador;
+
+import java.util.List;
+
+import app.Catalogo;
+import app.Datos;
+import app.Mejora;
+
+/**
+ * Que compra un jugador simulado. Se pregunta despues de cada paso hasta que
+ * devuelve -1; el indice que devuelve se compra (un nivel) si hay saldo.
+ */
+public interface Estrategia {
+// igual que los perfiles, sin estado propio: todo se lee de la partida
+
+	// indice de la mejora a comprar ahora o -1 para esperar
+	int elegir(Partida partida);
+
+	// compra siempre la mas barata que pueda pagar
+	Estrategia MAS_BARATA = partida -> {
+		List<Mejora> mejoras = partida.getMejoras();
+		int elegida = -1;
+		for (int i = 0; i < mejoras.size(); i++) {
+			if (partida.sePuedeComprar(i)
+					&& (elegida < 0 || mejoras.get(i).getCoste().compareTo(mejoras.get(elegida).getCoste()) < 0)) {
+				elegida = i;
+			}
+		}
+		return elegida;
+	};
+
+	// la desbloqueada que mas pizzas/s da por pizza gastada; si no llega el
+	// saldo espera a tenerlo en vez de gastarlo en otra
+	Estrategia MEJOR_RETORNO = partida -> {
+		List<Mejora> mejoras = partida.getMejoras();
+		int elegida = -1;
+		double mejor = 0;
+		for (int i = 0; i < mejoras.size(); i++) {
+			Mejora m = mejoras.get(i);
+			if (!partida.estaDesbloqueada(i) || m.getNivelesRestantes() <= 0) {
+				continue;
+			}
+			double retorno = ganancia(partida, m) / m.getCoste().toDouble();
+			if (retorno > mejor) {
+				mejor = retorno;
+				elegida = i;
+			}
+		}
+		return elegida >= 0 && partida.sePuedeComprar(elegida) ? elegida : -1;
+	};
+
+	// cualquiera de las que se puedan pagar
+	Estrategia ALEATORIA = partida -> {
+		List<Mejora> mejoras = partida.getMejoras();
+		int posibles = 0;
+		int elegida = -1;
+		for (int i = 0; i < mejoras.size(); i++) {
+			// muestreo de reservorio: una pasada sin lista auxiliar
+			if (partida.sePuedeComprar(i) && partida.getAzar().nextInt(++posibles) == 0) {
+				elegida = i;
+			}
+		}
+		return elegida;
+	};
+
+	// pizzas/s que suma un nivel mas de la mejora con los cps del jugador
+	static double ganancia(Partida partida, Mejora m) {
+		Datos datos = partida.getDatos();
+		double valorClick = datos.valorClick().toDouble();
+		switch (m.getEfecto()) {
+		case Catalogo.EFECTO_NPS:
+			// cada pizza/s tambien suma 1/50 a cada click
+			return m.getMagnitud() * (1 + partida.getCpsJugador() / 50);
+		case Catalogo.EFECTO_CLICK: {
+			double clicksPorSegundo = partida.getCpsJugador();
+			if (datos.getNivelAutoClicker() > 0) {
+				clicksPorSegundo += 1 / datos.getPeriodoAutoClicker();
+			}
+			return m.getMagnitud() * clicksPorSegundo;
+		}
+		case Catalogo.EFECTO_AUTOCLICKER: {
+			int nivel = datos.getNivelAutoClicker();
+			double antes = nivel > 0 ? 1 / datos.getPeriodoAutoClicker() : 0;
+			return valorClick * (1 / datos.periodoConNivel(nivel + (int) m.getMagnitud()) - antes);
+		}
+		default:
+			return 0;
+		}
+	}
+
+	// por nombre para la linea de comandos; null si no existe
+	static Estrategia porNombre(String nombre) {
+		switch (nombre) {
+		case "barata":
+			return MAS_BARATA;
+		case "retorno":
+			return MEJOR_RETORNO;
+		case "aleatoria":
+			return ALEATORIA;
+		default:
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package simulador;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Resultado de un lote de partidas: percentiles del segundo en que se
+ * desbloquea cada mejora y del segundo en que se compra la meta. Las partidas
+ * que no llegan antes del limite no entran en los percentiles, se cuentan
+ * aparte.
+ */
+public class Informe {
+
+	// percentiles que se imprimen
+	private static final double[] PERCENTILES = { 10, 50, 90, 99 };
+
+	private final String[] nombres;
+	private final int partidas;
+
+	// por mejora, los segundos de las partidas que llegaron, ordenados
+	private final double[][] desbloqueos;
+	private final double[] metas;
+
+	private final long nanos;
+
+	// tiempos[partida * mejoras + mejora] y metas[partida], NaN = no llego
+	Informe(String[] nombres, int partidas, double[] tiempos, double[] metas, long nanos) {
+		this.nombres = nombres;
+		this.partidas = partidas;
+		this.nanos = nanos;
+		int n = nombres.length;
+		this.desbloqueos = new double[n][];
+		double[] columna = new double[partidas];
+		for (int j = 0; j < n; j++) {
+			for (int p = 0; p < partidas; p++) {
+				columna[p] = tiempos[p * n + j];
+			}
+			desbloqueos[j] = alcanzados(columna);
+		}
+		this.metas = alcanzados(metas);
+	}
+
+	// sin los NaN y ordenado para sacar percentiles
+	private static double[] alcanzados(double[] segundos) {
+		double[] r = Arrays.stream(segundos).filter(s -> !Double.isNaN(s)).toArray();
+		Arrays.sort(r);
+		return r;
+	}
+
+	// percentil p (0-100) por rango mas cercano; NaN si ninguna llego
+	private static double percentil(double[] ordenados, double p) {
+		if (ordenados.length == 0) {
+			return Double.NaN;
+		}
+		int rango = (int) Math.ceil(p / 100 * ordenados.length);
+		return ordenados[Math.min(ordenados.length - 1, Math.max(0, rango - 1))];
+	}
+
+	public double percentilDesbloqueo(int mejora, double p) {
+		return percentil(desbloqueos[mejora], p);
+	}
+
+	public double percentilMeta(double p) {
+		return percentil(metas, p);
+	}
+
+	// partidas en las que se desbloqueo la mejora
+	public int getDesbloqueadas(int mejora) {
+		return desbloqueos[mejora].length;
+	}
+
+	// partidas que compraron la meta antes del limite
+	public int getTerminadas() {
+		return metas.length;
+	}
+
+	public int getPartidas() {
+		return partidas;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	// tabla con una fila por mejora y la meta al final
+	public void imprimir(PrintStream salida) {
+		StringBuilder cabecera = new StringBuilder(String.format("%-26s %7s", "mejora", "llegan"));
+		for (double p : PERCENTILES) {
+			cabecera.append(String.format(" %9s", "p" + (int) p));
+		}
+		salida.println(cabecera);
+		for (int j = 0; j < nombres.length; j++) {
+			fila(salida, nombres[j], desbloqueos[j]);
+		}
+		fila(salida, "META (compra)", metas);
+		salida.printf("%d partidas en %.2f s (%.0f partidas/s)%n", partidas, nanos / 1e9, partidas / (nanos / 1e9));
+	}
+
+	private void fila(PrintStream salida, String nombre, double[] ordenados) {
+		StringBuilder linea = new StringBuilder(String.format("%-26s %6.1f%%", nombre,
+				100.0 * ordenados.length / partidas));
+		for (double p : PERCENTILES) {
+			linea.append(String.format(" %9s", tiempo(percentil(ordenados, p))));
+		}
+		salida.println(linea);
+	}
+
+	// h:mm:ss
+	static String tiempo(double segundos) {
+		if (Double.isNaN(segundos)) {
+			return "-";
+		}
+		long s = (long) segundos;
+		return String.format("%d:%02d:%02d", s / 3600, s / 60 % 60, s % 60);
+	}
+
+}
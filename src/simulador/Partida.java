@@ -0,0 +1,147 @@
+package simulador;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import app.Catalogo;
+import app.Datos;
+import app.Mejora;
+
+/**
+ * Una partida sin interfaz: sus propios Datos y mejoras sacadas del catalogo,
+ * un jugador que clica segun un PerfilClicks y compra segun una Estrategia.
+ * Apunta cuando se desbloquea cada mejora y cuando se compra la meta.
+ */
+public class Partida {
+// no comparte nada mutable con otras partidas (el catalogo es inmutable), asi
+// que el simulador puede jugar muchas a la vez en hilos distintos
+
+	// tope de compras en un mismo paso, por si una estrategia no para nunca
+	private static final int MAX_COMPRAS_PASO = 1000;
+
+	private final Datos datos = new Datos(0);
+	private final List<Mejora> mejoras;
+	private final double[] requisitos;
+	private final Estrategia estrategia;
+	private final PerfilClicks perfil;
+	private final SplittableRandom azar;
+	private final double cpsJugador;
+
+	// segundo en que se desbloqueo cada mejora (NaN = todavia no) y en el que
+	// se compro la meta
+	private final double[] desbloqueos;
+	private int pendientes;
+	private double meta = Double.NaN;
+
+	private double segundo = 0;
+
+	// fraccion de click que queda de un paso para el siguiente
+	private double restoClicks = 0;
+
+	public Partida(Catalogo catalogo, Estrategia estrategia, PerfilClicks perfil, SplittableRandom azar) {
+		this.mejoras = catalogo.crearMejoras();
+		this.estrategia = estrategia;
+		this.perfil = perfil;
+		this.azar = azar;
+		this.cpsJugador = perfil.cpsJugador(azar);
+
+		this.requisitos = new double[mejoras.size()];
+		this.desbloqueos = new double[mejoras.size()];
+		Arrays.fill(desbloqueos, Double.NaN);
+		for (int i = 0; i < requisitos.length; i++) {
+			requisitos[i] = mejoras.get(i).getRequisitoDesbloqueo();
+		}
+		pendientes = requisitos.length;
+		apuntarDesbloqueos();
+	}
+
+	// juega a pasos de paso segundos hasta comprar la meta o llegar al limite
+	public void jugar(double paso, double limite) {
+		while (Double.isNaN(meta) && segundo < limite) {
+			avanzar(paso);
+		}
+	}
+
+	// un paso: clicks del jugador, reloj (pasivas y autoclicker) y compras
+	public void avanzar(double paso) {
+		double clicks = perfil.cps(cpsJugador, azar) * paso + restoClicks;
+		long enteros = (long) clicks;
+		restoClicks = clicks - enteros;
+		for (long c = 0; c < enteros; c++) {
+			datos.click();
+		}
+		datos.reloj(paso);
+		segundo += paso;
+		apuntarDesbloqueos();
+
+		for (int compras = 0; compras < MAX_COMPRAS_PASO; compras++) {
+			int i = estrategia.elegir(this);
+			if (i < 0 || !sePuedeComprar(i)) {
+				break;
+			}
+			Mejora m = mejoras.get(i);
+			m.comprar(datos);
+			if (m.esMeta() && Double.isNaN(meta)) {
+				meta = segundo;
+			}
+		}
+	}
+
+	// el record solo sube, asi que cada mejora se desbloquea una vez
+	private void apuntarDesbloqueos() {
+		if (pendientes == 0) {
+			return;
+		}
+		double record = datos.getMaximo().toDouble();
+		for (int i = 0; i < requisitos.length; i++) {
+			if (Double.isNaN(desbloqueos[i]) && record >= requisitos[i]) {
+				desbloqueos[i] = segundo;
+				pendientes--;
+			}
+		}
+	}
+
+	// desbloqueada, con niveles libres y con saldo para el siguiente
+	public boolean sePuedeComprar(int i) {
+		return estaDesbloqueada(i) && datos.verificarCompra(mejoras.get(i));
+	}
+
+	public boolean estaDesbloqueada(int i) {
+		return !Double.isNaN(desbloqueos[i]);
+	}
+
+	//
+	//
+	// getters
+	public Datos getDatos() {
+		return datos;
+	}
+
+	public List<Mejora> getMejoras() {
+		return mejoras;
+	}
+
+	public SplittableRandom getAzar() {
+		return azar;
+	}
+
+	public double getCpsJugador() {
+		return cpsJugador;
+	}
+
+	public double getSegundo() {
+		return segundo;
+	}
+
+	// segundo del desbloqueo de la mejora i, NaN si no llego
+	public double getDesbloqueo(int i) {
+		return desbloqueos[i];
+	}
+
+	// segundo en que se compro la meta, NaN si no llego
+	public double getMeta() {
+		return meta;
+	}
+
+}
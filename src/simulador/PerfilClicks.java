@@ -0,0 +1,55 @@
+package simulador;
+
+import java.util.SplittableRandom;
+
+import app.ModoExacto;
+
+/**
+ * Como clica un jugador simulado: cuantos clicks por segundo tiene cada jugador
+ * (se sortea al empezar la partida) y cuanto varia de un segundo a otro.
+ */
+public interface PerfilClicks {
+// los perfiles no guardan estado: lo propio de cada partida va en Partida, asi
+// varios hilos pueden usar el mismo perfil a la vez
+
+	// cps de un jugador nuevo
+	double cpsJugador(SplittableRandom azar);
+
+	// cps en este segundo de partida; por defecto el jugador es constante
+	default double cps(double cpsJugador, SplittableRandom azar) {
+		return cpsJugador;
+	}
+
+	// todos los jugadores clican igual
+	static PerfilClicks constante(double cps) {
+		return azar -> cps;
+	}
+
+	// cps repartidos en una normal entre jugadores (sin bajar de 0) y cada
+	// segundo un +-25% de ruido
+	static PerfilClicks normal(double media, double desviacion) {
+		return new PerfilClicks() {
+			@Override
+			public double cpsJugador(SplittableRandom azar) {
+				return Math.max(0, media + desviacion * gaussiana(azar));
+			}
+
+			@Override
+			public double cps(double cpsJugador, SplittableRandom azar) {
+				return cpsJugador * (0.75 + 0.5 * azar.nextDouble());
+			}
+		};
+	}
+
+	// jugador que no clica nunca (solo pasivas y autoclicker)
+	static PerfilClicks ausente() {
+		return constante(0);
+	}
+
+	// SplittableRandom no tiene nextGaussian en java 17 (Box-Muller)
+	private static double gaussiana(SplittableRandom azar) {
+		double u = 1 - azar.nextDouble();
+		return Math.sqrt(-2 * ModoExacto.log(u)) * ModoExacto.cos(2 * Math.PI * azar.nextDouble());
+	}
+
+}
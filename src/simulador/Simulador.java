@@ -0,0 +1,179 @@
+package simulador;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import app.Catalogo;
+import app.ModoExacto;
+
+/**
+ * Simulador de balance sin interfaz: juega muchas partidas independientes del
+ * catalogo en un ForkJoinPool y saca percentiles de los desbloqueos y de la
+ * meta. Sirve para ajustar costes, incrementos y umbrales del fichero de
+ * mejoras sin jugarlas a mano.
+ */
+public class Simulador {
+// cada partida tiene sus Datos y sus Mejora (nada estatico ni compartido salvo
+// el Catalogo, que es inmutable) y escribe su resultado en su hueco de unos
+// arrays, asi los hilos no se pisan ni se esperan y escala con los nucleos.
+// La semilla de cada partida sale de su numero: mismo resultado con 1 hilo o
+// con 16
+
+	// paso de simulacion por defecto: 1 segundo (el juego usa 15ms pero el
+	// reloj es de formula cerrada, asi que el resultado casi no cambia)
+	public static final double PASO = 1.0;
+
+	// partidas por tarea hoja del fork-join
+	private static final int PARTIDAS_POR_TAREA = 8;
+
+	private final Catalogo catalogo;
+	private final Estrategia estrategia;
+	private final PerfilClicks perfil;
+	private final double paso;
+	private final double limite;
+
+	// limite en segundos de juego por partida
+	public Simulador(Catalogo catalogo, Estrategia estrategia, PerfilClicks perfil, double paso, double limite) {
+		this.catalogo = catalogo;
+		this.estrategia = estrategia;
+		this.perfil = perfil;
+		this.paso = paso;
+		this.limite = limite;
+	}
+
+	// juega las partidas en el pool y devuelve el informe
+	public Informe ejecutar(int partidas, long semilla, ForkJoinPool pool) {
+		int n = catalogo.getTam();
+		double[] tiempos = new double[partidas * n];
+		double[] metas = new double[partidas];
+
+		long inicio = System.nanoTime();
+		pool.invoke(new Tramo(0, partidas, semilla, tiempos, metas));
+		long nanos = System.nanoTime() - inicio;
+
+		String[] nombres = new String[n];
+		for (int j = 0; j < n; j++) {
+			nombres[j] = catalogo.getNombre(j);
+		}
+		return new Informe(nombres, partidas, tiempos, metas, nanos);
+	}
+
+	// una partida; la usan las tareas y sirve para probar una sola semilla
+	public Partida jugar(long semilla, int numero) {
+		// SplittableRandom mezcla la semilla, partidas seguidas no se parecen
+		Partida partida = new Partida(catalogo, estrategia, perfil,
+				new SplittableRandom(semilla + numero * 0x9E3779B97F4A7C15L));
+		partida.jugar(paso, limite);
+		return partida;
+	}
+
+	// partidas [desde, hasta): se parte en dos hasta que quedan pocas
+	private final class Tramo extends RecursiveAction {
+		private final int desde;
+		private final int hasta;
+		private final long semilla;
+		private final double[] tiempos;
+		private final double[] metas;
+
+		Tramo(int desde, int hasta, long semilla, double[] tiempos, double[] metas) {
+			this.desde = desde;
+			this.hasta = hasta;
+			this.semilla = semilla;
+			this.tiempos = tiempos;
+			this.metas = metas;
+		}
+
+		@Override
+		protected void compute() {
+			if (hasta - desde <= PARTIDAS_POR_TAREA) {
+				int n = catalogo.getTam();
+				for (int p = desde; p < hasta; p++) {
+					Partida partida = jugar(semilla, p);
+					for (int j = 0; j < n; j++) {
+						tiempos[p * n + j] = partida.getDesbloqueo(j);
+					}
+					metas[p] = partida.getMeta();
+				}
+				return;
+			}
+			int medio = (desde + hasta) >>> 1;
+			invokeAll(new Tramo(desde, medio, semilla, tiempos, metas),
+					new Tramo(medio, hasta, semilla, tiempos, metas));
+		}
+	}
+
+	// java -cp protopizza-core.jar simulador.Simulador [--partidas 2000]
+	// [--estrategia retorno|barata|aleatoria] [--cps 5] [--desviacion 0]
+	// [--horas 12] [--hilos nucleos] [--semilla 1] [--catalogo recurso]
+	// (con -Dprotopizza.exacto=true el resultado es el mismo en cualquier maquina)
+	public static void main(String[] args) {
+		int partidas = 2000;
+		String nombreEstrategia = "retorno";
+		double cps = 5;
+		double desviacion = 0;
+		double horas = 12;
+		int hilos = Runtime.getRuntime().availableProcessors();
+		long semilla = 1;
+		String recurso = Catalogo.RECURSO;
+		try {
+			for (int i = 0; i + 1 < args.length; i += 2) {
+				String valor = args[i + 1];
+				switch (args[i]) {
+				case "--partidas":
+					partidas = Integer.parseInt(valor);
+					break;
+				case "--estrategia":
+					nombreEstrategia = valor;
+					break;
+				case "--cps":
+					cps = Double.parseDouble(valor);
+					break;
+				case "--desviacion":
+					desviacion = Double.parseDouble(valor);
+					break;
+				case "--horas":
+					horas = Double.parseDouble(valor);
+					break;
+				case "--hilos":
+					hilos = Integer.parseInt(valor);
+					break;
+				case "--semilla":
+					semilla = Long.parseLong(valor);
+					break;
+				case "--catalogo":
+					recurso = valor;
+					break;
+				default:
+					System.err.println("Opcion desconocida " + args[i]);
+					return;
+				}
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Numero mal escrito: " + e.getMessage());
+			return;
+		}
+
+		Estrategia estrategia = Estrategia.porNombre(nombreEstrategia);
+		if (estrategia == null) {
+			System.err.println("Estrategia desconocida " + nombreEstrategia + " (retorno, barata o aleatoria)");
+			return;
+		}
+		Catalogo catalogo = Catalogo.cargar(recurso);
+		if (catalogo == null) {
+			return;
+		}
+		PerfilClicks perfil = desviacion > 0 ? PerfilClicks.normal(cps, desviacion) : PerfilClicks.constante(cps);
+
+		System.out.printf("%d partidas, estrategia %s, %.1f cps (+-%.1f), limite %.1f h, %d hilos%s%n", partidas,
+				nombreEstrategia, cps, desviacion, horas, hilos, ModoExacto.ACTIVO ? ", modo exacto" : "");
+		ForkJoinPool pool = new ForkJoinPool(hilos);
+		try {
+			new Simulador(catalogo, estrategia, perfil, PASO, horas * 3600).ejecutar(partidas, semilla, pool)
+					.imprimir(System.out);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
@@ -1,24 +1,45 @@
 package visuales;
 
 import java.awt.Color;
+import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Insets;
 import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JButton;
 import javax.swing.SwingConstants;
 
 /**
  * Botón con estilo redondeado (custom painting). Reutilizable para mejoras y
- * acciones secundarias.
+ * acciones secundarias. El fondo sale de CacheFondos y la medida del texto se
+ * guarda hasta que cambian el texto o la fuente.
  */
 public class BotonRedondeado extends JButton {
 	// clase para generar boton con bordes redondeados
+	// repintar es copiar el fondo ya pintado y dibujar el texto
 
 	private final int radio;
 
+	// ultimo fondo usado y con que se pidio, para no ir a la cache compartida
+	// (ni crear su clave) si no ha cambiado nada
+	private BufferedImage fondo;
+	private int fondoAncho;
+	private int fondoAlto;
+	private int fondoArgb;
+	private double fondoEscalaX;
+	private double fondoEscalaY;
+
+	// medida del ultimo texto pintado
+	private String textoMedido;
+	private Font fuenteMedida;
+	private int anchuraTexto;
+	private int altoTexto;
+	private int ascenso;
+
 	public BotonRedondeado(String texto, int radio) {
 		super(texto);
 		this.radio = radio;
@@ -38,37 +59,68 @@ public class BotonRedondeado extends JButton {
 	protected void paintComponent(Graphics graf) {
 		Graphics2D grafismo = (Graphics2D) graf.create();
 		grafismo.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-		// fondo
-		grafismo.setColor(getBackground());
-		grafismo.fillRoundRect(0, 0, getWidth(), getHeight(), radio, radio);
-
-		// borde suave
-		grafismo.setColor(new Color(0, 0, 0, 50));
-		grafismo.drawRoundRect(0, 0, getWidth() - 1, getHeight() - 1, radio, radio);
+		int ancho = getWidth();
+		int alto = getHeight();
+
+		// fondo y borde suave; con escala de pantalla (HiDPI) la imagen ya viene
+		// con mas pixeles y se copia 1:1
+		AffineTransform transformada = grafismo.getTransform();
+		BufferedImage img = fondo(ancho, alto, getBackground(), transformada.getScaleX(), transformada.getScaleY());
+		if (img != null) {
+			grafismo.drawImage(img, 0, 0, ancho, alto, null);
+		}
 
 		// texto
 		String texto = getText();
 		if (texto != null && !texto.isEmpty()) {
-			grafismo.setFont(getFont());
-			FontMetrics fm = grafismo.getFontMetrics();// ?????
+			Font fuente = getFont();
+			medir(texto, fuente);
 
 			// padding para el texto
 			Insets insercion = getInsets();
-			int anchoDsisponible = getWidth() - insercion.left - insercion.right;
-			int altoDisponible = getHeight() - insercion.top - insercion.bottom;
-
-			int anchuraTexto = fm.stringWidth(texto);
+			int anchoDsisponible = ancho - insercion.left - insercion.right;
+			int altoDisponible = alto - insercion.top - insercion.bottom;
 
 			// para centrar el texto mejor en el boton
 			int x = insercion.left + (anchoDsisponible - anchuraTexto) / 2;
-			int y = insercion.top + (altoDisponible - fm.getHeight()) / 2 + fm.getAscent();
+			int y = insercion.top + (altoDisponible - altoTexto) / 2 + ascenso;
 			y += 3;
 
+			grafismo.setFont(fuente);
 			grafismo.setColor(getForeground());
 			grafismo.drawString(texto, x, y);
 		}
 
 		grafismo.dispose();
 	}
+
+	private BufferedImage fondo(int ancho, int alto, Color color, double escalaX, double escalaY) {
+		if (color == null) {
+			return null;
+		}
+		int argb = color.getRGB();
+		if (fondo == null || ancho != fondoAncho || alto != fondoAlto || argb != fondoArgb || escalaX != fondoEscalaX
+				|| escalaY != fondoEscalaY) {
+			fondo = CacheFondos.obtener(ancho, alto, radio, color, escalaX, escalaY);
+			fondoAncho = ancho;
+			fondoAlto = alto;
+			fondoArgb = argb;
+			fondoEscalaX = escalaX;
+			fondoEscalaY = escalaY;
+		}
+		return fondo;
+	}
+
+	// stringWidth recorre el texto glifo a glifo; solo se repite si cambia algo
+	private void medir(String texto, Font fuente) {
+		if (texto.equals(textoMedido) && fuente.equals(fuenteMedida)) {
+			return;
+		}
+		FontMetrics fm = getFontMetrics(fuente);
+		anchuraTexto = fm.stringWidth(texto);
+		altoTexto = fm.getHeight();
+		ascenso = fm.getAscent();
+		textoMedido = texto;
+		fuenteMedida = fuente;
+	}
 }
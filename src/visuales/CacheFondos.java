@@ -0,0 +1,135 @@
+package visuales;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache compartida de fondos redondeados ya pintados (relleno antialias + borde
+ * suave), por (ancho, alto, radio, color, escala de pantalla). Pintar un boton
+ * pasa a ser copiar una imagen.
+ */
+public final class CacheFondos {
+// antes cada repintado de un boton hacia fillRoundRect + drawRoundRect con
+// antialias y un new Color para el borde; las filas de mejoras repintan sin
+// parar mientras cambian entre verde, gris, rojo y el flash
+
+	// con 4 colores por fila y pocos tamaños distintos sobra (LRU)
+	private static final int MAX_FONDOS = 64;
+
+	// borde suave de todos los botones
+	private static final Color BORDE = new Color(0, 0, 0, 50);
+
+	private static final Map<Clave, BufferedImage> fondos = new LinkedHashMap<Clave, BufferedImage>(32, 0.75f,
+			true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Clave, BufferedImage> mayor) {
+			return size() > MAX_FONDOS;
+		}
+	};
+
+	// contadores para saber si la cache esta sirviendo
+	private static long aciertos = 0;
+	private static long fallos = 0;
+
+	private CacheFondos() {
+	}
+
+	// fondo de ancho x alto en unidades de Swing; con escala de pantalla 2 la
+	// imagen tiene el doble de pixeles para que se vea igual de fina. Se pinta
+	// con drawImage(fondo, 0, 0, ancho, alto, null)
+	public static synchronized BufferedImage obtener(int ancho, int alto, int radio, Color color, double escalaX,
+			double escalaY) {
+		if (ancho <= 0 || alto <= 0 || color == null) {
+			return null;
+		}
+		Clave clave = new Clave(ancho, alto, radio, color.getRGB(), escalaX, escalaY);
+
+		BufferedImage fondo = fondos.get(clave);
+		if (fondo != null) {
+			aciertos++;
+			return fondo;
+		}
+		fallos++;
+
+		fondo = pintar(ancho, alto, radio, color, escalaX, escalaY);
+		fondos.put(clave, fondo);
+		return fondo;
+	}
+
+	private static BufferedImage pintar(int ancho, int alto, int radio, Color color, double escalaX,
+			double escalaY) {
+		int w = Math.max(1, (int) Math.round(ancho * escalaX));
+		int h = Math.max(1, (int) Math.round(alto * escalaY));
+		BufferedImage fondo = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g2 = fondo.createGraphics();
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		// se pinta en unidades de Swing, igual que lo hacia el boton
+		g2.scale((double) w / ancho, (double) h / alto);
+
+		g2.setColor(color);
+		g2.fillRoundRect(0, 0, ancho, alto, radio, radio);
+
+		g2.setColor(BORDE);
+		g2.drawRoundRect(0, 0, ancho - 1, alto - 1, radio, radio);
+
+		g2.dispose();
+		return fondo;
+	}
+
+	// el color va como ARGB porque los Color de setBackground pueden ser
+	// instancias distintas con el mismo valor
+	private static final class Clave {
+		private final int ancho;
+		private final int alto;
+		private final int radio;
+		private final int argb;
+		private final double escalaX;
+		private final double escalaY;
+
+		Clave(int ancho, int alto, int radio, int argb, double escalaX, double escalaY) {
+			this.ancho = ancho;
+			this.alto = alto;
+			this.radio = radio;
+			this.argb = argb;
+			this.escalaX = escalaX;
+			this.escalaY = escalaY;
+		}
+
+		@Override
+		public boolean equals(Object otro) {
+			if (!(otro instanceof Clave)) {
+				return false;
+			}
+			Clave c = (Clave) otro;
+			return ancho == c.ancho && alto == c.alto && radio == c.radio && argb == c.argb && escalaX == c.escalaX
+					&& escalaY == c.escalaY;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = ancho;
+			h = 31 * h + alto;
+			h = 31 * h + radio;
+			h = 31 * h + argb;
+			h = 31 * h + Double.hashCode(escalaX);
+			h = 31 * h + Double.hashCode(escalaY);
+			return h;
+		}
+	}
+
+	//
+	//
+	// getters
+	public static synchronized long getAciertos() {
+		return aciertos;
+	}
+
+	public static synchronized long getFallos() {
+		return fallos;
+	}
+
+}
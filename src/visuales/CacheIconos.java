@@ -0,0 +1,153 @@
+package visuales;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+import metricas.EventoIcono;
+
+/**
+ * Cache compartida de iconos ya escalados, por (ruta, ancho, alto). Cada imagen
+ * se decodifica y escala una sola vez; los refrescos siguientes no tocan
+ * ImageIO.
+ */
+public final class CacheIconos {
+// antes cada cambio de estado de una fila hacia ImageIO.read + getScaledInstance
+// en el hilo de la interfaz, y PizzaEfectos volvia a decodificar la porcion
+
+	// tope de iconos escalados y de imagenes originales que se guardan (LRU)
+	private static final int MAX_ICONOS = 128;
+	private static final int MAX_ORIGINALES = 32;
+
+	// marca para recursos que no existen, asi no se reintenta ni se repite el aviso
+	private static final ImageIcon FALTA = new ImageIcon();
+
+	private static final Map<String, ImageIcon> iconos = new LinkedHashMap<String, ImageIcon>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ImageIcon> mayor) {
+			return size() > MAX_ICONOS;
+		}
+	};
+
+	private static final Map<String, BufferedImage> originales = new LinkedHashMap<String, BufferedImage>(16,
+			0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> mayor) {
+			return size() > MAX_ORIGINALES;
+		}
+	};
+
+	// contadores para saber si la cache esta sirviendo
+	private static long aciertos = 0;
+	private static long fallos = 0;
+
+	private CacheIconos() {
+	}
+
+	// icono escalado del recurso o null si no se puede cargar (no revienta)
+	public static synchronized ImageIcon obtener(String ruta, int ancho, int alto) {
+		if (ruta == null || ruta.isBlank() || ancho <= 0 || alto <= 0) {
+			return null;
+		}
+		EventoIcono evento = new EventoIcono();
+		evento.begin();
+		String clave = ruta + "@" + ancho + "x" + alto;
+
+		ImageIcon icono = iconos.get(clave);
+		boolean acierto = icono != null;
+		if (acierto) {
+			aciertos++;
+		} else {
+			fallos++;
+			BufferedImage original = original(ruta);
+			icono = original == null ? FALTA : new ImageIcon(escalar(original, ancho, alto));
+			iconos.put(clave, icono);
+		}
+
+		evento.end();
+		if (evento.shouldCommit()) {
+			evento.ruta = ruta;
+			evento.ancho = ancho;
+			evento.alto = alto;
+			evento.acierto = acierto;
+			evento.commit();
+		}
+		return icono == FALTA ? null : icono;
+	}
+
+	private static BufferedImage original(String ruta) {
+		String path = ruta.startsWith("/") ? ruta : ("/" + ruta);
+		BufferedImage img = originales.get(path);
+		if (img != null) {
+			return img;
+		}
+		try {
+			URL url = CacheIconos.class.getResource(path);
+			if (url == null) {
+				System.err.println("Recurso no encontrado: " + path);
+				return null;
+			}
+			img = ImageIO.read(url);
+			if (img == null) {
+				System.err.println("No se pudo leer imagen: " + path);
+				return null;
+			}
+			originales.put(path, img);
+			return img;
+		} catch (IOException e) {
+			System.err.println("Error cargando archivo: " + path);
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	// escalado por mitades con bilineal (calidad parecida a SCALE_SMOOTH) a una
+	// imagen ARGB normal, que se pinta rapido
+	private static BufferedImage escalar(BufferedImage original, int ancho, int alto) {
+		BufferedImage actual = original;
+		int w = original.getWidth();
+		int h = original.getHeight();
+
+		do {
+			if (w > ancho) {
+				w = Math.max(ancho, w / 2);
+			} else {
+				w = ancho;
+			}
+			if (h > alto) {
+				h = Math.max(alto, h / 2);
+			} else {
+				h = alto;
+			}
+
+			BufferedImage paso = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g2 = paso.createGraphics();
+			g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g2.drawImage(actual, 0, 0, w, h, null);
+			g2.dispose();
+			actual = paso;
+		} while (w != ancho || h != alto);
+
+		return actual;
+	}
+
+	//
+	//
+	// getters
+	public static synchronized long getAciertos() {
+		return aciertos;
+	}
+
+	public static synchronized long getFallos() {
+		return fallos;
+	}
+
+}
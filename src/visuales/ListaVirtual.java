@@ -0,0 +1,222 @@
+package visuales;
+
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+
+/**
+ * Lista vertical de filas de alto fijo que solo tiene componentes para las
+ * filas visibles (mas unas pocas de margen). Al hacer scroll las filas que
+ * salen se reutilizan para las que entran; el alto total se calcula, asi que
+ * 18 o 5.000 filas cuestan lo mismo de montar y de desplazar.
+ */
+public class ListaVirtual extends JPanel implements Scrollable {
+// antes habia un boton por mejora dentro de un BoxLayout: memoria, arranque y
+// cada layout crecian con el catalogo. Aqui el panel no tiene layout, coloca a
+// mano las filas enlazadas y pide al dueño que rellene las que reutiliza
+
+	// quien crea y rellena las filas
+	public interface Filas {
+		// fila nueva para el pool (solo se llama cuando no hay libres)
+		JComponent crearFila();
+
+		// la fila pasa a mostrar el elemento indice
+		void enlazar(JComponent fila, int indice);
+	}
+
+	// sin viewport con tamaño (sin pantalla o antes del primer layout) se
+	// enlazan estas filas
+	private static final int FILAS_SIN_TAMANO = 10;
+
+	private final Filas filas;
+	private final int altoFila;
+	private final int paso;
+	private final int margenFilas;
+
+	private int total = 0;
+
+	// fila enlazada a cada indice (null = no tiene) y filas sin usar
+	private JComponent[] enlazadas = new JComponent[0];
+	private final List<JComponent> libres = new ArrayList<>();
+
+	// rango enlazado [desde, hasta)
+	private int desde = 0;
+	private int hasta = 0;
+
+	// altoFila + hueco es la distancia entre filas; margenFilas es cuantas se
+	// enlazan de mas por arriba y por abajo para que el scroll no vea huecos
+	public ListaVirtual(Filas filas, int altoFila, int hueco, int margenFilas) {
+		super(null);
+		this.filas = filas;
+		this.altoFila = altoFila;
+		this.paso = altoFila + hueco;
+		this.margenFilas = margenFilas;
+	}
+
+	// cambia el numero de filas; todas se vuelven a enlazar
+	public void setTotal(int nuevoTotal) {
+		for (int i = desde; i < hasta; i++) {
+			soltar(i);
+		}
+		total = nuevoTotal;
+		enlazadas = new JComponent[nuevoTotal];
+		desde = 0;
+		hasta = 0;
+		revalidate();
+		actualizarVisibles();
+		repaint();
+	}
+
+	// fila que muestra el indice, null si no esta enlazado (fuera de pantalla)
+	public JComponent getFila(int indice) {
+		if (indice < desde || indice >= hasta) {
+			return null;
+		}
+		return enlazadas[indice];
+	}
+
+	// enlaza lo que entra en el viewport y suelta lo que ha salido
+	private void actualizarVisibles() {
+		Rectangle visible = getVisibleRect();
+		int arriba = getInsets().top;
+		int primera;
+		int ultima;
+		if (visible.height <= 0) {
+			primera = 0;
+			ultima = FILAS_SIN_TAMANO;
+		} else {
+			primera = (visible.y - arriba) / paso;
+			ultima = (visible.y + visible.height - arriba) / paso + 1;
+		}
+		int nuevoDesde = Math.max(0, primera - margenFilas);
+		int nuevoHasta = Math.min(total, ultima + margenFilas);
+		if (nuevoDesde == desde && nuevoHasta == hasta) {
+			return;
+		}
+
+		// primero se sueltan las que salen para reutilizarlas
+		for (int i = desde; i < hasta; i++) {
+			if (i < nuevoDesde || i >= nuevoHasta) {
+				soltar(i);
+			}
+		}
+		int anteriorDesde = desde;
+		int anteriorHasta = hasta;
+		desde = nuevoDesde;
+		hasta = nuevoHasta;
+		for (int i = desde; i < hasta; i++) {
+			if (i >= anteriorDesde && i < anteriorHasta) {
+				continue;
+			}
+			JComponent fila = libres.isEmpty() ? nuevaFila() : libres.remove(libres.size() - 1);
+			enlazadas[i] = fila;
+			colocar(fila, i);
+			fila.setVisible(true);
+			filas.enlazar(fila, i);
+		}
+	}
+
+	private JComponent nuevaFila() {
+		JComponent fila = filas.crearFila();
+		add(fila);
+		return fila;
+	}
+
+	private void soltar(int indice) {
+		JComponent fila = enlazadas[indice];
+		if (fila == null) {
+			return;
+		}
+		enlazadas[indice] = null;
+		fila.setVisible(false);
+		libres.add(fila);
+	}
+
+	private void colocar(JComponent fila, int indice) {
+		Insets margen = getInsets();
+		fila.setBounds(margen.left, margen.top + indice * paso, getWidth() - margen.left - margen.right, altoFila);
+		fila.validate();
+	}
+
+	// el viewport mueve este panel al hacer scroll; se engancha al añadirlo
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		if (getParent() instanceof JViewport) {
+			((JViewport) getParent()).addChangeListener(e -> actualizarVisibles());
+		}
+	}
+
+	@Override
+	public void doLayout() {
+		actualizarVisibles();
+		for (int i = desde; i < hasta; i++) {
+			colocar(enlazadas[i], i);
+		}
+	}
+
+	@Override
+	public Dimension getPreferredSize() {
+		Insets margen = getInsets();
+		return new Dimension(margen.left + margen.right, margen.top + margen.bottom + total * paso);
+	}
+
+	//
+	//
+	// Scrollable: ocupa el ancho del viewport; la rueda avanza un tercio de fila y
+	// la pagina una pantalla menos una fila
+	@Override
+	public Dimension getPreferredScrollableViewportSize() {
+		return new Dimension(getPreferredSize().width, FILAS_SIN_TAMANO * paso);
+	}
+
+	@Override
+	public int getScrollableUnitIncrement(Rectangle visible, int orientacion, int direccion) {
+		return orientacion == SwingConstants.VERTICAL ? paso / 3 : 10;
+	}
+
+	@Override
+	public int getScrollableBlockIncrement(Rectangle visible, int orientacion, int direccion) {
+		return orientacion == SwingConstants.VERTICAL ? Math.max(paso, visible.height - paso) : visible.width;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportWidth() {
+		return true;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportHeight() {
+		return false;
+	}
+
+	//
+	//
+	// getters
+	public int getTotal() {
+		return total;
+	}
+
+	// rango de indices con fila enlazada [desde, hasta)
+	public int getDesde() {
+		return desde;
+	}
+
+	public int getHasta() {
+		return hasta;
+	}
+
+	// filas creadas (enlazadas y libres); no crece con el total
+	public int getTamPool() {
+		return getComponentCount();
+	}
+
+}
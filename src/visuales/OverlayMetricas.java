@@ -0,0 +1,139 @@
+package visuales;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import javax.swing.JComponent;
+
+import metricas.Histograma;
+import metricas.Metricas;
+
+/**
+ * Recuadro semitransparente con las metricas del juego (p50/p99 del ultimo
+ * medio segundo de cada histograma y el valor de cada medidor) pintado encima
+ * de un panel. Se abre y se cierra con alternar().
+ */
+public class OverlayMetricas {
+// no es un componente para no tocar el layout del panel: el panel lo pinta al
+// final de su paint(). Los textos se rehacen cada medio segundo y solo con el
+// overlay abierto; pintar es dibujar las lineas ya hechas
+
+	private static final int PERIODO_MS = 500;
+	private static final int MARGEN = 8;
+	private static final int RELLENO = 6;
+
+	private static final Font FUENTE = new Font("Consolas", Font.PLAIN, 11);
+	private static final Color FONDO = new Color(0, 0, 0, 170);
+	private static final Color TEXTO = new Color(235, 235, 235);
+
+	private final JComponent destino;
+	private final PlanificadorFrames.Tarea tarea;
+	private boolean visible = false;
+
+	// copia anterior de cada histograma (el intervalo es la resta)
+	private final Map<String, long[]> anteriores = new HashMap<>();
+
+	private List<String> lineas = new ArrayList<>();
+	private final Rectangle area = new Rectangle();
+
+	public OverlayMetricas(JComponent destino, PlanificadorFrames planificador) {
+		this.destino = destino;
+		this.tarea = planificador.programar("metricas", PERIODO_MS, PlanificadorFrames.Prioridad.BAJA, true,
+				this::actualizar);
+		this.tarea.setActiva(false);
+	}
+
+	// abre o cierra el overlay
+	public void alternar() {
+		visible = !visible;
+		if (visible) {
+			anteriores.clear();
+			actualizar();
+			tarea.setActiva(true);
+		} else {
+			tarea.setActiva(false);
+			destino.repaint(area);
+		}
+	}
+
+	private void actualizar() {
+		List<String> nuevas = new ArrayList<>();
+		nuevas.add("metricas (ultimos " + PERIODO_MS + " ms)      p50       p99      n");
+		for (Map.Entry<String, Histograma> e : Metricas.getHistogramas().entrySet()) {
+			Histograma h = e.getValue();
+			long[] copia = h.copiar();
+			long[] anterior = anteriores.put(e.getKey(), copia);
+			long total = Histograma.total(copia, anterior);
+			nuevas.add(String.format("%-24s %9s %9s %6d", e.getKey(),
+					valor(Histograma.percentil(copia, anterior, 50), h.getUnidad()),
+					valor(Histograma.percentil(copia, anterior, 99), h.getUnidad()), total));
+		}
+		for (Map.Entry<String, LongSupplier> e : Metricas.getMedidores().entrySet()) {
+			nuevas.add(String.format("%-24s %9d", e.getKey(), e.getValue().getAsLong()));
+		}
+		lineas = nuevas;
+
+		// el recuadro viejo y el nuevo (puede haber cambiado de tamaño)
+		destino.repaint(area);
+		FontMetrics fm = destino.getFontMetrics(FUENTE);
+		int ancho = 0;
+		for (String linea : lineas) {
+			ancho = Math.max(ancho, fm.stringWidth(linea));
+		}
+		area.setBounds(MARGEN, MARGEN, ancho + 2 * RELLENO, lineas.size() * fm.getHeight() + 2 * RELLENO);
+		destino.repaint(area);
+	}
+
+	// nanosegundos a us/ms y bytes a KB/MB, "-" sin muestras
+	private static String valor(long v, String unidad) {
+		if (v < 0) {
+			return "-";
+		}
+		if (Metricas.BYTES.equals(unidad)) {
+			if (v < 10_240) {
+				return v + " B";
+			}
+			return v < 10_485_760 ? (v >> 10) + " KB" : (v >> 20) + " MB";
+		}
+		if (v < 1_000_000) {
+			return String.format("%.1f us", v / 1e3);
+		}
+		return String.format("%.2f ms", v / 1e6);
+	}
+
+	// lo llama el paint() del panel destino despues de pintarse
+	public void pintar(Graphics g) {
+		if (!visible) {
+			return;
+		}
+		Graphics2D g2 = (Graphics2D) g.create();
+		g2.setColor(FONDO);
+		g2.fillRoundRect(area.x, area.y, area.width, area.height, 10, 10);
+		g2.setFont(FUENTE);
+		g2.setColor(TEXTO);
+		FontMetrics fm = g2.getFontMetrics();
+		int y = area.y + RELLENO + fm.getAscent();
+		for (String linea : lineas) {
+			g2.drawString(linea, area.x + RELLENO, y);
+			y += fm.getHeight();
+		}
+		g2.dispose();
+	}
+
+	//
+	//
+	// getters
+	public boolean isVisible() {
+		return visible;
+	}
+
+}
@@ -2,33 +2,33 @@ package visuales;
 
 /**
  * Proyecto ProtoPizza.
- * Archivo: PizzaFXPane.java
+ * Archivo: PizzaEfectos.java
  */
 import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Image;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 
-import java.io.IOException;
-
-import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JLayeredPane;
-import javax.swing.SwingConstants;
-import javax.swing.Timer;
 
+import app.Acumulador;
+import app.NumeroGrande;
+import integracion.FormatoNumeros;
 import integracion.Interfaz;
+import metricas.EventoParticula;
+import metricas.Histograma;
+import metricas.Metricas;
 
 /**
  * Panel de efectos alrededor de la pizza (halos, textos flotantes, feedback de
@@ -58,66 +58,92 @@ public class PizzaEfectos extends JLayeredPane {
 	// cache (evita new BasicStroke / new Color cada frame)
 	private transient BasicStroke haloOuterStrokeObj = new BasicStroke(haloOuterStroke);
 	private transient BasicStroke haloInnerStrokeObj = new BasicStroke(haloInnerStroke);
-	private static final Color[] GOLD_ALPHA = buildGoldAlpha();
+	// --- PARTICULAS (textos flotantes de click) ---
+	// antes cada click era un JLabel nuevo en el layered pane movido con
+	// setLocation cada 16ms; ahora es un hueco en un pool fijo de arrays
+	// paralelos y se pinta a mano en paintChildren con un sprite cacheado
+
+	// tope de particulas vivas; por encima los clicks se juntan en una "+N"
+	private static final int MAX_PARTICULAS_POR_DEFECTO = 48;
+	private int maxParticulas = MAX_PARTICULAS_POR_DEFECTO;
+
+	// vida de cada particula
+	private static final long DURACION_NS = 1_000_000_000L;
+
+	// opacidad minima al desvanecerse (como el antiguo label)
+	private static final int ALFA_MINIMO = 90;
+
+	// posicion inicial, velocidad (px/s), inicio y sprite de cada particula; las
+	// vivas son [0, numParticulas) y al morir se rellena el hueco con la ultima
+	private float[] partX;
+	private float[] partY;
+	private float[] partVx;
+	private float[] partVy;
+	private long[] partInicio;
+	private BufferedImage[] partSprite;
+	private int numParticulas = 0;
+
+	// particula que acumula los clicks que no caben (-1 si no hay)
+	private int agregada = -1;
+	private final Acumulador valorAgregado = new Acumulador();
+	private final FormatoNumeros formatoAgregado = new FormatoNumeros();
+
+	// sprites de texto + porcion ya pintados, por texto
+	private static final int MAX_SPRITES = 64;
+	private final Map<String, BufferedImage> sprites = new LinkedHashMap<String, BufferedImage>(32, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> mayor) {
+			return size() > MAX_SPRITES;
+		}
+	};
+	private static final Color COLOR_TEXTO = new Color(255, 215, 0);
+	private static final int SEPARACION_ICONO = 6;
+	private Graphics2D medidor;
+
+	// composites de opacidad 0..255 (evita crear uno por particula y frame)
+	private static final AlphaComposite[] ALFAS = buildAlfas();
 
-	private static Color[] buildGoldAlpha() {
-		Color[] alpha = new Color[256];
+	private static AlphaComposite[] buildAlfas() {
+		AlphaComposite[] alfas = new AlphaComposite[256];
 		for (int i = 0; i < 256; i++)
-			alpha[i] = new Color(255, 192, 0, i);
-		return alpha;
+			alfas[i] = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, i / 255f);
+		return alfas;
 	}
 
-	// --- FLOATING LABELS ---
-	private static class FloatingFX {
-		JLabel label;
-		float x, y;
-		float vx, vy;
-		long startMs;
-		long durationMs;
-		int lastAlpha = -1;
-	}
+	// si en el ultimo frame habia algo que animar (para el repintado final)
+	private boolean animando = false;
 
-	private final List<FloatingFX> floats = new ArrayList<>();
-	private final Timer animTimer;
+	// duracion de cada step (overlay de metricas y JMX)
+	private static final Histograma METRICA_PASO = Metricas.histograma(Metricas.EFECTOS, Metricas.NANOS);
 
-	public PizzaEfectos(JLabel pizzaLabel) {
+	// el paso va en el planificador de la interfaz, que baja el ritmo cuando no
+	// queda nada que animar
+	public PizzaEfectos(JLabel pizzaLabel, PlanificadorFrames planificador) {
 		setOpaque(false);
 		setLayout(null);
 		this.pizzaLabel = pizzaLabel;
 		add(pizzaLabel, JLayeredPane.DEFAULT_LAYER);
+		reservarParticulas(maxParticulas);
 
 		setSliceIcon("/img/pizza_slice.png", 22);
-		animTimer = new Timer(16, e -> step());
-		animTimer.start();
+		planificador.programar("efectos", PlanificadorFrames.PERIODO_MS, PlanificadorFrames.Prioridad.NORMAL, true,
+				this::step);
+		planificador.animacion(() -> numParticulas > 0 || haloAlpha > 0f || haloTarget > 0.02f || animando);
+		Metricas.medidor(Metricas.PARTICULAS, () -> numParticulas);
 	}
 
 	public void setSliceIcon(String resourcePath, int sizePx) {
 		this.sliceIconSize = Math.max(12, sizePx);
 		this.sliceIcon = loadIcon(resourcePath, this.sliceIconSize);
+		sprites.clear();
 		if (this.sliceIcon == null) {
-			System.err.println("❌ No se pudo cargar " + resourcePath + " (floats usarán emoji 🍕)");
+			System.err.println("❌ No se pudo cargar " + resourcePath + " (floats solo con texto)");
 		}
 	}
 
 	private ImageIcon loadIcon(String resourcePath, int sizePx) {
-		if (resourcePath == null || resourcePath.isBlank())
-			return null;
-
-		String path = resourcePath.startsWith("/") ? resourcePath : ("/" + resourcePath);
-
-		try {
-			var url = getClass().getResource(path);
-			if (url == null) {
-				System.err.println("❌ Recurso no encontrado: " + path);
-				return null;
-			}
-			BufferedImage img = ImageIO.read(url);
-			Image scaled = img.getScaledInstance(sizePx, sizePx, Image.SCALE_SMOOTH);
-			return new ImageIcon(scaled);
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
-		}
+		// misma cache que Interfaz, la porcion ya no se decodifica dos veces
+		return CacheIconos.obtener(resourcePath, sizePx, sizePx);
 	}
 
 	public void setHaloColors(Color outer, Color inner) {
@@ -150,34 +176,64 @@ public class PizzaEfectos extends JLayeredPane {
 		}
 	}
 
-	public void spawnClickFloat(double pizzasPorClick, String texto) {
+	// tope de particulas a la vez; los clicks que pasen de aqui se suman en una
+	// sola particula "+N" (macros, autoclicks externos...)
+	public void setMaxParticulas(int max) {
+		maxParticulas = Math.max(1, max);
+		reservarParticulas(maxParticulas);
+	}
 
-		FloatingFX fx = new FloatingFX();
+	// una mas para la agregada
+	private void reservarParticulas(int max) {
+		partX = new float[max + 1];
+		partY = new float[max + 1];
+		partVx = new float[max + 1];
+		partVy = new float[max + 1];
+		partInicio = new long[max + 1];
+		partSprite = new BufferedImage[max + 1];
+		numParticulas = 0;
+		agregada = -1;
+		valorAgregado.poner(NumeroGrande.CERO);
+	}
 
-		JLabel lbl = null;
-		if (sliceIcon != null) {
-			lbl = new JLabel(texto, sliceIcon, SwingConstants.CENTER);
-			lbl.setHorizontalTextPosition(SwingConstants.RIGHT);
-			lbl.setVerticalTextPosition(SwingConstants.CENTER);
-			lbl.setIconTextGap(6);
+	public void spawnClickFloat(NumeroGrande pizzasPorClick, String texto) {
+		EventoParticula evento = new EventoParticula();
+		evento.begin();
+		boolean sumada = nuevaParticula(pizzasPorClick, texto);
+		evento.end();
+		if (evento.shouldCommit()) {
+			evento.texto = texto;
+			evento.agregada = sumada;
+			evento.vivas = numParticulas;
+			evento.commit();
 		}
+	}
 
-		lbl.setOpaque(false);
-		lbl.setForeground(new Color(255, 215, 0));
-		lbl.setFont(Interfaz.fuente);
-
-		lbl.setHorizontalAlignment(SwingConstants.LEFT); // mejor para icon+texto
-		lbl.setIconTextGap(6);
-
-		// ancho mínimo para que no recorte
-		int minW = 90;
-		int minH = 26;
-
-		Dimension pref = lbl.getPreferredSize();
-		int w = Math.max(pref.width, minW);
-		int h = Math.max(pref.height, minH);
+	// true si el click se ha sumado a la agregada en vez de sacar una nueva
+	private boolean nuevaParticula(NumeroGrande pizzasPorClick, String texto) {
+		long ahora = System.nanoTime();
+
+		if (numParticulas >= maxParticulas && agregada >= 0) {
+			// ya hay agregada: suma el click y vuelve a empezar su vida desde donde esta
+			valorAgregado.sumar(pizzasPorClick);
+			float t = (ahora - partInicio[agregada]) / 1e9f;
+			partX[agregada] += partVx[agregada] * t;
+			partY[agregada] += partVy[agregada] * t;
+			partInicio[agregada] = ahora;
+			partSprite[agregada] = sprite("+" + formatoAgregado.abreviado(valorAgregado.aNumeroGrande(), true));
+			return true;
+		}
 
-		lbl.setSize(w, h);
+		int i = numParticulas++;
+		BufferedImage sprite;
+		if (numParticulas > maxParticulas) {
+			// no cabe: ocupa el hueco de reserva como agregada
+			agregada = i;
+			valorAgregado.poner(pizzasPorClick);
+			sprite = sprite("+" + formatoAgregado.abreviado(valorAgregado.aNumeroGrande(), true));
+		} else {
+			sprite = sprite(texto);
+		}
 
 		int pizzaW = pizzaLabel.getWidth();
 		int pizzaH = pizzaLabel.getHeight();
@@ -193,30 +249,84 @@ public class PizzaEfectos extends JLayeredPane {
 		int centerX = px + pizzaW / 2;
 		int centerY = py + pizzaH / 2;
 
-		boolean right = ThreadLocalRandom.current().nextBoolean();
-		int sideOffset = ThreadLocalRandom.current().nextInt(30, 60) * (right ? 1 : -1);
-		int upOffset = ThreadLocalRandom.current().nextInt(-10, 20);
-
-		fx.x = centerX + sideOffset - pref.width / 2f;
-		fx.y = centerY + upOffset - pref.height / 2f;
+		ThreadLocalRandom azar = ThreadLocalRandom.current();
+		boolean right = azar.nextBoolean();
+		int sideOffset = azar.nextInt(30, 60) * (right ? 1 : -1);
+		int upOffset = azar.nextInt(-10, 20);
 
-		fx.vy = -1.2f - ThreadLocalRandom.current().nextFloat() * 0.8f;
-		fx.vx = (right ? 0.5f : -0.5f) + (ThreadLocalRandom.current().nextFloat() - 0.5f) * 0.6f;
+		partX[i] = centerX + sideOffset - sprite.getWidth() / 2f;
+		partY[i] = centerY + upOffset - sprite.getHeight() / 2f;
 
-		fx.startMs = System.currentTimeMillis();
-		fx.durationMs = 1000;
-		fx.label = lbl;
+		// mismas velocidades que antes (px por tick de 16ms) pasadas a px/s
+		partVy[i] = (-1.2f - azar.nextFloat() * 0.8f) * 62.5f;
+		partVx[i] = ((right ? 0.5f : -0.5f) + (azar.nextFloat() - 0.5f) * 0.6f) * 62.5f;
 
-		add(lbl, JLayeredPane.PALETTE_LAYER);
-		floats.add(fx);
+		partInicio[i] = ahora;
+		partSprite[i] = sprite;
 
-		lbl.setLocation(Math.round(fx.x), Math.round(fx.y));
-		lbl.repaint();
 		repaint();
+		return i == agregada;
+	}
+
+	// quita la particula i moviendo la ultima a su hueco
+	private void quitarParticula(int i) {
+		int ultima = --numParticulas;
+		if (i == agregada) {
+			agregada = -1;
+			valorAgregado.poner(NumeroGrande.CERO);
+		}
+		if (i != ultima) {
+			partX[i] = partX[ultima];
+			partY[i] = partY[ultima];
+			partVx[i] = partVx[ultima];
+			partVy[i] = partVy[ultima];
+			partInicio[i] = partInicio[ultima];
+			partSprite[i] = partSprite[ultima];
+			if (agregada == ultima) {
+				agregada = i;
+			}
+		}
+		partSprite[ultima] = null;
+	}
+
+	// texto con la porcion delante, pintado una vez y reutilizado
+	private BufferedImage sprite(String texto) {
+		BufferedImage img = sprites.get(texto);
+		if (img != null) {
+			return img;
+		}
+		if (medidor == null) {
+			medidor = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+		}
+		FontMetrics fm = medidor.getFontMetrics(Interfaz.fuente);
+
+		int iconoW = sliceIcon != null ? sliceIcon.getIconWidth() + SEPARACION_ICONO : 0;
+		int iconoH = sliceIcon != null ? sliceIcon.getIconHeight() : 0;
+		int w = Math.max(1, iconoW + fm.stringWidth(texto));
+		int h = Math.max(1, Math.max(iconoH, fm.getHeight()));
+
+		img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = img.createGraphics();
+		g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		if (sliceIcon != null) {
+			sliceIcon.paintIcon(this, g2, 0, (h - iconoH) / 2);
+		}
+		g2.setFont(Interfaz.fuente);
+		g2.setColor(COLOR_TEXTO);
+		g2.drawString(texto, iconoW, (h - fm.getHeight()) / 2 + fm.getAscent());
+		g2.dispose();
+
+		sprites.put(texto, img);
+		return img;
 	}
 
 	private void step() {
-		long now = System.currentTimeMillis();
+		long now = System.nanoTime();
+		pasoAnimacion(now);
+		METRICA_PASO.registrar(System.nanoTime() - now);
+	}
+
+	private void pasoAnimacion(long now) {
 
 		// halo más rápido y más "snap"
 		haloAlpha += (haloTarget - haloAlpha) * 0.35f; // antes 0.18
@@ -224,32 +334,41 @@ public class PizzaEfectos extends JLayeredPane {
 		if (haloAlpha < 0.02f)
 			haloAlpha = 0f;
 
-		// move floats
-		Iterator<FloatingFX> it = floats.iterator();
-		while (it.hasNext()) {
-			FloatingFX fx = it.next();
-			float t = (now - fx.startMs) / (float) fx.durationMs;
-			if (t >= 1f) {
-				remove(fx.label);
-				it.remove();
-				continue;
+		// las particulas no se mueven aqui (su posicion sale del tiempo al pintar),
+		// solo se retiran las que han acabado
+		for (int i = numParticulas - 1; i >= 0; i--) {
+			if (now - partInicio[i] >= DURACION_NS) {
+				quitarParticula(i);
 			}
+		}
 
-			fx.x += fx.vx;
-			fx.y += fx.vy;
+		// sin nada que animar no se repinta (un ultimo frame para borrar)
+		boolean activo = numParticulas > 0 || haloAlpha > 0f;
+		if (activo || animando)
+			repaint();
+		animando = activo;
+	}
 
-			// fade out
-			float alpha = 1f - t;
-			int a = Math.max(90, Math.min(255, Math.round(alpha * 255)));
-			if (a != fx.lastAlpha) {
-				fx.lastAlpha = a;
-				fx.label.setForeground(GOLD_ALPHA[a]);
-			}
+	// particulas encima de la pizza (el halo va debajo, en paintComponent)
+	@Override
+	protected void paintChildren(Graphics g) {
+		super.paintChildren(g);
+		if (numParticulas == 0)
+			return;
 
-			fx.label.setLocation(Math.round(fx.x), Math.round(fx.y));
-		}
+		Graphics2D g2 = (Graphics2D) g.create();
+		long now = System.nanoTime();
+		for (int i = 0; i < numParticulas; i++) {
+			float t = (now - partInicio[i]) / 1e9f;
+			float vida = Math.min(1f, (now - partInicio[i]) / (float) DURACION_NS);
 
-		repaint();
+			// fade out
+			int a = Math.max(ALFA_MINIMO, Math.min(255, Math.round((1f - vida) * 255)));
+			g2.setComposite(ALFAS[a]);
+			g2.drawImage(partSprite[i], Math.round(partX[i] + partVx[i] * t), Math.round(partY[i] + partVy[i] * t),
+					null);
+		}
+		g2.dispose();
 	}
 
 	@Override
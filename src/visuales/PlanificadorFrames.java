@@ -0,0 +1,237 @@
+package visuales;
+
+import java.awt.Frame;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import javax.swing.Timer;
+
+/**
+ * Un solo timer de Swing para todo lo periodico de la interfaz (refresco,
+ * efectos, CPS, tiempo de partida, overlay...). Cada tarea lleva su periodo y
+ * su prioridad; las que pintan no se ejecutan con la ventana minimizada u
+ * oculta, y sin ninguna animacion en marcha el timer baja al ritmo de reposo.
+ * La simulacion va en su hilo y no depende de esto.
+ */
+public class PlanificadorFrames {
+// antes cada cosa tenia su Timer (15, 16, 50, 1000ms y uno de 90ms por click) y
+// el hilo de Swing se despertaba a todas horas aunque no cambiase nada. Ahora
+// hay un tick: con animaciones (particulas, halo, pulsado de la pizza) va al
+// periodo de frame; sin ellas al de reposo; minimizado al de oculto, y entonces
+// solo corren las tareas que no pintan (tiempo de partida, caida del CPS...).
+// Una tarea atrasada se ejecuta una vez, no una por periodo perdido: lo que
+// dependa del tiempo tiene que medirlo (nanoTime), no contar ejecuciones.
+// Dentro de un tick van por prioridad, y si las ALTA se comen el presupuesto las
+// demas esperan al siguiente (nunca mas de un periodo suyo de retraso)
+
+	public enum Prioridad {
+		ALTA, NORMAL, BAJA
+	}
+
+	// ritmos por defecto: 15ms con animacion (~66 fps), 100ms en reposo
+	public static final int PERIODO_MS = 15;
+	public static final int REPOSO_MS = 100;
+	public static final int OCULTO_MS = 1000;
+
+	public static final class Tarea {
+		private final String nombre;
+		private final long periodo;
+		private final Prioridad prioridad;
+		private final boolean pinta;
+		private final Runnable accion;
+		private boolean activa = true;
+		// nanoTime en que le toca
+		private long siguiente;
+
+		private Tarea(String nombre, long periodo, Prioridad prioridad, boolean pinta, Runnable accion) {
+			this.nombre = nombre;
+			this.periodo = periodo;
+			this.prioridad = prioridad;
+			this.pinta = pinta;
+			this.accion = accion;
+			this.siguiente = System.nanoTime() + periodo;
+		}
+
+		// parar y seguir (el periodo vuelve a contar desde ahora)
+		public void setActiva(boolean activa) {
+			if (activa && !this.activa) {
+				siguiente = System.nanoTime() + periodo;
+			}
+			this.activa = activa;
+		}
+
+		public boolean isActiva() {
+			return activa;
+		}
+
+		public String getNombre() {
+			return nombre;
+		}
+	}
+
+	private final long periodo;
+	private final long reposo;
+	private final long oculto;
+	// margen para que una tarea de 16ms no se vaya al tick siguiente de uno de 15
+	private final long tolerancia;
+	// lo que pueden tardar las ALTA antes de aplazar las demas
+	private final long presupuesto;
+
+	private final Timer timer;
+	// ordenadas por prioridad (estable: mismo orden de alta dentro de cada una)
+	private final List<Tarea> tareas = new ArrayList<>();
+	private final List<BooleanSupplier> animaciones = new ArrayList<>();
+	private Frame ventana;
+
+	// delay actual del timer (ms)
+	private int ritmo;
+	private long ticks = 0;
+
+	public PlanificadorFrames() {
+		this(PERIODO_MS, REPOSO_MS, OCULTO_MS);
+	}
+
+	public PlanificadorFrames(int periodoMs, int reposoMs, int ocultoMs) {
+		this.periodo = periodoMs * 1_000_000L;
+		this.reposo = Math.max(periodoMs, reposoMs) * 1_000_000L;
+		this.oculto = Math.max(reposoMs, ocultoMs) * 1_000_000L;
+		this.tolerancia = periodo / 2;
+		this.presupuesto = periodo / 2;
+		this.ritmo = periodoMs;
+		this.timer = new Timer(periodoMs, e -> tick());
+		this.timer.setCoalesce(true);
+	}
+
+	// tarea cada periodoMs; pinta = solo con la ventana a la vista
+	public Tarea programar(String nombre, int periodoMs, Prioridad prioridad, boolean pinta, Runnable accion) {
+		Tarea tarea = new Tarea(nombre, periodoMs * 1_000_000L, prioridad, pinta, accion);
+		int i = tareas.size();
+		while (i > 0 && tareas.get(i - 1).prioridad.compareTo(prioridad) > 0) {
+			i--;
+		}
+		tareas.add(i, tarea);
+		return tarea;
+	}
+
+	public void quitar(Tarea tarea) {
+		tareas.remove(tarea);
+	}
+
+	// algo que se mueve mientras devuelva true (el timer va al periodo de frame)
+	public void animacion(BooleanSupplier activa) {
+		animaciones.add(activa);
+	}
+
+	// ventana de la que depende pintar; al volver a verse se despierta al momento
+	public void vigilar(Frame ventana) {
+		this.ventana = ventana;
+		ventana.addWindowStateListener(e -> despertar());
+		ventana.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentShown(ComponentEvent e) {
+				despertar();
+			}
+		});
+	}
+
+	public void iniciar() {
+		timer.start();
+	}
+
+	public void detener() {
+		timer.stop();
+	}
+
+	// vuelve al periodo de frame ya (un click en reposo no espera 100ms a verse)
+	public void despertar() {
+		if (timer.isRunning() && ritmo != periodoMs()) {
+			ritmo = periodoMs();
+			timer.setInitialDelay(0);
+			timer.setDelay(ritmo);
+			timer.restart();
+		}
+	}
+
+	private void tick() {
+		ticks++;
+		long inicio = System.nanoTime();
+		boolean aLaVista = aLaVista();
+		for (Tarea t : tareas) {
+			if (!t.activa || (t.pinta && !aLaVista)) {
+				continue;
+			}
+			long ahora = System.nanoTime();
+			if (ahora < t.siguiente - tolerancia) {
+				continue;
+			}
+			// sin presupuesto se aplaza, salvo que ya lleve un periodo entero esperando
+			boolean sinPresupuesto = ahora - inicio > presupuesto;
+			if (t.prioridad != Prioridad.ALTA && sinPresupuesto && ahora - t.siguiente < t.periodo) {
+				continue;
+			}
+			t.accion.run();
+			// a su ritmo; si se ha perdido un periodo entero cuenta desde ahora
+			t.siguiente += t.periodo;
+			if (t.siguiente <= ahora) {
+				t.siguiente = ahora + t.periodo - tolerancia;
+			}
+		}
+		ajustarRitmo(aLaVista);
+	}
+
+	private void ajustarRitmo(boolean aLaVista) {
+		long siguiente;
+		if (!aLaVista) {
+			siguiente = oculto;
+		} else if (animando()) {
+			siguiente = periodo;
+		} else {
+			siguiente = reposo;
+		}
+		int ms = (int) (siguiente / 1_000_000L);
+		if (ms != ritmo) {
+			ritmo = ms;
+			timer.setDelay(ms);
+		}
+	}
+
+	private boolean animando() {
+		for (BooleanSupplier a : animaciones) {
+			if (a.getAsBoolean()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// sin ventana (benchmarks) cuenta como a la vista
+	private boolean aLaVista() {
+		if (ventana == null) {
+			return true;
+		}
+		return ventana.isShowing() && (ventana.getExtendedState() & Frame.ICONIFIED) == 0;
+	}
+
+	private int periodoMs() {
+		return (int) (periodo / 1_000_000L);
+	}
+
+	//
+	//
+	// getters
+	public int getRitmo() {
+		return ritmo;
+	}
+
+	public long getTicks() {
+		return ticks;
+	}
+
+	public int getPeriodo() {
+		return periodoMs();
+	}
+
+}